@@ -1,6 +1,9 @@
 import modelo.*;
 import servicio.*;
 import utilidad.*;
+import java.io.IOException;
+import java.time.YearMonth;
+import java.time.format.DateTimeParseException;
 import java.util.Scanner;
 import java.util.ArrayList;
 
@@ -23,6 +26,49 @@ public class Main {
      * @param args Argumentos de linea de comandos
      */
     public static void main(String[] args) {
+        // Modo sin interaccion: reproducir un archivo de eventos
+        if (args.length > 0 && args[0].equals("--reproducir")) {
+            ejecutarReproduccion(args);
+            return;
+        }
+
+        // Modo generador de carga: mide rendimiento contra latencia
+        if (args.length > 0 && args[0].equals("--carga")) {
+            ejecutarCarga(args);
+            return;
+        }
+
+        // Modo servidor: API HTTP para puertas, kioscos y pantallas
+        if (args.length > 0 && args[0].equals("--servidor")) {
+            ejecutarServidor(args);
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--simular")) {
+            ejecutarSimulacion(args);
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--primario")) {
+            ejecutarPrimario(args);
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--replica")) {
+            ejecutarReplica(args);
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--nodo")) {
+            ejecutarNodo(args);
+            return;
+        }
+
+        if (args.length > 0 && args[0].equals("--barrido")) {
+            ejecutarBarrido(args);
+            return;
+        }
+
         Scanner scanner = new Scanner(System.in);
         Parqueadero parqueadero = null;
 
@@ -59,6 +105,20 @@ public class Main {
         // Crear el gestor
         GestorParqueadero gestor = new GestorParqueadero(parqueadero);
 
+        // Cargar las listas de placas bloqueadas y permitidas
+        FiltroAcceso filtroAcceso = new FiltroAcceso();
+        filtroAcceso.recargar();
+        filtroAcceso.iniciarRecargaPeriodica(60);
+        gestor.setFiltroAcceso(filtroAcceso);
+        gestor.setRegistroAbonos(new RegistroAbonos());
+        gestor.setBuscadorPlacas(new BuscadorPlacas());
+        gestor.iniciarVencimientoAutomatico();
+
+        // Vigilar los vehiculos que pasan de 24 horas parqueados
+        MonitorEstadias monitorEstadias = new MonitorEstadias(24, null);
+        gestor.agregarEscucha(monitorEstadias);
+        monitorEstadias.iniciar(60);
+
         // Menu principal
         boolean continuar = true;
 
@@ -98,6 +158,26 @@ public class Main {
                     break;
 
                 case 8:
+                    registrarAbono(scanner, gestor);
+                    break;
+
+                case 9:
+                    reservarEspacio(scanner, gestor);
+                    break;
+
+                case 10:
+                    buscarPorPlacaParcial(scanner, gestor);
+                    break;
+
+                case 11:
+                    cerrarDia(gestor);
+                    break;
+
+                case 12:
+                    generarReporteMensual(scanner, gestor);
+                    break;
+
+                case 13:
                     continuar = false;
                     System.out.println("\nGracias por usar el Sistema de Parqueadero!");
                     System.out.println("Hasta pronto!\n");
@@ -116,6 +196,466 @@ public class Main {
         scanner.close();
     }
 
+    /**
+     * Reproduce un archivo de eventos sin menu interactivo.
+     * Uso: --reproducir ARCHIVO (NOMBRE_PARQUEADERO | CAPACIDAD) [FACTOR_VELOCIDAD]
+     * Con factor 0 (por defecto) se reproduce lo mas rapido posible.
+     *
+     * @param args Argumentos de linea de comandos
+     */
+    public static void ejecutarReproduccion(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Uso: java Main --reproducir ARCHIVO (NOMBRE_PARQUEADERO | CAPACIDAD) [FACTOR_VELOCIDAD]");
+            return;
+        }
+
+        String archivo = args[1];
+        double factor = args.length > 3 ? Double.parseDouble(args[3]) : 0.0;
+
+        Parqueadero parqueadero = parqueaderoDesdeArgumento(args[2], "REPRODUCCION");
+        if (parqueadero == null) {
+            return;
+        }
+
+        RelojManual reloj = new RelojManual(0);
+        GestorParqueadero gestor = new GestorParqueadero(parqueadero, reloj);
+        gestor.setMostrarMensajes(false);
+
+        ReproductorEventos reproductor = new ReproductorEventos(gestor, reloj, factor);
+
+        try (LectorEventos lector = new LectorEventos(archivo, reloj.getZona())) {
+            reproductor.reproducir(lector);
+
+            System.out.println(reproductor.mostrarResumen());
+            if (lector.getLineasInvalidas() > 0) {
+                System.out.println("Lineas invalidas ignoradas: " + lector.getLineasInvalidas());
+            }
+        } catch (IOException e) {
+            System.out.println("Error al leer el archivo de eventos: " + e.getMessage());
+            return;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            System.out.println("Reproduccion interrumpida.");
+        }
+
+        System.out.println(gestor.consultarDisponibilidad());
+        System.out.println(gestor.generarReporteOcupacion());
+    }
+
+    /**
+     * Inicia la API HTTP y la deja atendiendo hasta que se cierre el proceso.
+     * Uso: --servidor PUERTO [NOMBRE_PARQUEADERO | CAPACIDAD]
+     *
+     * @param args Argumentos de linea de comandos
+     */
+    public static void ejecutarServidor(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Uso: java Main --servidor PUERTO [NOMBRE_PARQUEADERO | CAPACIDAD]");
+            return;
+        }
+
+        // Sin parqueadero se atienden todos los del archivo bajo /parqueaderos/{nombre}/
+        if (args.length == 2) {
+            ejecutarServidorRegistro(Integer.parseInt(args[1]));
+            return;
+        }
+
+        Parqueadero parqueadero = parqueaderoDesdeArgumento(args[2], "SERVIDOR");
+        if (parqueadero == null) {
+            return;
+        }
+
+        GestorParqueadero gestor = new GestorParqueadero(parqueadero);
+        gestor.setMostrarMensajes(false);
+        gestor.setBuscadorPlacas(new BuscadorPlacas());
+        gestor.setMetricas(Metricas.GENERAL);
+        gestor.iniciarVencimientoAutomatico();
+        gestor.iniciarCierreAutomatico();
+        gestor.iniciarMuestreoOcupacion();
+
+        // Feed para los avisos de espacios disponibles
+        FeedOcupacion feed = new FeedOcupacion();
+        gestor.agregarEscucha(feed);
+        synchronized (gestor) {
+            feed.publicar(parqueadero, gestor.getReloj().ahoraMillis());
+        }
+
+        // Auditoria de entradas y salidas en archivos comprimidos, sin frenar las puertas
+        BitacoraAuditoria bitacora = new BitacoraAuditoria("auditoria");
+        bitacora.iniciar();
+        gestor.agregarEscucha(bitacora);
+
+        ServidorApi servidor = new ServidorApi(gestor, Integer.parseInt(args[1]));
+        servidor.agregarContexto("/ocupacion/feed", feed.manejadorSse());
+
+        // Lecturas de las camaras de placas, sin repetidos
+        IngestaCamaras ingesta = new IngestaCamaras(gestor, 10000, IngestaCamaras.VENTANA_POR_DEFECTO_MILLIS);
+        ingesta.iniciar();
+        servidor.agregarContexto("/camaras", ingesta.manejadorHttp());
+
+        // Metricas para Prometheus y una linea de resumen cada minuto
+        Metricas.GENERAL.medidor("parqueadero_ingesta_pendientes", "Lecturas de camaras en la cola",
+                ingesta::contarPendientes);
+        Metricas.GENERAL.medidor("parqueadero_auditoria_pendientes", "Registros de auditoria sin escribir",
+                bitacora::contarPendientes);
+        Metricas.GENERAL.medidor("parqueadero_auditoria_descartados", "Registros de auditoria descartados por anillo lleno",
+                bitacora::getDescartados);
+        Metricas.GENERAL.medidor("parqueadero_feed_suscriptores", "Suscriptores del feed de ocupacion",
+                feed::contarSuscriptores);
+        servidor.agregarContexto("/metricas", Metricas.GENERAL.manejadorHttp());
+        Metricas.GENERAL.iniciarRegistroPeriodico(60);
+        try {
+            servidor.iniciar();
+        } catch (IOException e) {
+            System.out.println("Error al iniciar el servidor: " + e.getMessage());
+            return;
+        }
+
+        System.out.println("API del parqueadero " + parqueadero.getNombre() +
+                " escuchando en el puerto " + servidor.getPuerto());
+    }
+
+    /**
+     * Inicia la API para todos los parqueaderos guardados en el archivo.
+     * Cada parqueadero se carga con la primera peticion y se descarga
+     * despues de 30 minutos sin uso si esta vacio.
+     *
+     * @param puerto El puerto donde escuchar
+     */
+    public static void ejecutarServidorRegistro(int puerto) {
+        RegistroParqueaderos registro = new RegistroParqueaderos(30);
+
+        FiltroAcceso filtroAcceso = new FiltroAcceso();
+        filtroAcceso.recargar();
+        filtroAcceso.iniciarRecargaPeriodica(60);
+        registro.setFiltroAcceso(filtroAcceso);
+        RegistroAbonos registroAbonos = new RegistroAbonos();
+        registroAbonos.iniciarRecargaPeriodica(60);
+        registro.setRegistroAbonos(registroAbonos);
+        registro.iniciarMantenimiento(60);
+
+        FeedOcupacion feed = new FeedOcupacion();
+        registro.agregarEscucha(feed);
+        registro.setMetricas(Metricas.GENERAL);
+
+        BitacoraAuditoria bitacora = new BitacoraAuditoria("auditoria");
+        bitacora.iniciar();
+        registro.agregarEscucha(bitacora);
+        Metricas.GENERAL.medidor("parqueadero_auditoria_pendientes", "Registros de auditoria sin escribir",
+                bitacora::contarPendientes);
+        Metricas.GENERAL.medidor("parqueadero_auditoria_descartados", "Registros de auditoria descartados por anillo lleno",
+                bitacora::getDescartados);
+        Metricas.GENERAL.medidor("parqueadero_feed_suscriptores", "Suscriptores del feed de ocupacion",
+                feed::contarSuscriptores);
+
+        ServidorApi servidor = new ServidorApi(registro, puerto);
+        servidor.agregarContexto("/ocupacion/feed", feed.manejadorSse());
+        servidor.agregarContexto("/metricas", Metricas.GENERAL.manejadorHttp());
+        Metricas.GENERAL.iniciarRegistroPeriodico(60);
+        try {
+            servidor.iniciar();
+        } catch (IOException e) {
+            System.out.println("Error al iniciar el servidor: " + e.getMessage());
+            return;
+        }
+
+        System.out.println("API de " + registro.listarTodos().size() +
+                " parqueaderos escuchando en el puerto " + servidor.getPuerto());
+    }
+
+    /**
+     * Inicia la API de un parqueadero que replica su diario a otras maquinas.
+     * Uso: --primario PUERTO_API PUERTO_REPLICACION (NOMBRE_PARQUEADERO | CAPACIDAD) [ARCHIVO_DIARIO]
+     *
+     * @param args Argumentos de linea de comandos
+     */
+    public static void ejecutarPrimario(String[] args) {
+        if (args.length < 4) {
+            System.out.println("Uso: java Main --primario PUERTO_API PUERTO_REPLICACION " +
+                    "(NOMBRE_PARQUEADERO | CAPACIDAD) [ARCHIVO_DIARIO]");
+            return;
+        }
+
+        Parqueadero parqueadero = parqueaderoDesdeArgumento(args[3], "REPLICADO");
+        if (parqueadero == null) {
+            return;
+        }
+
+        GestorParqueadero gestor = new GestorParqueadero(parqueadero);
+        gestor.setMostrarMensajes(false);
+        gestor.iniciarVencimientoAutomatico();
+
+        ServidorApi servidor = new ServidorApi(gestor, Integer.parseInt(args[1]));
+        try {
+            DiarioEventos diario = args.length > 4 ? new DiarioEventos(args[4]) : new DiarioEventos();
+            gestor.agregarEscucha(diario);
+
+            ReplicadorPrimario replicador = new ReplicadorPrimario(diario, Integer.parseInt(args[2]));
+            replicador.iniciar();
+            servidor.agregarContexto("/replicacion", ServidorApi.manejadorJson("GET", replicador::mostrarJson));
+            servidor.iniciar();
+
+            System.out.println("Primario de " + parqueadero.getNombre() + ": API en el puerto " +
+                    servidor.getPuerto() + ", replicacion en el puerto " + replicador.getPuerto());
+        } catch (IOException e) {
+            System.out.println("Error al iniciar el primario: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Inicia una replica que sigue a un primario y se puede promover.
+     * Uso: --replica PUERTO_API HOST:PUERTO_REPLICACION (NOMBRE_PARQUEADERO | CAPACIDAD)
+     *
+     * @param args Argumentos de linea de comandos
+     */
+    public static void ejecutarReplica(String[] args) {
+        if (args.length < 4 || !args[2].contains(":")) {
+            System.out.println("Uso: java Main --replica PUERTO_API HOST:PUERTO_REPLICACION " +
+                    "(NOMBRE_PARQUEADERO | CAPACIDAD)");
+            return;
+        }
+
+        Parqueadero parqueadero = parqueaderoDesdeArgumento(args[3], "REPLICADO");
+        if (parqueadero == null) {
+            return;
+        }
+
+        String host = args[2].substring(0, args[2].lastIndexOf(':'));
+        int puertoPrimario = Integer.parseInt(args[2].substring(args[2].lastIndexOf(':') + 1));
+        ReplicaParqueadero replica = new ReplicaParqueadero(parqueadero, host, puertoPrimario);
+
+        // Mientras no se promueva solo atiende consultas
+        ServidorApi servidor = new ServidorApi(replica.getGestor(), Integer.parseInt(args[1]));
+        replica.setAlCambiarGestor(servidor::setGestor);
+        servidor.setSoloLectura(true);
+        servidor.setTokenAdmin(leerTokenAdmin());
+        servidor.agregarContexto("/replicacion/promover", servidor.protegido(ServidorApi.manejadorJson("POST", () -> {
+            replica.promover().iniciarVencimientoAutomatico();
+            servidor.setSoloLectura(false);
+            return replica.mostrarJson();
+        })));
+        servidor.agregarContexto("/replicacion", ServidorApi.manejadorJson("GET", replica::mostrarJson));
+
+        try {
+            servidor.iniciar();
+        } catch (IOException e) {
+            System.out.println("Error al iniciar el servidor: " + e.getMessage());
+            return;
+        }
+        replica.iniciar();
+
+        System.out.println("Replica de " + parqueadero.getNombre() + " siguiendo a " + args[2] +
+                ", API en el puerto " + servidor.getPuerto());
+    }
+
+    /**
+     * Inicia un nodo del cluster de parqueaderos.
+     * Uso: --nodo PUERTO URL_PROPIA [URLS_SEMILLA separadas por coma]
+     * Las rutas /cluster piden el token de PARQUEADERO_TOKEN_ADMIN, el mismo en todos los nodos.
+     *
+     * @param args Argumentos de linea de comandos
+     */
+    public static void ejecutarNodo(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Uso: java Main --nodo PUERTO URL_PROPIA [URLS_SEMILLA]");
+            return;
+        }
+
+        RegistroParqueaderos registro = new RegistroParqueaderos(30);
+        FiltroAcceso filtroAcceso = new FiltroAcceso();
+        filtroAcceso.recargar();
+        filtroAcceso.iniciarRecargaPeriodica(60);
+        registro.setFiltroAcceso(filtroAcceso);
+        RegistroAbonos registroAbonos = new RegistroAbonos();
+        registroAbonos.iniciarRecargaPeriodica(60);
+        registro.setRegistroAbonos(registroAbonos);
+        registro.iniciarMantenimiento(60);
+
+        String tokenAdmin = leerTokenAdmin();
+        NodoCluster nodo = new NodoCluster(args[2], registro);
+        nodo.setTokenAdmin(tokenAdmin);
+        ServidorApi servidor = new ServidorApi(registro, Integer.parseInt(args[1]));
+        servidor.setCluster(nodo);
+        servidor.setTokenAdmin(tokenAdmin);
+        try {
+            servidor.iniciar();
+        } catch (IOException e) {
+            System.out.println("Error al iniciar el servidor: " + e.getMessage());
+            return;
+        }
+
+        if (args.length > 3) {
+            ArrayList<String> semillas = new ArrayList<String>();
+            String[] urls = args[3].split(",");
+            for (int i = 0; i < urls.length; i++) {
+                semillas.add(urls[i].trim());
+            }
+            nodo.unirse(semillas);
+        }
+
+        System.out.println("Nodo " + nodo.getUrlPropia() + " escuchando en el puerto " + servidor.getPuerto() +
+                " (" + nodo.getAnillo().contarNodos() + " nodos en el cluster)");
+    }
+
+    /**
+     * Ejecuta el generador de carga y muestra el reporte de rendimiento.
+     * Uso: --carga (local CAPACIDAD | http URL) [TASAS_SEPARADAS_POR_COMA] [SEGUNDOS_POR_PASO] [ESTADIA_MS]
+     *
+     * @param args Argumentos de linea de comandos
+     */
+    public static void ejecutarCarga(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Uso: java Main --carga (local CAPACIDAD | http URL) " +
+                    "[TASAS_SEPARADAS_POR_COMA] [SEGUNDOS_POR_PASO] [ESTADIA_MS]");
+            return;
+        }
+
+        GeneradorCarga generador;
+        if (args[1].equals("http")) {
+            generador = new GeneradorCarga(args[2]);
+        } else {
+            generador = new GeneradorCarga(GeneradorCarga.crearGestorPrueba(Integer.parseInt(args[2]), 0.6));
+        }
+
+        String[] textoTasas = (args.length > 3 ? args[3] : "1000,5000,10000,20000").split(",");
+        double[] tasas = new double[textoTasas.length];
+        for (int i = 0; i < textoTasas.length; i++) {
+            tasas[i] = Double.parseDouble(textoTasas[i].trim());
+        }
+
+        int segundos = args.length > 4 ? Integer.parseInt(args[4]) : 5;
+        if (args.length > 5) {
+            generador.setEstadiaMediaMillis(Long.parseLong(args[5]));
+        }
+
+        System.out.println("Ejecutando " + tasas.length + " pasos de " + segundos + " segundos...");
+        System.out.println(GeneradorCarga.mostrarReporte(generador.ejecutar(tasas, segundos)));
+    }
+
+    /**
+     * Simula el trafico de varios dias contra una configuracion de parqueadero.
+     * Uso: --simular CAPACIDAD ESPACIOS_AUTO [DIAS] [LLEGADAS_POR_DIA] [ESTADIA_MIN]
+     * [EXCLUSIVA | DESBORDE_MOTOS] [TARIFA_AUTO] [TARIFA_MOTO]
+     *
+     * @param args Argumentos de linea de comandos
+     */
+    public static void ejecutarSimulacion(String[] args) {
+        if (args.length < 3) {
+            System.out.println("Uso: java Main --simular CAPACIDAD ESPACIOS_AUTO [DIAS] [LLEGADAS_POR_DIA] " +
+                    "[ESTADIA_MIN] [EXCLUSIVA | DESBORDE_MOTOS] [TARIFA_AUTO] [TARIFA_MOTO]");
+            return;
+        }
+
+        int capacidad = Integer.parseInt(args[1]);
+        int espaciosAuto = Integer.parseInt(args[2]);
+        if (espaciosAuto < 0 || espaciosAuto > capacidad) {
+            System.out.println("Error: Los espacios para autos no pueden superar la capacidad");
+            return;
+        }
+
+        Parqueadero parqueadero = Parqueadero.crear("SIMULACION", capacidad, espaciosAuto);
+        if (args.length > 6) {
+            parqueadero.setEstrategiaAsignacion(args[6].toUpperCase());
+        }
+
+        CalculadorTarifa calculador = CalculadorTarifa.POR_DEFECTO;
+        if (args.length > 8) {
+            calculador = new CalculadorTarifa(Double.parseDouble(args[7]), Double.parseDouble(args[8]));
+        }
+
+        Simulador simulador = new Simulador(parqueadero, calculador, 42);
+        int dias = args.length > 3 ? Integer.parseInt(args[3]) : 30;
+        if (args.length > 4) {
+            simulador.setLlegadasPorDia(Double.parseDouble(args[4]));
+        }
+        if (args.length > 5) {
+            simulador.setEstadiaMediaMinutos(Double.parseDouble(args[5]));
+        }
+
+        System.out.println("Simulando " + dias + " dias...");
+        simulador.simular(dias);
+        System.out.println(simulador.mostrarResumen());
+    }
+
+    /**
+     * Compara varias configuraciones de parqueadero simulandolas en paralelo.
+     * Uso: --barrido CAPACIDAD [DIAS] [LLEGADAS_POR_DIA] [ESTADIA_MIN]
+     * [PORCENTAJES_AUTO separados por coma] [TARIFAS AUTO:MOTO separadas por coma]
+     *
+     * @param args Argumentos de linea de comandos
+     */
+    public static void ejecutarBarrido(String[] args) {
+        if (args.length < 2) {
+            System.out.println("Uso: java Main --barrido CAPACIDAD [DIAS] [LLEGADAS_POR_DIA] [ESTADIA_MIN] " +
+                    "[PORCENTAJES_AUTO] [TARIFAS_AUTO:MOTO]");
+            return;
+        }
+
+        int capacidad = Integer.parseInt(args[1]);
+        int dias = args.length > 2 ? Integer.parseInt(args[2]) : 30;
+        double llegadasPorDia = args.length > 3 ? Double.parseDouble(args[3]) : capacidad * 3.0;
+        double estadia = args.length > 4 ? Double.parseDouble(args[4]) : 120;
+
+        String[] textoPorcentajes = (args.length > 5 ? args[5] : "30,40,50,60,70").split(",");
+        int[] porcentajes = new int[textoPorcentajes.length];
+        for (int i = 0; i < textoPorcentajes.length; i++) {
+            porcentajes[i] = Integer.parseInt(textoPorcentajes[i].trim());
+        }
+
+        String[] textoTarifas = (args.length > 6 ? args[6] : "3000:2000").split(",");
+        CalculadorTarifa[] tarifas = new CalculadorTarifa[textoTarifas.length];
+        for (int i = 0; i < textoTarifas.length; i++) {
+            String[] partes = textoTarifas[i].split(":");
+            tarifas[i] = new CalculadorTarifa(Double.parseDouble(partes[0]), Double.parseDouble(partes[1]));
+        }
+
+        String[] estrategias = {Parqueadero.ASIGNACION_EXCLUSIVA, Parqueadero.ASIGNACION_DESBORDE_MOTOS};
+
+        BarridoParametros barrido = new BarridoParametros(capacidad, dias, llegadasPorDia, estadia, 0.6);
+        barrido.agregarCombinaciones(porcentajes, estrategias, tarifas);
+
+        System.out.println("Simulando " + barrido.getEscenarios().size() + " escenarios en " +
+                Runtime.getRuntime().availableProcessors() + " nucleos...");
+        System.out.println(barrido.mostrarComparacion(barrido.ejecutar()));
+    }
+
+    /**
+     * Lee el token de las rutas de administracion de la variable de entorno
+     * PARQUEADERO_TOKEN_ADMIN
+     *
+     * @return El token o null si no esta definido (las rutas de administracion se rechazan)
+     */
+    public static String leerTokenAdmin() {
+        String token = System.getenv("PARQUEADERO_TOKEN_ADMIN");
+        if (token == null || token.isEmpty()) {
+            System.out.println("Advertencia: sin PARQUEADERO_TOKEN_ADMIN se rechazan las rutas de administracion");
+            return null;
+        }
+        return token;
+    }
+
+    /**
+     * Obtiene un parqueadero a partir de un argumento de linea de comandos.
+     * Si el argumento es un numero se crea un parqueadero nuevo con esa
+     * capacidad (mitad autos, mitad motos); si no, se carga por nombre.
+     *
+     * @param argumento El nombre del parqueadero o su capacidad
+     * @param nombreNuevo El nombre a usar si se crea un parqueadero nuevo
+     * @return El parqueadero o null si no se encontro
+     */
+    public static Parqueadero parqueaderoDesdeArgumento(String argumento, String nombreNuevo) {
+        if (argumento.matches("\\d+")) {
+            int capacidad = Integer.parseInt(argumento);
+            return Parqueadero.crear(nombreNuevo, capacidad, capacidad / 2);
+        }
+
+        Parqueadero parqueadero = GestorArchivos.cargarParqueadero(argumento);
+        if (parqueadero == null) {
+            System.out.println("Error: No se encontro el parqueadero " + argumento);
+        }
+        return parqueadero;
+    }
+
     /**
      * Carga un parqueadero existente desde el archivo
      *
@@ -170,20 +710,19 @@ public class Main {
         int capacidad = scanner.nextInt();
         scanner.nextLine(); 
 
-        Parqueadero parqueadero = new Parqueadero(nombreParqueadero, capacidad);
-
-        // Inicializar espacios (mitad para autos, mitad para motos)
+        // Inicializar espacios (por defecto mitad para autos, mitad para motos)
+        System.out.print("Ingrese el numero de espacios para autos (Enter = mitad): ");
+        String textoAutos = scanner.nextLine().trim();
         int espaciosAutos = capacidad / 2;
+        if (textoAutos.matches("\\d+") && Integer.parseInt(textoAutos) <= capacidad) {
+            espaciosAutos = Integer.parseInt(textoAutos);
+        } else if (!textoAutos.isEmpty()) {
+            System.out.println("Valor invalido, se usara la mitad para autos.");
+        }
         int espaciosMotos = capacidad - espaciosAutos;
 
         System.out.println("\nCreando espacios...");
-        for (int i = 1; i <= espaciosAutos; i++) {
-            parqueadero.agregarEspacio(new Espacio(i, "AUTO"));
-        }
-
-        for (int i = espaciosAutos + 1; i <= capacidad; i++) {
-            parqueadero.agregarEspacio(new Espacio(i, "MOTO"));
-        }
+        Parqueadero parqueadero = Parqueadero.crear(nombreParqueadero, capacidad, espaciosAutos);
 
         // Guardar el parqueadero en el archivo
         if (GestorArchivos.guardarParqueadero(parqueadero)) {
@@ -213,7 +752,12 @@ public class Main {
         System.out.println("5. Generar Reporte de Ocupacion");
         System.out.println("6. Ver Tarifas");
         System.out.println("7. Generar Reporte en Archivo TXT");
-        System.out.println("8. Salir");
+        System.out.println("8. Registrar Abono Mensual");
+        System.out.println("9. Reservar Espacio");
+        System.out.println("10. Buscar Vehiculo por Placa Parcial");
+        System.out.println("11. Cerrar el Dia");
+        System.out.println("12. Generar Reporte Mensual");
+        System.out.println("13. Salir");
         System.out.println("============================================");
     }
 
@@ -253,13 +797,82 @@ public class Main {
         }
     }
 
+    /**
+     * Registra o renueva el abono mensual de un vehiculo
+     *
+     * @param scanner Scanner para leer entrada del usuario
+     * @param gestor Gestor del parqueadero
+     */
+    public static void registrarAbono(Scanner scanner, GestorParqueadero gestor) {
+        System.out.println("\n--- REGISTRAR ABONO MENSUAL ---");
+        System.out.print("Ingrese la placa del vehiculo: ");
+        String placa = scanner.nextLine();
+
+        if (!Validador.validarPlaca(placa)) {
+            System.out.println("Error: Placa invalida");
+            return;
+        }
+
+        System.out.print("Ingrese el numero de meses: ");
+        int meses = scanner.nextInt();
+        scanner.nextLine();
+
+        if (!Validador.validarNumeroPositivo(meses)) {
+            System.out.println("Error: El numero de meses debe ser positivo");
+            return;
+        }
+
+        placa = placa.trim().toUpperCase();
+        Abono abono = new Abono(placa, "MENSUAL", gestor.getReloj().ahora().plusMonths(meses));
+
+        if (gestor.getRegistroAbonos().registrarAbono(abono)) {
+            System.out.println("\nAbono registrado exitosamente!");
+            System.out.println(abono.mostrarInformacion());
+        } else {
+            System.out.println("Error al registrar el abono.");
+        }
+    }
+
+    /**
+     * Reserva un espacio para un vehiculo que llegara despues
+     *
+     * @param scanner Scanner para leer entrada del usuario
+     * @param gestor Gestor del parqueadero
+     */
+    public static void reservarEspacio(Scanner scanner, GestorParqueadero gestor) {
+        System.out.println("\n--- RESERVAR ESPACIO ---");
+        System.out.print("Ingrese la placa del vehiculo: ");
+        String placa = scanner.nextLine();
+
+        System.out.print("Ingrese los minutos de espera: ");
+        int minutos = scanner.nextInt();
+        scanner.nextLine();
+
+        if (!Validador.validarNumeroPositivo(minutos)) {
+            System.out.println("Error: Los minutos deben ser positivos");
+            return;
+        }
+
+        Reserva reserva = gestor.reservarEspacio(placa, minutos);
+
+        if (reserva != null) {
+            System.out.println("\nReserva registrada exitosamente!");
+            System.out.println(reserva.mostrarInformacion());
+        }
+    }
+
     /**
      * Consulta la disponibilidad de espacios
      *
      * @param gestor Gestor del parqueadero
      */
     public static void consultarDisponibilidad(GestorParqueadero gestor) {
-        System.out.println(gestor.consultarDisponibilidad());
+        try {
+            gestor.escribirDisponibilidad(System.out);
+        } catch (IOException e) {
+            System.out.println("Error al mostrar la disponibilidad: " + e.getMessage());
+        }
+        System.out.println();
     }
 
     /**
@@ -268,7 +881,64 @@ public class Main {
      * @param gestor Gestor del parqueadero
      */
     public static void listarVehiculos(GestorParqueadero gestor) {
-        System.out.println(gestor.listarVehiculosParqueados());
+        if (gestor.contarTicketsActivos() == 0) {
+            System.out.println("\nNo hay vehiculos parqueados actualmente.\n");
+            return;
+        }
+
+        // Se escribe por paginas directo a la consola, sin armar toda la lista
+        System.out.println("\n========== VEHICULOS PARQUEADOS ==========");
+        try {
+            String despuesDe = null;
+            do {
+                despuesDe = gestor.escribirVehiculosParqueados(System.out, despuesDe, GestorParqueadero.PAGINA_LISTADO);
+            } while (despuesDe != null);
+        } catch (IOException e) {
+            System.out.println("Error al listar los vehiculos: " + e.getMessage());
+        }
+        System.out.println("==========================================\n");
+    }
+
+    /**
+     * Busca vehiculos por el inicio o el final de la placa, de a 20 por pagina
+     *
+     * @param scanner Scanner para leer la entrada
+     * @param gestor El gestor del parqueadero
+     */
+    public static void buscarPorPlacaParcial(Scanner scanner, GestorParqueadero gestor) {
+        System.out.print("Ingrese el inicio de la placa (o *FINAL para buscar por el final): ");
+        String texto = scanner.nextLine().trim();
+        boolean porFinal = texto.startsWith("*");
+        if (porFinal) {
+            texto = texto.substring(1);
+        }
+        if (texto.isEmpty()) {
+            System.out.println("Error: Debe ingresar parte de la placa");
+            return;
+        }
+
+        String despuesDe = null;
+        int encontrados = 0;
+        do {
+            int[] pagina = new int[1];
+            despuesDe = gestor.buscarPorPlacaParcial(texto, porFinal, despuesDe, 20, ticket -> {
+                System.out.println("Ticket #" + ticket.getId() + " | " + ticket.getVehiculo().mostrarInformacion() +
+                        " | Espacio: " + ticket.getEspacio().getNumero());
+                pagina[0]++;
+            });
+            encontrados += pagina[0];
+
+            if (despuesDe != null) {
+                System.out.print("Ver mas? (s/n): ");
+                if (!scanner.nextLine().trim().equalsIgnoreCase("s")) {
+                    break;
+                }
+            }
+        } while (despuesDe != null);
+
+        if (encontrados == 0) {
+            System.out.println("No hay vehiculos con esa placa.");
+        }
     }
 
     /**
@@ -277,7 +947,49 @@ public class Main {
      * @param gestor Gestor del parqueadero
      */
     public static void generarReporte(GestorParqueadero gestor) {
-        System.out.println(gestor.generarReporteOcupacion());
+        try {
+            gestor.escribirReporteOcupacion(System.out);
+        } catch (IOException e) {
+            System.out.println("Error al mostrar el reporte: " + e.getMessage());
+        }
+        System.out.println();
+    }
+
+    /**
+     * Cierra el dia en curso y muestra su resumen
+     *
+     * @param gestor Gestor del parqueadero
+     */
+    public static void cerrarDia(GestorParqueadero gestor) {
+        ResumenDiario resumen = gestor.cerrarDia();
+
+        System.out.println("\n========== CIERRE DEL DIA " + resumen.getFecha() + " ==========");
+        System.out.println("Vehiculos Atendidos: " + resumen.getVehiculos() +
+                " (Autos: " + resumen.getAutos() + " | Motos: " + resumen.getMotos() + ")");
+        System.out.println("Ingresos: $" + String.format("%.2f", resumen.getIngresos()));
+        System.out.println("Estadia P50/P90/P99: " + resumen.getEstadiaP50() + "/" +
+                resumen.getEstadiaP90() + "/" + resumen.getEstadiaP99() + " min");
+    }
+
+    /**
+     * Muestra el reporte de un mes con los resumenes de los dias cerrados
+     *
+     * @param scanner Scanner para leer entrada del usuario
+     * @param gestor Gestor del parqueadero
+     */
+    public static void generarReporteMensual(Scanner scanner, GestorParqueadero gestor) {
+        System.out.print("Ingrese el mes (AAAA-MM, vacio para el actual): ");
+        String texto = scanner.nextLine().trim();
+
+        YearMonth mes;
+        try {
+            mes = texto.isEmpty() ? YearMonth.from(gestor.getDiaActual()) : YearMonth.parse(texto);
+        } catch (DateTimeParseException e) {
+            System.out.println("Error: El mes debe tener el formato AAAA-MM");
+            return;
+        }
+
+        System.out.println(gestor.generarReporteMensual(mes));
     }
 
     /**
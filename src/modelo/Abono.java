@@ -0,0 +1,96 @@
+package modelo;
+
+import java.time.LocalDateTime;
+
+/**
+ * Clase que representa un abono o pase prepagado de un vehiculo.
+ * Mientras el abono este vigente el vehiculo entra y sale sin pagar por hora.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class Abono {
+
+    /**
+     * Placa del vehiculo abonado
+     */
+    private String placa;
+
+    /**
+     * Tipo de abono (MENSUAL o PREPAGO)
+     */
+    private String tipo;
+
+    /**
+     * Fecha y hora hasta la que el abono es valido
+     */
+    private LocalDateTime fechaVencimiento;
+
+    /**
+     * Constructor de la clase Abono
+     *
+     * @param placa La placa del vehiculo
+     * @param tipo El tipo de abono
+     * @param fechaVencimiento La fecha de vencimiento
+     */
+    public Abono(String placa, String tipo, LocalDateTime fechaVencimiento) {
+        this.placa = placa;
+        this.tipo = tipo;
+        this.fechaVencimiento = fechaVencimiento;
+    }
+
+    /**
+     * Obtiene la placa del abono
+     *
+     * @return La placa
+     */
+    public String getPlaca() {
+        return placa;
+    }
+
+    /**
+     * Obtiene el tipo de abono
+     *
+     * @return El tipo de abono
+     */
+    public String getTipo() {
+        return tipo;
+    }
+
+    /**
+     * Obtiene la fecha de vencimiento
+     *
+     * @return La fecha de vencimiento
+     */
+    public LocalDateTime getFechaVencimiento() {
+        return fechaVencimiento;
+    }
+
+    /**
+     * Establece la fecha de vencimiento
+     *
+     * @param fechaVencimiento La nueva fecha de vencimiento
+     */
+    public void setFechaVencimiento(LocalDateTime fechaVencimiento) {
+        this.fechaVencimiento = fechaVencimiento;
+    }
+
+    /**
+     * Verifica si el abono esta vigente en un momento dado
+     *
+     * @param momento El momento a verificar
+     * @return true si el abono sigue vigente, false si ya vencio
+     */
+    public boolean estaVigente(LocalDateTime momento) {
+        return momento.isBefore(fechaVencimiento);
+    }
+
+    /**
+     * Muestra la informacion del abono
+     *
+     * @return String con la informacion del abono
+     */
+    public String mostrarInformacion() {
+        return "ABONO " + tipo + " - Placa: " + placa + " - Vence: " + fechaVencimiento;
+    }
+}
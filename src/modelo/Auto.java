@@ -19,6 +19,16 @@ public class Auto extends Vehiculo {
         super(placa, "AUTO");
     }
 
+    /**
+     * Constructor de la clase Auto que toma la hora de entrada de un reloj
+     *
+     * @param placa La placa del auto
+     * @param reloj El reloj del que se toma la hora de entrada
+     */
+    public Auto(String placa, Reloj reloj) {
+        super(placa, "AUTO", reloj);
+    }
+
     /**
      * Muestra la informacion del auto
      *
@@ -29,6 +29,21 @@ public class Espacio {
      */
     private Vehiculo vehiculoActual;
 
+    /**
+     * Placa para la que esta reservado el espacio (null si no hay reserva)
+     */
+    private String placaReservada;
+
+    /**
+     * Parqueadero al que pertenece el espacio (null si no se ha agregado a uno)
+     */
+    private Parqueadero parqueadero;
+
+    /**
+     * Posicion del espacio en la lista del parqueadero
+     */
+    private int indice;
+
     /**
      * Constructor de la clase Espacio
      *
@@ -40,6 +55,7 @@ public class Espacio {
         this.tipoVehiculo = tipoVehiculo;
         this.ocupado = false;
         this.vehiculoActual = null;
+        this.placaReservada = null;
     }
 
     /**
@@ -76,6 +92,7 @@ public class Espacio {
      */
     public void setOcupado(boolean ocupado) {
         this.ocupado = ocupado;
+        avisarCambio();
     }
 
     /**
@@ -94,6 +111,7 @@ public class Espacio {
      */
     public void setTipoVehiculo(String tipoVehiculo) {
         this.tipoVehiculo = tipoVehiculo;
+        avisarCambio();
     }
 
     /**
@@ -122,6 +140,8 @@ public class Espacio {
     public void ocupar(Vehiculo vehiculo) {
         this.ocupado = true;
         this.vehiculoActual = vehiculo;
+        this.placaReservada = null;
+        avisarCambio();
     }
 
     /**
@@ -130,15 +150,83 @@ public class Espacio {
     public void liberar() {
         this.ocupado = false;
         this.vehiculoActual = null;
+        avisarCambio();
+    }
+
+    /**
+     * Reserva el espacio para una placa
+     *
+     * @param placa La placa para la que se aparta el espacio
+     */
+    public void reservar(String placa) {
+        this.placaReservada = placa;
+        avisarCambio();
+    }
+
+    /**
+     * Quita la reserva del espacio
+     */
+    public void cancelarReserva() {
+        this.placaReservada = null;
+        avisarCambio();
+    }
+
+    /**
+     * Verifica si el espacio esta reservado
+     *
+     * @return true si esta reservado, false si no
+     */
+    public boolean isReservado() {
+        return placaReservada != null;
+    }
+
+    /**
+     * Obtiene la placa para la que esta reservado el espacio
+     *
+     * @return La placa reservada o null si no hay reserva
+     */
+    public String getPlacaReservada() {
+        return placaReservada;
+    }
+
+    /**
+     * Asocia el espacio al parqueadero que lo contiene
+     *
+     * @param parqueadero El parqueadero
+     * @param indice La posicion del espacio en la lista del parqueadero
+     */
+    void asignarParqueadero(Parqueadero parqueadero, int indice) {
+        this.parqueadero = parqueadero;
+        this.indice = indice;
+    }
+
+    /**
+     * Obtiene la posicion del espacio en la lista del parqueadero
+     *
+     * @return La posicion
+     */
+    int getIndice() {
+        return indice;
+    }
+
+    /**
+     * Avisa al parqueadero que cambio la disponibilidad del espacio,
+     * asi mantiene al dia su indice de espacios libres
+     */
+    private void avisarCambio() {
+        if (parqueadero != null) {
+            parqueadero.actualizarDisponibilidad(this);
+        }
     }
 
     /**
-     * Verifica si el espacio esta disponible
+     * Verifica si el espacio esta disponible.
+     * Un espacio reservado no esta disponible para otros vehiculos.
      *
-     * @return true si esta disponible, false si esta ocupado
+     * @return true si esta disponible, false si esta ocupado o reservado
      */
     public boolean estaDisponible() {
-        return !ocupado;
+        return !ocupado && placaReservada == null;
     }
 
     /**
@@ -147,11 +235,13 @@ public class Espacio {
      * @return String con la informacion del espacio
      */
     public String mostrarInformacion() {
-        String estado = ocupado ? "OCUPADO" : "DISPONIBLE";
+        String estado = ocupado ? "OCUPADO" : (placaReservada != null ? "RESERVADO" : "DISPONIBLE");
         String info = "Espacio #" + numero + " [" + tipoVehiculo + "] - " + estado;
 
         if (ocupado && vehiculoActual != null) {
             info += " - Placa: " + vehiculoActual.getPlaca();
+        } else if (placaReservada != null) {
+            info += " - Reservado para: " + placaReservada;
         }
 
         return info;
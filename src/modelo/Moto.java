@@ -19,6 +19,16 @@ public class Moto extends Vehiculo {
         super(placa, "MOTO");
     }
 
+    /**
+     * Constructor de la clase Moto que toma la hora de entrada de un reloj
+     *
+     * @param placa La placa de la moto
+     * @param reloj El reloj del que se toma la hora de entrada
+     */
+    public Moto(String placa, Reloj reloj) {
+        super(placa, "MOTO", reloj);
+    }
+
     /**
      * Muestra la informacion de la moto
      *
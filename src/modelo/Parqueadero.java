@@ -1,6 +1,9 @@
 package modelo;
 
+import java.io.IOException;
 import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
 
 /**
  * Clase que representa el parqueadero completo.
@@ -11,6 +14,16 @@ import java.util.ArrayList;
  */
 public class Parqueadero {
 
+    /**
+     * Estrategia de asignacion: cada vehiculo solo usa espacios de su tipo
+     */
+    public static final String ASIGNACION_EXCLUSIVA = "EXCLUSIVA";
+
+    /**
+     * Estrategia de asignacion: si no quedan espacios de moto, la moto usa un espacio de auto
+     */
+    public static final String ASIGNACION_DESBORDE_MOTOS = "DESBORDE_MOTOS";
+
     /**
      * Nombre del parqueadero
      */
@@ -26,6 +39,23 @@ public class Parqueadero {
      */
     private int capacidadTotal;
 
+    /**
+     * Posiciones de los espacios libres por tipo de vehiculo, para no
+     * recorrer toda la lista en cada entrada
+     */
+    private HashMap<String, BitSet> libresPorTipo;
+
+    /**
+     * Estrategia de asignacion de espacios (EXCLUSIVA o DESBORDE_MOTOS)
+     */
+    private String estrategiaAsignacion;
+
+    /**
+     * Version de la disponibilidad; cambia cada vez que un espacio se ocupa,
+     * se libera o se reserva
+     */
+    private volatile long versionDisponibilidad;
+
     /**
      * Constructor de la clase Parqueadero
      *
@@ -36,6 +66,31 @@ public class Parqueadero {
         this.nombre = nombre;
         this.capacidadTotal = capacidadTotal;
         this.espacios = new ArrayList<Espacio>();
+        this.libresPorTipo = new HashMap<String, BitSet>();
+        this.estrategiaAsignacion = ASIGNACION_EXCLUSIVA;
+    }
+
+    /**
+     * Crea un parqueadero con sus espacios ya agregados.
+     * Los primeros espacios son para autos y el resto para motos.
+     *
+     * @param nombre El nombre del parqueadero
+     * @param capacidadTotal La capacidad total de espacios
+     * @param espaciosAuto El numero de espacios para autos
+     * @return El parqueadero creado
+     */
+    public static Parqueadero crear(String nombre, int capacidadTotal, int espaciosAuto) {
+        Parqueadero parqueadero = new Parqueadero(nombre, capacidadTotal);
+
+        for (int i = 1; i <= espaciosAuto; i++) {
+            parqueadero.agregarEspacio(new Espacio(i, "AUTO"));
+        }
+
+        for (int i = espaciosAuto + 1; i <= capacidadTotal; i++) {
+            parqueadero.agregarEspacio(new Espacio(i, "MOTO"));
+        }
+
+        return parqueadero;
     }
 
     /**
@@ -72,6 +127,13 @@ public class Parqueadero {
      */
     public void setEspacios(ArrayList<Espacio> espacios) {
         this.espacios = espacios;
+
+        // Reconstruir el indice de espacios libres
+        libresPorTipo.clear();
+        for (int i = 0; i < espacios.size(); i++) {
+            espacios.get(i).asignarParqueadero(this, i);
+            actualizarDisponibilidad(espacios.get(i));
+        }
     }
 
     /**
@@ -92,6 +154,24 @@ public class Parqueadero {
         this.capacidadTotal = capacidadTotal;
     }
 
+    /**
+     * Obtiene la estrategia de asignacion de espacios
+     *
+     * @return EXCLUSIVA o DESBORDE_MOTOS
+     */
+    public String getEstrategiaAsignacion() {
+        return estrategiaAsignacion;
+    }
+
+    /**
+     * Establece la estrategia de asignacion de espacios
+     *
+     * @param estrategiaAsignacion EXCLUSIVA o DESBORDE_MOTOS
+     */
+    public void setEstrategiaAsignacion(String estrategiaAsignacion) {
+        this.estrategiaAsignacion = estrategiaAsignacion;
+    }
+
     /**
      * Agrega un espacio al parqueadero
      *
@@ -100,26 +180,78 @@ public class Parqueadero {
      */
     public boolean agregarEspacio(Espacio espacio) {
         if (espacios.size() < capacidadTotal) {
+            espacio.asignarParqueadero(this, espacios.size());
             espacios.add(espacio);
+            actualizarDisponibilidad(espacio);
             return true;
         }
         return false;
     }
 
     /**
-     * Busca un espacio disponible para un tipo de vehiculo
+     * Actualiza el indice de espacios libres cuando cambia un espacio.
+     * Lo llama el propio espacio al ocuparse, liberarse o reservarse.
+     *
+     * @param espacio El espacio que cambio
+     */
+    void actualizarDisponibilidad(Espacio espacio) {
+        versionDisponibilidad++;
+        int indice = espacio.getIndice();
+        for (BitSet libres : libresPorTipo.values()) {
+            libres.clear(indice);
+        }
+
+        if (espacio.estaDisponible() && espacio.getTipoVehiculo() != null) {
+            BitSet libres = libresPorTipo.get(espacio.getTipoVehiculo());
+            if (libres == null) {
+                libres = new BitSet(capacidadTotal);
+                libresPorTipo.put(espacio.getTipoVehiculo(), libres);
+            }
+            libres.set(indice);
+        }
+    }
+
+    /**
+     * Obtiene la version de la disponibilidad, para saber si una foto
+     * tomada antes sigue al dia sin volver a contar los espacios
+     *
+     * @return La version
+     */
+    public long getVersionDisponibilidad() {
+        return versionDisponibilidad;
+    }
+
+    /**
+     * Busca un espacio disponible para un tipo de vehiculo.
+     * Devuelve el primer espacio libre en orden, igual que recorrer la lista,
+     * pero usando el indice de espacios libres. Con la estrategia
+     * DESBORDE_MOTOS una moto puede quedar en un espacio de auto.
      *
      * @param tipoVehiculo El tipo de vehiculo (AUTO o MOTO)
      * @return El espacio disponible o null si no hay
      */
     public Espacio buscarEspacioDisponible(String tipoVehiculo) {
-        for (int i = 0; i < espacios.size(); i++) {
-            Espacio espacio = espacios.get(i);
-            if (espacio.estaDisponible() && espacio.getTipoVehiculo().equals(tipoVehiculo)) {
-                return espacio;
-            }
+        Espacio espacio = primerLibre(tipoVehiculo);
+        if (espacio == null && tipoVehiculo.equals("MOTO")
+                && ASIGNACION_DESBORDE_MOTOS.equals(estrategiaAsignacion)) {
+            espacio = primerLibre("AUTO");
         }
-        return null;
+        return espacio;
+    }
+
+    /**
+     * Obtiene el primer espacio libre de un tipo
+     *
+     * @param tipoVehiculo El tipo de espacio
+     * @return El espacio o null si no hay
+     */
+    private Espacio primerLibre(String tipoVehiculo) {
+        BitSet libres = libresPorTipo.get(tipoVehiculo);
+        if (libres == null) {
+            return null;
+        }
+        int indice = libres.nextSetBit(0);
+        return indice < 0 ? null : espacios.get(indice);
     }
 
     /**
@@ -152,6 +284,65 @@ public class Parqueadero {
         return ocupados;
     }
 
+    /**
+     * Cuenta cuantos espacios hay de un tipo
+     *
+     * @param tipoVehiculo El tipo de vehiculo (AUTO o MOTO)
+     * @return El numero de espacios de ese tipo
+     */
+    public int contarEspacios(String tipoVehiculo) {
+        int total = 0;
+        for (int i = 0; i < espacios.size(); i++) {
+            if (espacios.get(i).getTipoVehiculo().equals(tipoVehiculo)) {
+                total++;
+            }
+        }
+        return total;
+    }
+
+    /**
+     * Cuenta cuantos espacios de un tipo estan disponibles
+     *
+     * @param tipoVehiculo El tipo de vehiculo (AUTO o MOTO)
+     * @return El numero de espacios disponibles de ese tipo
+     */
+    public int contarEspaciosDisponibles(String tipoVehiculo) {
+        BitSet libres = libresPorTipo.get(tipoVehiculo);
+        return libres == null ? 0 : libres.cardinality();
+    }
+
+    /**
+     * Cuenta cuantos espacios de un tipo estan ocupados
+     *
+     * @param tipoVehiculo El tipo de vehiculo (AUTO o MOTO)
+     * @return El numero de espacios ocupados de ese tipo
+     */
+    public int contarEspaciosOcupados(String tipoVehiculo) {
+        int ocupados = 0;
+        for (int i = 0; i < espacios.size(); i++) {
+            Espacio espacio = espacios.get(i);
+            if (espacio.isOcupado() && espacio.getTipoVehiculo().equals(tipoVehiculo)) {
+                ocupados++;
+            }
+        }
+        return ocupados;
+    }
+
+    /**
+     * Cuenta cuantos espacios estan reservados
+     *
+     * @return El numero de espacios reservados
+     */
+    public int contarEspaciosReservados() {
+        int reservados = 0;
+        for (int i = 0; i < espacios.size(); i++) {
+            if (espacios.get(i).isReservado()) {
+                reservados++;
+            }
+        }
+        return reservados;
+    }
+
     /**
      * Busca un espacio por numero
      *
@@ -174,12 +365,26 @@ public class Parqueadero {
      */
     public String mostrarInformacion() {
         StringBuilder info = new StringBuilder();
+        try {
+            escribirInformacion(info);
+        } catch (IOException e) {
+            // Un StringBuilder no lanza IOException
+        }
+        return info.toString();
+    }
+
+    /**
+     * Escribe la informacion del parqueadero directamente en una salida
+     *
+     * @param info Donde se escribe la informacion
+     * @throws IOException Si falla la escritura
+     */
+    public void escribirInformacion(Appendable info) throws IOException {
         info.append("\n======== PARQUEADERO ").append(nombre).append(" ========\n");
-        info.append("Capacidad Total: ").append(capacidadTotal).append("\n");
-        info.append("Espacios Disponibles: ").append(contarEspaciosDisponibles()).append("\n");
-        info.append("Espacios Ocupados: ").append(contarEspaciosOcupados()).append("\n");
+        info.append("Capacidad Total: ").append(String.valueOf(capacidadTotal)).append("\n");
+        info.append("Espacios Disponibles: ").append(String.valueOf(contarEspaciosDisponibles())).append("\n");
+        info.append("Espacios Ocupados: ").append(String.valueOf(contarEspaciosOcupados())).append("\n");
+        info.append("Espacios Reservados: ").append(String.valueOf(contarEspaciosReservados())).append("\n");
         info.append("================================\n");
-
-        return info.toString();
     }
 }
\ No newline at end of file
@@ -0,0 +1,67 @@
+package modelo;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Interfaz que representa la fuente de tiempo del sistema.
+ * Permite cambiar el reloj real por uno manual para reproducir
+ * eventos historicos o simular mas rapido que el tiempo real.
+ * El tiempo se maneja en milisegundos desde la epoca.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public interface Reloj {
+
+    /**
+     * Reloj del sistema (tiempo real)
+     */
+    Reloj SISTEMA = new RelojSistema();
+
+    /**
+     * Obtiene el momento actual en milisegundos desde la epoca
+     *
+     * @return Los milisegundos actuales
+     */
+    long ahoraMillis();
+
+    /**
+     * Obtiene la zona horaria del reloj
+     *
+     * @return La zona horaria
+     */
+    default ZoneId getZona() {
+        return ZoneId.systemDefault();
+    }
+
+    /**
+     * Obtiene la fecha y hora actual
+     *
+     * @return La fecha y hora actual
+     */
+    default LocalDateTime ahora() {
+        return aFecha(ahoraMillis());
+    }
+
+    /**
+     * Convierte milisegundos a fecha y hora en la zona del reloj
+     *
+     * @param millis Los milisegundos desde la epoca
+     * @return La fecha y hora
+     */
+    default LocalDateTime aFecha(long millis) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), getZona());
+    }
+
+    /**
+     * Convierte una fecha y hora de la zona del reloj a milisegundos
+     *
+     * @param fecha La fecha y hora
+     * @return Los milisegundos desde la epoca
+     */
+    default long aMillis(LocalDateTime fecha) {
+        return fecha.atZone(getZona()).toInstant().toEpochMilli();
+    }
+}
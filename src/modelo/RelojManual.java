@@ -0,0 +1,54 @@
+package modelo;
+
+/**
+ * Reloj cuyo tiempo se fija a mano.
+ * Se usa para reproducir eventos historicos y para simulaciones,
+ * donde el tiempo avanza segun los eventos y no segun el reloj real.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class RelojManual implements Reloj {
+
+    /**
+     * Momento actual del reloj en milisegundos
+     */
+    private volatile long ahoraMillis;
+
+    /**
+     * Constructor de la clase RelojManual
+     *
+     * @param inicioMillis El momento inicial en milisegundos
+     */
+    public RelojManual(long inicioMillis) {
+        this.ahoraMillis = inicioMillis;
+    }
+
+    /**
+     * Obtiene el momento actual del reloj
+     *
+     * @return Los milisegundos actuales
+     */
+    @Override
+    public long ahoraMillis() {
+        return ahoraMillis;
+    }
+
+    /**
+     * Fija el momento actual del reloj
+     *
+     * @param millis El nuevo momento en milisegundos
+     */
+    public void establecer(long millis) {
+        this.ahoraMillis = millis;
+    }
+
+    /**
+     * Avanza el reloj una cantidad de milisegundos
+     *
+     * @param millis Los milisegundos a avanzar
+     */
+    public void avanzar(long millis) {
+        this.ahoraMillis += millis;
+    }
+}
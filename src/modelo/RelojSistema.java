@@ -0,0 +1,20 @@
+package modelo;
+
+/**
+ * Reloj que usa la hora real del sistema.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class RelojSistema implements Reloj {
+
+    /**
+     * Obtiene el momento actual del sistema en milisegundos
+     *
+     * @return Los milisegundos actuales
+     */
+    @Override
+    public long ahoraMillis() {
+        return System.currentTimeMillis();
+    }
+}
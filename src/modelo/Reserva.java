@@ -0,0 +1,116 @@
+package modelo;
+
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Clase que representa la reserva de un espacio para una placa.
+ * La reserva aparta el espacio hasta que el vehiculo llega o hasta
+ * que vence el tiempo de espera.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class Reserva {
+
+    /**
+     * Identificador unico de la reserva
+     */
+    private int id;
+
+    /**
+     * Placa del vehiculo que hizo la reserva
+     */
+    private String placa;
+
+    /**
+     * Espacio apartado por la reserva
+     */
+    private Espacio espacio;
+
+    /**
+     * Fecha y hora en que se hizo la reserva
+     */
+    private LocalDateTime horaReserva;
+
+    /**
+     * Fecha y hora en que vence la reserva si el vehiculo no llega
+     */
+    private LocalDateTime horaVencimiento;
+
+    /**
+     * Contador estatico para generar IDs unicos entre todos los hilos
+     */
+    private static final AtomicInteger contadorId = new AtomicInteger(1);
+
+    /**
+     * Constructor de la clase Reserva
+     *
+     * @param placa La placa del vehiculo
+     * @param espacio El espacio apartado
+     * @param horaReserva La hora de la reserva
+     * @param horaVencimiento La hora de vencimiento
+     */
+    public Reserva(String placa, Espacio espacio, LocalDateTime horaReserva, LocalDateTime horaVencimiento) {
+        this.id = contadorId.getAndIncrement();
+        this.placa = placa;
+        this.espacio = espacio;
+        this.horaReserva = horaReserva;
+        this.horaVencimiento = horaVencimiento;
+    }
+
+    /**
+     * Obtiene el ID de la reserva
+     *
+     * @return El ID de la reserva
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * Obtiene la placa de la reserva
+     *
+     * @return La placa
+     */
+    public String getPlaca() {
+        return placa;
+    }
+
+    /**
+     * Obtiene el espacio apartado
+     *
+     * @return El espacio
+     */
+    public Espacio getEspacio() {
+        return espacio;
+    }
+
+    /**
+     * Obtiene la hora de la reserva
+     *
+     * @return La hora de la reserva
+     */
+    public LocalDateTime getHoraReserva() {
+        return horaReserva;
+    }
+
+    /**
+     * Obtiene la hora de vencimiento
+     *
+     * @return La hora de vencimiento
+     */
+    public LocalDateTime getHoraVencimiento() {
+        return horaVencimiento;
+    }
+
+    /**
+     * Muestra la informacion de la reserva
+     *
+     * @return String con la informacion de la reserva
+     */
+    public String mostrarInformacion() {
+        return "Reserva #" + id + " - Placa: " + placa + " - Espacio: " + espacio.getNumero() +
+                " - Vence: " + horaVencimiento;
+    }
+}
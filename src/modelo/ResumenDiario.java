@@ -0,0 +1,302 @@
+package modelo;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Resumen de un dia cerrado de un parqueadero: cuantos vehiculos salieron,
+ * lo recaudado por tipo, las salidas por hora y los percentiles de la
+ * estadia. Ocupa unos cientos de bytes sin importar cuantos tickets tuvo
+ * el dia, asi los reportes mensuales leen 30 resumenes y no los tickets.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class ResumenDiario {
+
+    /**
+     * Nombre del parqueadero
+     */
+    private String parqueadero;
+
+    /**
+     * Fecha del dia
+     */
+    private LocalDate fecha;
+
+    /**
+     * Vehiculos que salieron, aunque no se guardara su ticket
+     */
+    private long vehiculos;
+
+    /**
+     * Autos que salieron
+     */
+    private long autos;
+
+    /**
+     * Motos que salieron
+     */
+    private long motos;
+
+    /**
+     * Salidas exentas de pago
+     */
+    private long exentos;
+
+    /**
+     * Recaudo de autos
+     */
+    private double ingresosAuto;
+
+    /**
+     * Recaudo de motos
+     */
+    private double ingresosMoto;
+
+    /**
+     * Salidas en cada hora del dia (24 posiciones)
+     */
+    private long[] salidasPorHora;
+
+    /**
+     * Mediana de la estadia en minutos
+     */
+    private long estadiaP50;
+
+    /**
+     * Percentil 90 de la estadia en minutos
+     */
+    private long estadiaP90;
+
+    /**
+     * Percentil 99 de la estadia en minutos
+     */
+    private long estadiaP99;
+
+    /**
+     * Estadia mas larga en minutos
+     */
+    private long estadiaMaxima;
+
+    /**
+     * Constructor de la clase ResumenDiario
+     *
+     * @param parqueadero Nombre del parqueadero
+     * @param fecha Fecha del dia
+     * @param vehiculos Vehiculos que salieron
+     * @param autos Autos que salieron
+     * @param motos Motos que salieron
+     * @param exentos Salidas exentas de pago
+     * @param ingresosAuto Recaudo de autos
+     * @param ingresosMoto Recaudo de motos
+     * @param salidasPorHora Salidas en cada hora del dia (24 posiciones)
+     * @param estadiaP50 Mediana de la estadia en minutos
+     * @param estadiaP90 Percentil 90 de la estadia en minutos
+     * @param estadiaP99 Percentil 99 de la estadia en minutos
+     * @param estadiaMaxima Estadia mas larga en minutos
+     */
+    public ResumenDiario(String parqueadero, LocalDate fecha, long vehiculos, long autos, long motos,
+                         long exentos, double ingresosAuto, double ingresosMoto, long[] salidasPorHora,
+                         long estadiaP50, long estadiaP90, long estadiaP99, long estadiaMaxima) {
+        this.parqueadero = parqueadero;
+        this.fecha = fecha;
+        this.vehiculos = vehiculos;
+        this.autos = autos;
+        this.motos = motos;
+        this.exentos = exentos;
+        this.ingresosAuto = ingresosAuto;
+        this.ingresosMoto = ingresosMoto;
+        this.salidasPorHora = Arrays.copyOf(salidasPorHora, 24);
+        this.estadiaP50 = estadiaP50;
+        this.estadiaP90 = estadiaP90;
+        this.estadiaP99 = estadiaP99;
+        this.estadiaMaxima = estadiaMaxima;
+    }
+
+    /**
+     * Arma el resumen de un dia a partir de sus tickets finalizados
+     *
+     * @param parqueadero Nombre del parqueadero
+     * @param fecha Fecha del dia
+     * @param tickets Los tickets finalizados del dia
+     * @param vehiculos Vehiculos que salieron (puede ser mayor si no se guardo el historico)
+     * @param reloj Reloj con la zona para ubicar la hora de salida
+     * @return El resumen
+     */
+    public static ResumenDiario desdeTickets(String parqueadero, LocalDate fecha, List<Ticket> tickets,
+                                             long vehiculos, Reloj reloj) {
+        long autos = 0;
+        long motos = 0;
+        long exentos = 0;
+        double ingresosAuto = 0;
+        double ingresosMoto = 0;
+        long[] salidasPorHora = new long[24];
+        long[] estadias = new long[tickets.size()];
+
+        for (int i = 0; i < tickets.size(); i++) {
+            Ticket ticket = tickets.get(i);
+            if ("MOTO".equals(ticket.getVehiculo().getTipo())) {
+                motos++;
+                ingresosMoto += ticket.getTarifa();
+            } else {
+                autos++;
+                ingresosAuto += ticket.getTarifa();
+            }
+            if (ticket.isExento()) {
+                exentos++;
+            }
+            salidasPorHora[reloj.aFecha(ticket.getSalidaMillis()).getHour()]++;
+            estadias[i] = (ticket.getSalidaMillis() - ticket.getEntradaMillis()) / 60000;
+        }
+
+        Arrays.sort(estadias);
+        return new ResumenDiario(parqueadero, fecha, Math.max(vehiculos, tickets.size()), autos, motos,
+                exentos, ingresosAuto, ingresosMoto, salidasPorHora,
+                percentil(estadias, 0.50), percentil(estadias, 0.90), percentil(estadias, 0.99),
+                estadias.length == 0 ? 0 : estadias[estadias.length - 1]);
+    }
+
+    /**
+     * Obtiene un percentil de valores ordenados por el metodo del rango mas cercano
+     *
+     * @param ordenados Los valores ordenados
+     * @param fraccion El percentil entre 0 y 1
+     * @return El valor, o 0 si no hay valores
+     */
+    private static long percentil(long[] ordenados, double fraccion) {
+        if (ordenados.length == 0) {
+            return 0;
+        }
+        int rango = (int) Math.ceil(fraccion * ordenados.length);
+        return ordenados[Math.max(rango, 1) - 1];
+    }
+
+    /**
+     * Obtiene el nombre del parqueadero
+     *
+     * @return El nombre
+     */
+    public String getParqueadero() {
+        return parqueadero;
+    }
+
+    /**
+     * Obtiene la fecha del dia
+     *
+     * @return La fecha
+     */
+    public LocalDate getFecha() {
+        return fecha;
+    }
+
+    /**
+     * Obtiene los vehiculos que salieron
+     *
+     * @return Los vehiculos
+     */
+    public long getVehiculos() {
+        return vehiculos;
+    }
+
+    /**
+     * Obtiene los autos que salieron
+     *
+     * @return Los autos
+     */
+    public long getAutos() {
+        return autos;
+    }
+
+    /**
+     * Obtiene las motos que salieron
+     *
+     * @return Las motos
+     */
+    public long getMotos() {
+        return motos;
+    }
+
+    /**
+     * Obtiene las salidas exentas de pago
+     *
+     * @return Las salidas exentas
+     */
+    public long getExentos() {
+        return exentos;
+    }
+
+    /**
+     * Obtiene el recaudo de autos
+     *
+     * @return El recaudo de autos
+     */
+    public double getIngresosAuto() {
+        return ingresosAuto;
+    }
+
+    /**
+     * Obtiene el recaudo de motos
+     *
+     * @return El recaudo de motos
+     */
+    public double getIngresosMoto() {
+        return ingresosMoto;
+    }
+
+    /**
+     * Obtiene el recaudo total
+     *
+     * @return El recaudo total
+     */
+    public double getIngresos() {
+        return ingresosAuto + ingresosMoto;
+    }
+
+    /**
+     * Obtiene las salidas de una hora del dia
+     *
+     * @param hora La hora (0 a 23)
+     * @return Las salidas de esa hora
+     */
+    public long getSalidasHora(int hora) {
+        return salidasPorHora[hora];
+    }
+
+    /**
+     * Obtiene la mediana de la estadia
+     *
+     * @return La mediana en minutos
+     */
+    public long getEstadiaP50() {
+        return estadiaP50;
+    }
+
+    /**
+     * Obtiene el percentil 90 de la estadia
+     *
+     * @return El percentil 90 en minutos
+     */
+    public long getEstadiaP90() {
+        return estadiaP90;
+    }
+
+    /**
+     * Obtiene el percentil 99 de la estadia
+     *
+     * @return El percentil 99 en minutos
+     */
+    public long getEstadiaP99() {
+        return estadiaP99;
+    }
+
+    /**
+     * Obtiene la estadia mas larga
+     *
+     * @return La estadia mas larga en minutos
+     */
+    public long getEstadiaMaxima() {
+        return estadiaMaxima;
+    }
+}
@@ -1,11 +1,14 @@
 package modelo;
 
+import java.io.IOException;
 import java.time.LocalDateTime;
-import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Clase que representa un ticket de parqueo.
  * El ticket se genera cuando un vehiculo ingresa al parqueadero.
+ * Los tiempos se guardan tambien en milisegundos para que los calculos
+ * no dependan del reloj real ni modifiquen el ticket.
  *
  * @author Velez
  * @version 1.0
@@ -37,15 +40,36 @@ public class Ticket {
      */
     private LocalDateTime horaSalida;
 
+    /**
+     * Momento de entrada en milisegundos desde la epoca
+     */
+    private long entradaMillis;
+
+    /**
+     * Momento de salida en milisegundos desde la epoca (-1 si no ha salido)
+     */
+    private long salidaMillis;
+
+    /**
+     * Reloj usado para convertir fechas y para calcular el tiempo en curso
+     */
+    private Reloj reloj;
+
     /**
      * Tarifa total a pagar
      */
     private double tarifa;
 
     /**
-     * Contador estatico para generar IDs unicos
+     * Indica si el ticket esta exento de pago (placa permitida o abonado)
+     */
+    private boolean exento;
+
+    /**
+     * Contador estatico para generar IDs unicos (atomico porque varios
+     * parqueaderos pueden crear tickets en paralelo)
      */
-    private static int contadorId = 1;
+    private static final AtomicInteger contadorId = new AtomicInteger(1);
 
     /**
      * Constructor de la clase Ticket
@@ -54,12 +78,30 @@ public class Ticket {
      * @param espacio El espacio asignado
      */
     public Ticket(Vehiculo vehiculo, Espacio espacio) {
-        this.id = contadorId++;
+        this(vehiculo, espacio, Reloj.SISTEMA);
+    }
+
+    /**
+     * Constructor de la clase Ticket con un reloj especifico
+     *
+     * @param vehiculo El vehiculo del ticket
+     * @param espacio El espacio asignado
+     * @param reloj El reloj del parqueadero
+     */
+    public Ticket(Vehiculo vehiculo, Espacio espacio, Reloj reloj) {
+        this.id = contadorId.getAndIncrement();
         this.vehiculo = vehiculo;
         this.espacio = espacio;
-        this.horaEntrada = vehiculo.getHoraEntrada();
+        this.reloj = reloj;
+        // El instante se toma del reloj; la hora local sale de el y no al reves,
+        // porque en un cambio de horario una misma hora local puede ser dos instantes
+        this.entradaMillis = reloj.ahoraMillis();
+        this.horaEntrada = reloj.aFecha(entradaMillis);
+        vehiculo.setHoraEntrada(horaEntrada);
         this.horaSalida = null;
+        this.salidaMillis = -1;
         this.tarifa = 0.0;
+        this.exento = false;
     }
 
     /**
@@ -123,6 +165,7 @@ public class Ticket {
      */
     public void setHoraEntrada(LocalDateTime horaEntrada) {
         this.horaEntrada = horaEntrada;
+        this.entradaMillis = reloj.aMillis(horaEntrada);
     }
 
     /**
@@ -141,6 +184,35 @@ public class Ticket {
      */
     public void setHoraSalida(LocalDateTime horaSalida) {
         this.horaSalida = horaSalida;
+        this.salidaMillis = horaSalida == null ? -1 : reloj.aMillis(horaSalida);
+    }
+
+    /**
+     * Obtiene el momento de entrada en milisegundos
+     *
+     * @return Los milisegundos de entrada
+     */
+    public long getEntradaMillis() {
+        return entradaMillis;
+    }
+
+    /**
+     * Obtiene el momento de salida en milisegundos
+     *
+     * @return Los milisegundos de salida o -1 si no ha salido
+     */
+    public long getSalidaMillis() {
+        return salidaMillis;
+    }
+
+    /**
+     * Establece el momento de salida en milisegundos
+     *
+     * @param salidaMillis Los milisegundos de salida
+     */
+    public void setSalidaMillis(long salidaMillis) {
+        this.salidaMillis = salidaMillis;
+        this.horaSalida = reloj.aFecha(salidaMillis);
     }
 
     /**
@@ -162,17 +234,44 @@ public class Ticket {
     }
 
     /**
-     * Calcula el tiempo en horas que el vehiculo estuvo parqueado
+     * Verifica si el ticket esta exento de pago
+     *
+     * @return true si esta exento, false si paga tarifa normal
+     */
+    public boolean isExento() {
+        return exento;
+    }
+
+    /**
+     * Establece si el ticket esta exento de pago
+     *
+     * @param exento El nuevo estado de exencion
+     */
+    public void setExento(boolean exento) {
+        this.exento = exento;
+    }
+
+    /**
+     * Calcula el tiempo en horas que el vehiculo estuvo parqueado.
+     * Si aun no ha salido se calcula hasta el momento actual del reloj,
+     * sin modificar el ticket.
      *
      * @return El numero de horas (redondeado hacia arriba)
      */
     public long calcularTiempo() {
-        if (horaSalida == null) {
-            horaSalida = LocalDateTime.now();
-        }
+        long hasta = salidaMillis >= 0 ? salidaMillis : reloj.ahoraMillis();
+        return calcularHoras(entradaMillis, hasta);
+    }
 
-        Duration duracion = Duration.between(horaEntrada, horaSalida);
-        long minutos = duracion.toMinutes();
+    /**
+     * Calcula las horas a cobrar entre dos momentos
+     *
+     * @param entradaMillis El momento de entrada en milisegundos
+     * @param salidaMillis El momento de salida en milisegundos
+     * @return El numero de horas (redondeado hacia arriba, minimo 1)
+     */
+    public static long calcularHoras(long entradaMillis, long salidaMillis) {
+        long minutos = (salidaMillis - entradaMillis) / 60000;
 
         // Redondear hacia arriba: cada hora iniciada se cobra completa
         long horas = (minutos + 59) / 60;
@@ -192,17 +291,34 @@ public class Ticket {
      */
     public String generarRecibo() {
         StringBuilder recibo = new StringBuilder();
+        try {
+            escribirRecibo(recibo);
+        } catch (IOException e) {
+            // Un StringBuilder no lanza IOException
+        }
+        return recibo.toString();
+    }
+
+    /**
+     * Escribe el recibo del ticket directamente en una salida (consola, archivo, respuesta HTTP)
+     * sin armar antes el texto completo
+     *
+     * @param recibo Donde se escribe el recibo
+     * @throws IOException Si falla la escritura
+     */
+    public void escribirRecibo(Appendable recibo) throws IOException {
         recibo.append("\n========== RECIBO DE PARQUEO ==========\n");
-        recibo.append("Ticket #: ").append(id).append("\n");
+        recibo.append("Ticket #: ").append(String.valueOf(id)).append("\n");
         recibo.append("Placa: ").append(vehiculo.getPlaca()).append("\n");
         recibo.append("Tipo: ").append(vehiculo.getTipo()).append("\n");
-        recibo.append("Espacio: ").append(espacio.getNumero()).append("\n");
-        recibo.append("Hora Entrada: ").append(horaEntrada).append("\n");
-        recibo.append("Hora Salida: ").append(horaSalida).append("\n");
-        recibo.append("Tiempo: ").append(calcularTiempo()).append(" hora(s)\n");
+        recibo.append("Espacio: ").append(String.valueOf(espacio.getNumero())).append("\n");
+        recibo.append("Hora Entrada: ").append(String.valueOf(horaEntrada)).append("\n");
+        recibo.append("Hora Salida: ").append(horaSalida != null ? horaSalida.toString() : "En curso").append("\n");
+        recibo.append("Tiempo: ").append(String.valueOf(calcularTiempo())).append(" hora(s)\n");
         recibo.append("Tarifa: $").append(String.format("%.2f", tarifa)).append("\n");
+        if (exento) {
+            recibo.append("Exento de pago: SI\n");
+        }
         recibo.append("=======================================\n");
-
-        return recibo.toString();
     }
 }
\ No newline at end of file
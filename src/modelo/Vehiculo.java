@@ -33,9 +33,20 @@ public abstract class Vehiculo {
      * @param tipo El tipo de vehiculo
      */
     public Vehiculo(String placa, String tipo) {
+        this(placa, tipo, Reloj.SISTEMA);
+    }
+
+    /**
+     * Constructor de la clase Vehiculo que toma la hora de entrada de un reloj
+     *
+     * @param placa La placa del vehiculo
+     * @param tipo El tipo de vehiculo
+     * @param reloj El reloj del que se toma la hora de entrada
+     */
+    public Vehiculo(String placa, String tipo, Reloj reloj) {
         this.placa = placa;
         this.tipo = tipo;
-        this.horaEntrada = LocalDateTime.now();
+        this.horaEntrada = reloj.ahora();
     }
 
     /**
@@ -0,0 +1,314 @@
+package servicio;
+
+import modelo.Parqueadero;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Clase encargada de comparar varias configuraciones de parqueadero.
+ * Arma todas las combinaciones de reparto autos/motos, estrategia de
+ * asignacion y tarifas, simula cada una por separado en un ForkJoinPool
+ * (una simulacion por nucleo) y las ordena de la mejor a la peor.
+ * Todas las simulaciones usan la misma semilla, asi las diferencias
+ * se deben a la configuracion y no al azar.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class BarridoParametros {
+
+    /**
+     * Configuracion simulada y su resultado
+     */
+    public static class Escenario {
+
+        /**
+         * Numero de espacios para autos
+         */
+        private final int espaciosAuto;
+
+        /**
+         * Estrategia de asignacion de espacios
+         */
+        private final String estrategia;
+
+        /**
+         * Tarifas cobradas
+         */
+        private final CalculadorTarifa calculador;
+
+        /**
+         * Simulador que ejecuto el escenario (null si aun no se simula)
+         */
+        private Simulador simulador;
+
+        /**
+         * Constructor del escenario
+         *
+         * @param espaciosAuto El numero de espacios para autos
+         * @param estrategia La estrategia de asignacion
+         * @param calculador Las tarifas
+         */
+        public Escenario(int espaciosAuto, String estrategia, CalculadorTarifa calculador) {
+            this.espaciosAuto = espaciosAuto;
+            this.estrategia = estrategia;
+            this.calculador = calculador;
+        }
+
+        /**
+         * Obtiene el numero de espacios para autos
+         *
+         * @return Los espacios para autos
+         */
+        public int getEspaciosAuto() {
+            return espaciosAuto;
+        }
+
+        /**
+         * Obtiene la estrategia de asignacion
+         *
+         * @return La estrategia
+         */
+        public String getEstrategia() {
+            return estrategia;
+        }
+
+        /**
+         * Obtiene las tarifas del escenario
+         *
+         * @return El calculador de tarifas
+         */
+        public CalculadorTarifa getCalculador() {
+            return calculador;
+        }
+
+        /**
+         * Obtiene el simulador con los resultados
+         *
+         * @return El simulador o null si aun no se simula
+         */
+        public Simulador getSimulador() {
+            return simulador;
+        }
+    }
+
+    /**
+     * Tarea que simula un rango de escenarios, dividiendolo hasta llegar a uno solo
+     */
+    private class SimularEscenarios extends RecursiveAction {
+
+        /**
+         * Version de serializacion
+         */
+        private static final long serialVersionUID = 1L;
+
+        /**
+         * Primer escenario del rango
+         */
+        private final int desde;
+
+        /**
+         * Fin del rango (exclusivo)
+         */
+        private final int hasta;
+
+        /**
+         * Constructor de la tarea
+         *
+         * @param desde El primer escenario
+         * @param hasta El fin del rango (exclusivo)
+         */
+        SimularEscenarios(int desde, int hasta) {
+            this.desde = desde;
+            this.hasta = hasta;
+        }
+
+        @Override
+        protected void compute() {
+            if (hasta - desde == 1) {
+                simularEscenario(escenarios.get(desde));
+                return;
+            }
+
+            int medio = (desde + hasta) >>> 1;
+            invokeAll(new SimularEscenarios(desde, medio), new SimularEscenarios(medio, hasta));
+        }
+    }
+
+    /**
+     * Capacidad total de todos los escenarios
+     */
+    private final int capacidad;
+
+    /**
+     * Dias simulados en cada escenario
+     */
+    private final int dias;
+
+    /**
+     * Llegadas promedio por dia
+     */
+    private final double llegadasPorDia;
+
+    /**
+     * Estadia promedio en minutos
+     */
+    private final double estadiaMediaMinutos;
+
+    /**
+     * Fraccion de llegadas que son autos
+     */
+    private final double fraccionAutos;
+
+    /**
+     * Semilla comun a todos los escenarios
+     */
+    private final long semilla;
+
+    /**
+     * Escenarios a simular
+     */
+    private final ArrayList<Escenario> escenarios;
+
+    /**
+     * Tiempo real que tomo el barrido en nanosegundos
+     */
+    private long duracionRealNanos;
+
+    /**
+     * Constructor de la clase BarridoParametros
+     *
+     * @param capacidad La capacidad total del parqueadero
+     * @param dias Los dias a simular en cada escenario
+     * @param llegadasPorDia Las llegadas promedio por dia
+     * @param estadiaMediaMinutos La estadia promedio en minutos
+     * @param fraccionAutos La fraccion de llegadas que son autos
+     */
+    public BarridoParametros(int capacidad, int dias, double llegadasPorDia,
+                             double estadiaMediaMinutos, double fraccionAutos) {
+        this.capacidad = capacidad;
+        this.dias = dias;
+        this.llegadasPorDia = llegadasPorDia;
+        this.estadiaMediaMinutos = estadiaMediaMinutos;
+        this.fraccionAutos = fraccionAutos;
+        this.semilla = 42;
+        this.escenarios = new ArrayList<Escenario>();
+    }
+
+    /**
+     * Agrega todas las combinaciones de los valores indicados
+     *
+     * @param porcentajesAuto Porcentajes de la capacidad destinados a autos (0 a 100)
+     * @param estrategias Estrategias de asignacion (EXCLUSIVA, DESBORDE_MOTOS)
+     * @param tarifas Tarifas a probar
+     */
+    public void agregarCombinaciones(int[] porcentajesAuto, String[] estrategias, CalculadorTarifa[] tarifas) {
+        for (int i = 0; i < porcentajesAuto.length; i++) {
+            int espaciosAuto = capacidad * porcentajesAuto[i] / 100;
+            for (int j = 0; j < estrategias.length; j++) {
+                for (int k = 0; k < tarifas.length; k++) {
+                    escenarios.add(new Escenario(espaciosAuto, estrategias[j], tarifas[k]));
+                }
+            }
+        }
+    }
+
+    /**
+     * Obtiene los escenarios del barrido
+     *
+     * @return La lista de escenarios
+     */
+    public List<Escenario> getEscenarios() {
+        return escenarios;
+    }
+
+    /**
+     * Simula todos los escenarios en paralelo usando todos los nucleos
+     *
+     * @return Los escenarios ordenados del mejor al peor
+     */
+    public List<Escenario> ejecutar() {
+        return ejecutar(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Simula todos los escenarios en paralelo y los ordena por ingresos
+     * (y por menos rechazos si empatan)
+     *
+     * @param hilos El numero de hilos a usar
+     * @return Los escenarios ordenados del mejor al peor
+     */
+    public List<Escenario> ejecutar(int hilos) {
+        long inicio = System.nanoTime();
+
+        if (!escenarios.isEmpty()) {
+            ForkJoinPool pool = new ForkJoinPool(hilos);
+            try {
+                pool.invoke(new SimularEscenarios(0, escenarios.size()));
+            } finally {
+                pool.shutdown();
+            }
+        }
+
+        duracionRealNanos = System.nanoTime() - inicio;
+
+        ArrayList<Escenario> ordenados = new ArrayList<Escenario>(escenarios);
+        ordenados.sort(Comparator.comparingDouble((Escenario e) -> -e.getSimulador().getIngresos())
+                .thenComparingLong(e -> e.getSimulador().getRechazosSinEspacio()));
+        return ordenados;
+    }
+
+    /**
+     * Simula un escenario con su propio parqueadero, gestor y reloj
+     *
+     * @param escenario El escenario a simular
+     */
+    private void simularEscenario(Escenario escenario) {
+        Parqueadero parqueadero = Parqueadero.crear("SIMULACION", capacidad, escenario.getEspaciosAuto());
+        parqueadero.setEstrategiaAsignacion(escenario.getEstrategia());
+
+        Simulador simulador = new Simulador(parqueadero, escenario.getCalculador(), semilla);
+        simulador.setLlegadasPorDia(llegadasPorDia);
+        simulador.setEstadiaMediaMinutos(estadiaMediaMinutos);
+        simulador.setFraccionAutos(fraccionAutos);
+        simulador.simular(dias);
+
+        escenario.simulador = simulador;
+    }
+
+    /**
+     * Muestra la tabla comparativa de los escenarios
+     *
+     * @param ordenados Los escenarios ya ordenados
+     * @return String con la tabla
+     */
+    public String mostrarComparacion(List<Escenario> ordenados) {
+        StringBuilder tabla = new StringBuilder();
+        tabla.append("\n======================== COMPARACION DE ESCENARIOS ========================\n");
+        tabla.append(String.format("%3s %6s %6s %-15s %9s %9s %8s %6s %16s%n",
+                "#", "AUTOS", "MOTOS", "ASIGNACION", "T.AUTO", "T.MOTO", "RECHAZO", "PICO", "INGRESOS"));
+
+        for (int i = 0; i < ordenados.size(); i++) {
+            Escenario e = ordenados.get(i);
+            Simulador s = e.getSimulador();
+            tabla.append(String.format("%3d %6d %6d %-15s %9.0f %9.0f %7.2f%% %6d %16.0f%n",
+                    i + 1,
+                    e.getEspaciosAuto(),
+                    capacidad - e.getEspaciosAuto(),
+                    e.getEstrategia(),
+                    e.getCalculador().getTarifaPorHora("AUTO"),
+                    e.getCalculador().getTarifaPorHora("MOTO"),
+                    s.getPorcentajeRechazo(),
+                    s.getOcupacionPico(),
+                    s.getIngresos()));
+        }
+
+        tabla.append("===========================================================================\n");
+        tabla.append(ordenados.size()).append(" escenarios de ").append(dias).append(" dias en ");
+        tabla.append(String.format("%.2f", duracionRealNanos / 1e9)).append(" s\n");
+        return tabla.toString();
+    }
+}
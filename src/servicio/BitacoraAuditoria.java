@@ -0,0 +1,698 @@
+package servicio;
+
+import modelo.Ticket;
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bitacora de auditoria de las entradas y salidas.
+ * Se engancha a los gestores como escucha y cada evento se copia como un
+ * registro binario de tamano fijo en un anillo reservado al inicio, al
+ * estilo de un disruptor con varios productores: la puerta toma una
+ * secuencia con un CAS, escribe sus 64 bytes en la casilla y la marca como
+ * publicada. No crea objetos ni espera; si el anillo esta lleno el registro
+ * se descarta y se cuenta. Un hilo de fondo saca los registros por lotes y
+ * los escribe comprimidos con GZIP en archivos que rotan por tamano.
+ *
+ * Formato de cada archivo: cabecera de 8 bytes ("PQAUD", version, tamano
+ * del registro en 2 bytes) y luego los registros, en big endian:
+ * secuencia (8), momento en ms (8), ticket (4), espacio (4), tarifa (8),
+ * evento 'E'/'S' (1), tipo de vehiculo 'A'/'M' (1), exento (1), largo de
+ * la placa (1), placa ASCII (12), numero del parqueadero (4) y relleno (12).
+ * El nombre de cada parqueadero va una sola vez por archivo, antes del
+ * primer registro que lo usa: secuencia -1 (8), numero (4), largo (2) y
+ * el nombre en UTF-8, asi no se corta ni se cambian sus tildes.
+ * leerArchivo() los convierte a texto y tambien lee la version 1, que
+ * guardaba el nombre en el registro (largo (1) y ASCII (15)).
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class BitacoraAuditoria implements EscuchaParqueadero {
+
+    /**
+     * Tamano de cada registro en bytes
+     */
+    public static final int TAMANO_REGISTRO = 64;
+
+    /**
+     * Registros del anillo por defecto
+     */
+    public static final int CAPACIDAD_POR_DEFECTO = 65536;
+
+    /**
+     * Bytes sin comprimir de cada archivo antes de rotar, por defecto
+     */
+    public static final long BYTES_POR_ARCHIVO_POR_DEFECTO = 64L * 1024 * 1024;
+
+    /**
+     * Archivos que se guardan por defecto; los mas viejos se borran
+     */
+    public static final int ARCHIVOS_POR_DEFECTO = 20;
+
+    /**
+     * Registros que el hilo de fondo saca de una vez
+     */
+    private static final int TAMANO_LOTE = 256;
+
+    /**
+     * Cada cuanto se baja a disco lo comprimido aunque no se llene el lote
+     */
+    private static final long INTERVALO_VACIADO_MILLIS = 1000;
+
+    /**
+     * Espera del hilo de fondo cuando no hay registros
+     */
+    private static final long ESPERA_NANOS = 1000000;
+
+    /**
+     * Inicio de la cabecera de cada archivo
+     */
+    private static final byte[] MARCA = {'P', 'Q', 'A', 'U', 'D'};
+
+    /**
+     * Version del formato de los registros
+     */
+    private static final byte VERSION = 2;
+
+    /**
+     * Version anterior, con el nombre del parqueadero dentro de cada registro
+     */
+    private static final byte VERSION_NOMBRE_EN_REGISTRO = 1;
+
+    /**
+     * Secuencia que marca un nombre de parqueadero en vez de un registro
+     */
+    private static final long MARCA_NOMBRE = -1;
+
+    /**
+     * Maximo de bytes UTF-8 del nombre de un parqueadero (el largo va en 2 bytes)
+     */
+    private static final int LARGO_MAXIMO_NOMBRE = 0xFFFF;
+
+    /**
+     * Maximo de caracteres de la placa en el registro
+     */
+    private static final int LARGO_PLACA = 12;
+
+    /**
+     * Posiciones de los campos dentro del registro
+     */
+    private static final int POS_MOMENTO = 8;
+    private static final int POS_TICKET = 16;
+    private static final int POS_ESPACIO = 20;
+    private static final int POS_TARIFA = 24;
+    private static final int POS_EVENTO = 32;
+    private static final int POS_TIPO = 33;
+    private static final int POS_EXENTO = 34;
+    private static final int POS_LARGO_PLACA = 35;
+    private static final int POS_PLACA = 36;
+    private static final int POS_PARQUEADERO = 48;
+
+    /**
+     * Posiciones del nombre del parqueadero en los registros de la version 1
+     */
+    private static final int POS_LARGO_PARQUEADERO_V1 = 48;
+    private static final int POS_PARQUEADERO_V1 = 49;
+
+    /**
+     * Formato de fecha en el nombre de los archivos
+     */
+    private static final DateTimeFormatter FORMATO_ARCHIVO = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    /**
+     * Largo de "auditoria-yyyyMMdd-HHmmss" al inicio del nombre de los archivos
+     */
+    private static final int LARGO_FECHA = "auditoria-yyyyMMdd-HHmmss".length();
+
+    /**
+     * Bytes del anillo (capacidad por TAMANO_REGISTRO)
+     */
+    private final byte[] anillo;
+
+    /**
+     * Vista del anillo para escribir numeros en posiciones fijas
+     */
+    private final ByteBuffer vista;
+
+    /**
+     * Secuencia publicada en cada casilla (-1 si nunca se publico)
+     */
+    private final AtomicLongArray publicadas;
+
+    /**
+     * Capacidad del anillo menos 1 (la capacidad es potencia de 2)
+     */
+    private final int mascara;
+
+    /**
+     * Siguiente secuencia que tomara un productor
+     */
+    private final AtomicLong siguiente;
+
+    /**
+     * Siguiente secuencia que leera el hilo de fondo; las anteriores ya se pueden reusar
+     */
+    private volatile long leida;
+
+    /**
+     * Numero de cada parqueadero por nombre
+     */
+    private final ConcurrentHashMap<String, Integer> numerosParqueadero;
+
+    /**
+     * Nombre en UTF-8 de cada parqueadero; la posicion es su numero
+     */
+    private final CopyOnWriteArrayList<byte[]> nombresParqueadero;
+
+    /**
+     * Nombres ya escritos en el archivo abierto (solo lo usa el hilo de fondo)
+     */
+    private int nombresEnArchivo;
+
+    /**
+     * Carpeta de los archivos
+     */
+    private final File carpeta;
+
+    /**
+     * Bytes sin comprimir de cada archivo antes de rotar
+     */
+    private final long bytesPorArchivo;
+
+    /**
+     * Archivos que se guardan
+     */
+    private final int maximoArchivos;
+
+    /**
+     * Registros descartados porque el anillo estaba lleno
+     */
+    private final LongAdder descartados;
+
+    /**
+     * Registros escritos en archivo
+     */
+    private final AtomicLong escritos;
+
+    /**
+     * Archivo abierto (solo lo usa el hilo de fondo, null si no hay)
+     */
+    private OutputStream salida;
+
+    /**
+     * Bytes sin comprimir escritos en el archivo abierto
+     */
+    private long bytesArchivo;
+
+    /**
+     * Numero de archivos abiertos, para que dos rotaciones en el mismo segundo no choquen
+     */
+    private int archivosAbiertos;
+
+    /**
+     * Hilo de fondo (null si no se inicio)
+     */
+    private Thread hilo;
+
+    /**
+     * Indica si el hilo de fondo sigue activo
+     */
+    private volatile boolean activa;
+
+    /**
+     * Constructor de la bitacora con los valores por defecto
+     *
+     * @param carpeta La carpeta de los archivos
+     */
+    public BitacoraAuditoria(String carpeta) {
+        this(carpeta, CAPACIDAD_POR_DEFECTO, BYTES_POR_ARCHIVO_POR_DEFECTO, ARCHIVOS_POR_DEFECTO);
+    }
+
+    /**
+     * Constructor de la clase BitacoraAuditoria
+     *
+     * @param carpeta La carpeta de los archivos
+     * @param capacidad Registros del anillo (se sube a potencia de 2)
+     * @param bytesPorArchivo Bytes sin comprimir de cada archivo antes de rotar
+     * @param maximoArchivos Archivos que se guardan; los mas viejos se borran
+     */
+    public BitacoraAuditoria(String carpeta, int capacidad, long bytesPorArchivo, int maximoArchivos) {
+        int tamano = 1;
+        while (tamano < capacidad) {
+            tamano <<= 1;
+        }
+
+        this.anillo = new byte[tamano * TAMANO_REGISTRO];
+        this.vista = ByteBuffer.wrap(anillo);
+        this.publicadas = new AtomicLongArray(tamano);
+        for (int i = 0; i < tamano; i++) {
+            publicadas.set(i, -1);
+        }
+        this.mascara = tamano - 1;
+        this.siguiente = new AtomicLong();
+        this.numerosParqueadero = new ConcurrentHashMap<String, Integer>();
+        this.nombresParqueadero = new CopyOnWriteArrayList<byte[]>();
+        this.carpeta = new File(carpeta);
+        this.bytesPorArchivo = bytesPorArchivo;
+        this.maximoArchivos = Math.max(1, maximoArchivos);
+        this.descartados = new LongAdder();
+        this.escritos = new AtomicLong();
+    }
+
+    @Override
+    public void entradaRegistrada(GestorParqueadero gestor, Ticket ticket) {
+        publicar('E', ticket.getEntradaMillis(), gestor.getParqueadero().getNombre(), ticket);
+    }
+
+    @Override
+    public void salidaRegistrada(GestorParqueadero gestor, Ticket ticket) {
+        publicar('S', ticket.getSalidaMillis(), gestor.getParqueadero().getNombre(), ticket);
+    }
+
+    /**
+     * Publica un registro en el anillo sin esperar ni crear objetos
+     *
+     * @param evento 'E' o 'S'
+     * @param momentoMillis El momento del evento
+     * @param parqueadero El nombre del parqueadero
+     * @param ticket El ticket
+     * @return true si se publico, false si el anillo estaba lleno o el nombre no cabe y se descarto
+     */
+    public boolean publicar(char evento, long momentoMillis, String parqueadero, Ticket ticket) {
+        // Antes de tomar la secuencia, para no dejar una casilla sin publicar
+        int numeroParqueadero = numeroParqueadero(parqueadero);
+        if (numeroParqueadero < 0) {
+            descartados.increment();
+            return false;
+        }
+
+        // Tomar una secuencia solo si su casilla ya fue leida por el hilo de fondo
+        long secuencia;
+        do {
+            secuencia = siguiente.get();
+            if (secuencia - leida > mascara) {
+                descartados.increment();
+                return false;
+            }
+        } while (!siguiente.compareAndSet(secuencia, secuencia + 1));
+
+        int casilla = (int) (secuencia & mascara);
+        int base = casilla * TAMANO_REGISTRO;
+        String placa = ticket.getVehiculo().getPlaca();
+
+        vista.putLong(base, secuencia);
+        vista.putLong(base + POS_MOMENTO, momentoMillis);
+        vista.putInt(base + POS_TICKET, ticket.getId());
+        vista.putInt(base + POS_ESPACIO, ticket.getEspacio().getNumero());
+        vista.putDouble(base + POS_TARIFA, ticket.getTarifa());
+        anillo[base + POS_EVENTO] = (byte) evento;
+        anillo[base + POS_TIPO] = (byte) ticket.getVehiculo().getTipo().charAt(0);
+        anillo[base + POS_EXENTO] = (byte) (ticket.isExento() ? 1 : 0);
+        anillo[base + POS_LARGO_PLACA] = (byte) copiarTexto(placa, base + POS_PLACA, LARGO_PLACA);
+        vista.putInt(base + POS_PARQUEADERO, numeroParqueadero);
+
+        // La escritura de la secuencia publica los bytes anteriores al hilo de fondo
+        publicadas.lazySet(casilla, secuencia);
+        return true;
+    }
+
+    /**
+     * Obtiene el numero de un parqueadero, asignandole uno la primera vez
+     *
+     * @param nombre El nombre del parqueadero
+     * @return El numero, o -1 si el nombre no cabe en el formato
+     */
+    private int numeroParqueadero(String nombre) {
+        Integer numero = numerosParqueadero.get(nombre);
+        if (numero != null) {
+            return numero;
+        }
+
+        synchronized (nombresParqueadero) {
+            numero = numerosParqueadero.get(nombre);
+            if (numero != null) {
+                return numero;
+            }
+            byte[] bytes = nombre.getBytes(StandardCharsets.UTF_8);
+            if (bytes.length > LARGO_MAXIMO_NOMBRE) {
+                System.out.println("Error: El nombre del parqueadero tiene mas de " + LARGO_MAXIMO_NOMBRE +
+                        " bytes y no se puede auditar");
+                return -1;
+            }
+            // Primero el nombre y despues el numero: quien vea el numero ya encuentra el nombre
+            nombresParqueadero.add(bytes);
+            numero = nombresParqueadero.size() - 1;
+            numerosParqueadero.put(nombre, numero);
+            return numero;
+        }
+    }
+
+    /**
+     * Copia un texto como ASCII a una posicion del anillo, cortandolo si es largo
+     *
+     * @param texto El texto
+     * @param posicion La posicion en el anillo
+     * @param maximo El maximo de caracteres
+     * @return Los caracteres copiados
+     */
+    private int copiarTexto(String texto, int posicion, int maximo) {
+        int largo = Math.min(texto.length(), maximo);
+        for (int i = 0; i < largo; i++) {
+            char c = texto.charAt(i);
+            anillo[posicion + i] = (byte) (c < 128 ? c : '?');
+        }
+        return largo;
+    }
+
+    /**
+     * Empieza el hilo que escribe los registros en archivo
+     */
+    public synchronized void iniciar() {
+        if (hilo != null) {
+            return;
+        }
+        if (!carpeta.exists()) {
+            carpeta.mkdirs();
+        }
+        activa = true;
+        hilo = new Thread(this::consumir, "bitacora-auditoria");
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Detiene el hilo de fondo despues de escribir lo publicado y cierra el archivo
+     */
+    public synchronized void detener() {
+        activa = false;
+        if (hilo != null) {
+            LockSupport.unpark(hilo);
+            try {
+                hilo.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            hilo = null;
+        }
+    }
+
+    /**
+     * Saca registros del anillo por lotes y los escribe hasta que se detenga
+     */
+    private void consumir() {
+        byte[] lote = new byte[TAMANO_LOTE * TAMANO_REGISTRO];
+        long ultimoVaciado = System.currentTimeMillis();
+
+        while (true) {
+            // Copiar los registros publicados seguidos, hasta un lote
+            long secuencia = leida;
+            int registros = 0;
+            while (registros < TAMANO_LOTE) {
+                int casilla = (int) (secuencia & mascara);
+                if (publicadas.get(casilla) != secuencia) {
+                    break;
+                }
+                System.arraycopy(anillo, casilla * TAMANO_REGISTRO, lote, registros * TAMANO_REGISTRO, TAMANO_REGISTRO);
+                registros++;
+                secuencia++;
+            }
+            // Ya copiados, sus casillas se pueden reusar
+            leida = secuencia;
+
+            if (registros > 0) {
+                escribir(lote, registros);
+            }
+
+            long ahora = System.currentTimeMillis();
+            if (registros < TAMANO_LOTE && ahora - ultimoVaciado >= INTERVALO_VACIADO_MILLIS) {
+                vaciar();
+                ultimoVaciado = ahora;
+            }
+
+            if (registros == 0) {
+                if (!activa && siguiente.get() == leida) {
+                    break;
+                }
+                LockSupport.parkNanos(ESPERA_NANOS);
+            }
+        }
+        cerrarArchivo();
+    }
+
+    /**
+     * Escribe un lote de registros en el archivo abierto, rotando si hace falta
+     *
+     * @param lote Los registros
+     * @param registros El numero de registros del lote
+     */
+    private void escribir(byte[] lote, int registros) {
+        try {
+            if (salida != null && bytesArchivo >= bytesPorArchivo) {
+                cerrarArchivo();
+            }
+            if (salida == null) {
+                abrirArchivo();
+            }
+            escribirNombresNuevos();
+            salida.write(lote, 0, registros * TAMANO_REGISTRO);
+            bytesArchivo += registros * TAMANO_REGISTRO;
+            escritos.addAndGet(registros);
+        } catch (IOException e) {
+            System.out.println("Error al escribir la auditoria: " + e.getMessage());
+            cerrarArchivo();
+        }
+    }
+
+    /**
+     * Escribe en el archivo abierto los nombres de parqueadero que aun no tiene.
+     * Se llama despues de copiar el lote, asi ya estan los nombres que usa.
+     *
+     * @throws IOException Si falla la escritura
+     */
+    private void escribirNombresNuevos() throws IOException {
+        while (nombresEnArchivo < nombresParqueadero.size()) {
+            byte[] nombre = nombresParqueadero.get(nombresEnArchivo);
+            ByteBuffer registro = ByteBuffer.allocate(8 + 4 + 2 + nombre.length);
+            registro.putLong(MARCA_NOMBRE).putInt(nombresEnArchivo).putShort((short) nombre.length).put(nombre);
+            salida.write(registro.array());
+            bytesArchivo += registro.capacity();
+            nombresEnArchivo++;
+        }
+    }
+
+    /**
+     * Baja a disco lo comprimido hasta ahora, sin terminar el archivo
+     */
+    private void vaciar() {
+        if (salida == null) {
+            return;
+        }
+        try {
+            salida.flush();
+        } catch (IOException e) {
+            System.out.println("Error al vaciar la auditoria: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Abre un archivo nuevo, escribe la cabecera y borra los mas viejos
+     *
+     * @throws IOException Si no se puede crear el archivo
+     */
+    private void abrirArchivo() throws IOException {
+        archivosAbiertos++;
+        String nombre = "auditoria-" + LocalDateTime.now().format(FORMATO_ARCHIVO)
+                + "-" + archivosAbiertos + ".bin.gz";
+        // Con syncFlush el flush() periodico deja en disco bloques que ya se pueden leer
+        salida = new GZIPOutputStream(new FileOutputStream(new File(carpeta, nombre)), 64 * 1024, true);
+        salida.write(MARCA);
+        salida.write(VERSION);
+        salida.write(TAMANO_REGISTRO >> 8);
+        salida.write(TAMANO_REGISTRO & 0xFF);
+        bytesArchivo = 0;
+        nombresEnArchivo = 0;
+        borrarViejos();
+    }
+
+    /**
+     * Termina y cierra el archivo abierto
+     */
+    private void cerrarArchivo() {
+        if (salida == null) {
+            return;
+        }
+        try {
+            salida.close();
+        } catch (IOException e) {
+            System.out.println("Error al cerrar la auditoria: " + e.getMessage());
+        }
+        salida = null;
+    }
+
+    /**
+     * Borra los archivos mas viejos si hay mas que el maximo
+     */
+    private void borrarViejos() {
+        File[] archivos = listarArchivos(carpeta.getPath());
+        for (int i = 0; i < archivos.length - maximoArchivos; i++) {
+            if (!archivos[i].delete()) {
+                System.out.println("Error: No se pudo borrar " + archivos[i].getName());
+            }
+        }
+    }
+
+    /**
+     * Lista los archivos de auditoria de una carpeta, del mas viejo al mas nuevo
+     *
+     * @param carpeta La carpeta
+     * @return Los archivos (vacio si no hay)
+     */
+    public static File[] listarArchivos(String carpeta) {
+        File[] archivos = new File(carpeta).listFiles(
+                (directorio, nombre) -> nombre.startsWith("auditoria-") && nombre.endsWith(".bin.gz")
+                        && nombre.length() > LARGO_FECHA + ".bin.gz".length());
+        if (archivos == null) {
+            return new File[0];
+        }
+        // El nombre lleva la fecha y el numero de archivo; el numero se compara por valor
+        Arrays.sort(archivos, (a, b) -> {
+            int comparacion = a.getName().substring(0, LARGO_FECHA).compareTo(b.getName().substring(0, LARGO_FECHA));
+            return comparacion != 0 ? comparacion : Integer.compare(numeroArchivo(a), numeroArchivo(b));
+        });
+        return archivos;
+    }
+
+    /**
+     * Obtiene el numero de un archivo de auditoria a partir de su nombre
+     *
+     * @param archivo El archivo
+     * @return El numero (0 si el nombre no lo trae)
+     */
+    private static int numeroArchivo(File archivo) {
+        String nombre = archivo.getName();
+        int fin = nombre.length() - ".bin.gz".length();
+        try {
+            return Integer.parseInt(nombre.substring(LARGO_FECHA + 1, fin));
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Lee un archivo de auditoria y escribe una linea por registro:
+     * SECUENCIA|MOMENTO|E o S|PARQUEADERO|PLACA|TIPO|ESPACIO|TICKET|TARIFA|EXENTO
+     *
+     * @param archivo El archivo .bin.gz
+     * @param lineas Donde se escriben las lineas
+     * @return El numero de registros leidos, o -1 si el archivo no es de auditoria
+     * @throws IOException Si falla la lectura o la escritura
+     */
+    public static long leerArchivo(String archivo, Appendable lineas) throws IOException {
+        try (DataInputStream entrada = new DataInputStream(new BufferedInputStream(
+                new GZIPInputStream(new FileInputStream(archivo))))) {
+            byte[] cabecera = new byte[8];
+            entrada.readFully(cabecera);
+            byte version = cabecera[5];
+            if (!Arrays.equals(Arrays.copyOf(cabecera, MARCA.length), MARCA)
+                    || (version != VERSION && version != VERSION_NOMBRE_EN_REGISTRO)
+                    || ((cabecera[6] & 0xFF) << 8 | (cabecera[7] & 0xFF)) != TAMANO_REGISTRO) {
+                System.out.println("Error: " + archivo + " no es un archivo de auditoria");
+                return -1;
+            }
+
+            ArrayList<String> nombres = new ArrayList<String>();
+            byte[] registro = new byte[TAMANO_REGISTRO];
+            ByteBuffer campos = ByteBuffer.wrap(registro);
+            long leidos = 0;
+            while (true) {
+                String parqueadero;
+                try {
+                    entrada.readFully(registro, 0, 8);
+                    if (version == VERSION && campos.getLong(0) == MARCA_NOMBRE) {
+                        int numero = entrada.readInt();
+                        byte[] nombre = new byte[entrada.readUnsignedShort()];
+                        entrada.readFully(nombre);
+                        while (nombres.size() <= numero) {
+                            nombres.add(null);
+                        }
+                        nombres.set(numero, new String(nombre, StandardCharsets.UTF_8));
+                        continue;
+                    }
+                    entrada.readFully(registro, 8, TAMANO_REGISTRO - 8);
+                } catch (EOFException e) {
+                    // Un archivo cortado (por ejemplo al caerse el proceso) se lee hasta el ultimo registro completo
+                    return leidos;
+                }
+
+                if (version == VERSION) {
+                    int numero = campos.getInt(POS_PARQUEADERO);
+                    parqueadero = numero >= 0 && numero < nombres.size() && nombres.get(numero) != null
+                            ? nombres.get(numero) : "#" + numero;
+                } else {
+                    parqueadero = new String(registro, POS_PARQUEADERO_V1, registro[POS_LARGO_PARQUEADERO_V1],
+                            StandardCharsets.US_ASCII);
+                }
+                String placa = new String(registro, POS_PLACA, registro[POS_LARGO_PLACA], StandardCharsets.US_ASCII);
+                lineas.append(String.valueOf(campos.getLong(0))).append('|')
+                        .append(String.valueOf(campos.getLong(POS_MOMENTO))).append('|')
+                        .append((char) registro[POS_EVENTO]).append('|')
+                        .append(parqueadero).append('|')
+                        .append(placa).append('|')
+                        .append(registro[POS_TIPO] == 'M' ? "MOTO" : "AUTO").append('|')
+                        .append(String.valueOf(campos.getInt(POS_ESPACIO))).append('|')
+                        .append(String.valueOf(campos.getInt(POS_TICKET))).append('|')
+                        .append(String.valueOf(campos.getDouble(POS_TARIFA))).append('|')
+                        .append(registro[POS_EXENTO] != 0 ? "SI" : "NO").append('\n');
+                leidos++;
+            }
+        }
+    }
+
+    /**
+     * Obtiene los registros publicados que aun no se han escrito
+     *
+     * @return Los registros pendientes
+     */
+    public long contarPendientes() {
+        return siguiente.get() - leida;
+    }
+
+    /**
+     * Obtiene los registros descartados porque el anillo estaba lleno
+     *
+     * @return Los registros descartados
+     */
+    public long getDescartados() {
+        return descartados.sum();
+    }
+
+    /**
+     * Obtiene los registros escritos en archivo
+     *
+     * @return Los registros escritos
+     */
+    public long getEscritos() {
+        return escritos.get();
+    }
+}
@@ -0,0 +1,237 @@
+package servicio;
+
+import modelo.Ticket;
+import utilidad.IndiceBigramas;
+import utilidad.Validador;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.function.Consumer;
+
+/**
+ * Indice de las placas parqueadas para encontrar una placa mal leida.
+ * Se engancha al gestor como escucha y mantiene un indice de bigramas con
+ * las placas plegadas con Validador.plegarOcr (los caracteres que el OCR
+ * confunde quedan iguales segun su posicion en la placa), asi una confusion
+ * como 0/O u 8/B no cuenta como error y un error real cuenta como 1. Los candidatos se ordenan con una distancia donde cambiar un
+ * caracter confundible cuesta medio error y cualquier otro cambio uno.
+ * Ademas guarda las placas ordenadas, al derecho y al reves, para buscar
+ * por el inicio o el final de la placa por paginas y sin candados.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class BuscadorPlacas implements EscuchaParqueadero {
+
+    /**
+     * Maximo de errores de edicion entre la placa leida y la parqueada
+     */
+    public static final int ERRORES_MAXIMOS = 2;
+
+    /**
+     * Indice con las placas parqueadas, por placa plegada
+     */
+    private final IndiceBigramas indice;
+
+    /**
+     * Placas parqueadas en orden alfabetico
+     */
+    private final ConcurrentSkipListSet<String> placas;
+
+    /**
+     * Placas parqueadas escritas al reves, para buscar por el final
+     */
+    private final ConcurrentSkipListSet<String> placasInvertidas;
+
+    /**
+     * Constructor de la clase BuscadorPlacas
+     */
+    public BuscadorPlacas() {
+        this.indice = new IndiceBigramas();
+        this.placas = new ConcurrentSkipListSet<String>();
+        this.placasInvertidas = new ConcurrentSkipListSet<String>();
+    }
+
+    @Override
+    public void entradaRegistrada(GestorParqueadero gestor, Ticket ticket) {
+        agregar(ticket.getVehiculo().getPlaca());
+    }
+
+    @Override
+    public void salidaRegistrada(GestorParqueadero gestor, Ticket ticket) {
+        quitar(ticket.getVehiculo().getPlaca());
+    }
+
+    /**
+     * Agrega una placa parqueada
+     *
+     * @param placa La placa en mayusculas
+     */
+    public synchronized void agregar(String placa) {
+        indice.agregar(Validador.plegarOcr(placa), placa);
+        placas.add(placa);
+        placasInvertidas.add(invertir(placa));
+    }
+
+    /**
+     * Quita una placa que salio
+     *
+     * @param placa La placa en mayusculas
+     */
+    public synchronized void quitar(String placa) {
+        indice.quitar(placa);
+        placas.remove(placa);
+        placasInvertidas.remove(invertir(placa));
+    }
+
+    /**
+     * Obtiene el numero de placas en el indice
+     *
+     * @return El numero de placas
+     */
+    public synchronized int contarPlacas() {
+        return indice.contarValores();
+    }
+
+    /**
+     * Busca las placas parqueadas parecidas a una placa leida
+     *
+     * @param placa La placa leida
+     * @param maximo Maximo de sugerencias
+     * @return Las placas, de la mas parecida a la menos (vacia si no hay)
+     */
+    public ArrayList<String> buscarParecidas(String placa, int maximo) {
+        String leida = placa.trim().toUpperCase();
+        ArrayList<String> candidatas;
+        synchronized (this) {
+            candidatas = indice.buscar(Validador.plegarOcr(leida), ERRORES_MAXIMOS);
+        }
+
+        // Ordenar por la distancia con pesos, fuera del candado
+        ArrayList<String> cercanas = new ArrayList<String>(candidatas.size());
+        for (int i = 0; i < candidatas.size(); i++) {
+            if (distanciaOcr(leida, candidatas.get(i)) <= ERRORES_MAXIMOS * 2) {
+                cercanas.add(candidatas.get(i));
+            }
+        }
+        cercanas.sort(Comparator.comparingInt((String candidata) -> distanciaOcr(leida, candidata))
+                .thenComparing(Comparator.naturalOrder()));
+
+        return new ArrayList<String>(cercanas.subList(0, Math.min(maximo, cercanas.size())));
+    }
+
+    /**
+     * Entrega por paginas las placas que empiezan con un texto, en orden alfabetico
+     *
+     * @param prefijo El inicio de la placa
+     * @param despuesDe La ultima placa de la pagina anterior, o null para la primera
+     * @param limite Maximo de placas de la pagina
+     * @param destino Recibe cada placa
+     * @return La ultima placa entregada si puede haber mas, o null si no hay mas
+     */
+    public String buscarPorPrefijo(String prefijo, String despuesDe, int limite, Consumer<String> destino) {
+        return recorrer(placas, prefijo.trim().toUpperCase(), despuesDe, limite, false, destino);
+    }
+
+    /**
+     * Entrega por paginas las placas que terminan con un texto
+     *
+     * @param sufijo El final de la placa
+     * @param despuesDe La ultima placa de la pagina anterior, o null para la primera
+     * @param limite Maximo de placas de la pagina
+     * @param destino Recibe cada placa
+     * @return La ultima placa entregada si puede haber mas, o null si no hay mas
+     */
+    public String buscarPorSufijo(String sufijo, String despuesDe, int limite, Consumer<String> destino) {
+        return recorrer(placasInvertidas, invertir(sufijo.trim().toUpperCase()),
+                despuesDe != null ? invertir(despuesDe) : null, limite, true, destino);
+    }
+
+    /**
+     * Recorre un conjunto ordenado desde un prefijo o un cursor
+     *
+     * @param conjunto Las placas ordenadas
+     * @param prefijo El prefijo buscado
+     * @param despuesDe El cursor (en el mismo orden del conjunto) o null
+     * @param limite Maximo de placas
+     * @param invertidas true si el conjunto tiene las placas al reves
+     * @param destino Recibe cada placa al derecho
+     * @return La ultima placa entregada si hay mas, o null
+     */
+    private static String recorrer(NavigableSet<String> conjunto, String prefijo, String despuesDe,
+                                   int limite, boolean invertidas, Consumer<String> destino) {
+        NavigableSet<String> resto = despuesDe != null && despuesDe.compareTo(prefijo) >= 0
+                ? conjunto.tailSet(despuesDe, false) : conjunto.tailSet(prefijo, true);
+
+        String ultima = null;
+        int entregadas = 0;
+        for (String placa : resto) {
+            if (!placa.startsWith(prefijo)) {
+                return null;
+            }
+            if (entregadas == limite) {
+                return invertidas ? invertir(ultima) : ultima;
+            }
+            destino.accept(invertidas ? invertir(placa) : placa);
+            ultima = placa;
+            entregadas++;
+        }
+        return null;
+    }
+
+    /**
+     * Escribe una placa al reves
+     *
+     * @param placa La placa
+     * @return La placa invertida
+     */
+    private static String invertir(String placa) {
+        return new StringBuilder(placa).reverse().toString();
+    }
+
+    /**
+     * Calcula la distancia de edicion con pesos del OCR, en medios errores:
+     * cambiar un caracter por otro que el OCR confunde cuesta 1, cualquier
+     * otro cambio, insercion o borrado cuesta 2
+     *
+     * @param a La primera placa en mayusculas
+     * @param b La segunda placa en mayusculas
+     * @return La distancia en medios errores
+     */
+    public static int distanciaOcr(String a, String b) {
+        String plegadaA = Validador.plegarOcr(a);
+        String plegadaB = Validador.plegarOcr(b);
+        if (plegadaA.length() != a.length() || plegadaB.length() != b.length()) {
+            // Con espacios o guiones se compara solo la forma plegada
+            return IndiceBigramas.distancia(plegadaA, plegadaB) * 2;
+        }
+
+        int n = a.length();
+        int m = b.length();
+        int[] anterior = new int[m + 1];
+        int[] actual = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            anterior[j] = j * 2;
+        }
+
+        for (int i = 1; i <= n; i++) {
+            actual[0] = i * 2;
+            for (int j = 1; j <= m; j++) {
+                int costo;
+                if (a.charAt(i - 1) == b.charAt(j - 1)) {
+                    costo = 0;
+                } else if (plegadaA.charAt(i - 1) == plegadaB.charAt(j - 1)) {
+                    costo = 1;
+                } else {
+                    costo = 2;
+                }
+                actual[j] = Math.min(anterior[j - 1] + costo, Math.min(anterior[j], actual[j - 1]) + 2);
+            }
+            int[] temporal = anterior;
+            anterior = actual;
+            actual = temporal;
+        }
+        return anterior[m];
+    }
+}
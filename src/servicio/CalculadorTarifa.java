@@ -3,6 +3,8 @@ package servicio;
 /**
  * Clase encargada de calcular las tarifas de parqueo.
  * Las tarifas son diferentes para autos y motos.
+ * Los metodos estaticos usan las tarifas por defecto; para probar otras
+ * tarifas (por ejemplo en una simulacion) se crea una instancia propia.
  *
  * @author Velez
  * @version 1.0
@@ -20,22 +22,66 @@ public class CalculadorTarifa {
     private static final double TARIFA_MOTO = 2000.0;
 
     /**
-     * Calcula la tarifa total segun el tipo de vehiculo y las horas parqueadas
+     * Calculador con las tarifas por defecto
+     */
+    public static final CalculadorTarifa POR_DEFECTO = new CalculadorTarifa(TARIFA_AUTO, TARIFA_MOTO);
+
+    /**
+     * Tarifa por hora para autos de esta instancia
+     */
+    private final double tarifaAuto;
+
+    /**
+     * Tarifa por hora para motos de esta instancia
+     */
+    private final double tarifaMoto;
+
+    /**
+     * Constructor de la clase CalculadorTarifa
+     *
+     * @param tarifaAuto La tarifa por hora para autos
+     * @param tarifaMoto La tarifa por hora para motos
+     */
+    public CalculadorTarifa(double tarifaAuto, double tarifaMoto) {
+        this.tarifaAuto = tarifaAuto;
+        this.tarifaMoto = tarifaMoto;
+    }
+
+    /**
+     * Calcula la tarifa total con las tarifas de esta instancia
      *
      * @param tipoVehiculo El tipo de vehiculo (AUTO o MOTO)
      * @param horas El numero de horas parqueadas
      * @return La tarifa total a pagar
      */
-    public static double calcularTarifa(String tipoVehiculo, long horas) {
-        double tarifaPorHora = 0.0;
+    public double calcular(String tipoVehiculo, long horas) {
+        return getTarifaPorHora(tipoVehiculo) * horas;
+    }
 
+    /**
+     * Obtiene la tarifa por hora de esta instancia para un tipo de vehiculo
+     *
+     * @param tipoVehiculo El tipo de vehiculo (AUTO o MOTO)
+     * @return La tarifa por hora
+     */
+    public double getTarifaPorHora(String tipoVehiculo) {
         if (tipoVehiculo.equals("AUTO")) {
-            tarifaPorHora = TARIFA_AUTO;
+            return tarifaAuto;
         } else if (tipoVehiculo.equals("MOTO")) {
-            tarifaPorHora = TARIFA_MOTO;
+            return tarifaMoto;
         }
+        return 0.0;
+    }
 
-        return tarifaPorHora * horas;
+    /**
+     * Calcula la tarifa total segun el tipo de vehiculo y las horas parqueadas
+     *
+     * @param tipoVehiculo El tipo de vehiculo (AUTO o MOTO)
+     * @param horas El numero de horas parqueadas
+     * @return La tarifa total a pagar
+     */
+    public static double calcularTarifa(String tipoVehiculo, long horas) {
+        return POR_DEFECTO.calcular(tipoVehiculo, horas);
     }
 
     /**
@@ -45,12 +91,7 @@ public class CalculadorTarifa {
      * @return La tarifa por hora
      */
     public static double obtenerTarifaPorHora(String tipoVehiculo) {
-        if (tipoVehiculo.equals("AUTO")) {
-            return TARIFA_AUTO;
-        } else if (tipoVehiculo.equals("MOTO")) {
-            return TARIFA_MOTO;
-        }
-        return 0.0;
+        return POR_DEFECTO.getTarifaPorHora(tipoVehiculo);
     }
 
     /**
@@ -59,12 +100,21 @@ public class CalculadorTarifa {
      * @return String con las tarifas
      */
     public static String mostrarTarifas() {
+        return POR_DEFECTO.mostrarInformacion();
+    }
+
+    /**
+     * Muestra las tarifas de esta instancia
+     *
+     * @return String con las tarifas
+     */
+    public String mostrarInformacion() {
         StringBuilder tarifas = new StringBuilder();
         tarifas.append("\n========== TARIFAS ==========\n");
-        tarifas.append("AUTO: $").append(String.format("%.2f", TARIFA_AUTO)).append(" por hora\n");
-        tarifas.append("MOTO: $").append(String.format("%.2f", TARIFA_MOTO)).append(" por hora\n");
+        tarifas.append("AUTO: $").append(String.format("%.2f", tarifaAuto)).append(" por hora\n");
+        tarifas.append("MOTO: $").append(String.format("%.2f", tarifaMoto)).append(" por hora\n");
         tarifas.append("=============================\n");
 
         return tarifas.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,578 @@
+package servicio;
+
+import modelo.Reloj;
+import modelo.Reserva;
+import modelo.Ticket;
+import utilidad.LectorEventos;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Diario de las entradas, salidas y reservas de un parqueadero, en el orden
+ * en que ocurrieron. Se engancha al gestor como escucha y numera cada evento,
+ * asi una replica puede pedir "todo desde el evento N" y aplicar los
+ * mismos eventos en el mismo orden.
+ * Si se indica un archivo, el diario tambien se escribe en el formato
+ * que lee LectorEventos (MILLIS|E|PLACA), para poder reproducirlo despues,
+ * y al abrirlo se cuentan sus eventos, asi la numeracion sigue donde iba
+ * despues de reiniciar y las replicas no piden secuencias que ya no existen.
+ * Con archivo solo los ultimos eventos quedan en memoria; los anteriores
+ * se leen del archivo cuando una replica atrasada los pide. Sin archivo
+ * no hay de donde leerlos y se conservan todos.
+ * Solo el hilo de vaciado escribe el archivo: agregar() nunca espera el disco.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class DiarioEventos implements EscuchaParqueadero {
+
+    /**
+     * Cada cuantos milisegundos se baja el archivo a disco
+     */
+    private static final long INTERVALO_VACIADO_MILLIS = 100;
+
+    /**
+     * Eventos que se guardan en memoria por defecto cuando hay archivo
+     */
+    public static final int MAXIMO_EN_MEMORIA = 100_000;
+
+    /**
+     * Evento registrado en el diario
+     */
+    public static class Registro {
+
+        /**
+         * Numero del evento (empieza en 0)
+         */
+        private final long secuencia;
+
+        /**
+         * Momento del evento segun el reloj del parqueadero
+         */
+        private final long momentoMillis;
+
+        /**
+         * Tipo del evento ('E' entrada, 'S' salida, 'R' reserva, 'C' cancelacion o 'V' vencimiento)
+         */
+        private final char tipo;
+
+        /**
+         * Placa del vehiculo
+         */
+        private final String placa;
+
+        /**
+         * Minutos de la reserva (0 si el evento no es una reserva)
+         */
+        private final int minutos;
+
+        /**
+         * Hora real en que se registro, para medir el retraso de las replicas
+         */
+        private final long registradoMillis;
+
+        /**
+         * Constructor del registro
+         *
+         * @param secuencia El numero del evento
+         * @param momentoMillis El momento del evento
+         * @param tipo 'E', 'S', 'R', 'C' o 'V'
+         * @param placa La placa
+         * @param minutos Los minutos de la reserva o 0
+         * @param registradoMillis La hora real del registro
+         */
+        public Registro(long secuencia, long momentoMillis, char tipo, String placa, int minutos,
+                long registradoMillis) {
+            this.secuencia = secuencia;
+            this.momentoMillis = momentoMillis;
+            this.tipo = tipo;
+            this.placa = placa;
+            this.minutos = minutos;
+            this.registradoMillis = registradoMillis;
+        }
+
+        /**
+         * Obtiene el numero del evento
+         *
+         * @return La secuencia
+         */
+        public long getSecuencia() {
+            return secuencia;
+        }
+
+        /**
+         * Obtiene el momento del evento
+         *
+         * @return Los milisegundos segun el reloj del parqueadero
+         */
+        public long getMomentoMillis() {
+            return momentoMillis;
+        }
+
+        /**
+         * Obtiene el tipo del evento
+         *
+         * @return 'E', 'S', 'R', 'C' o 'V'
+         */
+        public char getTipo() {
+            return tipo;
+        }
+
+        /**
+         * Obtiene la placa
+         *
+         * @return La placa
+         */
+        public String getPlaca() {
+            return placa;
+        }
+
+        /**
+         * Obtiene los minutos de la reserva
+         *
+         * @return Los minutos, o 0 si el evento no es una reserva
+         */
+        public int getMinutos() {
+            return minutos;
+        }
+
+        /**
+         * Obtiene la linea del evento en el formato de LectorEventos
+         *
+         * @return MILLIS|TIPO|PLACA, con |MINUTOS al final si es una reserva
+         */
+        public String aLinea() {
+            String linea = momentoMillis + "|" + tipo + "|" + placa;
+            return tipo == 'R' ? linea + "|" + minutos : linea;
+        }
+
+        /**
+         * Obtiene la hora real del registro
+         *
+         * @return Los milisegundos desde la epoca
+         */
+        public long getRegistradoMillis() {
+            return registradoMillis;
+        }
+    }
+
+    /**
+     * Ultimos eventos del diario; la posicion en la lista mas primeraEnMemoria es la secuencia
+     */
+    private final ArrayList<Registro> registros;
+
+    /**
+     * Secuencia del primer evento que sigue en memoria; los anteriores estan en el archivo
+     */
+    private long primeraEnMemoria;
+
+    /**
+     * Eventos que se dejan en memoria cuando hay archivo
+     */
+    private final int maximoEnMemoria;
+
+    /**
+     * Escritor del archivo del diario (null si solo vive en memoria); se usa con candadoArchivo
+     */
+    private BufferedWriter escritor;
+
+    /**
+     * Candado del archivo, aparte del monitor del diario para que escribir
+     * en disco no detenga a quien agrega o lee eventos
+     */
+    private final Object candadoArchivo;
+
+    /**
+     * Nombre del archivo del diario (null si solo vive en memoria)
+     */
+    private String nombreArchivo;
+
+    /**
+     * Registros que ya estan escritos en el archivo; se usa con el monitor del diario
+     */
+    private long registrosVaciados;
+
+    /**
+     * Hilo que baja el archivo a disco periodicamente (null si no hay archivo)
+     */
+    private ScheduledExecutorService vaciador;
+
+    /**
+     * Candado del lector de eventos viejos
+     */
+    private final Object candadoLectura;
+
+    /**
+     * Lector del archivo para los eventos que ya no estan en memoria (null si no hay uno abierto).
+     * Se conserva entre pedidos porque una replica atrasada los pide en orden
+     */
+    private LectorEventos lectorAntiguo;
+
+    /**
+     * Secuencia del siguiente evento que entrega lectorAntiguo
+     */
+    private long siguienteAntiguo;
+
+    /**
+     * Constructor de un diario que solo vive en memoria
+     */
+    public DiarioEventos() {
+        this.registros = new ArrayList<Registro>();
+        this.candadoArchivo = new Object();
+        this.candadoLectura = new Object();
+        this.maximoEnMemoria = Integer.MAX_VALUE;
+    }
+
+    /**
+     * Constructor de un diario que ademas se agrega a un archivo
+     *
+     * @param nombreArchivo El archivo del diario
+     * @throws IOException Si no se puede abrir el archivo
+     */
+    public DiarioEventos(String nombreArchivo) throws IOException {
+        this(nombreArchivo, MAXIMO_EN_MEMORIA);
+    }
+
+    /**
+     * Constructor de un diario con archivo que deja en memoria solo los ultimos eventos
+     *
+     * @param nombreArchivo El archivo del diario
+     * @param maximoEnMemoria Cuantos eventos recientes se guardan en memoria
+     * @throws IOException Si no se puede abrir el archivo
+     */
+    public DiarioEventos(String nombreArchivo, int maximoEnMemoria) throws IOException {
+        this.registros = new ArrayList<Registro>();
+        this.candadoArchivo = new Object();
+        this.candadoLectura = new Object();
+        this.maximoEnMemoria = Math.max(1, maximoEnMemoria);
+        this.nombreArchivo = nombreArchivo;
+        cargar(nombreArchivo);
+        boolean cortado = terminaCortado(nombreArchivo);
+        this.escritor = new BufferedWriter(new FileWriter(nombreArchivo, true));
+        if (cortado) {
+            escritor.newLine();
+        }
+        this.vaciador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "diario-eventos");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        this.vaciador.scheduleWithFixedDelay(this::vaciar,
+                INTERVALO_VACIADO_MILLIS, INTERVALO_VACIADO_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Cuenta los eventos que ya tiene el archivo del diario y deja en memoria los ultimos
+     *
+     * @param nombreArchivo El archivo del diario
+     * @throws IOException Si el archivo existe pero no se puede leer
+     */
+    private void cargar(String nombreArchivo) throws IOException {
+        if (!new File(nombreArchivo).isFile()) {
+            return;
+        }
+
+        try (LectorEventos lector = new LectorEventos(nombreArchivo, ZoneId.systemDefault())) {
+            while (lector.siguiente()) {
+                registros.add(leerRegistro(lector, primeraEnMemoria + registros.size()));
+                registrosVaciados++;
+                recortar();
+            }
+            if (lector.getLineasInvalidas() > 0) {
+                System.out.println("Advertencia: Se ignoraron " + lector.getLineasInvalidas() +
+                        " lineas invalidas del diario " + nombreArchivo);
+            }
+        }
+    }
+
+    /**
+     * Verifica si el archivo termina a mitad de una linea (por ejemplo si el
+     * proceso se cayo escribiendo), para no pegarle el siguiente evento
+     *
+     * @param nombreArchivo El archivo del diario
+     * @return true si el archivo no esta vacio y no termina en salto de linea
+     * @throws IOException Si no se puede leer el archivo
+     */
+    private static boolean terminaCortado(String nombreArchivo) throws IOException {
+        File archivo = new File(nombreArchivo);
+        if (!archivo.isFile() || archivo.length() == 0) {
+            return false;
+        }
+        try (RandomAccessFile lectura = new RandomAccessFile(archivo, "r")) {
+            lectura.seek(archivo.length() - 1);
+            return lectura.read() != '\n';
+        }
+    }
+
+    /**
+     * Crea el registro del evento actual de un lector
+     *
+     * @param lector El lector posicionado en un evento
+     * @param secuencia La secuencia del evento
+     * @return El registro
+     */
+    private static Registro leerRegistro(LectorEventos lector, long secuencia) {
+        // La hora real del registro no se guarda; se usa el momento del evento
+        return new Registro(secuencia, lector.getMomentoMillis(), lector.getTipo(), lector.getPlaca(),
+                lector.getMinutos(), lector.getMomentoMillis());
+    }
+
+    /**
+     * Saca de la memoria los eventos mas viejos que ya estan en el archivo.
+     * Se deja crecer un cuarto por encima del maximo para no mover la lista
+     * en cada evento. Se llama con el monitor del diario
+     */
+    private void recortar() {
+        if (nombreArchivo == null || registros.size() <= maximoEnMemoria + maximoEnMemoria / 4) {
+            return;
+        }
+
+        int sobrantes = (int) Math.min(registros.size() - maximoEnMemoria, registrosVaciados - primeraEnMemoria);
+        if (sobrantes > 0) {
+            registros.subList(0, sobrantes).clear();
+            primeraEnMemoria += sobrantes;
+        }
+    }
+
+    @Override
+    public void entradaRegistrada(GestorParqueadero gestor, Ticket ticket) {
+        agregar(ticket.getEntradaMillis(), 'E', ticket.getVehiculo().getPlaca());
+    }
+
+    @Override
+    public void salidaRegistrada(GestorParqueadero gestor, Ticket ticket) {
+        agregar(ticket.getSalidaMillis(), 'S', ticket.getVehiculo().getPlaca());
+    }
+
+    @Override
+    public void reservaCreada(GestorParqueadero gestor, Reserva reserva) {
+        Reloj reloj = gestor.getReloj();
+        long reservaMillis = reloj.aMillis(reserva.getHoraReserva());
+        int minutos = (int) ((reloj.aMillis(reserva.getHoraVencimiento()) - reservaMillis) / 60000L);
+        agregar(reservaMillis, 'R', reserva.getPlaca(), minutos);
+    }
+
+    @Override
+    public void reservaCancelada(GestorParqueadero gestor, Reserva reserva) {
+        agregar(gestor.getReloj().ahoraMillis(), 'C', reserva.getPlaca());
+    }
+
+    @Override
+    public void reservaVencida(GestorParqueadero gestor, Reserva reserva) {
+        agregar(gestor.getReloj().ahoraMillis(), 'V', reserva.getPlaca());
+    }
+
+    /**
+     * Agrega un evento al diario y despierta a quien espera eventos nuevos
+     *
+     * @param momentoMillis El momento del evento
+     * @param tipo 'E', 'S', 'C' o 'V'
+     * @param placa La placa
+     */
+    public void agregar(long momentoMillis, char tipo, String placa) {
+        agregar(momentoMillis, tipo, placa, 0);
+    }
+
+    /**
+     * Agrega un evento al diario y despierta a quien espera eventos nuevos
+     *
+     * @param momentoMillis El momento del evento
+     * @param tipo 'E', 'S', 'R', 'C' o 'V'
+     * @param placa La placa
+     * @param minutos Los minutos de la reserva, o 0 si no es una reserva
+     */
+    public synchronized void agregar(long momentoMillis, char tipo, String placa, int minutos) {
+        registros.add(new Registro(primeraEnMemoria + registros.size(), momentoMillis, tipo, placa, minutos,
+                System.currentTimeMillis()));
+        notifyAll();
+    }
+
+    /**
+     * Obtiene los eventos desde una secuencia, esperando un poco si aun no hay.
+     * Los que ya no estan en memoria se leen del archivo
+     *
+     * @param desde La primera secuencia que se quiere
+     * @param maximo El maximo de eventos a devolver
+     * @param esperaMillis Cuanto esperar si no hay eventos nuevos
+     * @return Los eventos (vacia si no llego ninguno en la espera)
+     * @throws InterruptedException Si se interrumpe la espera
+     */
+    public List<Registro> obtenerDesde(long desde, int maximo, long esperaMillis)
+            throws InterruptedException {
+        long primera;
+        synchronized (this) {
+            primera = primeraEnMemoria;
+            if (desde >= primera) {
+                long total = primera + registros.size();
+                if (desde >= total && esperaMillis > 0) {
+                    wait(esperaMillis);
+                    total = primeraEnMemoria + registros.size();
+                }
+
+                if (desde >= total) {
+                    return new ArrayList<Registro>();
+                }
+
+                // Mientras se esperaba pudo recortarse la memoria; entonces se lee del archivo
+                if (desde >= primeraEnMemoria) {
+                    int inicio = (int) (desde - primeraEnMemoria);
+                    int fin = Math.min(registros.size(), inicio + maximo);
+                    return new ArrayList<Registro>(registros.subList(inicio, fin));
+                }
+                primera = primeraEnMemoria;
+            }
+        }
+
+        return leerDelArchivo(desde, primera, maximo);
+    }
+
+    /**
+     * Lee del archivo eventos que ya no estan en memoria. Todos los anteriores
+     * a la primera secuencia en memoria estan completos en el archivo
+     *
+     * @param desde La primera secuencia que se quiere
+     * @param hasta La primera secuencia que sigue en memoria
+     * @param maximo El maximo de eventos a devolver
+     * @return Los eventos leidos (vacia si hubo un error o el lector llego al final)
+     */
+    private List<Registro> leerDelArchivo(long desde, long hasta, int maximo) {
+        ArrayList<Registro> lote = new ArrayList<Registro>();
+        synchronized (candadoLectura) {
+            try {
+                if (lectorAntiguo == null || siguienteAntiguo > desde) {
+                    cerrarLectorAntiguo();
+                    lectorAntiguo = new LectorEventos(nombreArchivo, ZoneId.systemDefault());
+                    siguienteAntiguo = 0;
+                }
+
+                boolean hayMas = true;
+                while (siguienteAntiguo < desde && (hayMas = lectorAntiguo.siguiente())) {
+                    siguienteAntiguo++;
+                }
+                while (hayMas && lote.size() < maximo && siguienteAntiguo < hasta
+                        && (hayMas = lectorAntiguo.siguiente())) {
+                    lote.add(leerRegistro(lectorAntiguo, siguienteAntiguo++));
+                }
+
+                // El lector ve el archivo del tamano que tenia al abrirlo; al llegar al final
+                // se cierra para que el siguiente pedido lo abra con lo que se escribio despues
+                if (!hayMas) {
+                    cerrarLectorAntiguo();
+                }
+            } catch (IOException e) {
+                System.out.println("Error al leer el diario " + nombreArchivo + ": " + e.getMessage());
+                cerrarLectorAntiguo();
+            }
+        }
+        return lote;
+    }
+
+    /**
+     * Cierra el lector de eventos viejos si esta abierto; se llama con candadoLectura
+     */
+    private void cerrarLectorAntiguo() {
+        if (lectorAntiguo != null) {
+            try {
+                lectorAntiguo.close();
+            } catch (IOException e) {
+                // Solo se leia
+            }
+            lectorAntiguo = null;
+        }
+    }
+
+    /**
+     * Obtiene el numero de eventos del diario
+     *
+     * @return El numero de eventos (tambien es la siguiente secuencia)
+     */
+    public synchronized long contarRegistros() {
+        return primeraEnMemoria + registros.size();
+    }
+
+    /**
+     * Obtiene cuantos eventos hay en memoria
+     *
+     * @return Los eventos en memoria
+     */
+    public synchronized int contarEnMemoria() {
+        return registros.size();
+    }
+
+    /**
+     * Escribe en el archivo los eventos nuevos y los baja a disco. Los eventos
+     * se copian con el monitor del diario y se escriben despues de soltarlo;
+     * ya escritos, los mas viejos pueden salir de la memoria
+     */
+    public void vaciar() {
+        synchronized (candadoArchivo) {
+            if (escritor == null) {
+                return;
+            }
+
+            ArrayList<Registro> pendientes;
+            long total;
+            synchronized (this) {
+                pendientes = new ArrayList<Registro>(registros.subList((int) (registrosVaciados - primeraEnMemoria),
+                        registros.size()));
+                total = primeraEnMemoria + registros.size();
+                registrosVaciados = total;
+            }
+
+            EventosJfr.VaciadoDiario evento = new EventosJfr.VaciadoDiario();
+            evento.begin();
+            try {
+                for (int i = 0; i < pendientes.size(); i++) {
+                    escritor.write(pendientes.get(i).aLinea());
+                    escritor.newLine();
+                }
+                escritor.flush();
+                synchronized (this) {
+                    recortar();
+                }
+            } catch (IOException e) {
+                System.out.println("Error al escribir el diario: " + e.getMessage());
+            }
+            evento.end();
+            if (evento.shouldCommit()) {
+                evento.archivo = nombreArchivo;
+                evento.registros = pendientes.size();
+                evento.totalRegistros = total;
+                evento.commit();
+            }
+        }
+    }
+
+    /**
+     * Escribe lo que falta y cierra el archivo del diario
+     */
+    public void cerrar() {
+        synchronized (candadoArchivo) {
+            if (vaciador != null) {
+                vaciador.shutdownNow();
+                vaciador = null;
+            }
+            vaciar();
+            if (escritor != null) {
+                try {
+                    escritor.close();
+                } catch (IOException e) {
+                    System.out.println("Error al cerrar el diario: " + e.getMessage());
+                }
+                escritor = null;
+            }
+        }
+        synchronized (candadoLectura) {
+            cerrarLectorAntiguo();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package servicio;
+
+import modelo.Reserva;
+import modelo.Ticket;
+
+/**
+ * Interfaz para recibir avisos de las entradas, salidas y reservas de un parqueadero.
+ * Los metodos se llaman desde el hilo de la puerta mientras el gestor
+ * tiene su candado, por eso deben ser rapidos y no bloquear.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public interface EscuchaParqueadero {
+
+    /**
+     * Se llama cuando un vehiculo entra al parqueadero
+     *
+     * @param gestor El gestor donde ocurrio la entrada
+     * @param ticket El ticket generado
+     */
+    default void entradaRegistrada(GestorParqueadero gestor, Ticket ticket) {
+    }
+
+    /**
+     * Se llama cuando un vehiculo sale del parqueadero
+     *
+     * @param gestor El gestor donde ocurrio la salida
+     * @param ticket El ticket finalizado
+     */
+    default void salidaRegistrada(GestorParqueadero gestor, Ticket ticket) {
+    }
+
+    /**
+     * Se llama cuando se crea una reserva
+     *
+     * @param gestor El gestor donde se reservo
+     * @param reserva La reserva creada
+     */
+    default void reservaCreada(GestorParqueadero gestor, Reserva reserva) {
+    }
+
+    /**
+     * Se llama cuando se cancela una reserva (no cuando el vehiculo llega y la consume)
+     *
+     * @param gestor El gestor donde se cancelo
+     * @param reserva La reserva cancelada
+     */
+    default void reservaCancelada(GestorParqueadero gestor, Reserva reserva) {
+    }
+
+    /**
+     * Se llama cuando una reserva vence sin que llegue el vehiculo
+     *
+     * @param gestor El gestor donde vencio
+     * @param reserva La reserva vencida
+     */
+    default void reservaVencida(GestorParqueadero gestor, Reserva reserva) {
+    }
+}
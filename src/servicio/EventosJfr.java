@@ -0,0 +1,231 @@
+package servicio;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Enabled;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Eventos de Java Flight Recorder del parqueadero: entradas, salidas,
+ * busqueda de espacio, calculo de tarifa y vaciado del diario. Todos
+ * vienen apagados y se encienden con el perfil parqueadero.jfc, que ademas
+ * trae los eventos de GC y de candados para ver en la misma grabacion
+ * que causo un pico de latencia:
+ * java -XX:StartFlightRecording:settings=parqueadero.jfc,filename=parqueadero.jfr -cp out Main --servidor 8080 100
+ * Apagados solo cuestan la creacion del objeto, que el JIT elimina, y una
+ * verificacion de shouldCommit(); los campos se llenan solo si se va a grabar.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class EventosJfr {
+
+    /**
+     * Constructor privado para evitar instanciacion.
+     * Esta clase solo agrupa los eventos.
+     */
+    private EventosJfr() {
+        // Constructor privado
+    }
+
+    /**
+     * Registro de una entrada, aceptada o rechazada
+     */
+    @Name("parqueadero.Entrada")
+    @Label("Entrada")
+    @Description("Llamada a registrarEntrada, incluida la espera del candado del gestor")
+    @Category("Parqueadero")
+    @Enabled(false)
+    @StackTrace(false)
+    public static class Entrada extends Event {
+
+        /**
+         * Nombre del parqueadero
+         */
+        @Label("Parqueadero")
+        String parqueadero;
+
+        /**
+         * Placa recibida
+         */
+        @Label("Placa")
+        String placa;
+
+        /**
+         * Tipo de vehiculo (null si no se identifico)
+         */
+        @Label("Tipo de Vehiculo")
+        String tipoVehiculo;
+
+        /**
+         * Numero del espacio asignado (0 si se rechazo)
+         */
+        @Label("Espacio")
+        int espacio;
+
+        /**
+         * Motivo del rechazo (null si se registro)
+         */
+        @Label("Motivo de Rechazo")
+        String motivo;
+    }
+
+    /**
+     * Registro de una salida, aceptada o rechazada
+     */
+    @Name("parqueadero.Salida")
+    @Label("Salida")
+    @Description("Llamada a registrarSalida, incluida la espera del candado del gestor")
+    @Category("Parqueadero")
+    @Enabled(false)
+    @StackTrace(false)
+    public static class Salida extends Event {
+
+        /**
+         * Nombre del parqueadero
+         */
+        @Label("Parqueadero")
+        String parqueadero;
+
+        /**
+         * Placa recibida
+         */
+        @Label("Placa")
+        String placa;
+
+        /**
+         * Tipo de vehiculo (null si no se encontro)
+         */
+        @Label("Tipo de Vehiculo")
+        String tipoVehiculo;
+
+        /**
+         * Tarifa cobrada
+         */
+        @Label("Tarifa")
+        double tarifa;
+
+        /**
+         * Motivo del rechazo (null si se registro)
+         */
+        @Label("Motivo de Rechazo")
+        String motivo;
+    }
+
+    /**
+     * Busqueda de un espacio para una entrada
+     */
+    @Name("parqueadero.BusquedaEspacio")
+    @Label("Busqueda de Espacio")
+    @Description("Uso de una reserva o busqueda en el indice de espacios libres")
+    @Category("Parqueadero")
+    @Enabled(false)
+    @StackTrace(false)
+    public static class BusquedaEspacio extends Event {
+
+        /**
+         * Nombre del parqueadero
+         */
+        @Label("Parqueadero")
+        String parqueadero;
+
+        /**
+         * Tipo de vehiculo
+         */
+        @Label("Tipo de Vehiculo")
+        String tipoVehiculo;
+
+        /**
+         * Estrategia usada (RESERVA, EXCLUSIVA o DESBORDE_MOTOS)
+         */
+        @Label("Estrategia")
+        String estrategia;
+
+        /**
+         * Indices de espacios libres consultados (0 con reserva, 1, o 2 si se busco en los de auto para una moto)
+         */
+        @Label("Indices Consultados")
+        int indicesConsultados;
+
+        /**
+         * Espacios libres del tipo del vehiculo al buscar (el encontrado aun no se ocupa)
+         */
+        @Label("Libres del Tipo")
+        int libresTipo;
+
+        /**
+         * Numero del espacio encontrado (0 si no hay)
+         */
+        @Label("Espacio")
+        int espacio;
+    }
+
+    /**
+     * Calculo de la tarifa de una salida
+     */
+    @Name("parqueadero.Tarifa")
+    @Label("Tarifa")
+    @Description("Calculo de la tarifa con el calculador del parqueadero")
+    @Category("Parqueadero")
+    @Enabled(false)
+    @StackTrace(false)
+    public static class Tarifa extends Event {
+
+        /**
+         * Nombre del parqueadero
+         */
+        @Label("Parqueadero")
+        String parqueadero;
+
+        /**
+         * Tipo de vehiculo
+         */
+        @Label("Tipo de Vehiculo")
+        String tipoVehiculo;
+
+        /**
+         * Horas cobradas
+         */
+        @Label("Horas")
+        long horas;
+
+        /**
+         * Tarifa calculada
+         */
+        @Label("Tarifa")
+        double tarifa;
+    }
+
+    /**
+     * Vaciado del archivo del diario de eventos
+     */
+    @Name("parqueadero.VaciadoDiario")
+    @Label("Vaciado del Diario")
+    @Description("Escritura a disco de los registros pendientes del diario")
+    @Category("Parqueadero")
+    @Enabled(false)
+    @StackTrace(false)
+    public static class VaciadoDiario extends Event {
+
+        /**
+         * Archivo del diario
+         */
+        @Label("Archivo")
+        String archivo;
+
+        /**
+         * Registros escritos desde el vaciado anterior
+         */
+        @Label("Registros")
+        long registros;
+
+        /**
+         * Registros totales del diario
+         */
+        @Label("Registros Totales")
+        long totalRegistros;
+    }
+}
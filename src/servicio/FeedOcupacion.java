@@ -0,0 +1,431 @@
+package servicio;
+
+import com.sun.net.httpserver.HttpHandler;
+import modelo.Parqueadero;
+import modelo.Ticket;
+import utilidad.Json;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Feed de ocupacion para los avisos de "espacios disponibles".
+ * Se engancha a los gestores como escucha y, en cada entrada o salida,
+ * deja el nuevo estado del parqueadero pendiente en cada suscripcion.
+ * Si llegan varios cambios antes de que el suscriptor lea, solo se guarda
+ * el ultimo de cada parqueadero, y a cada suscriptor se le entrega como
+ * mucho un lote por intervalo. La puerta solo deja el estado y sigue: el
+ * envio lo hace el hilo del suscriptor, asi un aviso lento no la frena.
+ * Se sirve como server-sent events con manejadorSse().
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class FeedOcupacion implements EscuchaParqueadero {
+
+    /**
+     * Intervalo por defecto entre envios a un mismo suscriptor
+     */
+    public static final long INTERVALO_POR_DEFECTO_MILLIS = 1000;
+
+    /**
+     * Tiempo sin cambios tras el cual se envia un latido para detectar clientes caidos
+     */
+    private static final long LATIDO_MILLIS = 15000;
+
+    /**
+     * Estado de ocupacion de un parqueadero en un momento; no cambia una vez creado
+     */
+    public static class Estado {
+
+        /**
+         * Nombre del parqueadero
+         */
+        private final String parqueadero;
+
+        /**
+         * Version del estado (crece con cada cambio publicado en el feed)
+         */
+        private final long version;
+
+        /**
+         * Momento del cambio segun el reloj del parqueadero
+         */
+        private final long momentoMillis;
+
+        /**
+         * Capacidad total del parqueadero
+         */
+        private final int capacidad;
+
+        /**
+         * Espacios de auto disponibles
+         */
+        private final int disponiblesAuto;
+
+        /**
+         * Espacios de moto disponibles
+         */
+        private final int disponiblesMoto;
+
+        /**
+         * Constructor del estado
+         *
+         * @param parqueadero El nombre del parqueadero
+         * @param version La version
+         * @param momentoMillis El momento del cambio
+         * @param capacidad La capacidad total
+         * @param disponiblesAuto Los espacios de auto disponibles
+         * @param disponiblesMoto Los espacios de moto disponibles
+         */
+        public Estado(String parqueadero, long version, long momentoMillis, int capacidad,
+                      int disponiblesAuto, int disponiblesMoto) {
+            this.parqueadero = parqueadero;
+            this.version = version;
+            this.momentoMillis = momentoMillis;
+            this.capacidad = capacidad;
+            this.disponiblesAuto = disponiblesAuto;
+            this.disponiblesMoto = disponiblesMoto;
+        }
+
+        /**
+         * Obtiene el nombre del parqueadero
+         *
+         * @return El parqueadero
+         */
+        public String getParqueadero() {
+            return parqueadero;
+        }
+
+        /**
+         * Obtiene la version del estado
+         *
+         * @return La version
+         */
+        public long getVersion() {
+            return version;
+        }
+
+        /**
+         * Obtiene los espacios de un tipo disponibles
+         *
+         * @param tipoVehiculo AUTO o MOTO
+         * @return Los espacios disponibles
+         */
+        public int getDisponibles(String tipoVehiculo) {
+            return tipoVehiculo.equals("AUTO") ? disponiblesAuto : disponiblesMoto;
+        }
+
+        /**
+         * Obtiene el total de espacios disponibles
+         *
+         * @return Los espacios disponibles
+         */
+        public int getDisponibles() {
+            return disponiblesAuto + disponiblesMoto;
+        }
+
+        /**
+         * Muestra el estado como JSON
+         *
+         * @return El JSON del estado
+         */
+        public String mostrarJson() {
+            StringBuilder json = new StringBuilder("{");
+            Json.campo(json, "parqueadero", parqueadero).append(',');
+            Json.campo(json, "version", version).append(',');
+            Json.campo(json, "momentoMillis", momentoMillis).append(',');
+            Json.campo(json, "capacidad", capacidad).append(',');
+            Json.campo(json, "disponibles", getDisponibles()).append(',');
+            Json.texto(json, "AUTO").append(":{");
+            Json.campo(json, "disponibles", disponiblesAuto).append("},");
+            Json.texto(json, "MOTO").append(":{");
+            Json.campo(json, "disponibles", disponiblesMoto).append('}');
+            return json.append('}').toString();
+        }
+    }
+
+    /**
+     * Suscripcion de un aviso al feed, con los estados que aun no ha recibido
+     */
+    public static class Suscripcion {
+
+        /**
+         * Feed al que pertenece
+         */
+        private final FeedOcupacion feed;
+
+        /**
+         * Parqueadero que sigue (null para todos)
+         */
+        private final String parqueadero;
+
+        /**
+         * Ultimo estado pendiente de cada parqueadero
+         */
+        private final LinkedHashMap<String, Estado> pendientes;
+
+        /**
+         * Momento del ultimo envio, para respetar el intervalo
+         */
+        private long ultimoEnvioMillis;
+
+        /**
+         * Numero de estados reemplazados por uno mas nuevo antes de enviarse
+         */
+        private long agrupados;
+
+        /**
+         * Indica si la suscripcion sigue activa
+         */
+        private volatile boolean activa;
+
+        /**
+         * Constructor de la suscripcion
+         *
+         * @param feed El feed
+         * @param parqueadero El parqueadero a seguir o null para todos
+         */
+        Suscripcion(FeedOcupacion feed, String parqueadero) {
+            this.feed = feed;
+            this.parqueadero = parqueadero;
+            this.pendientes = new LinkedHashMap<String, Estado>();
+            this.activa = true;
+        }
+
+        /**
+         * Verifica si la suscripcion recibe los cambios de un parqueadero
+         *
+         * @param nombre El nombre del parqueadero
+         * @return true si lo sigue
+         */
+        boolean sigue(String nombre) {
+            return parqueadero == null || parqueadero.equals(nombre);
+        }
+
+        /**
+         * Deja un estado pendiente, reemplazando el anterior del mismo parqueadero.
+         * Lo llama la puerta; nunca espera al suscriptor.
+         *
+         * @param estado El nuevo estado
+         */
+        synchronized void publicar(Estado estado) {
+            if (pendientes.put(estado.getParqueadero(), estado) != null) {
+                agrupados++;
+            }
+            notifyAll();
+        }
+
+        /**
+         * Espera el siguiente lote de cambios. Devuelve como mucho un lote por
+         * intervalo, o una lista vacia si pasa el tiempo de latido sin cambios
+         * o si la suscripcion se cancela.
+         *
+         * @return Los estados nuevos, uno por parqueadero
+         * @throws InterruptedException Si se interrumpe la espera
+         */
+        public synchronized List<Estado> siguiente() throws InterruptedException {
+            long limiteLatido = System.currentTimeMillis() + LATIDO_MILLIS;
+            while (activa) {
+                long ahora = System.currentTimeMillis();
+                if (!pendientes.isEmpty()) {
+                    long listo = ultimoEnvioMillis + feed.intervaloMillis;
+                    if (ahora >= listo) {
+                        ArrayList<Estado> lote = new ArrayList<Estado>(pendientes.values());
+                        pendientes.clear();
+                        ultimoEnvioMillis = ahora;
+                        return lote;
+                    }
+                    wait(listo - ahora);
+                } else {
+                    if (ahora >= limiteLatido) {
+                        break;
+                    }
+                    wait(limiteLatido - ahora);
+                }
+            }
+            return new ArrayList<Estado>();
+        }
+
+        /**
+         * Verifica si la suscripcion sigue activa
+         *
+         * @return true si esta activa
+         */
+        public boolean isActiva() {
+            return activa;
+        }
+
+        /**
+         * Obtiene cuantos estados se agruparon en uno mas nuevo
+         *
+         * @return El numero de estados agrupados
+         */
+        public synchronized long getAgrupados() {
+            return agrupados;
+        }
+
+        /**
+         * Cancela la suscripcion y despierta a quien espera en siguiente()
+         */
+        public void cancelar() {
+            feed.suscripciones.remove(this);
+            synchronized (this) {
+                activa = false;
+                notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Suscripciones activas
+     */
+    private final CopyOnWriteArrayList<Suscripcion> suscripciones;
+
+    /**
+     * Ultimo estado de cada parqueadero, para enviarlo a quien se suscribe
+     */
+    private final ConcurrentHashMap<String, Estado> ultimos;
+
+    /**
+     * Contador de versiones
+     */
+    private final AtomicLong versiones;
+
+    /**
+     * Intervalo minimo entre envios a un mismo suscriptor
+     */
+    private final long intervaloMillis;
+
+    /**
+     * Constructor de la clase FeedOcupacion con el intervalo por defecto
+     */
+    public FeedOcupacion() {
+        this(INTERVALO_POR_DEFECTO_MILLIS);
+    }
+
+    /**
+     * Constructor de la clase FeedOcupacion
+     *
+     * @param intervaloMillis Intervalo minimo entre envios a un mismo suscriptor
+     */
+    public FeedOcupacion(long intervaloMillis) {
+        this.suscripciones = new CopyOnWriteArrayList<Suscripcion>();
+        this.ultimos = new ConcurrentHashMap<String, Estado>();
+        this.versiones = new AtomicLong();
+        this.intervaloMillis = intervaloMillis;
+    }
+
+    @Override
+    public void entradaRegistrada(GestorParqueadero gestor, Ticket ticket) {
+        publicar(gestor.getParqueadero(), ticket.getEntradaMillis());
+    }
+
+    @Override
+    public void salidaRegistrada(GestorParqueadero gestor, Ticket ticket) {
+        publicar(gestor.getParqueadero(), ticket.getSalidaMillis());
+    }
+
+    /**
+     * Publica el estado actual de un parqueadero. Debe llamarse con el candado
+     * del gestor (las escuchas ya lo tienen) para leer contadores consistentes.
+     *
+     * @param parqueadero El parqueadero
+     * @param momentoMillis El momento del cambio
+     */
+    public void publicar(Parqueadero parqueadero, long momentoMillis) {
+        // Los disponibles por tipo salen del indice de espacios libres, sin recorrer los espacios
+        Estado estado = new Estado(parqueadero.getNombre(), versiones.incrementAndGet(), momentoMillis,
+                parqueadero.getCapacidadTotal(), parqueadero.contarEspaciosDisponibles("AUTO"),
+                parqueadero.contarEspaciosDisponibles("MOTO"));
+        ultimos.put(estado.getParqueadero(), estado);
+
+        for (Suscripcion suscripcion : suscripciones) {
+            if (suscripcion.sigue(estado.getParqueadero())) {
+                suscripcion.publicar(estado);
+            }
+        }
+    }
+
+    /**
+     * Crea una suscripcion; recibe de inmediato el ultimo estado conocido
+     *
+     * @param parqueadero El parqueadero a seguir o null para todos
+     * @return La suscripcion
+     */
+    public Suscripcion suscribir(String parqueadero) {
+        Suscripcion suscripcion = new Suscripcion(this, parqueadero);
+        suscripciones.add(suscripcion);
+        for (Estado estado : ultimos.values()) {
+            if (suscripcion.sigue(estado.getParqueadero())) {
+                suscripcion.publicar(estado);
+            }
+        }
+        return suscripcion;
+    }
+
+    /**
+     * Obtiene el numero de suscriptores
+     *
+     * @return Las suscripciones activas
+     */
+    public int contarSuscriptores() {
+        return suscripciones.size();
+    }
+
+    /**
+     * Crea el manejador HTTP que sirve el feed como server-sent events.
+     * GET ?parqueadero=NOMBRE sigue un parqueadero; sin parametro, todos.
+     * Cada conexion ocupa un hilo del servidor mientras dura.
+     *
+     * @return El manejador
+     */
+    public HttpHandler manejadorSse() {
+        return intercambio -> {
+            if (!intercambio.getRequestMethod().equals("GET")) {
+                byte[] error = Json.error("Metodo no permitido").getBytes(StandardCharsets.UTF_8);
+                intercambio.sendResponseHeaders(405, error.length);
+                intercambio.getResponseBody().write(error);
+                intercambio.close();
+                return;
+            }
+
+            String parqueadero = ServidorApi.leerParametro(intercambio.getRequestURI().getRawQuery(), "parqueadero");
+            Suscripcion suscripcion = suscribir(parqueadero);
+
+            intercambio.getResponseHeaders().set("Content-Type", "text/event-stream; charset=utf-8");
+            intercambio.getResponseHeaders().set("Cache-Control", "no-cache");
+            intercambio.sendResponseHeaders(200, 0);
+
+            try (OutputStream salida = intercambio.getResponseBody()) {
+                while (suscripcion.isActiva()) {
+                    List<Estado> lote = suscripcion.siguiente();
+                    StringBuilder texto = new StringBuilder();
+                    if (lote.isEmpty()) {
+                        texto.append(": latido\n\n");
+                    }
+                    for (Estado estado : lote) {
+                        texto.append("id: ").append(estado.getVersion()).append('\n');
+                        texto.append("event: ocupacion\n");
+                        texto.append("data: ").append(estado.mostrarJson()).append("\n\n");
+                    }
+                    salida.write(texto.toString().getBytes(StandardCharsets.UTF_8));
+                    salida.flush();
+                }
+            } catch (IOException e) {
+                // El aviso se desconecto
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                suscripcion.cancelar();
+                intercambio.close();
+            }
+        };
+    }
+}
@@ -0,0 +1,204 @@
+package servicio;
+
+import utilidad.GestorArchivos;
+import utilidad.ListaPlacas;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clase encargada de revisar las placas contra las listas de control de acceso.
+ * Maneja una lista de placas bloqueadas (robadas o vetadas) y una lista de
+ * placas permitidas (abonados con entrada gratuita).
+ * Las listas se recargan desde archivos en un hilo aparte y se reemplazan
+ * de una sola vez, asi las entradas nunca esperan por la recarga.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class FiltroAcceso {
+
+    /**
+     * Nombre por defecto del archivo de placas bloqueadas
+     */
+    public static final String ARCHIVO_BLOQUEADAS = "placas_bloqueadas.txt";
+
+    /**
+     * Nombre por defecto del archivo de placas permitidas
+     */
+    public static final String ARCHIVO_PERMITIDAS = "placas_permitidas.txt";
+
+    /**
+     * Archivo de donde se leen las placas bloqueadas
+     */
+    private final String archivoBloqueadas;
+
+    /**
+     * Archivo de donde se leen las placas permitidas
+     */
+    private final String archivoPermitidas;
+
+    /**
+     * Lista actual de placas bloqueadas (se reemplaza completa al recargar)
+     */
+    private volatile ListaPlacas bloqueadas;
+
+    /**
+     * Lista actual de placas permitidas (se reemplaza completa al recargar)
+     */
+    private volatile ListaPlacas permitidas;
+
+    /**
+     * Fecha de modificacion del archivo de bloqueadas en la ultima carga
+     */
+    private long modificacionBloqueadas;
+
+    /**
+     * Fecha de modificacion del archivo de permitidas en la ultima carga
+     */
+    private long modificacionPermitidas;
+
+    /**
+     * Hilo que revisa periodicamente si los archivos cambiaron
+     */
+    private ScheduledExecutorService recargador;
+
+    /**
+     * Constructor de la clase FiltroAcceso con los archivos por defecto
+     */
+    public FiltroAcceso() {
+        this(ARCHIVO_BLOQUEADAS, ARCHIVO_PERMITIDAS);
+    }
+
+    /**
+     * Constructor de la clase FiltroAcceso
+     *
+     * @param archivoBloqueadas El archivo de placas bloqueadas
+     * @param archivoPermitidas El archivo de placas permitidas
+     */
+    public FiltroAcceso(String archivoBloqueadas, String archivoPermitidas) {
+        this.archivoBloqueadas = archivoBloqueadas;
+        this.archivoPermitidas = archivoPermitidas;
+        this.bloqueadas = ListaPlacas.vacia();
+        this.permitidas = ListaPlacas.vacia();
+        this.modificacionBloqueadas = -1;
+        this.modificacionPermitidas = -1;
+    }
+
+    /**
+     * Verifica si una placa esta bloqueada
+     *
+     * @param placa La placa normalizada en mayusculas
+     * @return true si esta bloqueada, false si no
+     */
+    public boolean estaBloqueada(String placa) {
+        return bloqueadas.contiene(placa);
+    }
+
+    /**
+     * Verifica si una placa esta en la lista de permitidas (entrada gratuita)
+     *
+     * @param placa La placa normalizada en mayusculas
+     * @return true si esta permitida, false si no
+     */
+    public boolean estaPermitida(String placa) {
+        return permitidas.contiene(placa);
+    }
+
+    /**
+     * Obtiene el numero de placas bloqueadas cargadas
+     *
+     * @return El numero de placas bloqueadas
+     */
+    public int contarBloqueadas() {
+        return bloqueadas.tamano();
+    }
+
+    /**
+     * Obtiene el numero de placas permitidas cargadas
+     *
+     * @return El numero de placas permitidas
+     */
+    public int contarPermitidas() {
+        return permitidas.tamano();
+    }
+
+    /**
+     * Recarga las listas que hayan cambiado desde la ultima carga.
+     * Las listas nuevas se construyen por completo antes de publicarse.
+     * Si un archivo no se pudo leer o cambio mientras se leia, se conserva
+     * la lista anterior y no se anota la fecha, asi se vuelve a intentar
+     * en la siguiente revision.
+     */
+    public synchronized void recargar() {
+        long modificacion = new File(archivoBloqueadas).lastModified();
+        if (modificacion != modificacionBloqueadas) {
+            ListaPlacas nueva = cargar(archivoBloqueadas, modificacion);
+            if (nueva != null) {
+                bloqueadas = nueva;
+                modificacionBloqueadas = modificacion;
+            }
+        }
+
+        modificacion = new File(archivoPermitidas).lastModified();
+        if (modificacion != modificacionPermitidas) {
+            ListaPlacas nueva = cargar(archivoPermitidas, modificacion);
+            if (nueva != null) {
+                permitidas = nueva;
+                modificacionPermitidas = modificacion;
+            }
+        }
+    }
+
+    /**
+     * Lee una lista de placas y verifica que el archivo no cambio durante la lectura
+     *
+     * @param nombreArchivo El archivo
+     * @param modificacion La fecha de modificacion antes de leer
+     * @return La lista, o null si hubo error o el archivo se estaba escribiendo
+     */
+    private ListaPlacas cargar(String nombreArchivo, long modificacion) {
+        File archivo = new File(nombreArchivo);
+        long largo = archivo.length();
+
+        ArrayList<String> placas = GestorArchivos.cargarListaPlacas(nombreArchivo);
+        if (placas == null) {
+            return null;
+        }
+        if (archivo.lastModified() != modificacion || archivo.length() != largo) {
+            System.out.println("Aviso: " + nombreArchivo + " cambio mientras se leia, se conserva la lista anterior");
+            return null;
+        }
+        return new ListaPlacas(placas);
+    }
+
+    /**
+     * Inicia la recarga periodica de las listas en un hilo de fondo
+     *
+     * @param segundos Cada cuantos segundos se revisan los archivos
+     */
+    public synchronized void iniciarRecargaPeriodica(int segundos) {
+        if (recargador != null) {
+            return;
+        }
+
+        recargador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "recarga-listas-placas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        recargador.scheduleWithFixedDelay(this::recargar, segundos, segundos, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Detiene la recarga periodica
+     */
+    public synchronized void detener() {
+        if (recargador != null) {
+            recargador.shutdownNow();
+            recargador = null;
+        }
+    }
+}
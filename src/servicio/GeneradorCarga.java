@@ -0,0 +1,532 @@
+package servicio;
+
+import modelo.Parqueadero;
+import utilidad.HistogramaLatencia;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Generador de carga para medir cuantos eventos por segundo soporta un nodo.
+ * Produce llegadas de vehiculos con una distribucion configurable y programa
+ * la salida de cada vehiculo segun su tiempo de estadia. Los eventos se
+ * lanzan en lazo abierto: cada uno tiene un momento previsto y la latencia
+ * se mide desde ese momento, asi las demoras del sistema no se esconden
+ * (se evita la omision coordinada).
+ * Puede llamar al GestorParqueadero en el mismo proceso o a la API HTTP.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class GeneradorCarga {
+
+    /**
+     * Llegadas con tiempo entre llegadas exponencial (proceso de Poisson)
+     */
+    public static final String LLEGADAS_POISSON = "POISSON";
+
+    /**
+     * Llegadas separadas por un tiempo constante
+     */
+    public static final String LLEGADAS_CONSTANTE = "CONSTANTE";
+
+    /**
+     * Estadia con distribucion exponencial
+     */
+    public static final String ESTADIA_EXPONENCIAL = "EXPONENCIAL";
+
+    /**
+     * Estadia con distribucion uniforme entre 0 y dos veces la media
+     */
+    public static final String ESTADIA_UNIFORME = "UNIFORME";
+
+    /**
+     * Gestor en el mismo proceso (null si se usa HTTP)
+     */
+    private final GestorParqueadero gestor;
+
+    /**
+     * URL base de la API HTTP (null si se usa el gestor en proceso)
+     */
+    private final String urlBase;
+
+    /**
+     * Distribucion de las llegadas (POISSON o CONSTANTE)
+     */
+    private String distribucionLlegadas;
+
+    /**
+     * Distribucion de la estadia (EXPONENCIAL o UNIFORME)
+     */
+    private String distribucionEstadia;
+
+    /**
+     * Estadia media de cada vehiculo en milisegundos
+     */
+    private long estadiaMediaMillis;
+
+    /**
+     * Fraccion de llegadas que son autos (el resto son motos)
+     */
+    private double fraccionAutos;
+
+    /**
+     * Generador de numeros aleatorios (con semilla para repetir corridas)
+     */
+    private final Random aleatorio;
+
+    /**
+     * Contador para generar placas unicas
+     */
+    private long contadorPlacas;
+
+    /**
+     * Constructor del generador para el gestor en el mismo proceso
+     *
+     * @param gestor El gestor a probar
+     */
+    public GeneradorCarga(GestorParqueadero gestor) {
+        this(gestor, null);
+    }
+
+    /**
+     * Constructor del generador para la API HTTP
+     *
+     * @param urlBase La URL base de la API (ej. http://localhost:8080)
+     */
+    public GeneradorCarga(String urlBase) {
+        this(null, urlBase);
+    }
+
+    /**
+     * Constructor comun del generador
+     *
+     * @param gestor El gestor en proceso o null
+     * @param urlBase La URL base o null
+     */
+    private GeneradorCarga(GestorParqueadero gestor, String urlBase) {
+        this.gestor = gestor;
+        this.urlBase = urlBase;
+        this.distribucionLlegadas = LLEGADAS_POISSON;
+        this.distribucionEstadia = ESTADIA_EXPONENCIAL;
+        this.estadiaMediaMillis = 5000;
+        this.fraccionAutos = 0.6;
+        this.aleatorio = new Random(42);
+    }
+
+    /**
+     * Crea un gestor en proceso con un parqueadero del tamano indicado
+     *
+     * @param capacidad La capacidad del parqueadero
+     * @param fraccionAutos La fraccion de espacios para autos
+     * @return El gestor creado, sin mensajes en consola
+     */
+    public static GestorParqueadero crearGestorPrueba(int capacidad, double fraccionAutos) {
+        Parqueadero parqueadero = Parqueadero.crear("CARGA", capacidad, (int) Math.round(capacidad * fraccionAutos));
+        GestorParqueadero gestor = new GestorParqueadero(parqueadero);
+        gestor.setMostrarMensajes(false);
+        return gestor;
+    }
+
+    /**
+     * Establece la distribucion de las llegadas
+     *
+     * @param distribucionLlegadas POISSON o CONSTANTE
+     */
+    public void setDistribucionLlegadas(String distribucionLlegadas) {
+        this.distribucionLlegadas = distribucionLlegadas;
+    }
+
+    /**
+     * Establece la distribucion de la estadia
+     *
+     * @param distribucionEstadia EXPONENCIAL o UNIFORME
+     */
+    public void setDistribucionEstadia(String distribucionEstadia) {
+        this.distribucionEstadia = distribucionEstadia;
+    }
+
+    /**
+     * Establece la estadia media de cada vehiculo
+     *
+     * @param estadiaMediaMillis La estadia media en milisegundos
+     */
+    public void setEstadiaMediaMillis(long estadiaMediaMillis) {
+        this.estadiaMediaMillis = estadiaMediaMillis;
+    }
+
+    /**
+     * Establece la fraccion de llegadas que son autos
+     *
+     * @param fraccionAutos Valor entre 0 y 1
+     */
+    public void setFraccionAutos(double fraccionAutos) {
+        this.fraccionAutos = fraccionAutos;
+    }
+
+    /**
+     * Resultado de un paso de carga a una tasa fija
+     */
+    public static class Resultado {
+
+        /**
+         * Tasa de llegadas pedida (vehiculos por segundo)
+         */
+        private final double tasaObjetivo;
+
+        /**
+         * Eventos completados por segundo
+         */
+        private final double eventosPorSegundo;
+
+        /**
+         * Latencia de los eventos en nanosegundos
+         */
+        private final HistogramaLatencia latencias;
+
+        /**
+         * Numero de eventos rechazados o con error
+         */
+        private final long errores;
+
+        /**
+         * Constructor del resultado
+         *
+         * @param tasaObjetivo La tasa pedida
+         * @param eventosPorSegundo Los eventos completados por segundo
+         * @param latencias Las latencias
+         * @param errores Los eventos rechazados
+         */
+        Resultado(double tasaObjetivo, double eventosPorSegundo, HistogramaLatencia latencias, long errores) {
+            this.tasaObjetivo = tasaObjetivo;
+            this.eventosPorSegundo = eventosPorSegundo;
+            this.latencias = latencias;
+            this.errores = errores;
+        }
+
+        /**
+         * Obtiene la tasa pedida
+         *
+         * @return La tasa en vehiculos por segundo
+         */
+        public double getTasaObjetivo() {
+            return tasaObjetivo;
+        }
+
+        /**
+         * Obtiene los eventos completados por segundo
+         *
+         * @return Los eventos por segundo
+         */
+        public double getEventosPorSegundo() {
+            return eventosPorSegundo;
+        }
+
+        /**
+         * Obtiene el histograma de latencias
+         *
+         * @return Las latencias en nanosegundos
+         */
+        public HistogramaLatencia getLatencias() {
+            return latencias;
+        }
+
+        /**
+         * Obtiene el numero de eventos rechazados o con error
+         *
+         * @return El numero de errores
+         */
+        public long getErrores() {
+            return errores;
+        }
+    }
+
+    /**
+     * Evento programado (entrada o salida de una placa en un momento previsto)
+     */
+    private static class Evento implements Comparable<Evento> {
+
+        /**
+         * Momento previsto en nanosegundos (System.nanoTime)
+         */
+        private final long momentoNanos;
+
+        /**
+         * Placa del vehiculo
+         */
+        private final String placa;
+
+        /**
+         * true si es entrada, false si es salida
+         */
+        private final boolean entrada;
+
+        /**
+         * Estadia del vehiculo en nanosegundos (solo para entradas)
+         */
+        private final long estadiaNanos;
+
+        /**
+         * Constructor del evento
+         *
+         * @param momentoNanos El momento previsto
+         * @param placa La placa
+         * @param entrada true si es entrada
+         * @param estadiaNanos La estadia
+         */
+        Evento(long momentoNanos, String placa, boolean entrada, long estadiaNanos) {
+            this.momentoNanos = momentoNanos;
+            this.placa = placa;
+            this.entrada = entrada;
+            this.estadiaNanos = estadiaNanos;
+        }
+
+        @Override
+        public int compareTo(Evento otro) {
+            return Long.compare(momentoNanos, otro.momentoNanos);
+        }
+    }
+
+    /**
+     * Ejecuta un paso de carga a una tasa de llegadas fija
+     *
+     * @param tasaLlegadas Vehiculos que llegan por segundo
+     * @param duracionSegundos Cuantos segundos dura el paso
+     * @return El resultado del paso
+     */
+    public Resultado ejecutarPaso(double tasaLlegadas, int duracionSegundos) {
+        HistogramaLatencia latencias = new HistogramaLatencia();
+        AtomicLong completados = new AtomicLong();
+        AtomicLong errores = new AtomicLong();
+        ConcurrentLinkedQueue<Evento> salidasNuevas = new ConcurrentLinkedQueue<Evento>();
+        PriorityQueue<Evento> salidasPendientes = new PriorityQueue<Evento>();
+        ExecutorService trabajadores = ServidorApi.crearEjecutor();
+
+        long inicio = System.nanoTime();
+        long fin = inicio + duracionSegundos * 1_000_000_000L;
+        long siguienteLlegada = inicio;
+
+        while (true) {
+            Evento salida;
+            while ((salida = salidasNuevas.poll()) != null) {
+                salidasPendientes.offer(salida);
+            }
+
+            // Elegir el siguiente evento: la proxima llegada o la salida mas cercana
+            boolean quedanLlegadas = siguienteLlegada < fin;
+            Evento proximaSalida = salidasPendientes.peek();
+            if (!quedanLlegadas && (proximaSalida == null || proximaSalida.momentoNanos >= fin)) {
+                break;
+            }
+
+            Evento evento;
+            if (quedanLlegadas && (proximaSalida == null || siguienteLlegada <= proximaSalida.momentoNanos)) {
+                evento = new Evento(siguienteLlegada, nuevaPlaca(), true, siguienteEstadiaNanos());
+                siguienteLlegada += siguienteIntervaloNanos(tasaLlegadas);
+            } else {
+                evento = salidasPendientes.poll();
+            }
+
+            esperarHasta(evento.momentoNanos);
+
+            Evento programado = evento;
+            trabajadores.execute(() -> {
+                boolean aceptado = ejecutarEvento(programado);
+                latencias.registrar(System.nanoTime() - programado.momentoNanos);
+                completados.incrementAndGet();
+                if (!aceptado) {
+                    errores.incrementAndGet();
+                } else if (programado.entrada) {
+                    salidasNuevas.offer(new Evento(programado.momentoNanos + programado.estadiaNanos,
+                            programado.placa, false, 0));
+                }
+            });
+        }
+
+        trabajadores.shutdown();
+        try {
+            trabajadores.awaitTermination(30, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        // Sacar a los vehiculos que quedaron adentro para que el siguiente paso empiece vacio
+        Evento pendiente;
+        while ((pendiente = salidasNuevas.poll()) != null) {
+            salidasPendientes.offer(pendiente);
+        }
+        while ((pendiente = salidasPendientes.poll()) != null) {
+            ejecutarEvento(pendiente);
+        }
+
+        return new Resultado(tasaLlegadas, completados.get() / segundos, latencias, errores.get());
+    }
+
+    /**
+     * Ejecuta varios pasos de carga con tasas crecientes.
+     * Antes de medir se hace un paso corto de calentamiento.
+     *
+     * @param tasas Las tasas de llegadas a probar (vehiculos por segundo)
+     * @param duracionSegundos Cuantos segundos dura cada paso
+     * @return Los resultados de cada paso
+     */
+    public Resultado[] ejecutar(double[] tasas, int duracionSegundos) {
+        // Calentamiento: un paso corto que no se reporta, para que el JIT compile el camino caliente
+        if (tasas.length > 0) {
+            ejecutarPaso(tasas[0], 1);
+        }
+
+        Resultado[] resultados = new Resultado[tasas.length];
+        for (int i = 0; i < tasas.length; i++) {
+            resultados[i] = ejecutarPaso(tasas[i], duracionSegundos);
+        }
+        return resultados;
+    }
+
+    /**
+     * Muestra el reporte de rendimiento contra latencia
+     *
+     * @param resultados Los resultados de cada paso
+     * @return String con la tabla del reporte
+     */
+    public static String mostrarReporte(Resultado[] resultados) {
+        StringBuilder reporte = new StringBuilder();
+        reporte.append("\n================== REPORTE DE CARGA ==================\n");
+        reporte.append(String.format("%10s %12s %10s %10s %10s %10s %8s%n",
+                "llegadas/s", "eventos/s", "p50(us)", "p99(us)", "p999(us)", "max(us)", "errores"));
+
+        for (int i = 0; i < resultados.length; i++) {
+            Resultado r = resultados[i];
+            HistogramaLatencia h = r.getLatencias();
+            reporte.append(String.format("%10.0f %12.0f %10.1f %10.1f %10.1f %10.1f %8d%n",
+                    r.getTasaObjetivo(),
+                    r.getEventosPorSegundo(),
+                    h.percentil(50) / 1000.0,
+                    h.percentil(99) / 1000.0,
+                    h.percentil(99.9) / 1000.0,
+                    h.getMaximo() / 1000.0,
+                    r.getErrores()));
+        }
+
+        reporte.append("======================================================\n");
+        return reporte.toString();
+    }
+
+    /**
+     * Ejecuta un evento contra el gestor o la API
+     *
+     * @param evento El evento a ejecutar
+     * @return true si fue aceptado, false si fue rechazado o hubo error
+     */
+    private boolean ejecutarEvento(Evento evento) {
+        if (gestor != null) {
+            return evento.entrada
+                    ? gestor.registrarEntrada(evento.placa) != null
+                    : gestor.registrarSalida(evento.placa) != null;
+        }
+
+        String ruta = evento.entrada ? "/entradas" : "/salidas";
+        HttpURLConnection conexion = null;
+        try {
+            conexion = (HttpURLConnection) new URL(urlBase + ruta + "?placa=" + evento.placa).openConnection();
+            conexion.setRequestMethod("POST");
+            conexion.setConnectTimeout(5000);
+            conexion.setReadTimeout(10000);
+            int codigo = conexion.getResponseCode();
+
+            // Leer la respuesta completa para que la conexion vuelva al pool de keep-alive
+            InputStream cuerpo = codigo < 400 ? conexion.getInputStream() : conexion.getErrorStream();
+            if (cuerpo != null) {
+                cuerpo.readAllBytes();
+                cuerpo.close();
+            }
+            return codigo < 300;
+        } catch (IOException e) {
+            if (conexion != null) {
+                conexion.disconnect();
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Genera una placa unica con la forma de las placas colombianas: los
+     * autos como ABC123 y las motos como ABC12D. Las cifras toman la parte
+     * baja del contador y las letras el resto en base 26, asi que nunca se
+     * repite una placa; si el contador no cabe en tres letras se agregan mas.
+     *
+     * @return La placa generada
+     */
+    private String nuevaPlaca() {
+        long numero = contadorPlacas++;
+        if (aleatorio.nextDouble() < fraccionAutos) {
+            return letras(numero / 1000) + String.format("%03d", numero % 1000);
+        }
+        return letras(numero / 2600) + String.format("%02d", numero % 100)
+                + (char) ('A' + (numero / 100) % 26);
+    }
+
+    /**
+     * Escribe un numero en base 26 con letras, con al menos tres letras
+     *
+     * @param valor El numero
+     * @return Las letras (AAA para 0)
+     */
+    private static String letras(long valor) {
+        StringBuilder texto = new StringBuilder();
+        do {
+            texto.append((char) ('A' + valor % 26));
+            valor /= 26;
+        } while (valor > 0 || texto.length() < 3);
+        return texto.reverse().toString();
+    }
+
+    /**
+     * Calcula el tiempo hasta la siguiente llegada
+     *
+     * @param tasa Llegadas por segundo
+     * @return El intervalo en nanosegundos
+     */
+    private long siguienteIntervaloNanos(double tasa) {
+        double media = 1e9 / tasa;
+        if (distribucionLlegadas.equals(LLEGADAS_CONSTANTE)) {
+            return (long) media;
+        }
+        return (long) (-Math.log(1.0 - aleatorio.nextDouble()) * media);
+    }
+
+    /**
+     * Calcula la estadia de un vehiculo
+     *
+     * @return La estadia en nanosegundos
+     */
+    private long siguienteEstadiaNanos() {
+        double media = estadiaMediaMillis * 1e6;
+        if (distribucionEstadia.equals(ESTADIA_UNIFORME)) {
+            return (long) (aleatorio.nextDouble() * 2 * media);
+        }
+        return (long) (-Math.log(1.0 - aleatorio.nextDouble()) * media);
+    }
+
+    /**
+     * Espera activamente (con pausas cortas) hasta un momento dado
+     *
+     * @param momentoNanos El momento en nanosegundos (System.nanoTime)
+     */
+    private static void esperarHasta(long momentoNanos) {
+        long espera;
+        while ((espera = momentoNanos - System.nanoTime()) > 0) {
+            LockSupport.parkNanos(Math.min(espera, 1_000_000L));
+        }
+    }
+}
@@ -1,43 +1,227 @@
 package servicio;
 
 import modelo.*;
+import utilidad.GestorArchivos;
 import utilidad.Validador;
+import java.io.IOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
 
 /**
  * Clase encargada de gestionar todas las operaciones del parqueadero.
  * Maneja el registro de entradas, salidas y consultas.
+ * Las operaciones publicas estan sincronizadas porque las reservas
+ * pueden vencer desde un hilo de fondo.
  *
  * @author Velez
  * @version 1.0
  */
 public class GestorParqueadero {
 
+    /**
+     * Salidas de un dia que todavia no tiene resumen: la fecha, los tickets
+     * finalizados y cuantos vehiculos salieron
+     */
+    static final class Jornada {
+
+        /**
+         * Fecha en que salieron los vehiculos
+         */
+        private final LocalDate fecha;
+
+        /**
+         * Tickets finalizados del dia
+         */
+        private final ArrayList<Ticket> tickets;
+
+        /**
+         * Vehiculos que salieron, aunque no se guardara su ticket
+         */
+        private final long atendidos;
+
+        /**
+         * Constructor de la clase Jornada
+         *
+         * @param fecha Fecha en que salieron los vehiculos
+         * @param tickets Tickets finalizados del dia
+         * @param atendidos Vehiculos que salieron
+         */
+        Jornada(LocalDate fecha, ArrayList<Ticket> tickets, long atendidos) {
+            this.fecha = fecha;
+            this.tickets = tickets;
+            this.atendidos = atendidos;
+        }
+
+        /**
+         * Obtiene la fecha de la jornada
+         *
+         * @return La fecha
+         */
+        LocalDate getFecha() {
+            return fecha;
+        }
+    }
+
+    /**
+     * Vehiculos por pagina al listar todos los parqueados
+     */
+    public static final int PAGINA_LISTADO = 500;
+
     /**
      * El parqueadero que se esta gestionando
      */
     private Parqueadero parqueadero;
 
     /**
-     * Lista de tickets activos (vehiculos actualmente parqueados)
+     * Reloj del que se toman las horas de entrada y salida
+     */
+    private Reloj reloj;
+
+    /**
+     * Tickets activos (vehiculos actualmente parqueados) por placa,
+     * en el orden en que entraron
      */
-    private ArrayList<Ticket> ticketsActivos;
+    private LinkedHashMap<String, Ticket> ticketsActivos;
 
     /**
-     * Lista de tickets finalizados (historico)
+     * Lista de tickets finalizados del dia en curso (historico)
      */
     private ArrayList<Ticket> ticketsFinalizados;
 
+    /**
+     * Fecha del dia en curso; pasa al dia siguiente con la primera salida
+     * de ese dia o cuando el reloj cambia de dia
+     */
+    private LocalDate diaActual;
+
+    /**
+     * Dias ya terminados cuyo resumen no se ha guardado
+     */
+    private ArrayList<Jornada> jornadasTerminadas;
+
+    /**
+     * Filtro de listas de placas bloqueadas y permitidas (puede ser null)
+     */
+    private FiltroAcceso filtroAcceso;
+
+    /**
+     * Registro de abonos y pases prepagados (puede ser null)
+     */
+    private RegistroAbonos registroAbonos;
+
+    /**
+     * Gestor de las reservas de espacios
+     */
+    private GestorReservas gestorReservas;
+
+    /**
+     * Hilo que vence las reservas automaticamente (null si no se inicio)
+     */
+    private ScheduledExecutorService vencedorReservas;
+
+    /**
+     * Hilo que cierra el dia automaticamente (null si no se inicio)
+     */
+    private ScheduledExecutorService cierreDiario;
+
+    /**
+     * Hilo que toma las muestras de ocupacion (null si no se inicio)
+     */
+    private ScheduledExecutorService muestreoOcupacion;
+
+    /**
+     * Historia y pronostico de la ocupacion (null si no se lleva)
+     */
+    private volatile SeriesOcupacion seriesOcupacion;
+
+    /**
+     * Escuchas que reciben aviso de cada entrada y salida
+     */
+    private CopyOnWriteArrayList<EscuchaParqueadero> escuchas;
+
+    /**
+     * Indica si se muestran mensajes en consola (se apaga en modo lote)
+     */
+    private boolean mostrarMensajes;
+
+    /**
+     * Calculador con las tarifas que se cobran en este parqueadero
+     */
+    private CalculadorTarifa calculadorTarifa;
+
+    /**
+     * Indica si se guardan los tickets finalizados (se apaga en simulaciones largas)
+     */
+    private boolean guardarHistorico;
+
+    /**
+     * Numero de vehiculos que han salido en el dia en curso, aunque no se guarde el historico
+     */
+    private long vehiculosAtendidos;
+
+    /**
+     * Indice de placas compartido con los demas parqueaderos (null si este parqueadero va solo)
+     */
+    private IndiceGlobalPlacas indicePlacas;
+
+    /**
+     * Buscador de placas parecidas para salidas mal leidas (null si no se usa)
+     */
+    private BuscadorPlacas buscadorPlacas;
+
+    /**
+     * Ultima foto de la disponibilidad (null hasta la primera consulta)
+     */
+    private volatile InstantaneaDisponibilidad instantanea;
+
+    /**
+     * Instrumentos de metricas (null si no se miden)
+     */
+    private MetricasGestor metricas;
+
+    /**
+     * Motivo del ultimo rechazo (constante de MetricasGestor, -1 si no hubo), para los eventos JFR
+     */
+    private int ultimoRechazo;
+
     /**
      * Constructor de la clase GestorParqueadero
      *
      * @param parqueadero El parqueadero a gestionar
      */
     public GestorParqueadero(Parqueadero parqueadero) {
+        this(parqueadero, Reloj.SISTEMA);
+    }
+
+    /**
+     * Constructor de la clase GestorParqueadero con un reloj especifico.
+     * Con un RelojManual se pueden reproducir eventos historicos.
+     *
+     * @param parqueadero El parqueadero a gestionar
+     * @param reloj El reloj del que se toman las horas
+     */
+    public GestorParqueadero(Parqueadero parqueadero, Reloj reloj) {
         this.parqueadero = parqueadero;
-        this.ticketsActivos = new ArrayList<Ticket>();
+        this.reloj = reloj;
+        this.ticketsActivos = new LinkedHashMap<String, Ticket>();
         this.ticketsFinalizados = new ArrayList<Ticket>();
+        this.diaActual = reloj.ahora().toLocalDate();
+        this.jornadasTerminadas = new ArrayList<Jornada>();
+        this.gestorReservas = new GestorReservas(parqueadero, reloj);
+        this.escuchas = new CopyOnWriteArrayList<EscuchaParqueadero>();
+        this.mostrarMensajes = true;
+        this.calculadorTarifa = CalculadorTarifa.POR_DEFECTO;
+        this.guardarHistorico = true;
     }
 
     /**
@@ -50,21 +234,356 @@ public class GestorParqueadero {
     }
 
     /**
-     * Obtiene la lista de tickets activos
+     * Obtiene el reloj del gestor
+     *
+     * @return El reloj
+     */
+    public Reloj getReloj() {
+        return reloj;
+    }
+
+    /**
+     * Obtiene una copia de la lista de tickets activos
+     *
+     * @return La lista de tickets activos en orden de entrada
+     */
+    public synchronized ArrayList<Ticket> getTicketsActivos() {
+        return new ArrayList<Ticket>(ticketsActivos.values());
+    }
+
+    /**
+     * Obtiene el numero de tickets activos
+     *
+     * @return El numero de vehiculos parqueados
+     */
+    public synchronized int contarTicketsActivos() {
+        return ticketsActivos.size();
+    }
+
+    /**
+     * Verifica si se muestran mensajes en consola
+     *
+     * @return true si se muestran, false si no
+     */
+    public boolean isMostrarMensajes() {
+        return mostrarMensajes;
+    }
+
+    /**
+     * Establece si se muestran mensajes en consola.
+     * En modo lote se apagan para no frenar el procesamiento.
+     *
+     * @param mostrarMensajes true para mostrar mensajes
+     */
+    public void setMostrarMensajes(boolean mostrarMensajes) {
+        this.mostrarMensajes = mostrarMensajes;
+    }
+
+    /**
+     * Obtiene el calculador de tarifas del parqueadero
+     *
+     * @return El calculador de tarifas
+     */
+    public CalculadorTarifa getCalculadorTarifa() {
+        return calculadorTarifa;
+    }
+
+    /**
+     * Establece el calculador de tarifas del parqueadero
+     *
+     * @param calculadorTarifa El calculador con las tarifas a cobrar
+     */
+    public void setCalculadorTarifa(CalculadorTarifa calculadorTarifa) {
+        this.calculadorTarifa = calculadorTarifa;
+    }
+
+    /**
+     * Verifica si se guardan los tickets finalizados
+     *
+     * @return true si se guardan, false si no
+     */
+    public boolean isGuardarHistorico() {
+        return guardarHistorico;
+    }
+
+    /**
+     * Establece si se guardan los tickets finalizados.
+     * En simulaciones de millones de vehiculos se apaga para no llenar la memoria.
+     *
+     * @param guardarHistorico true para guardar el historico
+     */
+    public void setGuardarHistorico(boolean guardarHistorico) {
+        this.guardarHistorico = guardarHistorico;
+    }
+
+    /**
+     * Obtiene el numero de vehiculos que han salido en el dia en curso
      *
-     * @return La lista de tickets activos
+     * @return El numero de vehiculos atendidos
      */
-    public ArrayList<Ticket> getTicketsActivos() {
-        return ticketsActivos;
+    public synchronized long getVehiculosAtendidos() {
+        return vehiculosAtendidos;
     }
 
     /**
-     * Obtiene la lista de tickets finalizados
+     * Obtiene el indice global de placas
      *
-     * @return La lista de tickets finalizados
+     * @return El indice o null si no se usa
      */
-    public ArrayList<Ticket> getTicketsFinalizados() {
-        return ticketsFinalizados;
+    public IndiceGlobalPlacas getIndicePlacas() {
+        return indicePlacas;
+    }
+
+    /**
+     * Establece el indice global de placas.
+     * Con un indice compartido una placa no puede entrar a este parqueadero
+     * si ya esta parqueada en otro.
+     *
+     * @param indicePlacas El indice o null para revisar solo este parqueadero
+     */
+    public synchronized void setIndicePlacas(IndiceGlobalPlacas indicePlacas) {
+        this.indicePlacas = indicePlacas;
+    }
+
+    /**
+     * Establece el buscador de placas parecidas y le carga los vehiculos parqueados.
+     * El buscador se actualiza en cada entrada y salida; sin el, las sugerencias
+     * quedan vacias y la busqueda parcial recorre los tickets activos.
+     *
+     * @param buscadorPlacas El buscador o null para no sugerir placas
+     */
+    public synchronized void setBuscadorPlacas(BuscadorPlacas buscadorPlacas) {
+        if (this.buscadorPlacas != null) {
+            quitarEscucha(this.buscadorPlacas);
+        }
+        this.buscadorPlacas = buscadorPlacas;
+        if (buscadorPlacas != null) {
+            for (String placa : ticketsActivos.keySet()) {
+                buscadorPlacas.agregar(placa);
+            }
+            agregarEscucha(buscadorPlacas);
+        }
+    }
+
+    /**
+     * Empieza a medir las entradas, salidas, rechazos y tiempos del gestor en un registro de metricas
+     *
+     * @param registro El registro (por ejemplo Metricas.GENERAL) o null para dejar de medir
+     *                 (los medidores de este gestor salen del registro anterior)
+     */
+    public synchronized void setMetricas(Metricas registro) {
+        if (metricas != null) {
+            metricas.cerrar();
+        }
+        this.metricas = registro != null ? new MetricasGestor(registro, this) : null;
+    }
+
+    /**
+     * Sugiere placas parqueadas parecidas a una placa que no se encontro
+     *
+     * @param placa La placa leida
+     * @param maximo Maximo de sugerencias
+     * @return Las placas parecidas (vacia si no hay buscador)
+     */
+    public ArrayList<String> sugerirPlacas(String placa, int maximo) {
+        BuscadorPlacas buscador;
+        synchronized (this) {
+            buscador = buscadorPlacas;
+        }
+        return buscador != null ? buscador.buscarParecidas(placa, maximo) : new ArrayList<String>();
+    }
+
+    /**
+     * Entrega por paginas los vehiculos cuya placa empieza o termina con un texto.
+     * Con un buscador de placas configurado la busqueda recorre placas ordenadas
+     * sin el candado del gestor y solo se toma el candado para leer los tickets
+     * de la pagina. Sin buscador cada pagina recorre los tickets activos con el
+     * candado, asi el indice solo lo paga quien lo configuro con setBuscadorPlacas().
+     *
+     * @param texto El inicio o el final de la placa
+     * @param porFinal true para buscar por el final de la placa
+     * @param despuesDe La ultima placa de la pagina anterior, o null para la primera
+     * @param limite Maximo de vehiculos de la pagina
+     * @param destino Recibe el ticket de cada vehiculo
+     * @return La placa para pedir la siguiente pagina, o null si no hay mas
+     */
+    public String buscarPorPlacaParcial(String texto, boolean porFinal, String despuesDe, int limite,
+                                        Consumer<Ticket> destino) {
+        ArrayList<Ticket> tickets = new ArrayList<Ticket>(Math.min(limite, 1024));
+        BuscadorPlacas buscador;
+        String siguiente = null;
+        synchronized (this) {
+            buscador = buscadorPlacas;
+            if (buscador == null) {
+                siguiente = paginarTicketsActivos(texto.trim().toUpperCase(), porFinal, despuesDe, limite, tickets);
+            }
+        }
+
+        if (buscador != null) {
+            ArrayList<String> pagina = new ArrayList<String>(Math.min(limite, 1024));
+            siguiente = porFinal
+                    ? buscador.buscarPorSufijo(texto, despuesDe, limite, pagina::add)
+                    : buscador.buscarPorPrefijo(texto, despuesDe, limite, pagina::add);
+
+            // Un vehiculo que salio mientras tanto simplemente no aparece
+            synchronized (this) {
+                for (int i = 0; i < pagina.size(); i++) {
+                    Ticket ticket = ticketsActivos.get(pagina.get(i));
+                    if (ticket != null) {
+                        tickets.add(ticket);
+                    }
+                }
+            }
+        }
+
+        for (int i = 0; i < tickets.size(); i++) {
+            destino.accept(tickets.get(i));
+        }
+        return siguiente;
+    }
+
+    /**
+     * Arma una pagina de la busqueda parcial recorriendo los tickets activos,
+     * en el mismo orden que el buscador de placas (alfabetico, o por la placa
+     * al reves si se busca por el final). Se llama con el candado del gestor.
+     *
+     * @param buscado El inicio o el final de la placa, en mayusculas
+     * @param porFinal true para buscar por el final de la placa
+     * @param despuesDe La ultima placa de la pagina anterior, o null para la primera
+     * @param limite Maximo de vehiculos de la pagina
+     * @param tickets Recibe los tickets de la pagina
+     * @return La ultima placa entregada si hay mas, o null si no hay mas
+     */
+    private String paginarTicketsActivos(String buscado, boolean porFinal, String despuesDe, int limite,
+                                         ArrayList<Ticket> tickets) {
+        String cursor = despuesDe == null ? null
+                : porFinal ? new StringBuilder(despuesDe).reverse().toString() : despuesDe;
+
+        // Solo se guardan las limite + 1 primeras, para saber si hay otra pagina
+        TreeMap<String, Ticket> primeras = new TreeMap<String, Ticket>();
+        for (Map.Entry<String, Ticket> activo : ticketsActivos.entrySet()) {
+            String placa = activo.getKey();
+            if (porFinal ? !placa.endsWith(buscado) : !placa.startsWith(buscado)) {
+                continue;
+            }
+            String orden = porFinal ? new StringBuilder(placa).reverse().toString() : placa;
+            if (cursor != null && orden.compareTo(cursor) <= 0) {
+                continue;
+            }
+            primeras.put(orden, activo.getValue());
+            if (primeras.size() - 1 > limite) {
+                primeras.pollLastEntry();
+            }
+        }
+
+        String ultima = null;
+        for (Map.Entry<String, Ticket> primera : primeras.entrySet()) {
+            if (tickets.size() == limite) {
+                return porFinal ? new StringBuilder(ultima).reverse().toString() : ultima;
+            }
+            tickets.add(primera.getValue());
+            ultima = primera.getKey();
+        }
+        return null;
+    }
+
+    /**
+     * Muestra un mensaje en consola si los mensajes estan activos
+     *
+     * @param mensaje El mensaje a mostrar
+     */
+    private void mostrar(String mensaje) {
+        if (mostrarMensajes) {
+            System.out.println(mensaje);
+        }
+    }
+
+    /**
+     * Cuenta un rechazo en las metricas y muestra el mensaje de error
+     *
+     * @param motivo El motivo (constante de MetricasGestor)
+     * @param mensaje El mensaje a mostrar
+     */
+    private void rechazar(int motivo, String mensaje) {
+        ultimoRechazo = motivo;
+        if (metricas != null) {
+            metricas.contarRechazo(motivo);
+        }
+        mostrar(mensaje);
+    }
+
+    /**
+     * Obtiene una copia de los tickets finalizados del dia en curso
+     *
+     * @return Los tickets finalizados
+     */
+    public synchronized ArrayList<Ticket> getTicketsFinalizados() {
+        return new ArrayList<Ticket>(ticketsFinalizados);
+    }
+
+    /**
+     * Obtiene el filtro de acceso del parqueadero
+     *
+     * @return El filtro de acceso o null si no se usa
+     */
+    public FiltroAcceso getFiltroAcceso() {
+        return filtroAcceso;
+    }
+
+    /**
+     * Establece el filtro de acceso del parqueadero
+     *
+     * @param filtroAcceso El filtro de acceso o null para no revisar listas
+     */
+    public void setFiltroAcceso(FiltroAcceso filtroAcceso) {
+        this.filtroAcceso = filtroAcceso;
+    }
+
+    /**
+     * Obtiene el registro de abonos del parqueadero
+     *
+     * @return El registro de abonos o null si no se usa
+     */
+    public RegistroAbonos getRegistroAbonos() {
+        return registroAbonos;
+    }
+
+    /**
+     * Establece el registro de abonos del parqueadero
+     *
+     * @param registroAbonos El registro de abonos o null para no usar abonos
+     */
+    public void setRegistroAbonos(RegistroAbonos registroAbonos) {
+        this.registroAbonos = registroAbonos;
+    }
+
+    /**
+     * Agrega un escucha que recibira aviso de las entradas y salidas
+     *
+     * @param escucha El escucha a agregar
+     */
+    public void agregarEscucha(EscuchaParqueadero escucha) {
+        escuchas.add(escucha);
+    }
+
+    /**
+     * Quita un escucha
+     *
+     * @param escucha El escucha a quitar
+     */
+    public void quitarEscucha(EscuchaParqueadero escucha) {
+        escuchas.remove(escucha);
+    }
+
+    /**
+     * Verifica si una placa tiene un abono vigente
+     *
+     * @param placa La placa en mayusculas
+     * @param momento El momento a verificar
+     * @return true si tiene abono vigente, false si no o si no hay registro
+     */
+    private boolean tieneAbonoVigente(String placa, LocalDateTime momento) {
+        return registroAbonos != null && registroAbonos.tieneAbonoVigente(placa, momento);
     }
 
     /**
@@ -74,57 +593,154 @@ public class GestorParqueadero {
      * @return El ticket generado o null si no se pudo registrar
      */
     public Ticket registrarEntrada(String placa) {
+        // La medicion empieza antes del candado para incluir la espera
+        EventosJfr.Entrada evento = new EventosJfr.Entrada();
+        evento.begin();
+        long inicio = System.nanoTime();
+        Ticket ticket;
+        int rechazo;
+        synchronized (this) {
+            ultimoRechazo = -1;
+            ticket = procesarEntrada(placa);
+            rechazo = ultimoRechazo;
+            if (metricas != null) {
+                metricas.medirEntrada(System.nanoTime() - inicio, ticket != null);
+            }
+        }
+
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.parqueadero = parqueadero.getNombre();
+            evento.placa = placa;
+            if (ticket != null) {
+                evento.tipoVehiculo = ticket.getVehiculo().getTipo();
+                evento.espacio = ticket.getEspacio().getNumero();
+            } else {
+                evento.tipoVehiculo = Validador.identificarTipoVehiculo(placa);
+            }
+            evento.motivo = rechazo >= 0 ? MetricasGestor.nombreMotivo(rechazo) : null;
+            evento.commit();
+        }
+        return ticket;
+    }
+
+    /**
+     * Hace el registro de la entrada; se llama con el candado del gestor
+     *
+     * @param placa La placa del vehiculo
+     * @return El ticket generado o null si no se pudo registrar
+     */
+    private Ticket procesarEntrada(String placa) {
+        // Liberar los espacios de reservas vencidas
+        procesarVencimientos();
+
         // Validar la placa
         if (!Validador.validarPlaca(placa)) {
-            System.out.println("Error: Placa invalida");
+            rechazar(MetricasGestor.PLACA_INVALIDA, "Error: Placa invalida");
             return null;
         }
 
         // Convertir placa a mayusculas
         placa = placa.trim().toUpperCase();
 
+        // Verificar la lista de placas bloqueadas
+        if (filtroAcceso != null && filtroAcceso.estaBloqueada(placa)) {
+            rechazar(MetricasGestor.PLACA_BLOQUEADA, "Error: La placa " + placa + " esta bloqueada y no puede ingresar");
+            return null;
+        }
+
         // Verificar si el vehiculo ya esta en el parqueadero
         if (buscarTicketPorPlaca(placa) != null) {
-            System.out.println("Error: El vehiculo con placa " + placa + " ya esta en el parqueadero");
+            rechazar(MetricasGestor.DUPLICADA, "Error: El vehiculo con placa " + placa + " ya esta en el parqueadero");
             return null;
         }
 
         // Identificar tipo de vehiculo
         String tipoVehiculo = Validador.identificarTipoVehiculo(placa);
         if (tipoVehiculo == null) {
-            System.out.println("Error: No se pudo identificar el tipo de vehiculo");
+            rechazar(MetricasGestor.TIPO_DESCONOCIDO, "Error: No se pudo identificar el tipo de vehiculo");
             return null;
         }
 
-        // Buscar espacio disponible
-        Espacio espacioDisponible = parqueadero.buscarEspacioDisponible(tipoVehiculo);
+        // Apartar la placa en el indice global para que no entre a otro parqueadero a la vez
+        String nombreParqueadero = parqueadero.getNombre();
+        if (indicePlacas != null) {
+            IndiceGlobalPlacas.Ubicacion otra = indicePlacas.reclamar(placa, nombreParqueadero);
+            if (otra != null) {
+                rechazar(MetricasGestor.EN_OTRO_PARQUEADERO, "Error: El vehiculo con placa " + placa
+                        + " ya esta en el parqueadero " + otra.getParqueadero());
+                return null;
+            }
+        }
+
+        // Usar el espacio reservado o buscar uno disponible
+        EventosJfr.BusquedaEspacio busqueda = new EventosJfr.BusquedaEspacio();
+        busqueda.begin();
+        long inicioAsignacion = System.nanoTime();
+        Espacio espacioDisponible = gestorReservas.consumirReserva(placa);
+        boolean conReserva = espacioDisponible != null;
         if (espacioDisponible == null) {
-            System.out.println("Error: No hay espacios disponibles para " + tipoVehiculo);
+            espacioDisponible = parqueadero.buscarEspacioDisponible(tipoVehiculo);
+        }
+        if (metricas != null) {
+            metricas.medirAsignacion(System.nanoTime() - inicioAsignacion);
+        }
+        busqueda.end();
+        if (busqueda.shouldCommit()) {
+            // Una moto sin espacio de su tipo consulta tambien los de auto si la estrategia lo permite
+            boolean desborde = !conReserva && tipoVehiculo.equals("MOTO")
+                    && Parqueadero.ASIGNACION_DESBORDE_MOTOS.equals(parqueadero.getEstrategiaAsignacion())
+                    && (espacioDisponible == null || !tipoVehiculo.equals(espacioDisponible.getTipoVehiculo()));
+            busqueda.parqueadero = nombreParqueadero;
+            busqueda.tipoVehiculo = tipoVehiculo;
+            busqueda.estrategia = conReserva ? "RESERVA" : parqueadero.getEstrategiaAsignacion();
+            busqueda.indicesConsultados = conReserva ? 0 : (desborde ? 2 : 1);
+            busqueda.libresTipo = parqueadero.contarEspaciosDisponibles(tipoVehiculo);
+            busqueda.espacio = espacioDisponible != null ? espacioDisponible.getNumero() : 0;
+            busqueda.commit();
+        }
+        if (espacioDisponible == null) {
+            if (indicePlacas != null) {
+                indicePlacas.quitar(placa, nombreParqueadero);
+            }
+            rechazar(MetricasGestor.SIN_ESPACIOS, "Error: No hay espacios disponibles para " + tipoVehiculo);
             return null;
         }
 
         // Crear el vehiculo
         Vehiculo vehiculo;
         if (tipoVehiculo.equals("AUTO")) {
-            vehiculo = new Auto(placa);
+            vehiculo = new Auto(placa, reloj);
         } else {
-            vehiculo = new Moto(placa);
+            vehiculo = new Moto(placa, reloj);
         }
 
         // Ocupar el espacio
         espacioDisponible.ocupar(vehiculo);
 
         // Crear el ticket
-        Ticket ticket = new Ticket(vehiculo, espacioDisponible);
-        ticketsActivos.add(ticket);
+        Ticket ticket = new Ticket(vehiculo, espacioDisponible, reloj);
+        boolean permitida = filtroAcceso != null && filtroAcceso.estaPermitida(placa);
+        ticket.setExento(permitida || tieneAbonoVigente(placa, ticket.getHoraEntrada()));
+        ticketsActivos.put(placa, ticket);
+        if (indicePlacas != null) {
+            indicePlacas.registrar(placa, new IndiceGlobalPlacas.Ubicacion(nombreParqueadero,
+                    espacioDisponible.getNumero(), ticket.getId(), ticket.getEntradaMillis()));
+        }
+
+        for (EscuchaParqueadero escucha : escuchas) {
+            escucha.entradaRegistrada(this, ticket);
+        }
 
-        System.out.println("\n=== ENTRADA REGISTRADA ===");
-        System.out.println("Placa: " + placa);
-        System.out.println("Tipo: " + tipoVehiculo);
-        System.out.println("Espacio asignado: " + espacioDisponible.getNumero());
-        System.out.println("Ticket #: " + ticket.getId());
-        System.out.println("Hora entrada: " + ticket.getHoraEntrada());
-        System.out.println("=========================\n");
+        if (mostrarMensajes) {
+            System.out.println("\n=== ENTRADA REGISTRADA ===");
+            System.out.println("Placa: " + placa);
+            System.out.println("Tipo: " + tipoVehiculo);
+            System.out.println("Espacio asignado: " + espacioDisponible.getNumero());
+            System.out.println("Ticket #: " + ticket.getId());
+            System.out.println("Hora entrada: " + ticket.getHoraEntrada());
+            System.out.println("=========================\n");
+        }
 
         return ticket;
     }
@@ -136,52 +752,459 @@ public class GestorParqueadero {
      * @return El ticket finalizado o null si no se encontro
      */
     public Ticket registrarSalida(String placa) {
+        // La medicion empieza antes del candado para incluir la espera
+        EventosJfr.Salida evento = new EventosJfr.Salida();
+        evento.begin();
+        long inicio = System.nanoTime();
+        Ticket ticket;
+        synchronized (this) {
+            ticket = procesarSalida(placa);
+            if (metricas != null) {
+                metricas.medirSalida(System.nanoTime() - inicio, ticket != null);
+            }
+        }
+
+        evento.end();
+        if (evento.shouldCommit()) {
+            evento.parqueadero = parqueadero.getNombre();
+            evento.placa = placa;
+            if (ticket != null) {
+                evento.tipoVehiculo = ticket.getVehiculo().getTipo();
+                evento.tarifa = ticket.getTarifa();
+            } else {
+                evento.motivo = MetricasGestor.nombreMotivo(MetricasGestor.NO_ENCONTRADO);
+            }
+            evento.commit();
+        }
+        return ticket;
+    }
+
+    /**
+     * Hace el registro de la salida; se llama con el candado del gestor
+     *
+     * @param placa La placa del vehiculo
+     * @return El ticket finalizado o null si no se encontro
+     */
+    private Ticket procesarSalida(String placa) {
         // Convertir placa a mayusculas
         placa = placa.trim().toUpperCase();
 
         // Buscar el ticket activo
         Ticket ticket = buscarTicketPorPlaca(placa);
         if (ticket == null) {
-            System.out.println("Error: No se encontro el vehiculo con placa " + placa);
+            rechazar(MetricasGestor.NO_ENCONTRADO, "Error: No se encontro el vehiculo con placa " + placa);
+            if (mostrarMensajes && buscadorPlacas != null) {
+                ArrayList<String> parecidas = buscadorPlacas.buscarParecidas(placa, 3);
+                if (!parecidas.isEmpty()) {
+                    System.out.println("Placas parecidas parqueadas: " + String.join(", ", parecidas));
+                }
+            }
             return null;
         }
 
         // Establecer hora de salida
-        ticket.setHoraSalida(LocalDateTime.now());
+        ticket.setSalidaMillis(reloj.ahoraMillis());
 
         // Calcular tiempo y tarifa
         long horas = ticket.calcularTiempo();
-        double tarifa = CalculadorTarifa.calcularTarifa(ticket.getVehiculo().getTipo(), horas);
+
+        // Un abono comprado durante la estadia tambien exime del pago
+        if (!ticket.isExento() && tieneAbonoVigente(placa, ticket.getHoraSalida())) {
+            ticket.setExento(true);
+        }
+
+        double tarifa = 0.0;
+        if (!ticket.isExento()) {
+            EventosJfr.Tarifa calculo = new EventosJfr.Tarifa();
+            calculo.begin();
+            long inicioTarifa = System.nanoTime();
+            tarifa = calculadorTarifa.calcular(ticket.getVehiculo().getTipo(), horas);
+            if (metricas != null) {
+                metricas.medirTarifa(System.nanoTime() - inicioTarifa);
+            }
+            calculo.end();
+            if (calculo.shouldCommit()) {
+                calculo.parqueadero = parqueadero.getNombre();
+                calculo.tipoVehiculo = ticket.getVehiculo().getTipo();
+                calculo.horas = horas;
+                calculo.tarifa = tarifa;
+                calculo.commit();
+            }
+        }
         ticket.setTarifa(tarifa);
 
         // Liberar el espacio
         ticket.getEspacio().liberar();
 
         // Mover el ticket de activos a finalizados
-        ticketsActivos.remove(ticket);
-        ticketsFinalizados.add(ticket);
+        ticketsActivos.remove(placa);
+        if (indicePlacas != null) {
+            indicePlacas.quitar(placa, parqueadero.getNombre());
+        }
+        // La salida cuenta en el dia en que ocurrio aunque el cierre de medianoche no haya pasado
+        pasarADia(reloj.aFecha(ticket.getSalidaMillis()).toLocalDate());
+        if (guardarHistorico) {
+            ticketsFinalizados.add(ticket);
+        }
+        vehiculosAtendidos++;
+
+        for (EscuchaParqueadero escucha : escuchas) {
+            escucha.salidaRegistrada(this, ticket);
+        }
 
         // Mostrar recibo
-        System.out.println(ticket.generarRecibo());
+        if (mostrarMensajes) {
+            System.out.println(ticket.generarRecibo());
+        }
 
         return ticket;
     }
 
     /**
-     * Busca un ticket activo por placa de vehiculo
+     * Reserva un espacio para un vehiculo que llegara despues
      *
-     * @param placa La placa a buscar
-     * @return El ticket encontrado o null si no existe
+     * @param placa La placa del vehiculo
+     * @param minutos Minutos que se guarda el espacio antes de vencer
+     * @return La reserva creada o null si no se pudo reservar
      */
-    public Ticket buscarTicketPorPlaca(String placa) {
+    public synchronized Reserva reservarEspacio(String placa, int minutos) {
+        procesarVencimientos();
+
+        if (!Validador.validarPlaca(placa)) {
+            mostrar("Error: Placa invalida");
+            return null;
+        }
+
         placa = placa.trim().toUpperCase();
-        for (int i = 0; i < ticketsActivos.size(); i++) {
-            Ticket ticket = ticketsActivos.get(i);
-            if (ticket.getVehiculo().getPlaca().equals(placa)) {
-                return ticket;
+
+        if (buscarTicketPorPlaca(placa) != null) {
+            mostrar("Error: El vehiculo con placa " + placa + " ya esta en el parqueadero");
+            return null;
+        }
+
+        if (gestorReservas.buscarReserva(placa) != null) {
+            mostrar("Error: El vehiculo con placa " + placa + " ya tiene una reserva");
+            return null;
+        }
+
+        String tipoVehiculo = Validador.identificarTipoVehiculo(placa);
+        if (tipoVehiculo == null) {
+            mostrar("Error: No se pudo identificar el tipo de vehiculo");
+            return null;
+        }
+
+        Reserva reserva = gestorReservas.crearReserva(placa, tipoVehiculo, minutos);
+        if (reserva == null) {
+            mostrar("Error: No hay espacios disponibles para reservar " + tipoVehiculo);
+            return null;
+        }
+
+        for (EscuchaParqueadero escucha : escuchas) {
+            escucha.reservaCreada(this, reserva);
+        }
+
+        return reserva;
+    }
+
+    /**
+     * Cancela la reserva de un vehiculo
+     *
+     * @param placa La placa del vehiculo
+     * @return La reserva cancelada o null si no tenia reserva
+     */
+    public synchronized Reserva cancelarReserva(String placa) {
+        Reserva reserva = gestorReservas.cancelarReserva(placa.trim().toUpperCase());
+        if (reserva != null) {
+            for (EscuchaParqueadero escucha : escuchas) {
+                escucha.reservaCancelada(this, reserva);
             }
         }
-        return null;
+        return reserva;
+    }
+
+    /**
+     * Vence la reserva de un vehiculo sin esperar a la rueda de tiempo.
+     * La usa la replica para aplicar los vencimientos que le llegan del primario
+     *
+     * @param placa La placa del vehiculo
+     * @return La reserva vencida o null si no tenia reserva
+     */
+    synchronized Reserva vencerReserva(String placa) {
+        Reserva reserva = gestorReservas.vencerReserva(placa.trim().toUpperCase());
+        if (reserva != null) {
+            avisarVencimiento(reserva);
+        }
+        return reserva;
+    }
+
+    /**
+     * Vence las reservas cuyo tiempo de espera ya paso
+     *
+     * @return El numero de reservas vencidas
+     */
+    public synchronized int procesarVencimientos() {
+        return gestorReservas.procesarVencimientos(reloj.ahoraMillis(), this::avisarVencimiento);
+    }
+
+    /**
+     * Avisa a las escuchas que una reserva vencio; se llama con el candado del gestor
+     *
+     * @param reserva La reserva vencida
+     */
+    private void avisarVencimiento(Reserva reserva) {
+        for (EscuchaParqueadero escucha : escuchas) {
+            escucha.reservaVencida(this, reserva);
+        }
+    }
+
+    /**
+     * Obtiene el gestor de reservas
+     *
+     * @return El gestor de reservas
+     */
+    public GestorReservas getGestorReservas() {
+        return gestorReservas;
+    }
+
+    /**
+     * Inicia un hilo de fondo que vence las reservas cada tick de la rueda
+     */
+    public synchronized void iniciarVencimientoAutomatico() {
+        if (vencedorReservas != null) {
+            return;
+        }
+
+        vencedorReservas = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "vencimiento-reservas-" + parqueadero.getNombre());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        vencedorReservas.scheduleAtFixedRate(this::procesarVencimientos,
+                GestorReservas.DURACION_TICK_MILLIS, GestorReservas.DURACION_TICK_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Obtiene la fecha del dia en curso
+     *
+     * @return La fecha
+     */
+    public synchronized LocalDate getDiaActual() {
+        return diaActual;
+    }
+
+    /**
+     * Guarda el resumen del dia en curso hasta ahora sin terminarlo: el dia
+     * sigue abierto y su cierre al cambiar de fecha guarda el resumen
+     * completo, que reemplaza a este aunque quede antes en el archivo porque
+     * tiene al menos los mismos vehiculos. Antes guarda los dias ya terminados.
+     * Solo la copia de los tickets se hace con el candado; el resumen se
+     * arma despues, asi las puertas no esperan a que se recorran los tickets.
+     *
+     * @return El resumen parcial del dia en curso
+     */
+    public ResumenDiario cerrarDia() {
+        cerrarDiaSiTermino();
+
+        Jornada parcial;
+        synchronized (this) {
+            parcial = new Jornada(diaActual, new ArrayList<Ticket>(ticketsFinalizados), vehiculosAtendidos);
+        }
+
+        ResumenDiario resumen = resumir(parqueadero.getNombre(), parcial, reloj);
+        GestorArchivos.guardarResumenDiario(resumen);
+        return resumen;
+    }
+
+    /**
+     * Cierra los dias que ya terminaron, por fecha del reloj o porque ya
+     * hubo salidas de un dia posterior, y guarda sus resumenes
+     *
+     * @return El resumen del ultimo dia cerrado, o null si el dia no ha terminado
+     */
+    public ResumenDiario cerrarDiaSiTermino() {
+        ArrayList<Jornada> terminadas;
+        synchronized (this) {
+            pasarADia(reloj.ahora().toLocalDate());
+            if (jornadasTerminadas.isEmpty()) {
+                return null;
+            }
+            terminadas = jornadasTerminadas;
+            jornadasTerminadas = new ArrayList<Jornada>();
+        }
+        return guardarResumenes(parqueadero.getNombre(), terminadas, reloj);
+    }
+
+    /**
+     * Termina el dia en curso si la fecha dada es posterior; se llama con el candado
+     *
+     * @param fecha La fecha de una salida o del reloj
+     */
+    private void pasarADia(LocalDate fecha) {
+        if (!fecha.isAfter(diaActual)) {
+            return;
+        }
+        jornadasTerminadas.add(new Jornada(diaActual, ticketsFinalizados, vehiculosAtendidos));
+        ticketsFinalizados = new ArrayList<Ticket>();
+        vehiculosAtendidos = 0;
+        diaActual = fecha;
+    }
+
+    /**
+     * Saca todas las salidas que aun no tienen resumen (los dias terminados
+     * y el dia en curso si tuvo salidas) para que no se pierdan al descargar el gestor
+     *
+     * @return Las jornadas, de la mas antigua a la mas reciente
+     */
+    synchronized ArrayList<Jornada> entregarJornadas() {
+        pasarADia(reloj.ahora().toLocalDate());
+        ArrayList<Jornada> jornadas = jornadasTerminadas;
+        if (vehiculosAtendidos > 0) {
+            jornadas.add(new Jornada(diaActual, ticketsFinalizados, vehiculosAtendidos));
+        }
+        jornadasTerminadas = new ArrayList<Jornada>();
+        ticketsFinalizados = new ArrayList<Ticket>();
+        vehiculosAtendidos = 0;
+        return jornadas;
+    }
+
+    /**
+     * Recibe las jornadas que entrego el gestor anterior del parqueadero:
+     * la del dia en curso se suma a este y las anteriores quedan para el
+     * proximo cierre
+     *
+     * @param jornadas Las jornadas, de la mas antigua a la mas reciente
+     */
+    synchronized void retomarJornadas(ArrayList<Jornada> jornadas) {
+        ArrayList<Jornada> terminadas = new ArrayList<Jornada>();
+        for (Jornada jornada : jornadas) {
+            if (jornada.fecha.isBefore(diaActual)) {
+                terminadas.add(jornada);
+            } else {
+                ticketsFinalizados.addAll(0, jornada.tickets);
+                vehiculosAtendidos += jornada.atendidos;
+            }
+        }
+        terminadas.addAll(jornadasTerminadas);
+        jornadasTerminadas = terminadas;
+    }
+
+    /**
+     * Arma y guarda el resumen de cada jornada
+     *
+     * @param parqueadero Nombre del parqueadero
+     * @param jornadas Las jornadas, de la mas antigua a la mas reciente
+     * @param reloj Reloj con la zona para ubicar la hora de salida
+     * @return El resumen de la ultima jornada, o null si no hay jornadas
+     */
+    static ResumenDiario guardarResumenes(String parqueadero, ArrayList<Jornada> jornadas, Reloj reloj) {
+        ResumenDiario resumen = null;
+        for (Jornada jornada : jornadas) {
+            resumen = resumir(parqueadero, jornada, reloj);
+            GestorArchivos.guardarResumenDiario(resumen);
+        }
+        return resumen;
+    }
+
+    /**
+     * Arma el resumen de una jornada
+     *
+     * @param parqueadero Nombre del parqueadero
+     * @param jornada La jornada
+     * @param reloj Reloj con la zona para ubicar la hora de salida
+     * @return El resumen
+     */
+    private static ResumenDiario resumir(String parqueadero, Jornada jornada, Reloj reloj) {
+        return ResumenDiario.desdeTickets(parqueadero, jornada.fecha, jornada.tickets, jornada.atendidos, reloj);
+    }
+
+    /**
+     * Inicia un hilo que revisa cada minuto si termino el dia y lo cierra
+     */
+    public synchronized void iniciarCierreAutomatico() {
+        if (cierreDiario != null) {
+            return;
+        }
+
+        cierreDiario = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "cierre-diario-" + parqueadero.getNombre());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        cierreDiario.scheduleAtFixedRate(this::cerrarDiaSiTermino, 1, 1, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Obtiene la historia y pronostico de la ocupacion
+     *
+     * @return Las series o null si no se llevan
+     */
+    public SeriesOcupacion getSeriesOcupacion() {
+        return seriesOcupacion;
+    }
+
+    /**
+     * Establece la historia y pronostico de la ocupacion; un registro de
+     * parqueaderos la conserva aunque el gestor se descargue
+     *
+     * @param seriesOcupacion Las series o null para no llevarlas
+     */
+    public void setSeriesOcupacion(SeriesOcupacion seriesOcupacion) {
+        this.seriesOcupacion = seriesOcupacion;
+    }
+
+    /**
+     * Toma una muestra de la ocupacion de la foto de disponibilidad, sin el candado del gestor
+     */
+    public void muestrearOcupacion() {
+        SeriesOcupacion series = seriesOcupacion;
+        if (series != null) {
+            series.registrar(reloj.ahoraMillis(), getInstantaneaDisponibilidad());
+        }
+    }
+
+    /**
+     * Guarda el modelo de ocupacion, si se llevan series
+     */
+    public void guardarSeriesOcupacion() {
+        SeriesOcupacion series = seriesOcupacion;
+        if (series != null) {
+            GestorArchivos.guardarSeriesOcupacion(series);
+        }
+    }
+
+    /**
+     * Inicia un hilo que toma una muestra de la ocupacion cada 5 minutos y
+     * guarda el modelo cada hora; crea las series con el modelo guardado si
+     * no se habian establecido
+     */
+    public synchronized void iniciarMuestreoOcupacion() {
+        if (muestreoOcupacion != null) {
+            return;
+        }
+        if (seriesOcupacion == null) {
+            SeriesOcupacion series = new SeriesOcupacion(parqueadero.getNombre(), reloj);
+            GestorArchivos.cargarSeriesOcupacion(series);
+            seriesOcupacion = series;
+        }
+
+        muestreoOcupacion = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "muestreo-ocupacion-" + parqueadero.getNombre());
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        muestreoOcupacion.scheduleAtFixedRate(this::muestrearOcupacion,
+                0, SeriesOcupacion.INTERVALO_MUESTRA_MILLIS, TimeUnit.MILLISECONDS);
+        muestreoOcupacion.scheduleAtFixedRate(this::guardarSeriesOcupacion, 1, 1, TimeUnit.HOURS);
+    }
+
+    /**
+     * Busca un ticket activo por placa de vehiculo
+     *
+     * @param placa La placa a buscar
+     * @return El ticket encontrado o null si no existe
+     */
+    public synchronized Ticket buscarTicketPorPlaca(String placa) {
+        return ticketsActivos.get(placa.trim().toUpperCase());
     }
 
     /**
@@ -190,65 +1213,161 @@ public class GestorParqueadero {
      * @return String con el reporte de disponibilidad
      */
     public String consultarDisponibilidad() {
-        StringBuilder reporte = new StringBuilder();
-        reporte.append(parqueadero.mostrarInformacion());
-
-        // Contar espacios por tipo
-        int espaciosAutoDisponibles = 0;
-        int espaciosMotoDisponibles = 0;
-        int espaciosAutoOcupados = 0;
-        int espaciosMotoOcupados = 0;
-
-        ArrayList<Espacio> espacios = parqueadero.getEspacios();
-        for (int i = 0; i < espacios.size(); i++) {
-            Espacio espacio = espacios.get(i);
-            if (espacio.getTipoVehiculo().equals("AUTO")) {
-                if (espacio.estaDisponible()) {
-                    espaciosAutoDisponibles++;
-                } else {
-                    espaciosAutoOcupados++;
-                }
-            } else if (espacio.getTipoVehiculo().equals("MOTO")) {
-                if (espacio.estaDisponible()) {
-                    espaciosMotoDisponibles++;
-                } else {
-                    espaciosMotoOcupados++;
-                }
-            }
-        }
+        return getInstantaneaDisponibilidad().getTexto();
+    }
 
-        reporte.append("\n--- Detalle por Tipo ---\n");
-        reporte.append("AUTOS - Disponibles: ").append(espaciosAutoDisponibles);
-        reporte.append(" | Ocupados: ").append(espaciosAutoOcupados).append("\n");
-        reporte.append("MOTOS - Disponibles: ").append(espaciosMotoDisponibles);
-        reporte.append(" | Ocupados: ").append(espaciosMotoOcupados).append("\n");
+    /**
+     * Escribe la disponibilidad de espacios directamente en una salida.
+     * Se escribe la foto en cache, sin el candado del gestor.
+     *
+     * @param reporte Donde se escribe la disponibilidad
+     * @throws IOException Si falla la escritura
+     */
+    public void escribirDisponibilidad(Appendable reporte) throws IOException {
+        reporte.append(getInstantaneaDisponibilidad().getTexto());
+    }
 
-        return reporte.toString();
+    /**
+     * Obtiene la foto de la disponibilidad. Si el parqueadero no ha cambiado
+     * desde la ultima foto se devuelve la misma, sin candados; si cambio, se
+     * toma una nueva con el candado del gestor.
+     *
+     * @return La foto de la disponibilidad
+     */
+    public InstantaneaDisponibilidad getInstantaneaDisponibilidad() {
+        InstantaneaDisponibilidad actual = instantanea;
+        if (actual != null && actual.getVersion() == parqueadero.getVersionDisponibilidad()) {
+            return actual;
+        }
+        return tomarInstantaneaDisponibilidad();
     }
 
     /**
-     * Lista todos los vehiculos actualmente parqueados
+     * Toma una nueva foto de la disponibilidad si la guardada ya no esta al dia
+     *
+     * @return La foto al dia
+     */
+    private synchronized InstantaneaDisponibilidad tomarInstantaneaDisponibilidad() {
+        // Otro hilo pudo tomarla mientras se esperaba el candado
+        long version = parqueadero.getVersionDisponibilidad();
+        InstantaneaDisponibilidad actual = instantanea;
+        if (actual == null || actual.getVersion() != version) {
+            actual = new InstantaneaDisponibilidad(parqueadero, version);
+            instantanea = actual;
+        }
+        return actual;
+    }
+
+    /**
+     * Lista todos los vehiculos actualmente parqueados (en orden de placa)
      *
      * @return String con la lista de vehiculos
      */
     public String listarVehiculosParqueados() {
-        if (ticketsActivos.isEmpty()) {
+        if (contarTicketsActivos() == 0) {
             return "\nNo hay vehiculos parqueados actualmente.\n";
         }
 
         StringBuilder lista = new StringBuilder();
         lista.append("\n========== VEHICULOS PARQUEADOS ==========\n");
+        try {
+            String despuesDe = null;
+            do {
+                despuesDe = escribirVehiculosParqueados(lista, despuesDe, PAGINA_LISTADO);
+            } while (despuesDe != null);
+        } catch (IOException e) {
+            // Un StringBuilder no lanza IOException
+        }
+        lista.append("==========================================\n");
+
+        return lista.toString();
+    }
+
+    /**
+     * Escribe una pagina de vehiculos parqueados, en orden de placa, una linea por vehiculo.
+     * La salida se escribe sin el candado del gestor, asi puede ser un socket.
+     *
+     * @param lista Donde se escriben los vehiculos
+     * @param despuesDe La ultima placa de la pagina anterior, o null para la primera
+     * @param limite Maximo de vehiculos de la pagina
+     * @return La placa para pedir la siguiente pagina, o null si no hay mas
+     * @throws IOException Si falla la escritura
+     */
+    public String escribirVehiculosParqueados(Appendable lista, String despuesDe, int limite) throws IOException {
+        ArrayList<Ticket> pagina = new ArrayList<Ticket>(Math.min(limite, PAGINA_LISTADO));
+        String siguiente = buscarPorPlacaParcial("", false, despuesDe, limite, pagina::add);
 
-        for (int i = 0; i < ticketsActivos.size(); i++) {
-            Ticket ticket = ticketsActivos.get(i);
-            lista.append("Ticket #").append(ticket.getId()).append(" | ");
+        for (int i = 0; i < pagina.size(); i++) {
+            Ticket ticket = pagina.get(i);
+            lista.append("Ticket #").append(String.valueOf(ticket.getId())).append(" | ");
             lista.append(ticket.getVehiculo().mostrarInformacion());
-            lista.append(" | Espacio: ").append(ticket.getEspacio().getNumero()).append("\n");
+            lista.append(" | Espacio: ").append(String.valueOf(ticket.getEspacio().getNumero())).append("\n");
         }
+        return siguiente;
+    }
 
-        lista.append("==========================================\n");
+    /**
+     * Genera el reporte de un mes a partir de los resumenes de los dias cerrados
+     *
+     * @param mes El mes
+     * @return String con el reporte
+     */
+    public String generarReporteMensual(YearMonth mes) {
+        ArrayList<ResumenDiario> resumenes = GestorArchivos.cargarResumenesDiarios(parqueadero.getNombre(), mes);
 
-        return lista.toString();
+        StringBuilder reporte = new StringBuilder();
+        reporte.append("\n========== REPORTE MENSUAL ==========\n");
+        reporte.append("Parqueadero: ").append(parqueadero.getNombre()).append("\n");
+        reporte.append("Mes: ").append(mes).append("\n");
+
+        if (resumenes.isEmpty()) {
+            reporte.append("No hay dias cerrados en este mes.\n");
+            reporte.append("=====================================\n");
+            return reporte.toString();
+        }
+
+        long vehiculos = 0;
+        long autos = 0;
+        long motos = 0;
+        long exentos = 0;
+        double ingresosAuto = 0;
+        double ingresosMoto = 0;
+        long[] salidasPorHora = new long[24];
+
+        reporte.append("\nFecha      | Vehiculos | Ingresos     | Estadia P50 | Estadia P90\n");
+        for (ResumenDiario resumen : resumenes) {
+            vehiculos += resumen.getVehiculos();
+            autos += resumen.getAutos();
+            motos += resumen.getMotos();
+            exentos += resumen.getExentos();
+            ingresosAuto += resumen.getIngresosAuto();
+            ingresosMoto += resumen.getIngresosMoto();
+            for (int hora = 0; hora < 24; hora++) {
+                salidasPorHora[hora] += resumen.getSalidasHora(hora);
+            }
+            reporte.append(String.format("%s | %9d | $%11.2f | %7d min | %7d min%n", resumen.getFecha(),
+                    resumen.getVehiculos(), resumen.getIngresos(), resumen.getEstadiaP50(), resumen.getEstadiaP90()));
+        }
+
+        // Los percentiles no se pueden sumar: el reporte muestra los de cada dia
+        int horaPico = 0;
+        for (int hora = 1; hora < 24; hora++) {
+            if (salidasPorHora[hora] > salidasPorHora[horaPico]) {
+                horaPico = hora;
+            }
+        }
+
+        reporte.append("\nDias Cerrados: ").append(resumenes.size()).append("\n");
+        reporte.append("Total Vehiculos Atendidos: ").append(vehiculos).append("\n");
+        reporte.append("Autos: ").append(autos).append(" | Motos: ").append(motos);
+        reporte.append(" | Exentos: ").append(exentos).append("\n");
+        reporte.append("Ingresos Autos: $").append(String.format("%.2f", ingresosAuto)).append("\n");
+        reporte.append("Ingresos Motos: $").append(String.format("%.2f", ingresosMoto)).append("\n");
+        reporte.append("Ingresos Totales: $").append(String.format("%.2f", ingresosAuto + ingresosMoto)).append("\n");
+        reporte.append("Hora con Mas Salidas: ").append(String.format("%02d:00", horaPico));
+        reporte.append(" (").append(salidasPorHora[horaPico]).append(" salidas)\n");
+        reporte.append("=====================================\n");
+        return reporte.toString();
     }
 
     /**
@@ -258,20 +1377,53 @@ public class GestorParqueadero {
      */
     public String generarReporteOcupacion() {
         StringBuilder reporte = new StringBuilder();
+        try {
+            escribirReporteOcupacion(reporte);
+        } catch (IOException e) {
+            // Un StringBuilder no lanza IOException
+        }
+        return reporte.toString();
+    }
+
+    /**
+     * Escribe el reporte de ocupacion directamente en una salida.
+     * Los datos se copian con el candado del gestor y se escriben despues de
+     * soltarlo, asi una salida lenta no frena las entradas y salidas.
+     *
+     * @param reporte Donde se escribe el reporte
+     * @throws IOException Si falla la escritura
+     */
+    public void escribirReporteOcupacion(Appendable reporte) throws IOException {
+        String nombre;
+        int capacidad;
+        int ocupados;
+        int disponibles;
+        int reservasPendientes;
+        int vehiculosParqueados;
+        long atendidos;
+        synchronized (this) {
+            nombre = parqueadero.getNombre();
+            capacidad = parqueadero.getCapacidadTotal();
+            ocupados = parqueadero.contarEspaciosOcupados();
+            disponibles = parqueadero.contarEspaciosDisponibles();
+            reservasPendientes = gestorReservas.contarPendientes();
+            vehiculosParqueados = ticketsActivos.size();
+            atendidos = vehiculosAtendidos;
+        }
+
         reporte.append("\n========== REPORTE DE OCUPACION ==========\n");
-        reporte.append("Parqueadero: ").append(parqueadero.getNombre()).append("\n");
-        reporte.append("Capacidad Total: ").append(parqueadero.getCapacidadTotal()).append("\n");
-        reporte.append("Espacios Ocupados: ").append(parqueadero.contarEspaciosOcupados()).append("\n");
-        reporte.append("Espacios Disponibles: ").append(parqueadero.contarEspaciosDisponibles()).append("\n");
+        reporte.append("Parqueadero: ").append(nombre).append("\n");
+        reporte.append("Capacidad Total: ").append(String.valueOf(capacidad)).append("\n");
+        reporte.append("Espacios Ocupados: ").append(String.valueOf(ocupados)).append("\n");
+        reporte.append("Espacios Disponibles: ").append(String.valueOf(disponibles)).append("\n");
+        reporte.append("Reservas Pendientes: ").append(String.valueOf(reservasPendientes)).append("\n");
 
         // Calcular porcentaje de ocupacion
-        double porcentaje = (parqueadero.contarEspaciosOcupados() * 100.0) / parqueadero.getCapacidadTotal();
+        double porcentaje = (ocupados * 100.0) / capacidad;
         reporte.append("Porcentaje de Ocupacion: ").append(String.format("%.2f", porcentaje)).append("%\n");
 
-        reporte.append("\nVehiculos Actualmente Parqueados: ").append(ticketsActivos.size()).append("\n");
-        reporte.append("Total Vehiculos Atendidos Hoy: ").append(ticketsFinalizados.size()).append("\n");
+        reporte.append("\nVehiculos Actualmente Parqueados: ").append(String.valueOf(vehiculosParqueados)).append("\n");
+        reporte.append("Total Vehiculos Atendidos Hoy: ").append(String.valueOf(atendidos)).append("\n");
         reporte.append("==========================================\n");
-
-        return reporte.toString();
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,191 @@
+package servicio;
+
+import modelo.Espacio;
+import modelo.Parqueadero;
+import modelo.Reloj;
+import modelo.Reserva;
+import utilidad.RuedaTemporal;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.function.Consumer;
+
+/**
+ * Clase encargada de las reservas de espacios.
+ * Cada reserva aparta un espacio para una placa y se programa en una rueda
+ * de tiempo para vencer sola si el vehiculo no llega. Crear, cancelar o
+ * consumir una reserva cuesta O(1) aunque haya cientos de miles pendientes.
+ * Esta clase no es segura para hilos; GestorParqueadero la usa bajo su candado.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class GestorReservas {
+
+    /**
+     * Numero de ranuras de la rueda de tiempo
+     */
+    private static final int RANURAS_RUEDA = 4096;
+
+    /**
+     * Duracion de cada tick de la rueda (1 segundo)
+     */
+    public static final long DURACION_TICK_MILLIS = 1000L;
+
+    /**
+     * El parqueadero cuyos espacios se reservan
+     */
+    private final Parqueadero parqueadero;
+
+    /**
+     * Reloj del parqueadero
+     */
+    private final Reloj reloj;
+
+    /**
+     * Rueda de tiempo con el vencimiento de cada reserva
+     */
+    private final RuedaTemporal<Reserva> rueda;
+
+    /**
+     * Reservas pendientes por placa, con su temporizador para cancelarlas
+     */
+    private final HashMap<String, RuedaTemporal.Temporizador<Reserva>> reservasPorPlaca;
+
+    /**
+     * Numero de reservas que vencieron sin que llegara el vehiculo
+     */
+    private long reservasVencidas;
+
+    /**
+     * Constructor de la clase GestorReservas
+     *
+     * @param parqueadero El parqueadero cuyos espacios se reservan
+     * @param reloj El reloj del parqueadero
+     */
+    public GestorReservas(Parqueadero parqueadero, Reloj reloj) {
+        this.parqueadero = parqueadero;
+        this.reloj = reloj;
+        this.rueda = new RuedaTemporal<Reserva>(RANURAS_RUEDA, DURACION_TICK_MILLIS, reloj.ahoraMillis());
+        this.reservasPorPlaca = new HashMap<String, RuedaTemporal.Temporizador<Reserva>>();
+        this.reservasVencidas = 0;
+    }
+
+    /**
+     * Crea una reserva apartando el primer espacio disponible del tipo indicado
+     *
+     * @param placa La placa en mayusculas
+     * @param tipoVehiculo El tipo de vehiculo (AUTO o MOTO)
+     * @param minutos Minutos que se guarda el espacio
+     * @return La reserva creada o null si ya tenia reserva o no hay espacio
+     */
+    public Reserva crearReserva(String placa, String tipoVehiculo, int minutos) {
+        if (reservasPorPlaca.containsKey(placa)) {
+            return null;
+        }
+
+        Espacio espacio = parqueadero.buscarEspacioDisponible(tipoVehiculo);
+        if (espacio == null) {
+            return null;
+        }
+
+        long ahoraMillis = reloj.ahoraMillis();
+        long venceMillis = ahoraMillis + minutos * 60000L;
+        LocalDateTime ahora = reloj.aFecha(ahoraMillis);
+        Reserva reserva = new Reserva(placa, espacio, ahora, reloj.aFecha(venceMillis));
+        espacio.reservar(placa);
+
+        reservasPorPlaca.put(placa, rueda.programar(reserva, venceMillis));
+
+        return reserva;
+    }
+
+    /**
+     * Busca la reserva pendiente de una placa
+     *
+     * @param placa La placa en mayusculas
+     * @return La reserva o null si no tiene
+     */
+    public Reserva buscarReserva(String placa) {
+        RuedaTemporal.Temporizador<Reserva> temporizador = reservasPorPlaca.get(placa);
+        return temporizador == null ? null : temporizador.getValor();
+    }
+
+    /**
+     * Cancela la reserva de una placa y libera el espacio apartado
+     *
+     * @param placa La placa en mayusculas
+     * @return La reserva cancelada o null si no tenia
+     */
+    public Reserva cancelarReserva(String placa) {
+        RuedaTemporal.Temporizador<Reserva> temporizador = reservasPorPlaca.remove(placa);
+        if (temporizador == null) {
+            return null;
+        }
+
+        rueda.cancelar(temporizador);
+        Reserva reserva = temporizador.getValor();
+        reserva.getEspacio().cancelarReserva();
+        return reserva;
+    }
+
+    /**
+     * Consume la reserva de una placa cuando el vehiculo llega
+     *
+     * @param placa La placa en mayusculas
+     * @return El espacio reservado, listo para ocupar, o null si no tenia reserva
+     */
+    public Espacio consumirReserva(String placa) {
+        Reserva reserva = cancelarReserva(placa);
+        return reserva == null ? null : reserva.getEspacio();
+    }
+
+    /**
+     * Vence la reserva de una placa aunque su tiempo no haya pasado en la
+     * rueda, por ejemplo en una replica que aplica el vencimiento del primario
+     *
+     * @param placa La placa en mayusculas
+     * @return La reserva vencida o null si no tenia
+     */
+    public Reserva vencerReserva(String placa) {
+        Reserva reserva = cancelarReserva(placa);
+        if (reserva != null) {
+            reservasVencidas++;
+        }
+        return reserva;
+    }
+
+    /**
+     * Vence las reservas cuyo tiempo ya paso y libera sus espacios
+     *
+     * @param ahoraMillis El momento actual en milisegundos
+     * @param alVencer Recibe cada reserva vencida
+     * @return El numero de reservas vencidas
+     */
+    public int procesarVencimientos(long ahoraMillis, Consumer<Reserva> alVencer) {
+        int vencidas = rueda.avanzar(ahoraMillis, reserva -> {
+            reservasPorPlaca.remove(reserva.getPlaca());
+            reserva.getEspacio().cancelarReserva();
+            alVencer.accept(reserva);
+        });
+        reservasVencidas += vencidas;
+        return vencidas;
+    }
+
+    /**
+     * Obtiene el numero de reservas pendientes
+     *
+     * @return El numero de reservas pendientes
+     */
+    public int contarPendientes() {
+        return reservasPorPlaca.size();
+    }
+
+    /**
+     * Obtiene el numero de reservas que han vencido
+     *
+     * @return El numero de reservas vencidas
+     */
+    public long getReservasVencidas() {
+        return reservasVencidas;
+    }
+}
@@ -0,0 +1,228 @@
+package servicio;
+
+import java.util.HashMap;
+
+/**
+ * Indice global de placas parqueadas en todos los parqueaderos del proceso.
+ * Dice en que parqueadero, espacio y ticket esta cada vehiculo, y no deja
+ * que una placa entre a un parqueadero si ya esta en otro.
+ * Esta dividido en segmentos, cada uno con su propio candado, para que las
+ * puertas de distintos parqueaderos casi nunca se esperen entre si; cada
+ * operacion solo toca el segmento de su placa y es O(1).
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class IndiceGlobalPlacas {
+
+    /**
+     * Numero de segmentos por defecto (potencia de 2)
+     */
+    public static final int SEGMENTOS = 64;
+
+    /**
+     * Ubicacion de un vehiculo en la red de parqueaderos
+     */
+    public static class Ubicacion {
+
+        /**
+         * Nombre del parqueadero
+         */
+        private final String parqueadero;
+
+        /**
+         * Numero del espacio (0 mientras la entrada se esta registrando)
+         */
+        private final int espacio;
+
+        /**
+         * Numero del ticket (0 mientras la entrada se esta registrando)
+         */
+        private final int ticket;
+
+        /**
+         * Momento de la entrada en milisegundos
+         */
+        private final long entradaMillis;
+
+        /**
+         * Constructor de la ubicacion
+         *
+         * @param parqueadero El nombre del parqueadero
+         * @param espacio El numero del espacio
+         * @param ticket El numero del ticket
+         * @param entradaMillis El momento de la entrada
+         */
+        public Ubicacion(String parqueadero, int espacio, int ticket, long entradaMillis) {
+            this.parqueadero = parqueadero;
+            this.espacio = espacio;
+            this.ticket = ticket;
+            this.entradaMillis = entradaMillis;
+        }
+
+        /**
+         * Obtiene el nombre del parqueadero
+         *
+         * @return El parqueadero
+         */
+        public String getParqueadero() {
+            return parqueadero;
+        }
+
+        /**
+         * Obtiene el numero del espacio
+         *
+         * @return El espacio
+         */
+        public int getEspacio() {
+            return espacio;
+        }
+
+        /**
+         * Obtiene el numero del ticket
+         *
+         * @return El ticket
+         */
+        public int getTicket() {
+            return ticket;
+        }
+
+        /**
+         * Obtiene el momento de la entrada
+         *
+         * @return Los milisegundos desde la epoca
+         */
+        public long getEntradaMillis() {
+            return entradaMillis;
+        }
+    }
+
+    /**
+     * Segmentos del indice; cada uno se usa como su propio candado
+     */
+    private final HashMap<String, Ubicacion>[] segmentos;
+
+    /**
+     * Mascara para elegir el segmento de una placa
+     */
+    private final int mascara;
+
+    /**
+     * Constructor de la clase IndiceGlobalPlacas
+     */
+    public IndiceGlobalPlacas() {
+        this(SEGMENTOS);
+    }
+
+    /**
+     * Constructor de la clase IndiceGlobalPlacas
+     *
+     * @param numeroSegmentos El numero de segmentos (se redondea a potencia de 2)
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public IndiceGlobalPlacas(int numeroSegmentos) {
+        int tamano = 1;
+        while (tamano < numeroSegmentos) {
+            tamano <<= 1;
+        }
+        this.segmentos = new HashMap[tamano];
+        for (int i = 0; i < tamano; i++) {
+            segmentos[i] = new HashMap<String, Ubicacion>();
+        }
+        this.mascara = tamano - 1;
+    }
+
+    /**
+     * Obtiene el segmento de una placa
+     *
+     * @param placa La placa en mayusculas
+     * @return El segmento
+     */
+    private HashMap<String, Ubicacion> segmento(String placa) {
+        int h = placa.hashCode();
+        // Mezclar los bits altos, igual que HashMap, para que placas parecidas se repartan
+        return segmentos[(h ^ (h >>> 16)) & mascara];
+    }
+
+    /**
+     * Aparta una placa para un parqueadero antes de registrar su entrada.
+     * Es atomico: si dos parqueaderos intentan la misma placa a la vez solo uno la obtiene.
+     *
+     * @param placa La placa en mayusculas
+     * @param parqueadero El nombre del parqueadero que la quiere
+     * @return null si se aparto, o la ubicacion donde ya esta la placa
+     */
+    public Ubicacion reclamar(String placa, String parqueadero) {
+        HashMap<String, Ubicacion> segmento = segmento(placa);
+        synchronized (segmento) {
+            Ubicacion actual = segmento.get(placa);
+            if (actual != null) {
+                return actual;
+            }
+            segmento.put(placa, new Ubicacion(parqueadero, 0, 0, 0));
+            return null;
+        }
+    }
+
+    /**
+     * Completa la ubicacion de una placa ya apartada, una vez creado el ticket
+     *
+     * @param placa La placa en mayusculas
+     * @param ubicacion La ubicacion completa
+     */
+    public void registrar(String placa, Ubicacion ubicacion) {
+        HashMap<String, Ubicacion> segmento = segmento(placa);
+        synchronized (segmento) {
+            segmento.put(placa, ubicacion);
+        }
+    }
+
+    /**
+     * Quita una placa del indice, solo si esta en el parqueadero indicado
+     * (asi una salida tardia no borra la entrada de la placa en otro lado)
+     *
+     * @param placa La placa en mayusculas
+     * @param parqueadero El nombre del parqueadero
+     * @return true si se quito
+     */
+    public boolean quitar(String placa, String parqueadero) {
+        HashMap<String, Ubicacion> segmento = segmento(placa);
+        synchronized (segmento) {
+            Ubicacion actual = segmento.get(placa);
+            if (actual != null && actual.getParqueadero().equals(parqueadero)) {
+                segmento.remove(placa);
+                return true;
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Busca donde esta parqueada una placa
+     *
+     * @param placa La placa
+     * @return La ubicacion o null si no esta en ningun parqueadero
+     */
+    public Ubicacion buscar(String placa) {
+        placa = placa.trim().toUpperCase();
+        HashMap<String, Ubicacion> segmento = segmento(placa);
+        synchronized (segmento) {
+            return segmento.get(placa);
+        }
+    }
+
+    /**
+     * Cuenta las placas del indice
+     *
+     * @return El numero de vehiculos parqueados en toda la red
+     */
+    public int contarPlacas() {
+        int total = 0;
+        for (int i = 0; i < segmentos.length; i++) {
+            synchronized (segmentos[i]) {
+                total += segmentos[i].size();
+            }
+        }
+        return total;
+    }
+}
@@ -0,0 +1,448 @@
+package servicio;
+
+import com.sun.net.httpserver.HttpHandler;
+import modelo.Ticket;
+import utilidad.AnilloConsistente;
+import utilidad.Json;
+import utilidad.Validador;
+import utilidad.VentanaDuplicados;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Etapa de ingesta de las camaras lectoras de placas.
+ * Cada camara manda varias lecturas por vehiculo (5 a 20 cuadros, a veces
+ * con letras confundidas por el OCR). Las lecturas entran a una cola
+ * acotada; un solo hilo las saca por lotes, descarta las repetidas del
+ * mismo carril dentro de una ventana de tiempo y pasa al gestor solo una
+ * entrada o salida por vehiculo. Las lecturas que el gestor rechaza se
+ * descartan durante una ventana mas corta, asi un vehiculo rechazado no
+ * llega al gestor en cada cuadro pero se reintenta pronto.
+ * Si el gestor se atrasa la cola se llena
+ * y recibir() lo avisa a la camara (o recibirEsperando() la frena).
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class IngestaCamaras {
+
+    /**
+     * Maximo de lecturas que se sacan de la cola de una vez
+     */
+    public static final int TAMANO_LOTE = 64;
+
+    /**
+     * Ventana de duplicados por defecto
+     */
+    public static final long VENTANA_POR_DEFECTO_MILLIS = 30000;
+
+    /**
+     * Numero de cubetas de la ventana de duplicados
+     */
+    private static final int CUBETAS = 8;
+
+    /**
+     * La ventana de las lecturas rechazadas es la ventana normal dividida por este numero
+     */
+    private static final int DIVISOR_VENTANA_RECHAZADAS = 10;
+
+    /**
+     * Maximo de lecturas que se aplican por cada vez que se toma el candado del gestor,
+     * para no frenar mucho tiempo a las puertas y al API
+     */
+    public static final int LECTURAS_POR_CANDADO = 8;
+
+    /**
+     * Lectura de una camara
+     */
+    private static class Lectura {
+
+        /**
+         * Carril de la camara
+         */
+        private final String carril;
+
+        /**
+         * true si el carril es de entrada, false si es de salida
+         */
+        private final boolean entrada;
+
+        /**
+         * Placa leida
+         */
+        private final String placa;
+
+        /**
+         * Momento de la lectura en milisegundos
+         */
+        private final long momentoMillis;
+
+        /**
+         * Constructor de la lectura
+         *
+         * @param carril El carril
+         * @param entrada true si es de entrada
+         * @param placa La placa leida
+         * @param momentoMillis El momento de la lectura
+         */
+        Lectura(String carril, boolean entrada, String placa, long momentoMillis) {
+            this.carril = carril;
+            this.entrada = entrada;
+            this.placa = placa;
+            this.momentoMillis = momentoMillis;
+        }
+    }
+
+    /**
+     * Gestor al que llegan las entradas y salidas
+     */
+    private final GestorParqueadero gestor;
+
+    /**
+     * Cola acotada de lecturas pendientes
+     */
+    private final ArrayBlockingQueue<Lectura> cola;
+
+    /**
+     * Claves carril+sentido+placa vistas recientemente (solo la usa el hilo de ingesta)
+     */
+    private final VentanaDuplicados ventana;
+
+    /**
+     * Claves de lecturas que el gestor rechazo hace poco (solo la usa el hilo de ingesta)
+     */
+    private final VentanaDuplicados ventanaRechazadas;
+
+    /**
+     * Lecturas recibidas
+     */
+    private final AtomicLong recibidas;
+
+    /**
+     * Lecturas rechazadas porque la cola estaba llena
+     */
+    private final AtomicLong rechazadas;
+
+    /**
+     * Lecturas descartadas por placa invalida
+     */
+    private final AtomicLong invalidas;
+
+    /**
+     * Lecturas descartadas por repetidas
+     */
+    private final AtomicLong duplicadas;
+
+    /**
+     * Entradas y salidas que el gestor acepto
+     */
+    private final AtomicLong aplicadas;
+
+    /**
+     * Entradas y salidas que el gestor no acepto (por ejemplo una salida sin entrada)
+     */
+    private final AtomicLong noAceptadas;
+
+    /**
+     * Lotes procesados
+     */
+    private final AtomicLong lotes;
+
+    /**
+     * Hilo de ingesta (null si no se inicio)
+     */
+    private Thread hilo;
+
+    /**
+     * Indica si la ingesta esta activa
+     */
+    private volatile boolean activa;
+
+    /**
+     * Constructor de la clase IngestaCamaras
+     *
+     * @param gestor El gestor del parqueadero
+     * @param capacidadCola Maximo de lecturas en espera
+     * @param ventanaMillis Tiempo durante el que una placa repetida en el mismo carril se descarta
+     */
+    public IngestaCamaras(GestorParqueadero gestor, int capacidadCola, long ventanaMillis) {
+        this.gestor = gestor;
+        this.cola = new ArrayBlockingQueue<Lectura>(capacidadCola);
+        this.ventana = new VentanaDuplicados(ventanaMillis, CUBETAS);
+        this.ventanaRechazadas = new VentanaDuplicados(Math.max(1, ventanaMillis / DIVISOR_VENTANA_RECHAZADAS),
+                CUBETAS);
+        this.recibidas = new AtomicLong();
+        this.rechazadas = new AtomicLong();
+        this.invalidas = new AtomicLong();
+        this.duplicadas = new AtomicLong();
+        this.aplicadas = new AtomicLong();
+        this.noAceptadas = new AtomicLong();
+        this.lotes = new AtomicLong();
+    }
+
+    /**
+     * Empieza a procesar lecturas en un hilo de fondo
+     */
+    public synchronized void iniciar() {
+        if (hilo != null) {
+            return;
+        }
+        activa = true;
+        hilo = new Thread(this::procesar, "ingesta-" + gestor.getParqueadero().getNombre());
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Detiene la ingesta despues de procesar lo que ya esta en la cola
+     */
+    public synchronized void detener() {
+        activa = false;
+        if (hilo != null) {
+            try {
+                hilo.join(5000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            hilo = null;
+        }
+    }
+
+    /**
+     * Recibe una lectura sin esperar
+     *
+     * @param carril El carril de la camara
+     * @param entrada true si el carril es de entrada, false si es de salida
+     * @param placa La placa leida
+     * @return true si se encolo, false si la cola esta llena (el gestor va atrasado)
+     */
+    public boolean recibir(String carril, boolean entrada, String placa) {
+        recibidas.incrementAndGet();
+        if (!cola.offer(new Lectura(carril, entrada, placa, System.currentTimeMillis()))) {
+            rechazadas.incrementAndGet();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Recibe una lectura esperando a que haya espacio en la cola
+     *
+     * @param carril El carril de la camara
+     * @param entrada true si el carril es de entrada, false si es de salida
+     * @param placa La placa leida
+     * @throws InterruptedException Si se interrumpe la espera
+     */
+    public void recibirEsperando(String carril, boolean entrada, String placa) throws InterruptedException {
+        recibidas.incrementAndGet();
+        cola.put(new Lectura(carril, entrada, placa, System.currentTimeMillis()));
+    }
+
+    /**
+     * Saca lecturas de la cola por lotes y las aplica hasta que se detenga
+     */
+    private void procesar() {
+        ArrayList<Lectura> lote = new ArrayList<Lectura>(TAMANO_LOTE);
+        while (activa || !cola.isEmpty()) {
+            try {
+                Lectura primera = cola.poll(200, TimeUnit.MILLISECONDS);
+                if (primera == null) {
+                    continue;
+                }
+                lote.add(primera);
+                cola.drainTo(lote, TAMANO_LOTE - 1);
+                aplicarLote(lote);
+            } catch (InterruptedException e) {
+                return;
+            } finally {
+                lote.clear();
+            }
+        }
+    }
+
+    /**
+     * Descarta las lecturas invalidas y repetidas de un lote y pasa el resto al gestor.
+     * Una lectura aceptada entra a la ventana normal. Una rechazada (por ejemplo
+     * una salida antes de registrar la entrada) entra a la ventana corta y no se
+     * refresca, asi los cuadros siguientes no llegan al gestor pero el vehiculo
+     * se vuelve a intentar cuando pasa la ventana corta.
+     *
+     * @param lote Las lecturas
+     */
+    private void aplicarLote(ArrayList<Lectura> lote) {
+        ArrayList<Lectura> nuevas = new ArrayList<Lectura>(lote.size());
+        long[] claves = new long[lote.size()];
+        for (int i = 0; i < lote.size(); i++) {
+            Lectura lectura = lote.get(i);
+            if (!Validador.validarPlaca(lectura.placa)) {
+                invalidas.incrementAndGet();
+                continue;
+            }
+            long clave = AnilloConsistente.hash(lectura.carril + (lectura.entrada ? "|E|" : "|S|")
+                    + Validador.plegarOcr(lectura.placa));
+            if (ventana.estaVista(clave, lectura.momentoMillis)) {
+                // Un vehiculo que sigue frente a la camara mantiene abierta su ventana
+                ventana.registrar(clave, lectura.momentoMillis);
+                duplicadas.incrementAndGet();
+            } else if (ventanaRechazadas.estaVista(clave, lectura.momentoMillis)) {
+                duplicadas.incrementAndGet();
+            } else {
+                claves[nuevas.size()] = clave;
+                nuevas.add(lectura);
+            }
+        }
+
+        // El candado del gestor se toma por tramos cortos del lote, no por el lote completo
+        for (int inicio = 0; inicio < nuevas.size(); inicio += LECTURAS_POR_CANDADO) {
+            int fin = Math.min(nuevas.size(), inicio + LECTURAS_POR_CANDADO);
+            synchronized (gestor) {
+                for (int i = inicio; i < fin; i++) {
+                    aplicarLectura(nuevas.get(i), claves[i]);
+                }
+            }
+        }
+        lotes.incrementAndGet();
+    }
+
+    /**
+     * Pasa una lectura al gestor y registra su clave; se llama con el candado del gestor
+     *
+     * @param lectura La lectura
+     * @param clave La clave carril+sentido+placa de la lectura
+     */
+    private void aplicarLectura(Lectura lectura, long clave) {
+        // Otra lectura del mismo vehiculo en este lote pudo ser aceptada o rechazada antes
+        if (ventana.estaVista(clave, lectura.momentoMillis)) {
+            ventana.registrar(clave, lectura.momentoMillis);
+            duplicadas.incrementAndGet();
+            return;
+        }
+        if (ventanaRechazadas.estaVista(clave, lectura.momentoMillis)) {
+            duplicadas.incrementAndGet();
+            return;
+        }
+
+        Ticket ticket = lectura.entrada
+                ? gestor.registrarEntrada(lectura.placa)
+                : gestor.registrarSalida(lectura.placa);
+        if (ticket != null) {
+            ventana.registrar(clave, lectura.momentoMillis);
+            aplicadas.incrementAndGet();
+        } else {
+            ventanaRechazadas.registrar(clave, lectura.momentoMillis);
+            noAceptadas.incrementAndGet();
+        }
+    }
+
+    /**
+     * Obtiene el numero de lecturas en espera
+     *
+     * @return Las lecturas en la cola
+     */
+    public int contarPendientes() {
+        return cola.size();
+    }
+
+    /**
+     * Obtiene el numero de entradas y salidas que el gestor acepto
+     *
+     * @return Las lecturas aplicadas
+     */
+    public long getAplicadas() {
+        return aplicadas.get();
+    }
+
+    /**
+     * Obtiene el numero de entradas y salidas que el gestor no acepto
+     *
+     * @return Las lecturas no aceptadas
+     */
+    public long getNoAceptadas() {
+        return noAceptadas.get();
+    }
+
+    /**
+     * Obtiene el numero de lecturas descartadas por placa invalida
+     *
+     * @return Las lecturas invalidas
+     */
+    public long getInvalidas() {
+        return invalidas.get();
+    }
+
+    /**
+     * Obtiene el numero de lecturas descartadas por repetidas
+     *
+     * @return Las lecturas duplicadas
+     */
+    public long getDuplicadas() {
+        return duplicadas.get();
+    }
+
+    /**
+     * Muestra los contadores de la ingesta como JSON
+     *
+     * @return El JSON con los contadores
+     */
+    public String mostrarJson() {
+        StringBuilder json = new StringBuilder("{");
+        Json.campo(json, "recibidas", recibidas.get()).append(',');
+        Json.campo(json, "rechazadasColaLlena", rechazadas.get()).append(',');
+        Json.campo(json, "invalidas", invalidas.get()).append(',');
+        Json.campo(json, "duplicadas", duplicadas.get()).append(',');
+        Json.campo(json, "aplicadas", aplicadas.get()).append(',');
+        Json.campo(json, "noAceptadas", noAceptadas.get()).append(',');
+        Json.campo(json, "lotes", lotes.get()).append(',');
+        Json.campo(json, "pendientes", cola.size()).append(',');
+        Json.campo(json, "capacidadCola", cola.size() + cola.remainingCapacity());
+        return json.append('}').toString();
+    }
+
+    /**
+     * Crea el manejador HTTP de las camaras.
+     * POST ?carril=E1&amp;sentido=E|S&amp;placa=ABC123 encola una lectura (202, o 503 si
+     * la cola esta llena); GET devuelve los contadores.
+     *
+     * @return El manejador
+     */
+    public HttpHandler manejadorHttp() {
+        return intercambio -> {
+            int codigo;
+            String cuerpo;
+            String consulta = intercambio.getRequestURI().getRawQuery();
+
+            if (intercambio.getRequestMethod().equals("GET")) {
+                codigo = 200;
+                cuerpo = mostrarJson();
+            } else if (!intercambio.getRequestMethod().equals("POST")) {
+                codigo = 405;
+                cuerpo = Json.error("Metodo no permitido");
+            } else {
+                String carril = ServidorApi.leerParametro(consulta, "carril");
+                String sentido = ServidorApi.leerParametro(consulta, "sentido");
+                String placa = ServidorApi.leerParametro(consulta, "placa");
+                if (carril == null || placa == null || sentido == null
+                        || !(sentido.equals("E") || sentido.equals("S"))) {
+                    codigo = 400;
+                    cuerpo = Json.error("Faltan carril, sentido (E o S) o placa");
+                } else if (recibir(carril, sentido.equals("E"), placa)) {
+                    codigo = 202;
+                    cuerpo = "{\"aceptada\":true}";
+                } else {
+                    codigo = 503;
+                    cuerpo = Json.error("Cola de lecturas llena, reintente");
+                    intercambio.getResponseHeaders().set("Retry-After", "1");
+                }
+            }
+
+            byte[] bytes = cuerpo.getBytes(StandardCharsets.UTF_8);
+            intercambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            intercambio.sendResponseHeaders(codigo, bytes.length);
+            intercambio.getResponseBody().write(bytes);
+            intercambio.close();
+        };
+    }
+}
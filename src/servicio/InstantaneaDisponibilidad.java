@@ -0,0 +1,305 @@
+package servicio;
+
+import modelo.Espacio;
+import modelo.Parqueadero;
+import utilidad.Json;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * Foto de la disponibilidad de un parqueadero en una version; no cambia
+ * una vez creada. Guarda los conteos, el texto de la consola y el JSON ya
+ * convertido a bytes, asi los letreros, apps y kioscos que preguntan cada
+ * segundo la leen sin candados ni recorrer los espacios. El gestor crea
+ * una nueva solo cuando cambia la version del parqueadero.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class InstantaneaDisponibilidad {
+
+    /**
+     * Nombre del parqueadero
+     */
+    private final String parqueadero;
+
+    /**
+     * Version de la disponibilidad del parqueadero en la que se tomo
+     */
+    private final long version;
+
+    /**
+     * Capacidad total del parqueadero
+     */
+    private final int capacidad;
+
+    /**
+     * Espacios disponibles
+     */
+    private final int disponibles;
+
+    /**
+     * Espacios ocupados
+     */
+    private final int ocupados;
+
+    /**
+     * Espacios reservados
+     */
+    private final int reservados;
+
+    /**
+     * Espacios de auto
+     */
+    private final int espaciosAuto;
+
+    /**
+     * Espacios de auto disponibles
+     */
+    private final int disponiblesAuto;
+
+    /**
+     * Espacios de auto ocupados
+     */
+    private final int ocupadosAuto;
+
+    /**
+     * Espacios de moto
+     */
+    private final int espaciosMoto;
+
+    /**
+     * Espacios de moto disponibles
+     */
+    private final int disponiblesMoto;
+
+    /**
+     * Espacios de moto ocupados
+     */
+    private final int ocupadosMoto;
+
+    /**
+     * Texto de disponibilidad para la consola
+     */
+    private final String texto;
+
+    /**
+     * JSON de disponibilidad en UTF-8
+     */
+    private final byte[] json;
+
+    /**
+     * Toma la foto de un parqueadero; se llama con el candado del gestor
+     *
+     * @param parqueadero El parqueadero
+     * @param version La version de disponibilidad del parqueadero
+     */
+    InstantaneaDisponibilidad(Parqueadero parqueadero, long version) {
+        this.parqueadero = parqueadero.getNombre();
+        this.version = version;
+        this.capacidad = parqueadero.getCapacidadTotal();
+
+        // Un solo recorrido de los espacios para todos los conteos
+        int disponibles = 0;
+        int ocupados = 0;
+        int reservados = 0;
+        int espaciosAuto = 0;
+        int disponiblesAuto = 0;
+        int ocupadosAuto = 0;
+        int espaciosMoto = 0;
+        int disponiblesMoto = 0;
+        int ocupadosMoto = 0;
+
+        ArrayList<Espacio> espacios = parqueadero.getEspacios();
+        for (int i = 0; i < espacios.size(); i++) {
+            Espacio espacio = espacios.get(i);
+            boolean disponible = espacio.estaDisponible();
+            if (disponible) {
+                disponibles++;
+            }
+            if (espacio.isOcupado()) {
+                ocupados++;
+            }
+            if (espacio.isReservado()) {
+                reservados++;
+            }
+
+            if ("AUTO".equals(espacio.getTipoVehiculo())) {
+                espaciosAuto++;
+                disponiblesAuto += disponible ? 1 : 0;
+                ocupadosAuto += espacio.isOcupado() ? 1 : 0;
+            } else if ("MOTO".equals(espacio.getTipoVehiculo())) {
+                espaciosMoto++;
+                disponiblesMoto += disponible ? 1 : 0;
+                ocupadosMoto += espacio.isOcupado() ? 1 : 0;
+            }
+        }
+
+        this.disponibles = disponibles;
+        this.ocupados = ocupados;
+        this.reservados = reservados;
+        this.espaciosAuto = espaciosAuto;
+        this.disponiblesAuto = disponiblesAuto;
+        this.ocupadosAuto = ocupadosAuto;
+        this.espaciosMoto = espaciosMoto;
+        this.disponiblesMoto = disponiblesMoto;
+        this.ocupadosMoto = ocupadosMoto;
+        this.texto = armarTexto(parqueadero);
+        this.json = armarJson().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Arma el texto de disponibilidad que muestra la consola
+     *
+     * @param parqueadero El parqueadero
+     * @return El texto
+     */
+    private String armarTexto(Parqueadero parqueadero) {
+        StringBuilder reporte = new StringBuilder();
+        try {
+            parqueadero.escribirInformacion(reporte);
+        } catch (IOException e) {
+            // Un StringBuilder no lanza IOException
+        }
+
+        // En el detalle por tipo un espacio reservado cuenta como ocupado
+        reporte.append("\n--- Detalle por Tipo ---\n");
+        reporte.append("AUTOS - Disponibles: ").append(disponiblesAuto);
+        reporte.append(" | Ocupados: ").append(espaciosAuto - disponiblesAuto).append("\n");
+        reporte.append("MOTOS - Disponibles: ").append(disponiblesMoto);
+        reporte.append(" | Ocupados: ").append(espaciosMoto - disponiblesMoto).append("\n");
+        return reporte.toString();
+    }
+
+    /**
+     * Arma el JSON de disponibilidad que devuelve la API
+     *
+     * @return El JSON
+     */
+    private String armarJson() {
+        StringBuilder json = new StringBuilder("{");
+        Json.campo(json, "parqueadero", parqueadero).append(',');
+        Json.campo(json, "version", version).append(',');
+        Json.campo(json, "capacidad", capacidad).append(',');
+        Json.campo(json, "disponibles", disponibles).append(',');
+        Json.campo(json, "ocupados", ocupados).append(',');
+        Json.campo(json, "reservados", reservados).append(',');
+        Json.texto(json, "AUTO").append(":{");
+        Json.campo(json, "disponibles", disponiblesAuto).append(',');
+        Json.campo(json, "ocupados", ocupadosAuto).append("},");
+        Json.texto(json, "MOTO").append(":{");
+        Json.campo(json, "disponibles", disponiblesMoto).append(',');
+        Json.campo(json, "ocupados", ocupadosMoto).append('}');
+        return json.append('}').toString();
+    }
+
+    /**
+     * Obtiene el nombre del parqueadero
+     *
+     * @return El nombre
+     */
+    public String getParqueadero() {
+        return parqueadero;
+    }
+
+    /**
+     * Obtiene la version de disponibilidad en la que se tomo la foto
+     *
+     * @return La version
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * Obtiene la capacidad total
+     *
+     * @return La capacidad
+     */
+    public int getCapacidad() {
+        return capacidad;
+    }
+
+    /**
+     * Obtiene los espacios disponibles
+     *
+     * @return Los espacios disponibles
+     */
+    public int getDisponibles() {
+        return disponibles;
+    }
+
+    /**
+     * Obtiene los espacios ocupados
+     *
+     * @return Los espacios ocupados
+     */
+    public int getOcupados() {
+        return ocupados;
+    }
+
+    /**
+     * Obtiene los espacios reservados
+     *
+     * @return Los espacios reservados
+     */
+    public int getReservados() {
+        return reservados;
+    }
+
+    /**
+     * Obtiene los espacios de auto
+     *
+     * @return Los espacios de auto
+     */
+    public int getEspaciosAuto() {
+        return espaciosAuto;
+    }
+
+    /**
+     * Obtiene los espacios de moto
+     *
+     * @return Los espacios de moto
+     */
+    public int getEspaciosMoto() {
+        return espaciosMoto;
+    }
+
+    /**
+     * Obtiene los espacios de auto disponibles
+     *
+     * @return Los espacios de auto disponibles
+     */
+    public int getDisponiblesAuto() {
+        return disponiblesAuto;
+    }
+
+    /**
+     * Obtiene los espacios de moto disponibles
+     *
+     * @return Los espacios de moto disponibles
+     */
+    public int getDisponiblesMoto() {
+        return disponiblesMoto;
+    }
+
+    /**
+     * Obtiene el texto de disponibilidad para la consola
+     *
+     * @return El texto
+     */
+    public String getTexto() {
+        return texto;
+    }
+
+    /**
+     * Obtiene el JSON de disponibilidad ya convertido a UTF-8.
+     * Es el mismo arreglo para todos los lectores: no se debe modificar.
+     *
+     * @return Los bytes del JSON
+     */
+    public byte[] getJson() {
+        return json;
+    }
+}
@@ -0,0 +1,412 @@
+package servicio;
+
+import com.sun.net.httpserver.HttpHandler;
+import utilidad.HistogramaLatencia;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Registro de metricas del parqueadero: contadores, medidores y
+ * latencias. Las latencias se exportan como histogramas de Prometheus
+ * (conteos acumulados por limite), asi los percentiles se calculan sobre
+ * la ventana que se quiera con histogram_quantile(rate(...)) y no quedan
+ * fijos en lo acumulado desde que arranco el proceso. Los contadores son LongAdder (repartidos entre celdas, asi
+ * las puertas no compiten por una sola) y las latencias usan
+ * HistogramaLatencia; registrar un valor no toma candados ni crea objetos.
+ * Quien mide pide su instrumento una vez y lo guarda; el registro solo se
+ * recorre al exportar, en formato de texto de Prometheus (manejadorHttp())
+ * o en una linea de log periodica.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class Metricas {
+
+    /**
+     * Registro compartido por los gestores y el manejo de archivos
+     */
+    public static final Metricas GENERAL = new Metricas();
+
+    /**
+     * Tipo de serie: contador que solo crece
+     */
+    private static final String CONTADOR = "counter";
+
+    /**
+     * Tipo de serie: medidor que sube y baja
+     */
+    private static final String MEDIDOR = "gauge";
+
+    /**
+     * Tipo de serie: latencias por cubetas
+     */
+    private static final String LATENCIA = "histogram";
+
+    /**
+     * Limites de las cubetas que se exportan de cada latencia, en nanosegundos
+     */
+    private static final long[] LIMITES_NANOS = {
+        10_000L, 50_000L, 100_000L, 250_000L, 500_000L, 1_000_000L, 2_500_000L, 5_000_000L,
+        10_000_000L, 25_000_000L, 50_000_000L, 100_000_000L, 250_000_000L, 500_000_000L,
+        1_000_000_000L, 2_500_000_000L
+    };
+
+    /**
+     * Etiqueta le de cada limite exportado, en segundos
+     */
+    private static final String[] LIMITES_SEGUNDOS = {
+        "0.00001", "0.00005", "0.0001", "0.00025", "0.0005", "0.001", "0.0025", "0.005",
+        "0.01", "0.025", "0.05", "0.1", "0.25", "0.5", "1", "2.5"
+    };
+
+    /**
+     * Serie de metricas: un nombre con unas etiquetas
+     */
+    private static class Serie {
+
+        /**
+         * Nombre de la metrica
+         */
+        private final String nombre;
+
+        /**
+         * Etiquetas ya escritas como {clave="valor",...} (vacio si no tiene)
+         */
+        private final String etiquetas;
+
+        /**
+         * Descripcion de la metrica
+         */
+        private final String ayuda;
+
+        /**
+         * Tipo de la metrica (counter, gauge o histogram)
+         */
+        private final String tipo;
+
+        /**
+         * Contador (solo en las series de tipo counter)
+         */
+        private final LongAdder contador;
+
+        /**
+         * Funcion que lee el valor (solo en las series de tipo gauge)
+         */
+        private volatile LongSupplier medidor;
+
+        /**
+         * Latencias en nanosegundos (solo en las series de tipo histogram)
+         */
+        private final HistogramaLatencia latencias;
+
+        /**
+         * Constructor de la serie
+         *
+         * @param nombre El nombre
+         * @param etiquetas Las etiquetas ya escritas
+         * @param ayuda La descripcion
+         * @param tipo El tipo
+         */
+        Serie(String nombre, String etiquetas, String ayuda, String tipo) {
+            this.nombre = nombre;
+            this.etiquetas = etiquetas;
+            this.ayuda = ayuda;
+            this.tipo = tipo;
+            this.contador = tipo.equals(CONTADOR) ? new LongAdder() : null;
+            this.latencias = tipo.equals(LATENCIA) ? new HistogramaLatencia() : null;
+        }
+    }
+
+    /**
+     * Series por nombre y etiquetas; el separador \0 deja juntas las series de un mismo nombre
+     */
+    private final ConcurrentSkipListMap<String, Serie> series;
+
+    /**
+     * Hilo que escribe la linea de log periodica (null si no se inicio)
+     */
+    private ScheduledExecutorService registroPeriodico;
+
+    /**
+     * Constructor de la clase Metricas
+     */
+    public Metricas() {
+        this.series = new ConcurrentSkipListMap<String, Serie>();
+    }
+
+    /**
+     * Obtiene un contador, creandolo la primera vez
+     *
+     * @param nombre El nombre de la metrica (ej. parqueadero_entradas_total)
+     * @param ayuda La descripcion
+     * @param etiquetas Pares clave, valor (ej. "parqueadero", "NORTE")
+     * @return El contador
+     */
+    public LongAdder contador(String nombre, String ayuda, String... etiquetas) {
+        return obtener(nombre, ayuda, CONTADOR, etiquetas).contador;
+    }
+
+    /**
+     * Obtiene una latencia, creandola la primera vez. Los valores se registran
+     * en nanosegundos y se exportan en segundos.
+     *
+     * @param nombre El nombre de la metrica (ej. parqueadero_entrada_segundos)
+     * @param ayuda La descripcion
+     * @param etiquetas Pares clave, valor
+     * @return El histograma de latencias
+     */
+    public HistogramaLatencia latencia(String nombre, String ayuda, String... etiquetas) {
+        return obtener(nombre, ayuda, LATENCIA, etiquetas).latencias;
+    }
+
+    /**
+     * Registra un medidor; si ya existia se cambia la funcion que lo lee
+     *
+     * @param nombre El nombre de la metrica (ej. parqueadero_espacios_disponibles)
+     * @param ayuda La descripcion
+     * @param valor La funcion que lee el valor al exportar (no debe tomar candados largos)
+     * @param etiquetas Pares clave, valor
+     */
+    public void medidor(String nombre, String ayuda, LongSupplier valor, String... etiquetas) {
+        obtener(nombre, ayuda, MEDIDOR, etiquetas).medidor = valor;
+    }
+
+    /**
+     * Quita un medidor, solo si todavia lo lee la misma funcion (si otro ya lo
+     * volvio a registrar, por ejemplo un parqueadero que se recargo, se deja)
+     *
+     * @param nombre El nombre de la metrica
+     * @param valor La funcion con la que se registro
+     * @param etiquetas Pares clave, valor
+     */
+    public void quitarMedidor(String nombre, LongSupplier valor, String... etiquetas) {
+        series.computeIfPresent(nombre + '\0' + escribirEtiquetas(etiquetas),
+                (clave, serie) -> serie.medidor == valor ? null : serie);
+    }
+
+    /**
+     * Busca una serie o la crea
+     *
+     * @param nombre El nombre
+     * @param ayuda La descripcion
+     * @param tipo El tipo
+     * @param etiquetas Pares clave, valor
+     * @return La serie
+     */
+    private Serie obtener(String nombre, String ayuda, String tipo, String[] etiquetas) {
+        String texto = escribirEtiquetas(etiquetas);
+        Serie serie = series.computeIfAbsent(nombre + '\0' + texto, clave -> new Serie(nombre, texto, ayuda, tipo));
+        if (!serie.tipo.equals(tipo)) {
+            // Se devuelve una serie suelta para que quien mide no falle, pero no se exporta
+            System.out.println("Error: La metrica " + nombre + " ya existe con tipo " + serie.tipo);
+            return new Serie(nombre, texto, ayuda, tipo);
+        }
+        return serie;
+    }
+
+    /**
+     * Escribe las etiquetas en el formato de Prometheus
+     *
+     * @param etiquetas Pares clave, valor
+     * @return Las etiquetas como {clave="valor",...} o vacio
+     */
+    private static String escribirEtiquetas(String[] etiquetas) {
+        if (etiquetas.length < 2) {
+            return "";
+        }
+        StringBuilder texto = new StringBuilder("{");
+        for (int i = 0; i + 1 < etiquetas.length; i += 2) {
+            if (i > 0) {
+                texto.append(',');
+            }
+            texto.append(etiquetas[i]).append("=\"");
+            String valor = etiquetas[i + 1];
+            for (int j = 0; j < valor.length(); j++) {
+                char c = valor.charAt(j);
+                if (c == '\\' || c == '"') {
+                    texto.append('\\').append(c);
+                } else if (c == '\n') {
+                    texto.append("\\n");
+                } else {
+                    texto.append(c);
+                }
+            }
+            texto.append('"');
+        }
+        return texto.append('}').toString();
+    }
+
+    /**
+     * Agrega una etiqueta mas a unas etiquetas ya escritas
+     *
+     * @param etiquetas Las etiquetas ({...} o vacio)
+     * @param clave La clave nueva
+     * @param valor El valor nuevo
+     * @return Las etiquetas con la nueva
+     */
+    private static String agregarEtiqueta(String etiquetas, String clave, String valor) {
+        String nueva = clave + "=\"" + valor + "\"";
+        if (etiquetas.isEmpty()) {
+            return "{" + nueva + "}";
+        }
+        return etiquetas.substring(0, etiquetas.length() - 1) + "," + nueva + "}";
+    }
+
+    /**
+     * Lee el valor de un medidor sin dejar que un error corte la exportacion
+     *
+     * @param serie La serie de tipo gauge
+     * @return El valor, o 0 si la lectura falla
+     */
+    private static long leerMedidor(Serie serie) {
+        LongSupplier medidor = serie.medidor;
+        try {
+            return medidor == null ? 0 : medidor.getAsLong();
+        } catch (RuntimeException e) {
+            return 0;
+        }
+    }
+
+    /**
+     * Escribe todas las metricas en el formato de texto de Prometheus
+     *
+     * @param salida Donde se escriben
+     * @throws IOException Si falla la escritura
+     */
+    public void escribirPrometheus(Appendable salida) throws IOException {
+        String anterior = null;
+        for (Serie serie : series.values()) {
+            if (!serie.nombre.equals(anterior)) {
+                salida.append("# HELP ").append(serie.nombre).append(' ').append(serie.ayuda).append('\n');
+                salida.append("# TYPE ").append(serie.nombre).append(' ').append(serie.tipo).append('\n');
+                anterior = serie.nombre;
+            }
+
+            if (serie.contador != null) {
+                salida.append(serie.nombre).append(serie.etiquetas).append(' ')
+                        .append(String.valueOf(serie.contador.sum())).append('\n');
+            } else if (serie.latencias != null) {
+                // El conteo sale de las mismas cubetas, asi +Inf y _count siempre coinciden
+                long[] conteos = serie.latencias.contarHasta(LIMITES_NANOS);
+                for (int i = 0; i < LIMITES_NANOS.length; i++) {
+                    salida.append(serie.nombre).append("_bucket")
+                            .append(agregarEtiqueta(serie.etiquetas, "le", LIMITES_SEGUNDOS[i]))
+                            .append(' ').append(String.valueOf(conteos[i])).append('\n');
+                }
+                long total = conteos[LIMITES_NANOS.length];
+                salida.append(serie.nombre).append("_bucket").append(agregarEtiqueta(serie.etiquetas, "le", "+Inf"))
+                        .append(' ').append(String.valueOf(total)).append('\n');
+                salida.append(serie.nombre).append("_sum").append(serie.etiquetas).append(' ')
+                        .append(String.valueOf(serie.latencias.getSuma() / 1e9)).append('\n');
+                salida.append(serie.nombre).append("_count").append(serie.etiquetas).append(' ')
+                        .append(String.valueOf(total)).append('\n');
+            } else {
+                salida.append(serie.nombre).append(serie.etiquetas).append(' ')
+                        .append(String.valueOf(leerMedidor(serie))).append('\n');
+            }
+        }
+    }
+
+    /**
+     * Muestra todas las metricas en el formato de texto de Prometheus
+     *
+     * @return El texto
+     */
+    public String mostrarPrometheus() {
+        StringBuilder texto = new StringBuilder();
+        try {
+            escribirPrometheus(texto);
+        } catch (IOException e) {
+            // Un StringBuilder no lanza IOException
+        }
+        return texto.toString();
+    }
+
+    /**
+     * Muestra las metricas en una sola linea para el log. Los contadores y
+     * medidores van como nombre{etiquetas}=valor y las latencias con su
+     * conteo, p50 y p99 en microsegundos; se omiten los contadores en cero.
+     *
+     * @return La linea
+     */
+    public String mostrarResumen() {
+        StringBuilder linea = new StringBuilder("[metricas]");
+        for (Serie serie : series.values()) {
+            if (serie.contador != null) {
+                long valor = serie.contador.sum();
+                if (valor != 0) {
+                    linea.append(' ').append(serie.nombre).append(serie.etiquetas).append('=').append(valor);
+                }
+            } else if (serie.latencias != null) {
+                HistogramaLatencia latencias = serie.latencias;
+                if (latencias.getConteo() != 0) {
+                    linea.append(' ').append(serie.nombre).append(serie.etiquetas)
+                            .append(String.format("=n:%d,p50:%.1fus,p99:%.1fus", latencias.getConteo(),
+                                    latencias.percentil(50) / 1000.0, latencias.percentil(99) / 1000.0));
+                }
+            } else {
+                linea.append(' ').append(serie.nombre).append(serie.etiquetas).append('=').append(leerMedidor(serie));
+            }
+        }
+        return linea.toString();
+    }
+
+    /**
+     * Empieza a escribir la linea de metricas en consola cada cierto tiempo
+     *
+     * @param segundos Segundos entre lineas
+     */
+    public synchronized void iniciarRegistroPeriodico(long segundos) {
+        if (registroPeriodico != null) {
+            return;
+        }
+
+        registroPeriodico = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "registro-metricas");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        registroPeriodico.scheduleAtFixedRate(() -> System.out.println(mostrarResumen()),
+                segundos, segundos, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Detiene la linea de metricas periodica
+     */
+    public synchronized void detenerRegistroPeriodico() {
+        if (registroPeriodico != null) {
+            registroPeriodico.shutdownNow();
+            registroPeriodico = null;
+        }
+    }
+
+    /**
+     * Obtiene el numero de series registradas
+     *
+     * @return Las series
+     */
+    public int contarSeries() {
+        return series.size();
+    }
+
+    /**
+     * Crea el manejador HTTP que devuelve las metricas para Prometheus (GET /metricas)
+     *
+     * @return El manejador
+     */
+    public HttpHandler manejadorHttp() {
+        return intercambio -> {
+            byte[] bytes = mostrarPrometheus().getBytes(StandardCharsets.UTF_8);
+            intercambio.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+            intercambio.sendResponseHeaders(200, bytes.length);
+            intercambio.getResponseBody().write(bytes);
+            intercambio.close();
+        };
+    }
+}
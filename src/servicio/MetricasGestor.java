@@ -0,0 +1,235 @@
+package servicio;
+
+import utilidad.HistogramaLatencia;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+/**
+ * Instrumentos de metricas de un gestor, pedidos al registro una sola vez
+ * al crearse. Asi las entradas y salidas solo suman en contadores y
+ * histogramas ya resueltos, sin buscar series ni armar etiquetas.
+ * Todas las series llevan la etiqueta parqueadero.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class MetricasGestor {
+
+    /**
+     * Motivo de rechazo: la placa no es valida
+     */
+    public static final int PLACA_INVALIDA = 0;
+
+    /**
+     * Motivo de rechazo: la placa esta en la lista de bloqueadas
+     */
+    public static final int PLACA_BLOQUEADA = 1;
+
+    /**
+     * Motivo de rechazo: el vehiculo ya esta en este parqueadero
+     */
+    public static final int DUPLICADA = 2;
+
+    /**
+     * Motivo de rechazo: no se pudo identificar el tipo de vehiculo
+     */
+    public static final int TIPO_DESCONOCIDO = 3;
+
+    /**
+     * Motivo de rechazo: el vehiculo ya esta en otro parqueadero de la red
+     */
+    public static final int EN_OTRO_PARQUEADERO = 4;
+
+    /**
+     * Motivo de rechazo: no hay espacios para el tipo de vehiculo
+     */
+    public static final int SIN_ESPACIOS = 5;
+
+    /**
+     * Motivo de rechazo: la salida no tiene un vehiculo parqueado
+     */
+    public static final int NO_ENCONTRADO = 6;
+
+    /**
+     * Valor de la etiqueta motivo para cada constante de rechazo
+     */
+    private static final String[] MOTIVOS = {
+        "placa_invalida", "placa_bloqueada", "duplicada", "tipo_desconocido",
+        "en_otro_parqueadero", "sin_espacios", "no_encontrado"
+    };
+
+    /**
+     * Entradas registradas
+     */
+    private final LongAdder entradas;
+
+    /**
+     * Salidas registradas
+     */
+    private final LongAdder salidas;
+
+    /**
+     * Rechazos por motivo
+     */
+    private final LongAdder[] rechazos;
+
+    /**
+     * Duracion de registrarEntrada, registrada o no
+     */
+    private final HistogramaLatencia latenciaEntrada;
+
+    /**
+     * Duracion de registrarSalida, registrada o no
+     */
+    private final HistogramaLatencia latenciaSalida;
+
+    /**
+     * Duracion de la busqueda de espacio (reserva o espacio libre)
+     */
+    private final HistogramaLatencia latenciaAsignacion;
+
+    /**
+     * Duracion del calculo de la tarifa
+     */
+    private final HistogramaLatencia latenciaTarifa;
+
+    /**
+     * Registro donde estan las series
+     */
+    private final Metricas registro;
+
+    /**
+     * Nombre del parqueadero (valor de la etiqueta parqueadero)
+     */
+    private final String nombre;
+
+    /**
+     * Lectura de los espacios disponibles; guarda una referencia al gestor
+     */
+    private final LongSupplier disponibles;
+
+    /**
+     * Lectura de los espacios ocupados; guarda una referencia al gestor
+     */
+    private final LongSupplier ocupados;
+
+    /**
+     * Lectura de los espacios reservados; guarda una referencia al gestor
+     */
+    private final LongSupplier reservados;
+
+    /**
+     * Constructor de la clase MetricasGestor; registra las series del gestor
+     *
+     * @param registro El registro de metricas
+     * @param gestor El gestor medido
+     */
+    public MetricasGestor(Metricas registro, GestorParqueadero gestor) {
+        this.registro = registro;
+        this.nombre = gestor.getParqueadero().getNombre();
+
+        this.entradas = registro.contador("parqueadero_entradas_total",
+                "Entradas registradas", "parqueadero", nombre);
+        this.salidas = registro.contador("parqueadero_salidas_total",
+                "Salidas registradas", "parqueadero", nombre);
+        this.rechazos = new LongAdder[MOTIVOS.length];
+        for (int i = 0; i < MOTIVOS.length; i++) {
+            rechazos[i] = registro.contador("parqueadero_rechazos_total",
+                    "Entradas y salidas rechazadas por motivo", "parqueadero", nombre, "motivo", MOTIVOS[i]);
+        }
+
+        this.latenciaEntrada = registro.latencia("parqueadero_entrada_segundos",
+                "Duracion de registrarEntrada", "parqueadero", nombre);
+        this.latenciaSalida = registro.latencia("parqueadero_salida_segundos",
+                "Duracion de registrarSalida", "parqueadero", nombre);
+        this.latenciaAsignacion = registro.latencia("parqueadero_asignacion_segundos",
+                "Duracion de la busqueda de espacio", "parqueadero", nombre);
+        this.latenciaTarifa = registro.latencia("parqueadero_tarifa_segundos",
+                "Duracion del calculo de la tarifa", "parqueadero", nombre);
+
+        // Los medidores leen la foto de disponibilidad, sin el candado del gestor
+        this.disponibles = () -> gestor.getInstantaneaDisponibilidad().getDisponibles();
+        this.ocupados = () -> gestor.getInstantaneaDisponibilidad().getOcupados();
+        this.reservados = () -> gestor.getInstantaneaDisponibilidad().getReservados();
+        registro.medidor("parqueadero_espacios_disponibles", "Espacios disponibles", disponibles,
+                "parqueadero", nombre);
+        registro.medidor("parqueadero_espacios_ocupados", "Espacios ocupados", ocupados,
+                "parqueadero", nombre);
+        registro.medidor("parqueadero_espacios_reservados", "Espacios reservados", reservados,
+                "parqueadero", nombre);
+    }
+
+    /**
+     * Quita del registro los medidores del gestor, que son las series que lo
+     * mantienen en memoria. Los contadores y latencias se quedan: no guardan
+     * el gestor y siguen sumando si el parqueadero se vuelve a cargar.
+     */
+    public void cerrar() {
+        registro.quitarMedidor("parqueadero_espacios_disponibles", disponibles, "parqueadero", nombre);
+        registro.quitarMedidor("parqueadero_espacios_ocupados", ocupados, "parqueadero", nombre);
+        registro.quitarMedidor("parqueadero_espacios_reservados", reservados, "parqueadero", nombre);
+    }
+
+    /**
+     * Mide una llamada a registrarEntrada
+     *
+     * @param nanos La duracion en nanosegundos
+     * @param registrada true si se registro la entrada
+     */
+    public void medirEntrada(long nanos, boolean registrada) {
+        latenciaEntrada.registrar(nanos);
+        if (registrada) {
+            entradas.increment();
+        }
+    }
+
+    /**
+     * Mide una llamada a registrarSalida
+     *
+     * @param nanos La duracion en nanosegundos
+     * @param registrada true si se registro la salida
+     */
+    public void medirSalida(long nanos, boolean registrada) {
+        latenciaSalida.registrar(nanos);
+        if (registrada) {
+            salidas.increment();
+        }
+    }
+
+    /**
+     * Mide una busqueda de espacio
+     *
+     * @param nanos La duracion en nanosegundos
+     */
+    public void medirAsignacion(long nanos) {
+        latenciaAsignacion.registrar(nanos);
+    }
+
+    /**
+     * Mide un calculo de tarifa
+     *
+     * @param nanos La duracion en nanosegundos
+     */
+    public void medirTarifa(long nanos) {
+        latenciaTarifa.registrar(nanos);
+    }
+
+    /**
+     * Cuenta un rechazo
+     *
+     * @param motivo El motivo (PLACA_INVALIDA, SIN_ESPACIOS, ...)
+     */
+    public void contarRechazo(int motivo) {
+        rechazos[motivo].increment();
+    }
+
+    /**
+     * Obtiene el nombre de un motivo de rechazo
+     *
+     * @param motivo El motivo (PLACA_INVALIDA, SIN_ESPACIOS, ...)
+     * @return El nombre (ej. sin_espacios)
+     */
+    public static String nombreMotivo(int motivo) {
+        return MOTIVOS[motivo];
+    }
+}
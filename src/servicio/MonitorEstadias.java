@@ -0,0 +1,322 @@
+package servicio;
+
+import modelo.Reloj;
+import modelo.Ticket;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Clase encargada de detectar vehiculos que se quedan demasiado tiempo.
+ * Al registrar una entrada se calcula el plazo del ticket (maximo de horas
+ * y, si se configura, la hora de cierre) y se guarda en un monticulo
+ * ordenado por plazo. Asi cada revision solo mira los plazos vencidos en
+ * O(log n) cada uno, sin recorrer todos los tickets activos.
+ * La puerta solo encola el plazo; el monticulo se actualiza en el hilo
+ * del monitor.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class MonitorEstadias implements EscuchaParqueadero {
+
+    /**
+     * Motivo de alerta por superar el maximo de horas
+     */
+    public static final String MOTIVO_EXCESO_HORAS = "EXCESO_HORAS";
+
+    /**
+     * Motivo de alerta por seguir parqueado despues del cierre
+     */
+    public static final String MOTIVO_CIERRE = "CIERRE";
+
+    /**
+     * Alerta de estadia prolongada
+     */
+    public static class Alerta {
+
+        /**
+         * Ticket del vehiculo
+         */
+        private final Ticket ticket;
+
+        /**
+         * Motivo de la alerta (EXCESO_HORAS o CIERRE)
+         */
+        private final String motivo;
+
+        /**
+         * Momento del plazo vencido en milisegundos
+         */
+        private final long plazoMillis;
+
+        /**
+         * Constructor de la alerta
+         *
+         * @param ticket El ticket del vehiculo
+         * @param motivo El motivo de la alerta
+         * @param plazoMillis El plazo vencido
+         */
+        Alerta(Ticket ticket, String motivo, long plazoMillis) {
+            this.ticket = ticket;
+            this.motivo = motivo;
+            this.plazoMillis = plazoMillis;
+        }
+
+        /**
+         * Obtiene el ticket de la alerta
+         *
+         * @return El ticket
+         */
+        public Ticket getTicket() {
+            return ticket;
+        }
+
+        /**
+         * Obtiene el motivo de la alerta
+         *
+         * @return El motivo
+         */
+        public String getMotivo() {
+            return motivo;
+        }
+
+        /**
+         * Obtiene el plazo vencido en milisegundos
+         *
+         * @return El plazo
+         */
+        public long getPlazoMillis() {
+            return plazoMillis;
+        }
+
+        /**
+         * Muestra la informacion de la alerta
+         *
+         * @return String con la informacion de la alerta
+         */
+        public String mostrarInformacion() {
+            return "ALERTA " + motivo + " - Placa: " + ticket.getVehiculo().getPlaca() +
+                    " - Espacio: " + ticket.getEspacio().getNumero() +
+                    " - Entrada: " + ticket.getHoraEntrada();
+        }
+    }
+
+    /**
+     * Plazo de un ticket guardado en el monticulo
+     */
+    private static class Plazo implements Comparable<Plazo> {
+
+        /**
+         * Momento del plazo en milisegundos
+         */
+        private final long plazoMillis;
+
+        /**
+         * Ticket al que pertenece el plazo
+         */
+        private final Ticket ticket;
+
+        /**
+         * Motivo del plazo
+         */
+        private final String motivo;
+
+        /**
+         * Constructor del plazo
+         *
+         * @param plazoMillis El momento del plazo
+         * @param ticket El ticket
+         * @param motivo El motivo
+         */
+        Plazo(long plazoMillis, Ticket ticket, String motivo) {
+            this.plazoMillis = plazoMillis;
+            this.ticket = ticket;
+            this.motivo = motivo;
+        }
+
+        @Override
+        public int compareTo(Plazo otro) {
+            return Long.compare(plazoMillis, otro.plazoMillis);
+        }
+    }
+
+    /**
+     * Maximo de milisegundos que un vehiculo puede estar parqueado
+     */
+    private final long maximoMillis;
+
+    /**
+     * Hora de cierre del parqueadero (null si abre 24 horas)
+     */
+    private final LocalTime horaCierre;
+
+    /**
+     * Reloj del que se toma el momento de cada revision
+     */
+    private final Reloj reloj;
+
+    /**
+     * Plazos nuevos encolados por las puertas, pendientes de pasar al monticulo
+     */
+    private final ConcurrentLinkedQueue<Plazo> nuevos;
+
+    /**
+     * Monticulo de plazos ordenados del mas proximo al mas lejano
+     */
+    private final PriorityQueue<Plazo> plazos;
+
+    /**
+     * IDs de los tickets que siguen activos (los que salen se descartan al sacarlos)
+     */
+    private final Set<Integer> ticketsActivos;
+
+    /**
+     * Accion que se ejecuta con cada alerta
+     */
+    private volatile Consumer<Alerta> alAlertar;
+
+    /**
+     * Hilo que revisa los plazos periodicamente
+     */
+    private ScheduledExecutorService revisor;
+
+    /**
+     * Constructor de la clase MonitorEstadias
+     *
+     * @param maximoHoras Maximo de horas permitido
+     * @param horaCierre Hora de cierre o null si el parqueadero no cierra
+     */
+    public MonitorEstadias(int maximoHoras, LocalTime horaCierre) {
+        this(maximoHoras, horaCierre, Reloj.SISTEMA);
+    }
+
+    /**
+     * Constructor de la clase MonitorEstadias con un reloj especifico
+     *
+     * @param maximoHoras Maximo de horas permitido
+     * @param horaCierre Hora de cierre o null si el parqueadero no cierra
+     * @param reloj El reloj del parqueadero
+     */
+    public MonitorEstadias(int maximoHoras, LocalTime horaCierre, Reloj reloj) {
+        this.reloj = reloj;
+        this.maximoMillis = maximoHoras * 3600 * 1000L;
+        this.horaCierre = horaCierre;
+        this.nuevos = new ConcurrentLinkedQueue<Plazo>();
+        this.plazos = new PriorityQueue<Plazo>();
+        this.ticketsActivos = ConcurrentHashMap.newKeySet();
+        this.alAlertar = alerta -> System.out.println("\n" + alerta.mostrarInformacion());
+    }
+
+    /**
+     * Establece la accion que se ejecuta con cada alerta
+     *
+     * @param alAlertar La accion a ejecutar
+     */
+    public void setAlAlertar(Consumer<Alerta> alAlertar) {
+        this.alAlertar = alAlertar;
+    }
+
+    /**
+     * Encola los plazos del ticket que acaba de entrar
+     *
+     * @param gestor El gestor donde ocurrio la entrada
+     * @param ticket El ticket generado
+     */
+    @Override
+    public void entradaRegistrada(GestorParqueadero gestor, Ticket ticket) {
+        long entradaMillis = ticket.getEntradaMillis();
+        ticketsActivos.add(ticket.getId());
+
+        nuevos.offer(new Plazo(entradaMillis + maximoMillis, ticket, MOTIVO_EXCESO_HORAS));
+
+        if (horaCierre != null) {
+            LocalDateTime entrada = reloj.aFecha(entradaMillis);
+            LocalDateTime cierre = entrada.toLocalDate().atTime(horaCierre);
+            if (!cierre.isAfter(entrada)) {
+                cierre = cierre.plusDays(1);
+            }
+            nuevos.offer(new Plazo(reloj.aMillis(cierre), ticket, MOTIVO_CIERRE));
+        }
+    }
+
+    /**
+     * Marca el ticket como finalizado para que sus plazos se descarten
+     *
+     * @param gestor El gestor donde ocurrio la salida
+     * @param ticket El ticket finalizado
+     */
+    @Override
+    public void salidaRegistrada(GestorParqueadero gestor, Ticket ticket) {
+        ticketsActivos.remove(ticket.getId());
+    }
+
+    /**
+     * Revisa los plazos vencidos y genera las alertas
+     *
+     * @param ahoraMillis El momento actual en milisegundos
+     * @return El numero de alertas generadas
+     */
+    public synchronized int revisar(long ahoraMillis) {
+        Plazo plazo;
+        while ((plazo = nuevos.poll()) != null) {
+            plazos.offer(plazo);
+        }
+
+        int alertas = 0;
+        while (!plazos.isEmpty() && plazos.peek().plazoMillis <= ahoraMillis) {
+            plazo = plazos.poll();
+            if (ticketsActivos.contains(plazo.ticket.getId())) {
+                alAlertar.accept(new Alerta(plazo.ticket, plazo.motivo, plazo.plazoMillis));
+                alertas++;
+            }
+        }
+
+        return alertas;
+    }
+
+    /**
+     * Obtiene el numero de plazos pendientes de revisar
+     *
+     * @return El numero de plazos pendientes
+     */
+    public synchronized int contarPlazosPendientes() {
+        return plazos.size() + nuevos.size();
+    }
+
+    /**
+     * Inicia la revision periodica en un hilo de fondo
+     *
+     * @param segundos Cada cuantos segundos se revisan los plazos
+     */
+    public synchronized void iniciar(int segundos) {
+        if (revisor != null) {
+            return;
+        }
+
+        revisor = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "monitor-estadias");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        revisor.scheduleWithFixedDelay(() -> revisar(reloj.ahoraMillis()),
+                segundos, segundos, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Detiene la revision periodica
+     */
+    public synchronized void detener() {
+        if (revisor != null) {
+            revisor.shutdownNow();
+            revisor = null;
+        }
+    }
+}
@@ -0,0 +1,411 @@
+package servicio;
+
+import utilidad.AnilloConsistente;
+import utilidad.Json;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Nodo de un cluster de servidores de parqueaderos.
+ * Los parqueaderos (por nombre, como los guarda GestorArchivos) se reparten
+ * entre los nodos con un anillo de hash consistente. Cualquier nodo acepta
+ * una peticion: si el parqueadero es suyo la atiende con su registro y si
+ * no la reenvia al nodo dueno. Cuando entra un nodo solo cambian de dueno
+ * cerca de 1/N de los parqueaderos, y el traspaso espera a que se vacien:
+ * el nodo anterior los sigue atendiendo mientras tenga vehiculos o reservas,
+ * y el nuevo dueno le pregunta antes de cargarlos por primera vez.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class NodoCluster {
+
+    /**
+     * Cabecera que marca una peticion ya reenviada, para no reenviarla en circulo
+     * si dos nodos todavia no ven el mismo anillo
+     */
+    public static final String CABECERA_REENVIO = "X-Reenviado-Por";
+
+    /**
+     * Codigo con el que un nodo contesta una peticion reenviada de un
+     * parqueadero que no es suyo ni tiene vehiculos aqui (421 Misdirected Request)
+     */
+    public static final int CODIGO_NO_ESTA = 421;
+
+    /**
+     * Patron para leer las URLs de la lista de nodos de otro nodo
+     */
+    private static final Pattern PATRON_NODO = Pattern.compile("\"(https?://[^\"]+)\"");
+
+    /**
+     * Respuesta de una peticion reenviada a otro nodo
+     */
+    public static class Reenvio {
+
+        /**
+         * Codigo HTTP de la respuesta
+         */
+        private final int codigo;
+
+        /**
+         * Cuerpo de la respuesta
+         */
+        private final String cuerpo;
+
+        /**
+         * Constructor de la respuesta reenviada
+         *
+         * @param codigo El codigo HTTP
+         * @param cuerpo El cuerpo
+         */
+        public Reenvio(int codigo, String cuerpo) {
+            this.codigo = codigo;
+            this.cuerpo = cuerpo;
+        }
+
+        /**
+         * Obtiene el codigo HTTP
+         *
+         * @return El codigo
+         */
+        public int getCodigo() {
+            return codigo;
+        }
+
+        /**
+         * Obtiene el cuerpo de la respuesta
+         *
+         * @return El cuerpo
+         */
+        public String getCuerpo() {
+            return cuerpo;
+        }
+    }
+
+    /**
+     * URL de este nodo (asi lo conocen los demas)
+     */
+    private final String urlPropia;
+
+    /**
+     * Anillo con los nodos del cluster
+     */
+    private final AnilloConsistente anillo;
+
+    /**
+     * Registro de los parqueaderos que atiende este nodo
+     */
+    private final RegistroParqueaderos registro;
+
+    /**
+     * Parqueaderos de este nodo que el dueno anterior ya confirmo vacios
+     * desde el ultimo cambio del anillo
+     */
+    private final Set<String> traspasados;
+
+    /**
+     * Token de administracion que se envia a los demas nodos (null si no hay)
+     */
+    private volatile String tokenAdmin;
+
+    /**
+     * Constructor de la clase NodoCluster
+     *
+     * @param urlPropia La URL de este nodo (ej. http://localhost:8081)
+     * @param registro El registro de parqueaderos local
+     */
+    public NodoCluster(String urlPropia, RegistroParqueaderos registro) {
+        this.urlPropia = quitarBarraFinal(urlPropia);
+        this.anillo = new AnilloConsistente();
+        this.registro = registro;
+        this.traspasados = ConcurrentHashMap.newKeySet();
+        this.anillo.agregarNodo(this.urlPropia);
+    }
+
+    /**
+     * Obtiene la URL de este nodo
+     *
+     * @return La URL
+     */
+    public String getUrlPropia() {
+        return urlPropia;
+    }
+
+    /**
+     * Establece el token de administracion con el que este nodo consulta y
+     * se anuncia a los demas (deben usar el mismo)
+     *
+     * @param tokenAdmin El token o null
+     */
+    public void setTokenAdmin(String tokenAdmin) {
+        this.tokenAdmin = tokenAdmin;
+    }
+
+    /**
+     * Obtiene el anillo del cluster
+     *
+     * @return El anillo
+     */
+    public AnilloConsistente getAnillo() {
+        return anillo;
+    }
+
+    /**
+     * Obtiene el registro local
+     *
+     * @return El registro de parqueaderos
+     */
+    public RegistroParqueaderos getRegistro() {
+        return registro;
+    }
+
+    /**
+     * Busca el nodo dueno de un parqueadero
+     *
+     * @param nombreParqueadero El nombre del parqueadero
+     * @return La URL del nodo dueno
+     */
+    public String duenoDe(String nombreParqueadero) {
+        String dueno = anillo.nodoPara(nombreParqueadero);
+        return dueno != null ? dueno : urlPropia;
+    }
+
+    /**
+     * Verifica si un parqueadero es de este nodo
+     *
+     * @param nombreParqueadero El nombre del parqueadero
+     * @return true si lo atiende este nodo
+     */
+    public boolean esLocal(String nombreParqueadero) {
+        return duenoDe(nombreParqueadero).equals(urlPropia);
+    }
+
+    /**
+     * Busca el nodo al que se le debe preguntar por un parqueadero de este
+     * nodo antes de cargarlo, porque pudo quedarse con sus vehiculos al cambiar el anillo
+     *
+     * @param nombreParqueadero El nombre del parqueadero
+     * @return La URL del dueno anterior, o null si no hay otro nodo o ya confirmo el traspaso
+     */
+    public String duenoAnteriorDe(String nombreParqueadero) {
+        if (traspasados.contains(nombreParqueadero)) {
+            return null;
+        }
+        return anillo.nodoParaSin(nombreParqueadero, urlPropia);
+    }
+
+    /**
+     * Marca un parqueadero como traspasado: el dueno anterior ya no lo tiene
+     * y este nodo lo puede cargar
+     *
+     * @param nombreParqueadero El nombre del parqueadero
+     */
+    public void marcarTraspasado(String nombreParqueadero) {
+        traspasados.add(nombreParqueadero);
+    }
+
+    /**
+     * Agrega un nodo al cluster y suelta los parqueaderos que ahora son de otro
+     *
+     * @param url La URL del nodo
+     * @return true si el nodo era nuevo
+     */
+    public boolean agregarNodo(String url) {
+        boolean nuevo = anillo.agregarNodo(quitarBarraFinal(url));
+        if (nuevo) {
+            traspasados.clear();
+            soltarAjenos();
+        }
+        return nuevo;
+    }
+
+    /**
+     * Quita un nodo del cluster
+     *
+     * @param url La URL del nodo
+     * @return true si el nodo estaba
+     */
+    public boolean quitarNodo(String url) {
+        boolean estaba = anillo.quitarNodo(quitarBarraFinal(url));
+        if (estaba) {
+            traspasados.clear();
+        }
+        return estaba;
+    }
+
+    /**
+     * Descarga los parqueaderos cargados que ya no son de este nodo.
+     * Los que todavia tienen vehiculos se quedan hasta vaciarse, porque
+     * los tickets activos solo viven en la memoria de este nodo; mientras
+     * tanto se siguen atendiendo aqui y se sueltan con la primera peticion
+     * que llega ya vacios.
+     *
+     * @return El numero de parqueaderos soltados
+     */
+    public int soltarAjenos() {
+        int soltados = 0;
+        ArrayList<String> cargados = registro.listarCargados();
+        for (int i = 0; i < cargados.size(); i++) {
+            if (!esLocal(cargados.get(i)) && registro.descargar(cargados.get(i))) {
+                soltados++;
+            }
+        }
+        return soltados;
+    }
+
+    /**
+     * Se une a un cluster: pide la lista de nodos a las semillas y se anuncia a todos
+     *
+     * @param semillas URLs de nodos conocidos del cluster
+     * @return El numero de nodos a los que se pudo anunciar
+     */
+    public int unirse(List<String> semillas) {
+        traspasados.clear();
+        for (int i = 0; i < semillas.size(); i++) {
+            anillo.agregarNodo(quitarBarraFinal(semillas.get(i)));
+        }
+
+        // Aprender los nodos que conocen las semillas
+        for (int i = 0; i < semillas.size(); i++) {
+            String semilla = quitarBarraFinal(semillas.get(i));
+            if (semilla.equals(urlPropia)) {
+                continue;
+            }
+            try {
+                Reenvio respuesta = enviar(semilla, "GET", "/cluster", null);
+                Matcher matcher = PATRON_NODO.matcher(respuesta.getCuerpo());
+                while (matcher.find()) {
+                    anillo.agregarNodo(matcher.group(1));
+                }
+            } catch (IOException e) {
+                System.out.println("Advertencia: No se pudo consultar el nodo " + semilla);
+            }
+        }
+
+        // Anunciarse a todos los nodos conocidos
+        int anunciados = 0;
+        ArrayList<String> nodos = anillo.getNodos();
+        for (int i = 0; i < nodos.size(); i++) {
+            if (nodos.get(i).equals(urlPropia)) {
+                continue;
+            }
+            try {
+                String ruta = "/cluster/nodos?url=" + URLEncoder.encode(urlPropia, StandardCharsets.UTF_8);
+                if (enviar(nodos.get(i), "POST", ruta, null).getCodigo() < 300) {
+                    anunciados++;
+                }
+            } catch (IOException e) {
+                System.out.println("Advertencia: No se pudo anunciar al nodo " + nodos.get(i));
+            }
+        }
+
+        soltarAjenos();
+        return anunciados;
+    }
+
+    /**
+     * Reenvia una peticion al nodo dueno del parqueadero
+     *
+     * @param nodo La URL del nodo dueno
+     * @param metodo El metodo HTTP
+     * @param rutaYConsulta La ruta con su consulta (ej. /parqueaderos/NORTE/entradas?placa=ABC123)
+     * @param cuerpo El cuerpo de la peticion o null
+     * @return La respuesta del nodo dueno
+     */
+    public Reenvio reenviar(String nodo, String metodo, String rutaYConsulta, byte[] cuerpo) {
+        try {
+            return enviar(nodo, metodo, rutaYConsulta, cuerpo);
+        } catch (IOException e) {
+            return new Reenvio(502, Json.error("No se pudo contactar al nodo " + nodo + ": " + e.getMessage()));
+        }
+    }
+
+    /**
+     * Envia una peticion a otro nodo
+     *
+     * @param nodo La URL del nodo
+     * @param metodo El metodo HTTP
+     * @param rutaYConsulta La ruta con su consulta
+     * @param cuerpo El cuerpo o null
+     * @return La respuesta
+     * @throws IOException Si no se pudo contactar al nodo
+     */
+    private Reenvio enviar(String nodo, String metodo, String rutaYConsulta, byte[] cuerpo) throws IOException {
+        HttpURLConnection conexion = (HttpURLConnection) new URL(nodo + rutaYConsulta).openConnection();
+        conexion.setRequestMethod(metodo);
+        conexion.setConnectTimeout(2000);
+        conexion.setReadTimeout(10000);
+        conexion.setRequestProperty(CABECERA_REENVIO, urlPropia);
+        String token = tokenAdmin;
+        if (token != null) {
+            conexion.setRequestProperty(ServidorApi.CABECERA_TOKEN, token);
+        }
+
+        if (cuerpo != null && cuerpo.length > 0) {
+            conexion.setDoOutput(true);
+            OutputStream salida = conexion.getOutputStream();
+            salida.write(cuerpo);
+            salida.close();
+        }
+
+        int codigo = conexion.getResponseCode();
+        InputStream entrada = codigo < 400 ? conexion.getInputStream() : conexion.getErrorStream();
+        String texto = "";
+        if (entrada != null) {
+            texto = new String(entrada.readAllBytes(), StandardCharsets.UTF_8);
+            entrada.close();
+        }
+        return new Reenvio(codigo, texto);
+    }
+
+    /**
+     * Muestra el estado del cluster como JSON
+     *
+     * @return El JSON con este nodo y la lista de nodos
+     */
+    public String mostrarJson() {
+        StringBuilder json = new StringBuilder("{");
+        Json.campo(json, "nodo", urlPropia).append(',');
+        Json.texto(json, "nodos").append(":[");
+
+        ArrayList<String> nodos = anillo.getNodos();
+        for (int i = 0; i < nodos.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            Json.texto(json, nodos.get(i));
+        }
+
+        json.append("],");
+        Json.texto(json, "cargados").append(":[");
+        ArrayList<String> cargados = registro.listarCargados();
+        for (int i = 0; i < cargados.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            Json.texto(json, cargados.get(i));
+        }
+        return json.append("]}").toString();
+    }
+
+    /**
+     * Quita la barra final de una URL
+     *
+     * @param url La URL
+     * @return La URL sin barra final
+     */
+    private static String quitarBarraFinal(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
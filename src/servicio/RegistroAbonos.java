@@ -0,0 +1,138 @@
+package servicio;
+
+import modelo.Abono;
+import utilidad.GestorArchivos;
+import java.io.File;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Clase encargada de consultar los abonos y pases prepagados.
+ * Los abonos se guardan en archivo y se cargan completos en un indice en
+ * memoria, que un hilo aparte recarga cuando cambia el archivo; asi las
+ * puertas nunca leen el disco ni toman candados al consultar.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class RegistroAbonos {
+
+    /**
+     * Abonos del archivo por placa (se reemplaza completo al recargar)
+     */
+    private volatile ConcurrentHashMap<String, Abono> indice;
+
+    /**
+     * Fecha de modificacion del archivo de abonos en la ultima carga
+     */
+    private long modificacion;
+
+    /**
+     * Hilo que revisa periodicamente si el archivo cambio
+     */
+    private ScheduledExecutorService recargador;
+
+    /**
+     * Constructor de la clase RegistroAbonos
+     */
+    public RegistroAbonos() {
+        this.indice = new ConcurrentHashMap<String, Abono>();
+        this.modificacion = -1;
+        recargar();
+    }
+
+    /**
+     * Recarga el indice si el archivo de abonos cambio desde la ultima carga.
+     * Si no se pudo leer o cambio mientras se leia, se conserva el indice
+     * anterior y se vuelve a intentar en la siguiente revision.
+     */
+    public synchronized void recargar() {
+        File archivo = new File(GestorArchivos.ARCHIVO_ABONOS);
+        long actual = archivo.lastModified();
+        if (actual == modificacion) {
+            return;
+        }
+
+        long largo = archivo.length();
+        HashMap<String, Abono> abonos = GestorArchivos.cargarAbonos();
+        if (abonos == null) {
+            return;
+        }
+        if (archivo.lastModified() != actual || archivo.length() != largo) {
+            System.out.println("Aviso: el archivo de abonos cambio mientras se leia, se conserva el indice anterior");
+            return;
+        }
+
+        indice = new ConcurrentHashMap<String, Abono>(abonos);
+        modificacion = actual;
+    }
+
+    /**
+     * Inicia la recarga periodica del indice en un hilo de fondo
+     *
+     * @param segundos Cada cuantos segundos se revisa el archivo
+     */
+    public synchronized void iniciarRecargaPeriodica(int segundos) {
+        if (recargador != null) {
+            return;
+        }
+
+        recargador = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "recarga-abonos");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        recargador.scheduleWithFixedDelay(this::recargar, segundos, segundos, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Detiene la recarga periodica
+     */
+    public synchronized void detener() {
+        if (recargador != null) {
+            recargador.shutdownNow();
+            recargador = null;
+        }
+    }
+
+    /**
+     * Busca el abono de una placa en el indice en memoria
+     *
+     * @param placa La placa en mayusculas
+     * @return El abono o null si la placa no tiene abono
+     */
+    public Abono buscarAbono(String placa) {
+        return indice.get(placa);
+    }
+
+    /**
+     * Verifica si una placa tiene un abono vigente
+     *
+     * @param placa La placa en mayusculas
+     * @param momento El momento a verificar
+     * @return true si tiene abono vigente, false si no
+     */
+    public boolean tieneAbonoVigente(String placa, LocalDateTime momento) {
+        Abono abono = buscarAbono(placa);
+        return abono != null && abono.estaVigente(momento);
+    }
+
+    /**
+     * Registra o renueva un abono y actualiza el indice.
+     * Comparte el candado con recargar() para que una recarga no pise el abono nuevo.
+     *
+     * @param abono El abono a registrar
+     * @return true si se guardo correctamente, false si hubo error
+     */
+    public synchronized boolean registrarAbono(Abono abono) {
+        if (!GestorArchivos.guardarAbono(abono)) {
+            return false;
+        }
+        indice.put(abono.getPlaca(), abono);
+        return true;
+    }
+}
@@ -0,0 +1,638 @@
+package servicio;
+
+import modelo.Parqueadero;
+import modelo.Reloj;
+import utilidad.GestorArchivos;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Registro de todos los parqueaderos que atiende un mismo proceso.
+ * Cada parqueadero tiene su propio gestor, con su propio estado y su
+ * propio candado (el monitor del gestor), asi la operacion de un
+ * parqueadero nunca espera por otro. Los parqueaderos se cargan del
+ * archivo la primera vez que se piden y se descargan cuando llevan un
+ * tiempo sin uso y no tienen vehiculos ni reservas, para que la memoria
+ * dependa de los parqueaderos activos y no de toda la red.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class RegistroParqueaderos {
+
+    /**
+     * Parqueadero cargado junto con su ultimo uso
+     */
+    private static class Cargado {
+
+        /**
+         * Gestor del parqueadero
+         */
+        private final GestorParqueadero gestor;
+
+        /**
+         * Ultimo momento en que se uso, en milisegundos
+         */
+        private volatile long ultimoUsoMillis;
+
+        /**
+         * Peticiones en curso que apartaron el gestor con tomar(); solo se
+         * cambia y se lee dentro de compute del mapa, con el candado de la entrada
+         */
+        private int enUso;
+
+        /**
+         * Constructor de la clase Cargado
+         *
+         * @param gestor El gestor del parqueadero
+         * @param ahoraMillis El momento de la carga
+         */
+        Cargado(GestorParqueadero gestor, long ahoraMillis) {
+            this.gestor = gestor;
+            this.ultimoUsoMillis = ahoraMillis;
+        }
+    }
+
+    /**
+     * Parqueaderos cargados por nombre
+     */
+    private final ConcurrentHashMap<String, Cargado> cargados;
+
+    /**
+     * Reloj del registro y de los gestores que crea
+     */
+    private final Reloj reloj;
+
+    /**
+     * Milisegundos sin uso tras los cuales se descarga un parqueadero vacio
+     */
+    private final long inactividadMillis;
+
+    /**
+     * Filtro de acceso compartido por todos los parqueaderos (puede ser null)
+     */
+    private volatile FiltroAcceso filtroAcceso;
+
+    /**
+     * Registro de abonos compartido por todos los parqueaderos (puede ser null)
+     */
+    private volatile RegistroAbonos registroAbonos;
+
+    /**
+     * Registro de metricas de los gestores (null si no se miden)
+     */
+    private volatile Metricas metricas;
+
+    /**
+     * Indice de placas de todos los parqueaderos, para que una placa solo este en uno a la vez
+     */
+    private final IndiceGlobalPlacas indicePlacas;
+
+    /**
+     * Escuchas que se enganchan a todos los parqueaderos
+     */
+    private final CopyOnWriteArrayList<EscuchaParqueadero> escuchas;
+
+    /**
+     * Historia y pronostico de la ocupacion por parqueadero; se conservan al descargarlo
+     */
+    private final ConcurrentHashMap<String, SeriesOcupacion> seriesOcupacion;
+
+    /**
+     * Salidas sin resumen de los parqueaderos descargados; se devuelven al
+     * gestor si se vuelve a cargar o se resumen cuando termina su dia
+     */
+    private final ConcurrentHashMap<String, ArrayList<GestorParqueadero.Jornada>> jornadas;
+
+    /**
+     * Hilo que vence reservas y descarga parqueaderos inactivos (null si no se inicio)
+     */
+    private ScheduledExecutorService mantenimiento;
+
+    /**
+     * Numero de parqueaderos cargados desde el archivo
+     */
+    private final AtomicLong cargas;
+
+    /**
+     * Numero de parqueaderos descargados
+     */
+    private final AtomicLong descargas;
+
+    /**
+     * Constructor de la clase RegistroParqueaderos
+     *
+     * @param inactividadMinutos Minutos sin uso tras los cuales se descarga un parqueadero vacio
+     */
+    public RegistroParqueaderos(int inactividadMinutos) {
+        this(inactividadMinutos, Reloj.SISTEMA);
+    }
+
+    /**
+     * Constructor de la clase RegistroParqueaderos con un reloj especifico
+     *
+     * @param inactividadMinutos Minutos sin uso tras los cuales se descarga un parqueadero vacio
+     * @param reloj El reloj del registro
+     */
+    public RegistroParqueaderos(int inactividadMinutos, Reloj reloj) {
+        this.cargados = new ConcurrentHashMap<String, Cargado>();
+        this.reloj = reloj;
+        this.inactividadMillis = inactividadMinutos * 60L * 1000;
+        this.cargas = new AtomicLong();
+        this.descargas = new AtomicLong();
+        this.indicePlacas = new IndiceGlobalPlacas();
+        this.escuchas = new CopyOnWriteArrayList<EscuchaParqueadero>();
+        this.seriesOcupacion = new ConcurrentHashMap<String, SeriesOcupacion>();
+        this.jornadas = new ConcurrentHashMap<String, ArrayList<GestorParqueadero.Jornada>>();
+    }
+
+    /**
+     * Obtiene el indice de placas compartido por los parqueaderos
+     *
+     * @return El indice global de placas
+     */
+    public IndiceGlobalPlacas getIndicePlacas() {
+        return indicePlacas;
+    }
+
+    /**
+     * Establece el filtro de acceso de todos los parqueaderos
+     *
+     * @param filtroAcceso El filtro compartido o null
+     */
+    public void setFiltroAcceso(FiltroAcceso filtroAcceso) {
+        this.filtroAcceso = filtroAcceso;
+        for (Cargado cargado : cargados.values()) {
+            cargado.gestor.setFiltroAcceso(filtroAcceso);
+        }
+    }
+
+    /**
+     * Establece el registro de abonos de todos los parqueaderos
+     *
+     * @param registroAbonos El registro compartido o null
+     */
+    public void setRegistroAbonos(RegistroAbonos registroAbonos) {
+        this.registroAbonos = registroAbonos;
+        for (Cargado cargado : cargados.values()) {
+            cargado.gestor.setRegistroAbonos(registroAbonos);
+        }
+    }
+
+    /**
+     * Empieza a medir todos los parqueaderos, los cargados y los que se carguen despues
+     *
+     * @param metricas El registro de metricas o null para dejar de medir
+     */
+    public void setMetricas(Metricas metricas) {
+        this.metricas = metricas;
+        for (Cargado cargado : cargados.values()) {
+            cargado.gestor.setMetricas(metricas);
+        }
+        if (metricas != null) {
+            metricas.medidor("parqueadero_registro_cargados", "Parqueaderos cargados en memoria",
+                    cargados::size);
+            metricas.medidor("parqueadero_red_vehiculos", "Vehiculos en todos los parqueaderos",
+                    indicePlacas::contarPlacas);
+        }
+    }
+
+    /**
+     * Agrega un escucha a todos los parqueaderos, los cargados y los que se carguen despues
+     *
+     * @param escucha El escucha a agregar
+     */
+    public void agregarEscucha(EscuchaParqueadero escucha) {
+        escuchas.add(escucha);
+        for (Cargado cargado : cargados.values()) {
+            cargado.gestor.agregarEscucha(escucha);
+        }
+    }
+
+    /**
+     * Obtiene el gestor de un parqueadero, cargandolo del archivo si no esta en memoria.
+     * No lo aparta: se puede descargar en cualquier momento, asi que solo sirve
+     * para consultas. Para entradas y salidas se usa tomar().
+     *
+     * @param nombre El nombre del parqueadero
+     * @return El gestor o null si el parqueadero no existe
+     */
+    public GestorParqueadero obtener(String nombre) {
+        Cargado cargado = cargados.get(nombre);
+        if (cargado == null) {
+            // computeIfAbsent garantiza que dos peticiones simultaneas no carguen el mismo parqueadero dos veces
+            cargado = cargados.computeIfAbsent(nombre, this::cargar);
+            if (cargado == null) {
+                return null;
+            }
+        }
+
+        cargado.ultimoUsoMillis = reloj.ahoraMillis();
+        return cargado.gestor;
+    }
+
+    /**
+     * Obtiene el gestor de un parqueadero y lo aparta hasta soltar(), cargandolo
+     * del archivo si no esta en memoria. Mientras este apartado no se descarga,
+     * asi una entrada en curso no queda en un gestor que ya no esta en el registro.
+     *
+     * @param nombre El nombre del parqueadero
+     * @return El gestor o null si el parqueadero no existe (en ese caso no se llama a soltar())
+     */
+    public GestorParqueadero tomar(String nombre) {
+        long ahora = reloj.ahoraMillis();
+        // compute carga a lo sumo una vez y no compite con descargarSiVacio(), que usa la misma entrada
+        Cargado cargado = cargados.compute(nombre, (clave, actual) -> {
+            if (actual == null) {
+                actual = cargar(clave);
+            }
+            if (actual != null) {
+                actual.enUso++;
+                actual.ultimoUsoMillis = ahora;
+            }
+            return actual;
+        });
+        return cargado != null ? cargado.gestor : null;
+    }
+
+    /**
+     * Aparta el gestor de un parqueadero solo si ya esta cargado y tiene
+     * vehiculos o reservas; sirve para seguir atendiendo un parqueadero que
+     * ya es de otro nodo hasta que se vacie, sin volver a cargarlo
+     *
+     * @param nombre El nombre del parqueadero
+     * @return El gestor apartado (se libera con soltar()), o null si no esta cargado o esta vacio
+     */
+    public GestorParqueadero tomarSiOcupado(String nombre) {
+        long ahora = reloj.ahoraMillis();
+
+        // Se revisa dentro de computeIfPresent, como en descargarSiVacio(), para que no se descargue en medio
+        boolean[] apartado = new boolean[1];
+        Cargado cargado = cargados.computeIfPresent(nombre, (clave, actual) -> {
+            synchronized (actual.gestor) {
+                if (estaOcupado(actual.gestor)) {
+                    actual.enUso++;
+                    actual.ultimoUsoMillis = ahora;
+                    apartado[0] = true;
+                }
+                return actual;
+            }
+        });
+        return apartado[0] ? cargado.gestor : null;
+    }
+
+    /**
+     * Libera un gestor apartado con tomar() o tomarSiOcupado()
+     *
+     * @param nombre El nombre del parqueadero
+     */
+    public void soltar(String nombre) {
+        long ahora = reloj.ahoraMillis();
+        cargados.computeIfPresent(nombre, (clave, actual) -> {
+            actual.enUso--;
+            actual.ultimoUsoMillis = ahora;
+            return actual;
+        });
+    }
+
+    /**
+     * Agrega al registro un parqueadero que ya esta en memoria (por ejemplo uno recien creado)
+     *
+     * @param parqueadero El parqueadero
+     * @return El gestor del parqueadero, o el que ya existia con ese nombre
+     */
+    public GestorParqueadero registrar(Parqueadero parqueadero) {
+        Cargado nuevo = new Cargado(crearGestor(parqueadero), reloj.ahoraMillis());
+        Cargado existente = cargados.putIfAbsent(parqueadero.getNombre(), nuevo);
+        return existente != null ? existente.gestor : nuevo.gestor;
+    }
+
+    /**
+     * Carga un parqueadero del archivo
+     *
+     * @param nombre El nombre del parqueadero
+     * @return El parqueadero cargado o null si no existe
+     */
+    private Cargado cargar(String nombre) {
+        Parqueadero parqueadero = GestorArchivos.cargarParqueadero(nombre);
+        if (parqueadero == null) {
+            return null;
+        }
+
+        cargas.incrementAndGet();
+        GestorParqueadero gestor = crearGestor(parqueadero);
+        // Se llama dentro de compute, asi no compite con la entrega de descargarSiVacio()
+        ArrayList<GestorParqueadero.Jornada> previas = jornadas.remove(nombre);
+        if (previas != null) {
+            gestor.retomarJornadas(previas);
+        }
+        return new Cargado(gestor, reloj.ahoraMillis());
+    }
+
+    /**
+     * Crea el gestor de un parqueadero con la configuracion compartida
+     *
+     * @param parqueadero El parqueadero
+     * @return El gestor
+     */
+    private GestorParqueadero crearGestor(Parqueadero parqueadero) {
+        GestorParqueadero gestor = new GestorParqueadero(parqueadero, reloj);
+        gestor.setMostrarMensajes(false);
+        gestor.setFiltroAcceso(filtroAcceso);
+        gestor.setRegistroAbonos(registroAbonos);
+        gestor.setIndicePlacas(indicePlacas);
+        gestor.setBuscadorPlacas(new BuscadorPlacas());
+        gestor.setMetricas(metricas);
+        gestor.setSeriesOcupacion(seriesOcupacion.computeIfAbsent(parqueadero.getNombre(), nombre -> {
+            // Se retoma el modelo guardado para no pronosticar sin historia tras un reinicio
+            SeriesOcupacion series = new SeriesOcupacion(nombre, reloj);
+            GestorArchivos.cargarSeriesOcupacion(series);
+            return series;
+        }));
+        for (EscuchaParqueadero escucha : escuchas) {
+            gestor.agregarEscucha(escucha);
+        }
+        return gestor;
+    }
+
+    /**
+     * Descarga los parqueaderos que llevan el tiempo de inactividad sin uso
+     * y no tienen vehiculos ni reservas (los tickets activos solo viven en memoria)
+     *
+     * @return El numero de parqueaderos descargados
+     */
+    public int descargarInactivos() {
+        long ahora = reloj.ahoraMillis();
+        int descargados = 0;
+
+        for (Map.Entry<String, Cargado> entrada : cargados.entrySet()) {
+            if (ahora - entrada.getValue().ultimoUsoMillis >= inactividadMillis
+                    && descargarSiVacio(entrada.getKey(), inactividadMillis)) {
+                descargados++;
+            }
+        }
+
+        return descargados;
+    }
+
+    /**
+     * Descarga un parqueadero ya mismo si no tiene vehiculos ni reservas
+     * (por ejemplo porque ahora le pertenece a otro nodo)
+     *
+     * @param nombre El nombre del parqueadero
+     * @return true si se descargo, false si no estaba cargado o no esta vacio
+     */
+    public boolean descargar(String nombre) {
+        if (!descargarSiVacio(nombre, 0)) {
+            return false;
+        }
+        // Las muestras las sigue tomando el nuevo dueno
+        SeriesOcupacion series = seriesOcupacion.remove(nombre);
+        if (series != null) {
+            GestorArchivos.guardarSeriesOcupacion(series);
+        }
+        return true;
+    }
+
+    /**
+     * Descarga un parqueadero si esta vacio, nadie lo tiene apartado y lleva
+     * el tiempo indicado sin uso
+     *
+     * @param nombre El nombre del parqueadero
+     * @param minimoSinUsoMillis Milisegundos minimos sin uso
+     * @return true si se descargo
+     */
+    private boolean descargarSiVacio(String nombre, long minimoSinUsoMillis) {
+        long ahora = reloj.ahoraMillis();
+
+        // Se revisa dentro de computeIfPresent para no competir con un obtener()
+        // simultaneo, y con el candado del gestor para que no entre un vehiculo mientras tanto
+        GestorParqueadero[] descargado = new GestorParqueadero[1];
+        cargados.computeIfPresent(nombre, (clave, actual) -> {
+            synchronized (actual.gestor) {
+                boolean vacio = actual.enUso == 0 && !estaOcupado(actual.gestor);
+                if (vacio && ahora - actual.ultimoUsoMillis >= minimoSinUsoMillis) {
+                    descargado[0] = actual.gestor;
+                    // Las salidas del dia pasan al registro para que entren en su resumen
+                    ArrayList<GestorParqueadero.Jornada> pendientes = actual.gestor.entregarJornadas();
+                    if (!pendientes.isEmpty()) {
+                        jornadas.merge(clave, pendientes, (previas, nuevas) -> {
+                            ArrayList<GestorParqueadero.Jornada> todas = new ArrayList<GestorParqueadero.Jornada>(previas);
+                            todas.addAll(nuevas);
+                            return todas;
+                        });
+                    }
+                    return null;
+                }
+                return actual;
+            }
+        });
+
+        if (descargado[0] == null) {
+            return false;
+        }
+        // Sus medidores guardan el gestor: sin esto seguiria en memoria y se exportaria
+        // junto con el del nodo o la carga que lo reemplace
+        descargado[0].setMetricas(null);
+        descargas.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * Verifica si un gestor tiene vehiculos o reservas; se llama con su candado
+     *
+     * @param gestor El gestor
+     * @return true si tiene tickets activos o reservas pendientes
+     */
+    private static boolean estaOcupado(GestorParqueadero gestor) {
+        return gestor.contarTicketsActivos() > 0 || gestor.getGestorReservas().contarPendientes() > 0;
+    }
+
+    /**
+     * Vence las reservas de todos los parqueaderos cargados
+     *
+     * @return El numero total de reservas vencidas
+     */
+    public int procesarVencimientos() {
+        int vencidas = 0;
+        for (Cargado cargado : cargados.values()) {
+            vencidas += cargado.gestor.procesarVencimientos();
+        }
+        return vencidas;
+    }
+
+    /**
+     * Toma una muestra de la ocupacion de cada parqueadero con series.
+     * Uno descargado esta vacio, asi que se registra sin ocupacion.
+     */
+    public void muestrearOcupacion() {
+        long ahora = reloj.ahoraMillis();
+        for (Map.Entry<String, SeriesOcupacion> entrada : seriesOcupacion.entrySet()) {
+            Cargado cargado = cargados.get(entrada.getKey());
+            if (cargado != null) {
+                cargado.gestor.muestrearOcupacion();
+            } else {
+                entrada.getValue().registrarVacio(ahora);
+            }
+        }
+    }
+
+    /**
+     * Guarda el modelo de ocupacion de todos los parqueaderos con series
+     *
+     * @return El numero de modelos guardados
+     */
+    public int guardarSeriesOcupacion() {
+        int guardados = 0;
+        for (SeriesOcupacion series : seriesOcupacion.values()) {
+            if (GestorArchivos.guardarSeriesOcupacion(series)) {
+                guardados++;
+            }
+        }
+        return guardados;
+    }
+
+    /**
+     * Cierra el dia de los parqueaderos cargados cuyo dia ya termino, y el
+     * de los descargados que tuvieron salidas antes de descargarse
+     *
+     * @return El numero de parqueaderos con dias cerrados
+     */
+    public int cerrarDias() {
+        int cerrados = 0;
+        for (Cargado cargado : cargados.values()) {
+            if (cargado.gestor.cerrarDiaSiTermino() != null) {
+                cerrados++;
+            }
+        }
+
+        LocalDate hoy = reloj.ahora().toLocalDate();
+        for (String nombre : jornadas.keySet()) {
+            // Se separan dentro de computeIfPresent para no competir con una carga que las retome
+            ArrayList<GestorParqueadero.Jornada> terminadas = new ArrayList<GestorParqueadero.Jornada>();
+            jornadas.computeIfPresent(nombre, (clave, actuales) -> {
+                ArrayList<GestorParqueadero.Jornada> abiertas = new ArrayList<GestorParqueadero.Jornada>();
+                for (GestorParqueadero.Jornada jornada : actuales) {
+                    if (jornada.getFecha().isBefore(hoy)) {
+                        terminadas.add(jornada);
+                    } else {
+                        abiertas.add(jornada);
+                    }
+                }
+                return abiertas.isEmpty() ? null : abiertas;
+            });
+            if (GestorParqueadero.guardarResumenes(nombre, terminadas, reloj) != null) {
+                cerrados++;
+            }
+        }
+        return cerrados;
+    }
+
+    /**
+     * Inicia un unico hilo de fondo que vence las reservas de todos los parqueaderos
+     * cargados, cierra sus dias, toma las muestras de ocupacion y descarga los inactivos,
+     * en lugar de un hilo por parqueadero
+     *
+     * @param segundosDescarga Cada cuantos segundos se buscan parqueaderos inactivos
+     */
+    public synchronized void iniciarMantenimiento(int segundosDescarga) {
+        if (mantenimiento != null) {
+            return;
+        }
+
+        mantenimiento = Executors.newSingleThreadScheduledExecutor(tarea -> {
+            Thread hilo = new Thread(tarea, "mantenimiento-parqueaderos");
+            hilo.setDaemon(true);
+            return hilo;
+        });
+        mantenimiento.scheduleAtFixedRate(this::procesarVencimientos,
+                GestorReservas.DURACION_TICK_MILLIS, GestorReservas.DURACION_TICK_MILLIS, TimeUnit.MILLISECONDS);
+        mantenimiento.scheduleAtFixedRate(this::cerrarDias, 1, 1, TimeUnit.MINUTES);
+        mantenimiento.scheduleAtFixedRate(this::muestrearOcupacion, SeriesOcupacion.INTERVALO_MUESTRA_MILLIS,
+                SeriesOcupacion.INTERVALO_MUESTRA_MILLIS, TimeUnit.MILLISECONDS);
+        mantenimiento.scheduleAtFixedRate(this::guardarSeriesOcupacion, 1, 1, TimeUnit.HOURS);
+        mantenimiento.scheduleAtFixedRate(this::descargarInactivos,
+                segundosDescarga, segundosDescarga, TimeUnit.SECONDS);
+    }
+
+    /**
+     * Detiene el hilo de mantenimiento y guarda los modelos de ocupacion
+     */
+    public synchronized void detener() {
+        if (mantenimiento != null) {
+            mantenimiento.shutdownNow();
+            mantenimiento = null;
+            guardarSeriesOcupacion();
+        }
+    }
+
+    /**
+     * Verifica si un parqueadero esta cargado en memoria
+     *
+     * @param nombre El nombre del parqueadero
+     * @return true si esta cargado
+     */
+    public boolean estaCargado(String nombre) {
+        return cargados.containsKey(nombre);
+    }
+
+    /**
+     * Obtiene los nombres de los parqueaderos cargados, ordenados
+     *
+     * @return La lista de nombres
+     */
+    public ArrayList<String> listarCargados() {
+        ArrayList<String> nombres = new ArrayList<String>(cargados.keySet());
+        Collections.sort(nombres);
+        return nombres;
+    }
+
+    /**
+     * Obtiene los nombres de todos los parqueaderos conocidos (cargados o en el archivo)
+     *
+     * @return La lista de nombres sin repetir, ordenada
+     */
+    public ArrayList<String> listarTodos() {
+        ArrayList<String> nombres = listarCargados();
+        ArrayList<String> enArchivo = GestorArchivos.cargarNombresParqueaderos();
+        for (int i = 0; i < enArchivo.size(); i++) {
+            if (!nombres.contains(enArchivo.get(i))) {
+                nombres.add(enArchivo.get(i));
+            }
+        }
+        Collections.sort(nombres);
+        return nombres;
+    }
+
+    /**
+     * Muestra el estado del registro
+     *
+     * @return String con el estado
+     */
+    public String mostrarInformacion() {
+        StringBuilder info = new StringBuilder();
+        info.append("\n======== REGISTRO DE PARQUEADEROS ========\n");
+        info.append("Parqueaderos Cargados: ").append(cargados.size()).append("\n");
+        info.append("Cargas desde Archivo: ").append(cargas.get()).append("\n");
+        info.append("Descargas: ").append(descargas.get()).append("\n");
+        info.append("Vehiculos en la Red: ").append(indicePlacas.contarPlacas()).append("\n");
+        for (String nombre : listarCargados()) {
+            Cargado cargado = cargados.get(nombre);
+            if (cargado != null) {
+                info.append("- ").append(nombre).append(": ");
+                info.append(cargado.gestor.contarTicketsActivos()).append(" vehiculos\n");
+            }
+        }
+        info.append("==========================================\n");
+
+        return info.toString();
+    }
+}
@@ -0,0 +1,475 @@
+package servicio;
+
+import modelo.Espacio;
+import modelo.Parqueadero;
+import modelo.Reloj;
+import utilidad.HistogramaLatencia;
+import utilidad.Json;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * Replica de un parqueadero que sigue a un primario por TCP.
+ * Recibe el diario de entradas, salidas y reservas y lo aplica en orden a su
+ * propio gestor, con el reloj puesto en el momento de cada evento, asi queda
+ * con los mismos vehiculos, reservas y horas de entrada que el primario.
+ * Cada vez que el diario se lee desde el evento 0 (al empezar o si el
+ * primario perdio eventos) se parte de un gestor y un reloj nuevos.
+ * Si el primario se cae la replica se puede promover: deja de seguirlo y
+ * su gestor pasa a usar el reloj del sistema para atender las puertas.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class ReplicaParqueadero {
+
+    /**
+     * Cada cuantos eventos aplicados se confirma al primario
+     */
+    private static final int EVENTOS_POR_CONFIRMACION = 256;
+
+    /**
+     * Espera antes de reconectar si se pierde el primario
+     */
+    private static final long ESPERA_RECONEXION_MILLIS = 1000;
+
+    /**
+     * Reloj de la replica: sigue los eventos del primario y, al promoverse,
+     * pasa a ser el reloj del sistema
+     */
+    private static class RelojReplica implements Reloj {
+
+        /**
+         * Momento del ultimo evento aplicado
+         */
+        private volatile long millis;
+
+        /**
+         * Indica si la replica ya fue promovida
+         */
+        private volatile boolean promovido;
+
+        /**
+         * Constructor del reloj
+         *
+         * @param millis El momento inicial
+         */
+        RelojReplica(long millis) {
+            this.millis = millis;
+        }
+
+        @Override
+        public long ahoraMillis() {
+            return promovido ? System.currentTimeMillis() : millis;
+        }
+    }
+
+    /**
+     * Gestor donde se aplican los eventos; se cambia por uno nuevo al leer el diario desde el principio
+     */
+    private volatile GestorParqueadero gestor;
+
+    /**
+     * Reloj del gestor; se cambia junto con el gestor
+     */
+    private volatile RelojReplica reloj;
+
+    /**
+     * Copia vacia del parqueadero, para crear los gestores nuevos
+     */
+    private final Parqueadero plantilla;
+
+    /**
+     * Recibe el gestor nuevo cada vez que se cambia (null si nadie lo necesita)
+     */
+    private volatile Consumer<GestorParqueadero> alCambiarGestor;
+
+    /**
+     * Host del primario
+     */
+    private final String hostPrimario;
+
+    /**
+     * Puerto de replicacion del primario
+     */
+    private final int puertoPrimario;
+
+    /**
+     * Retraso de cada evento (desde que el primario lo registro hasta aplicarlo) en nanosegundos
+     */
+    private final HistogramaLatencia retrasos;
+
+    /**
+     * Siguiente secuencia que falta aplicar
+     */
+    private volatile long siguiente;
+
+    /**
+     * Siguiente secuencia del primario segun el ultimo latido
+     */
+    private volatile long cabezaPrimario;
+
+    /**
+     * Veces que el diario del primario resulto mas corto que lo aplicado
+     */
+    private volatile long desincronizaciones;
+
+    /**
+     * Retraso del ultimo evento aplicado en milisegundos
+     */
+    private volatile long ultimoRetrasoMillis;
+
+    /**
+     * Indica si hay conexion con el primario
+     */
+    private volatile boolean conectado;
+
+    /**
+     * Indica si la replica sigue al primario (false al detenerse o promoverse)
+     */
+    private volatile boolean siguiendo;
+
+    /**
+     * Socket actual con el primario
+     */
+    private volatile Socket socket;
+
+    /**
+     * Hilo que recibe y aplica los eventos
+     */
+    private Thread hilo;
+
+    /**
+     * Constructor de la clase ReplicaParqueadero
+     *
+     * @param parqueadero El parqueadero replicado (misma configuracion que el primario, vacio)
+     * @param hostPrimario El host del primario
+     * @param puertoPrimario El puerto de replicacion del primario
+     */
+    public ReplicaParqueadero(Parqueadero parqueadero, String hostPrimario, int puertoPrimario) {
+        this.plantilla = copiarVacio(parqueadero);
+        this.reloj = new RelojReplica(System.currentTimeMillis());
+        this.gestor = new GestorParqueadero(parqueadero, reloj);
+        this.gestor.setMostrarMensajes(false);
+        this.hostPrimario = hostPrimario;
+        this.puertoPrimario = puertoPrimario;
+        this.retrasos = new HistogramaLatencia();
+    }
+
+    /**
+     * Crea un parqueadero vacio con los mismos espacios que otro
+     *
+     * @param parqueadero El parqueadero original
+     * @return La copia sin vehiculos ni reservas
+     */
+    private static Parqueadero copiarVacio(Parqueadero parqueadero) {
+        Parqueadero copia = new Parqueadero(parqueadero.getNombre(), parqueadero.getCapacidadTotal());
+        copia.setEstrategiaAsignacion(parqueadero.getEstrategiaAsignacion());
+        for (Espacio espacio : parqueadero.getEspacios()) {
+            copia.agregarEspacio(new Espacio(espacio.getNumero(), espacio.getTipoVehiculo()));
+        }
+        return copia;
+    }
+
+    /**
+     * Obtiene el gestor de la replica. Puede cambiar mientras se sigue al
+     * primario; para no perder el cambio usar setAlCambiarGestor
+     *
+     * @return El gestor actual
+     */
+    public GestorParqueadero getGestor() {
+        return gestor;
+    }
+
+    /**
+     * Indica a quien avisar cuando la replica cambia de gestor (por ejemplo al servidor)
+     *
+     * @param alCambiarGestor Recibe el gestor nuevo
+     */
+    public void setAlCambiarGestor(Consumer<GestorParqueadero> alCambiarGestor) {
+        this.alCambiarGestor = alCambiarGestor;
+    }
+
+    /**
+     * Cambia el gestor y el reloj por unos nuevos, sin vehiculos ni reservas,
+     * para volver a aplicar el diario desde el evento 0
+     *
+     * @param millis El momento inicial del reloj nuevo
+     */
+    private void reiniciar(long millis) {
+        RelojReplica nuevoReloj = new RelojReplica(millis);
+        GestorParqueadero nuevoGestor = new GestorParqueadero(copiarVacio(plantilla), nuevoReloj);
+        nuevoGestor.setMostrarMensajes(false);
+        reloj = nuevoReloj;
+        gestor = nuevoGestor;
+
+        Consumer<GestorParqueadero> aviso = alCambiarGestor;
+        if (aviso != null) {
+            aviso.accept(nuevoGestor);
+        }
+    }
+
+    /**
+     * Empieza a seguir al primario en un hilo de fondo
+     */
+    public synchronized void iniciar() {
+        if (hilo != null) {
+            return;
+        }
+        siguiendo = true;
+        hilo = new Thread(this::seguir, "replica-" + gestor.getParqueadero().getNombre());
+        hilo.setDaemon(true);
+        hilo.start();
+    }
+
+    /**
+     * Deja de seguir al primario
+     */
+    public synchronized void detener() {
+        siguiendo = false;
+        Socket actual = socket;
+        if (actual != null) {
+            try {
+                actual.close();
+            } catch (IOException e) {
+                // Ya estaba cerrado
+            }
+        }
+        if (hilo != null) {
+            try {
+                hilo.join(2000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            hilo = null;
+        }
+    }
+
+    /**
+     * Promueve la replica a primario: deja de seguir al primario y el
+     * gestor pasa a usar el reloj del sistema
+     *
+     * @return El gestor, listo para atender entradas y salidas
+     */
+    public GestorParqueadero promover() {
+        detener();
+        reloj.promovido = true;
+        return gestor;
+    }
+
+    /**
+     * Verifica si la replica ya fue promovida
+     *
+     * @return true si fue promovida
+     */
+    public boolean isPromovida() {
+        return reloj.promovido;
+    }
+
+    /**
+     * Se conecta al primario y aplica sus eventos, reconectando si se pierde la conexion
+     */
+    private void seguir() {
+        while (siguiendo) {
+            try (Socket conexion = new Socket()) {
+                conexion.connect(new InetSocketAddress(hostPrimario, puertoPrimario), 2000);
+                conexion.setTcpNoDelay(true);
+                socket = conexion;
+                conectado = true;
+                recibir(conexion);
+            } catch (IOException e) {
+                // Primario caido o conexion cerrada; se reintenta
+            } finally {
+                conectado = false;
+                socket = null;
+            }
+
+            if (siguiendo) {
+                try {
+                    Thread.sleep(ESPERA_RECONEXION_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Recibe los eventos de una conexion y los aplica
+     *
+     * @param conexion La conexion con el primario
+     * @throws IOException Si se pierde la conexion
+     */
+    private void recibir(Socket conexion) throws IOException {
+        BufferedReader entrada = new BufferedReader(
+                new InputStreamReader(conexion.getInputStream(), StandardCharsets.UTF_8));
+        BufferedWriter salida = new BufferedWriter(
+                new OutputStreamWriter(conexion.getOutputStream(), StandardCharsets.UTF_8));
+
+        salida.write("DESDE " + siguiente);
+        salida.newLine();
+        salida.flush();
+
+        long sinConfirmar = 0;
+        String linea;
+        while (siguiendo && (linea = entrada.readLine()) != null) {
+            String[] partes = linea.split("\\|", 7);
+
+            if (partes[0].equals("LATIDO") && partes.length >= 2) {
+                long cabeza = Long.parseLong(partes[1]);
+                if (cabeza < siguiente) {
+                    // El diario del primario es mas corto que lo aplicado: se reinicio sin su archivo
+                    // (o perdio el final), y desde aqui nunca llegaria un evento con la secuencia pedida
+                    System.out.println("Advertencia: El primario " + hostPrimario + ":" + puertoPrimario +
+                            " tiene " + cabeza + " eventos y la replica ya aplico " + siguiente +
+                            "; se vuelve a leer su diario desde el principio");
+                    // Lo aplicado ya no corresponde al diario del primario: se descarta todo
+                    reiniciar(partes.length >= 3 ? Long.parseLong(partes[2]) : System.currentTimeMillis());
+                    siguiente = 0;
+                    cabezaPrimario = cabeza;
+                    desincronizaciones++;
+                    return;
+                }
+                cabezaPrimario = cabeza;
+                sinConfirmar = EVENTOS_POR_CONFIRMACION;
+            } else if (partes[0].equals("EVENTO") && partes.length >= 6) {
+                long secuencia = Long.parseLong(partes[1]);
+                if (secuencia == siguiente) {
+                    long momento = Long.parseLong(partes[3]);
+                    if (secuencia == 0) {
+                        // El diario empieza de nuevo: el reloj arranca en el primer evento, aunque sea viejo
+                        reiniciar(momento);
+                    }
+                    int minutos = partes.length == 7 ? Integer.parseInt(partes[6]) : 0;
+                    aplicar(Long.parseLong(partes[2]), momento, partes[4].charAt(0), partes[5], minutos);
+                    siguiente = secuencia + 1;
+                    cabezaPrimario = Math.max(cabezaPrimario, siguiente);
+                    sinConfirmar++;
+                }
+            }
+
+            // Confirmar cada tantos eventos o cuando el primario se pone al dia (latido)
+            if (sinConfirmar >= EVENTOS_POR_CONFIRMACION || !entrada.ready()) {
+                salida.write("ACK " + siguiente);
+                salida.newLine();
+                salida.flush();
+                sinConfirmar = 0;
+            }
+        }
+    }
+
+    /**
+     * Aplica un evento del primario al gestor de la replica
+     *
+     * @param registradoMillis La hora real en que el primario registro el evento
+     * @param momentoMillis El momento del evento segun el reloj del primario
+     * @param tipo 'E', 'S', 'R', 'C' o 'V'
+     * @param placa La placa
+     * @param minutos Los minutos de la reserva, o 0 si no es una reserva
+     */
+    private void aplicar(long registradoMillis, long momentoMillis, char tipo, String placa, int minutos) {
+        // El reloj nunca retrocede, igual que al reproducir un archivo
+        if (momentoMillis > reloj.millis) {
+            reloj.millis = momentoMillis;
+        }
+
+        switch (tipo) {
+            case 'E':
+                gestor.registrarEntrada(placa);
+                break;
+            case 'S':
+                gestor.registrarSalida(placa);
+                break;
+            case 'R':
+                gestor.reservarEspacio(placa, minutos);
+                break;
+            case 'C':
+                gestor.cancelarReserva(placa);
+                break;
+            case 'V':
+                gestor.vencerReserva(placa);
+                break;
+            default:
+                System.out.println("Advertencia: Evento de tipo desconocido " + tipo + " para " + placa);
+        }
+
+        // Medido con la hora real de ambos procesos: exacto en la misma maquina,
+        // entre maquinas depende de que los relojes esten sincronizados
+        long retraso = Math.max(0, System.currentTimeMillis() - registradoMillis);
+        ultimoRetrasoMillis = retraso;
+        retrasos.registrar(retraso * 1_000_000L);
+    }
+
+    /**
+     * Obtiene cuantos eventos le faltan a la replica segun el ultimo latido
+     *
+     * @return El retraso en eventos
+     */
+    public long getRetrasoEventos() {
+        return Math.max(0, cabezaPrimario - siguiente);
+    }
+
+    /**
+     * Obtiene cuantos eventos del diario del primario lleva aplicados la replica
+     *
+     * @return La siguiente secuencia que falta aplicar
+     */
+    public long getAplicados() {
+        return siguiente;
+    }
+
+    /**
+     * Obtiene las veces que el diario del primario resulto mas corto que lo
+     * aplicado y hubo que volver a leerlo desde el principio
+     *
+     * @return Las desincronizaciones
+     */
+    public long getDesincronizaciones() {
+        return desincronizaciones;
+    }
+
+    /**
+     * Obtiene el retraso del ultimo evento aplicado
+     *
+     * @return El retraso en milisegundos
+     */
+    public long getUltimoRetrasoMillis() {
+        return ultimoRetrasoMillis;
+    }
+
+    /**
+     * Obtiene el histograma de retrasos
+     *
+     * @return Los retrasos en nanosegundos
+     */
+    public HistogramaLatencia getRetrasos() {
+        return retrasos;
+    }
+
+    /**
+     * Muestra el estado de la replica como JSON
+     *
+     * @return El JSON con el estado y el retraso
+     */
+    public String mostrarJson() {
+        StringBuilder json = new StringBuilder("{");
+        Json.campo(json, "rol", isPromovida() ? "PROMOVIDA" : "REPLICA").append(',');
+        Json.campo(json, "primario", hostPrimario + ":" + puertoPrimario).append(',');
+        Json.campo(json, "conectado", conectado).append(',');
+        Json.campo(json, "aplicados", siguiente).append(',');
+        Json.campo(json, "retrasoEventos", getRetrasoEventos()).append(',');
+        Json.campo(json, "desincronizaciones", desincronizaciones).append(',');
+        Json.campo(json, "ultimoRetrasoMs", ultimoRetrasoMillis).append(',');
+        Json.campo(json, "retrasoP99Ms", retrasos.percentil(99) / 1e6).append(',');
+        Json.campo(json, "vehiculos", gestor.contarTicketsActivos()).append(',');
+        Json.campo(json, "reservas", gestor.getGestorReservas().contarPendientes());
+        return json.append('}').toString();
+    }
+}
@@ -0,0 +1,286 @@
+package servicio;
+
+import utilidad.Json;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Lado primario de la replicacion de un parqueadero.
+ * Escucha conexiones TCP de replicas y a cada una le envia el diario de
+ * eventos desde donde la replica diga, y luego cada evento nuevo apenas
+ * ocurre. El envio es asincrono: la puerta nunca espera a las replicas.
+ *
+ * Protocolo (lineas de texto):
+ * replica a primario: DESDE n (al conectarse) y ACK n (eventos aplicados)
+ * primario a replica: EVENTO|secuencia|registradoMillis|momentoMillis|tipo|placa
+ * (tipo E, S, R, C o V; las reservas R llevan |minutos al final)
+ * y LATIDO|siguienteSecuencia|horaMillis cuando no hay eventos
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class ReplicadorPrimario {
+
+    /**
+     * Maximo de eventos que se envian de una vez
+     */
+    private static final int TAMANO_LOTE = 512;
+
+    /**
+     * Cada cuanto se envia un latido si no hay eventos
+     */
+    private static final long INTERVALO_LATIDO_MILLIS = 1000;
+
+    /**
+     * Replica conectada y lo que ha confirmado
+     */
+    private static class ConexionReplica {
+
+        /**
+         * Direccion de la replica
+         */
+        private final String direccion;
+
+        /**
+         * Siguiente secuencia que la replica dice no tener aun
+         */
+        private volatile long confirmado;
+
+        /**
+         * Hora real de la ultima confirmacion
+         */
+        private volatile long ultimaConfirmacionMillis;
+
+        /**
+         * Socket de la replica, para cerrarlo al detener el replicador
+         */
+        private final Socket socket;
+
+        /**
+         * Constructor de la conexion
+         *
+         * @param socket El socket de la replica
+         * @param desde La secuencia desde la que pidio eventos
+         */
+        ConexionReplica(Socket socket, long desde) {
+            this.socket = socket;
+            this.direccion = String.valueOf(socket.getRemoteSocketAddress());
+            this.confirmado = desde;
+            this.ultimaConfirmacionMillis = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * Diario que se replica
+     */
+    private final DiarioEventos diario;
+
+    /**
+     * Puerto donde escuchan las replicas (0 = cualquiera libre)
+     */
+    private final int puerto;
+
+    /**
+     * Replicas conectadas
+     */
+    private final CopyOnWriteArrayList<ConexionReplica> replicas;
+
+    /**
+     * Socket que acepta replicas
+     */
+    private ServerSocket servidor;
+
+    /**
+     * Indica si el replicador esta activo
+     */
+    private volatile boolean activo;
+
+    /**
+     * Constructor de la clase ReplicadorPrimario
+     *
+     * @param diario El diario del parqueadero (ya enganchado al gestor como escucha)
+     * @param puerto El puerto donde escuchan las replicas
+     */
+    public ReplicadorPrimario(DiarioEventos diario, int puerto) {
+        this.diario = diario;
+        this.puerto = puerto;
+        this.replicas = new CopyOnWriteArrayList<ConexionReplica>();
+    }
+
+    /**
+     * Empieza a aceptar replicas
+     *
+     * @throws IOException Si no se puede abrir el puerto
+     */
+    public synchronized void iniciar() throws IOException {
+        servidor = new ServerSocket();
+        servidor.setReuseAddress(true);
+        servidor.bind(new InetSocketAddress(puerto));
+        activo = true;
+
+        Thread aceptador = new Thread(this::aceptar, "replicacion-aceptar");
+        aceptador.setDaemon(true);
+        aceptador.start();
+    }
+
+    /**
+     * Obtiene el puerto donde escuchan las replicas
+     *
+     * @return El puerto real
+     */
+    public int getPuerto() {
+        return servidor != null ? servidor.getLocalPort() : puerto;
+    }
+
+    /**
+     * Deja de aceptar replicas y cierra las conexiones
+     */
+    public synchronized void detener() {
+        activo = false;
+        if (servidor != null) {
+            try {
+                servidor.close();
+            } catch (IOException e) {
+                // Ya estaba cerrado
+            }
+        }
+        for (ConexionReplica replica : replicas) {
+            try {
+                replica.socket.close();
+            } catch (IOException e) {
+                // Ya estaba cerrado
+            }
+        }
+    }
+
+    /**
+     * Acepta replicas y atiende cada una en su propio hilo
+     */
+    private void aceptar() {
+        while (activo) {
+            try {
+                Socket socket = servidor.accept();
+                socket.setTcpNoDelay(true);
+                Thread hilo = new Thread(() -> atender(socket), "replicacion-" + socket.getRemoteSocketAddress());
+                hilo.setDaemon(true);
+                hilo.start();
+            } catch (IOException e) {
+                if (activo) {
+                    System.out.println("Error al aceptar una replica: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Envia el diario a una replica hasta que se desconecte
+     *
+     * @param socket La conexion con la replica
+     */
+    private void atender(Socket socket) {
+        ConexionReplica replica = null;
+        try (Socket conexion = socket) {
+            BufferedReader entrada = new BufferedReader(
+                    new InputStreamReader(conexion.getInputStream(), StandardCharsets.UTF_8));
+            BufferedWriter salida = new BufferedWriter(
+                    new OutputStreamWriter(conexion.getOutputStream(), StandardCharsets.UTF_8));
+
+            String saludo = entrada.readLine();
+            if (saludo == null || !saludo.startsWith("DESDE ")) {
+                return;
+            }
+
+            long siguiente = Long.parseLong(saludo.substring(6).trim());
+            replica = new ConexionReplica(conexion, siguiente);
+            replicas.add(replica);
+
+            long ultimoEnvio = System.currentTimeMillis();
+            while (activo) {
+                List<DiarioEventos.Registro> lote = diario.obtenerDesde(siguiente, TAMANO_LOTE, INTERVALO_LATIDO_MILLIS);
+
+                for (DiarioEventos.Registro registro : lote) {
+                    salida.write("EVENTO|" + registro.getSecuencia() + "|" + registro.getRegistradoMillis() + "|"
+                            + registro.getMomentoMillis() + "|" + registro.getTipo() + "|" + registro.getPlaca());
+                    if (registro.getTipo() == 'R') {
+                        salida.write("|" + registro.getMinutos());
+                    }
+                    salida.newLine();
+                }
+                siguiente += lote.size();
+
+                long ahora = System.currentTimeMillis();
+                if (lote.isEmpty() || ahora - ultimoEnvio >= INTERVALO_LATIDO_MILLIS) {
+                    salida.write("LATIDO|" + diario.contarRegistros() + "|" + ahora);
+                    salida.newLine();
+                    ultimoEnvio = ahora;
+                }
+                salida.flush();
+
+                // Leer las confirmaciones que hayan llegado sin bloquear el envio
+                while (entrada.ready()) {
+                    String linea = entrada.readLine();
+                    if (linea == null) {
+                        return;
+                    }
+                    if (linea.startsWith("ACK ")) {
+                        replica.confirmado = Long.parseLong(linea.substring(4).trim());
+                        replica.ultimaConfirmacionMillis = System.currentTimeMillis();
+                    }
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            // La replica se desconecto o envio algo invalido; volvera a conectarse
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (replica != null) {
+                replicas.remove(replica);
+            }
+        }
+    }
+
+    /**
+     * Obtiene el numero de replicas conectadas
+     *
+     * @return El numero de replicas
+     */
+    public int contarReplicas() {
+        return replicas.size();
+    }
+
+    /**
+     * Muestra el estado de la replicacion como JSON
+     *
+     * @return El JSON con la cabeza del diario y el retraso de cada replica
+     */
+    public String mostrarJson() {
+        long cabeza = diario.contarRegistros();
+        StringBuilder json = new StringBuilder("{");
+        Json.campo(json, "rol", "PRIMARIO").append(',');
+        Json.campo(json, "eventos", cabeza).append(',');
+        Json.texto(json, "replicas").append(":[");
+
+        int i = 0;
+        for (ConexionReplica replica : replicas) {
+            if (i++ > 0) {
+                json.append(',');
+            }
+            json.append('{');
+            Json.campo(json, "direccion", replica.direccion).append(',');
+            Json.campo(json, "confirmados", replica.confirmado).append(',');
+            Json.campo(json, "retrasoEventos", Math.max(0, cabeza - replica.confirmado)).append(',');
+            Json.campo(json, "msDesdeConfirmacion", System.currentTimeMillis() - replica.ultimaConfirmacionMillis);
+            json.append('}');
+        }
+        return json.append("]}").toString();
+    }
+}
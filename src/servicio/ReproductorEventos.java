@@ -0,0 +1,208 @@
+package servicio;
+
+import modelo.RelojManual;
+import utilidad.HistogramaLatencia;
+import utilidad.LectorEventos;
+import java.io.IOException;
+
+/**
+ * Clase encargada de reproducir un archivo de eventos sin interaccion.
+ * Lee las entradas, salidas y reservas de un archivo (por ejemplo los
+ * registros de las camaras o un diario de eventos) y las aplica al gestor con un reloj manual, asi el
+ * resultado es el mismo que si hubieran ocurrido en tiempo real.
+ * Se puede reproducir lo mas rapido posible o a la velocidad real
+ * multiplicada por un factor.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class ReproductorEventos {
+
+    /**
+     * Gestor al que se aplican los eventos
+     */
+    private final GestorParqueadero gestor;
+
+    /**
+     * Reloj manual del gestor, se mueve al momento de cada evento
+     */
+    private final RelojManual reloj;
+
+    /**
+     * Factor de velocidad (0 = lo mas rapido posible, 1 = tiempo real, 60 = un minuto por segundo)
+     */
+    private final double factorVelocidad;
+
+    /**
+     * Latencia de cada operacion en nanosegundos
+     */
+    private final HistogramaLatencia latencias;
+
+    /**
+     * Numero de eventos procesados
+     */
+    private long eventosProcesados;
+
+    /**
+     * Numero de entradas aceptadas
+     */
+    private long entradasAceptadas;
+
+    /**
+     * Numero de salidas aceptadas
+     */
+    private long salidasAceptadas;
+
+    /**
+     * Numero de eventos rechazados por el gestor
+     */
+    private long eventosRechazados;
+
+    /**
+     * Tiempo real que tomo la reproduccion en nanosegundos
+     */
+    private long duracionNanos;
+
+    /**
+     * Constructor de la clase ReproductorEventos
+     *
+     * @param gestor El gestor al que se aplican los eventos (creado con el reloj manual)
+     * @param reloj El reloj manual del gestor
+     * @param factorVelocidad El factor de velocidad (0 = lo mas rapido posible)
+     */
+    public ReproductorEventos(GestorParqueadero gestor, RelojManual reloj, double factorVelocidad) {
+        this.gestor = gestor;
+        this.reloj = reloj;
+        this.factorVelocidad = factorVelocidad;
+        this.latencias = new HistogramaLatencia();
+    }
+
+    /**
+     * Reproduce todos los eventos de un archivo
+     *
+     * @param lector El lector del archivo de eventos
+     * @throws IOException Si hay un error de lectura
+     * @throws InterruptedException Si se interrumpe la espera en modo tiempo real
+     */
+    public void reproducir(LectorEventos lector) throws IOException, InterruptedException {
+        long inicioReal = System.nanoTime();
+        long primerEvento = -1;
+
+        while (lector.siguiente()) {
+            long momento = lector.getMomentoMillis();
+
+            if (primerEvento < 0) {
+                primerEvento = momento;
+            }
+
+            if (factorVelocidad > 0) {
+                esperarHasta(inicioReal, momento - primerEvento);
+            }
+
+            // El reloj nunca retrocede aunque el archivo venga algo desordenado
+            if (momento > reloj.ahoraMillis()) {
+                reloj.establecer(momento);
+            }
+
+            long inicio = System.nanoTime();
+            boolean aceptado;
+            switch (lector.getTipo()) {
+                case 'E':
+                    aceptado = gestor.registrarEntrada(lector.getPlaca()) != null;
+                    if (aceptado) {
+                        entradasAceptadas++;
+                    }
+                    break;
+                case 'S':
+                    aceptado = gestor.registrarSalida(lector.getPlaca()) != null;
+                    if (aceptado) {
+                        salidasAceptadas++;
+                    }
+                    break;
+                case 'R':
+                    aceptado = gestor.reservarEspacio(lector.getPlaca(), lector.getMinutos()) != null;
+                    break;
+                case 'C':
+                    aceptado = gestor.cancelarReserva(lector.getPlaca()) != null;
+                    break;
+                default:
+                    // Con el reloj ya en ese momento la rueda pudo haberla vencido sola
+                    gestor.vencerReserva(lector.getPlaca());
+                    aceptado = true;
+            }
+            latencias.registrar(System.nanoTime() - inicio);
+
+            if (!aceptado) {
+                eventosRechazados++;
+            }
+            eventosProcesados++;
+        }
+
+        duracionNanos = System.nanoTime() - inicioReal;
+    }
+
+    /**
+     * Espera hasta que llegue el momento real que corresponde a un evento
+     *
+     * @param inicioReal Momento real (nanoTime) en que empezo la reproduccion
+     * @param transcurridoMillis Milisegundos del archivo desde el primer evento
+     * @throws InterruptedException Si se interrumpe la espera
+     */
+    private void esperarHasta(long inicioReal, long transcurridoMillis) throws InterruptedException {
+        long objetivo = inicioReal + (long) (transcurridoMillis * 1_000_000L / factorVelocidad);
+        long espera = objetivo - System.nanoTime();
+        if (espera > 0) {
+            Thread.sleep(espera / 1_000_000L, (int) (espera % 1_000_000L));
+        }
+    }
+
+    /**
+     * Obtiene el histograma de latencias
+     *
+     * @return El histograma de latencias en nanosegundos
+     */
+    public HistogramaLatencia getLatencias() {
+        return latencias;
+    }
+
+    /**
+     * Obtiene el numero de eventos procesados
+     *
+     * @return El numero de eventos
+     */
+    public long getEventosProcesados() {
+        return eventosProcesados;
+    }
+
+    /**
+     * Obtiene el numero de eventos rechazados
+     *
+     * @return El numero de eventos rechazados
+     */
+    public long getEventosRechazados() {
+        return eventosRechazados;
+    }
+
+    /**
+     * Muestra el resumen de la reproduccion
+     *
+     * @return String con el resumen
+     */
+    public String mostrarResumen() {
+        double segundos = duracionNanos / 1e9;
+        double eventosPorSegundo = segundos > 0 ? eventosProcesados / segundos : 0.0;
+
+        StringBuilder resumen = new StringBuilder();
+        resumen.append("\n========== RESUMEN DE REPRODUCCION ==========\n");
+        resumen.append("Eventos Procesados: ").append(eventosProcesados).append("\n");
+        resumen.append("Entradas Aceptadas: ").append(entradasAceptadas).append("\n");
+        resumen.append("Salidas Aceptadas: ").append(salidasAceptadas).append("\n");
+        resumen.append("Eventos Rechazados: ").append(eventosRechazados).append("\n");
+        resumen.append("Tiempo Real: ").append(String.format("%.3f", segundos)).append(" s\n");
+        resumen.append("Rendimiento: ").append(String.format("%.0f", eventosPorSegundo)).append(" eventos/s\n");
+        resumen.append("Latencia: ").append(latencias.mostrarResumen()).append("\n");
+        resumen.append("=============================================\n");
+
+        return resumen.toString();
+    }
+}
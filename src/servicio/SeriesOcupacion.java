@@ -0,0 +1,538 @@
+package servicio;
+
+import modelo.Reloj;
+import utilidad.Json;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+
+/**
+ * Historia de la ocupacion por tipo de un parqueadero y pronostico de las
+ * proximas 3 horas. Cada 5 minutos se toma una muestra de la foto de
+ * disponibilidad y se guarda en anillos de tamano fijo (una semana).
+ *
+ * El modelo es un promedio estacional por franja del dia: cada franja de
+ * 5 minutos guarda un promedio exponencial de la ocupacion a esa hora, y
+ * aparte se sigue cuanto se separa hoy el parqueadero de ese promedio. El
+ * pronostico es el promedio de cada franja futura mas esa separacion, que
+ * se va apagando con la distancia. Cada muestra actualiza el modelo en
+ * tiempo constante y deja armado el pronostico, asi leerlo es solo leer
+ * un campo volatil. El modelo (no la historia) se puede guardar y volver
+ * a leer para no empezar de cero al reiniciar.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class SeriesOcupacion {
+
+    /**
+     * Minutos entre muestras
+     */
+    public static final int MINUTOS_POR_MUESTRA = 5;
+
+    /**
+     * Milisegundos entre muestras
+     */
+    public static final long INTERVALO_MUESTRA_MILLIS = MINUTOS_POR_MUESTRA * 60000L;
+
+    /**
+     * Franjas de un dia
+     */
+    private static final int FRANJAS_POR_DIA = 24 * 60 / MINUTOS_POR_MUESTRA;
+
+    /**
+     * Muestras que se guardan por tipo (una semana)
+     */
+    public static final int CAPACIDAD_HISTORIA = 7 * FRANJAS_POR_DIA;
+
+    /**
+     * Pasos del pronostico (3 horas)
+     */
+    public static final int PASOS_PRONOSTICO = 3 * 60 / MINUTOS_POR_MUESTRA;
+
+    /**
+     * Peso de una muestra nueva en el promedio de su franja (cada franja se ve una vez al dia)
+     */
+    private static final double ALFA_ESTACIONAL = 0.25;
+
+    /**
+     * Peso de una muestra nueva en la separacion del dia de hoy respecto al promedio
+     */
+    private static final double ALFA_SEPARACION = 0.5;
+
+    /**
+     * Cuanto queda de la separacion en cada paso del pronostico
+     */
+    private static final double AMORTIGUACION = 0.95;
+
+    /**
+     * Posicion de los autos en los arreglos por tipo
+     */
+    private static final int AUTO = 0;
+
+    /**
+     * Posicion de las motos en los arreglos por tipo
+     */
+    private static final int MOTO = 1;
+
+    /**
+     * Nombre del parqueadero
+     */
+    private final String parqueadero;
+
+    /**
+     * Reloj con la zona para ubicar cada muestra en su franja del dia
+     */
+    private final Reloj reloj;
+
+    /**
+     * Momento de cada muestra del anillo
+     */
+    private final long[] momentos;
+
+    /**
+     * Ocupacion de cada muestra del anillo, por tipo
+     */
+    private final int[][] ocupacion;
+
+    /**
+     * Posicion del anillo donde va la siguiente muestra
+     */
+    private int posicion;
+
+    /**
+     * Muestras guardadas en el anillo (hasta CAPACIDAD_HISTORIA)
+     */
+    private int cantidad;
+
+    /**
+     * Promedio de la ocupacion en cada franja del dia, por tipo
+     */
+    private final double[][] estacional;
+
+    /**
+     * Indica si cada franja ya tiene al menos una muestra
+     */
+    private final boolean[] franjaVista;
+
+    /**
+     * Separacion de hoy respecto al promedio de la franja, por tipo
+     */
+    private final double[] separacion;
+
+    /**
+     * Ultima ocupacion registrada, por tipo
+     */
+    private final int[] ultima;
+
+    /**
+     * Espacios de la ultima muestra, por tipo
+     */
+    private final int[] espacios;
+
+    /**
+     * Ultimo pronostico armado (null si aun no hay muestras)
+     */
+    private volatile Pronostico pronostico;
+
+    /**
+     * Constructor de la clase SeriesOcupacion
+     *
+     * @param parqueadero Nombre del parqueadero
+     * @param reloj Reloj con la zona del parqueadero
+     */
+    public SeriesOcupacion(String parqueadero, Reloj reloj) {
+        this.parqueadero = parqueadero;
+        this.reloj = reloj;
+        this.momentos = new long[CAPACIDAD_HISTORIA];
+        this.ocupacion = new int[2][CAPACIDAD_HISTORIA];
+        this.estacional = new double[2][FRANJAS_POR_DIA];
+        this.franjaVista = new boolean[FRANJAS_POR_DIA];
+        this.separacion = new double[2];
+        this.ultima = new int[2];
+        this.espacios = new int[2];
+    }
+
+    /**
+     * Registra una muestra tomada de la foto de disponibilidad.
+     * Un espacio reservado cuenta como ocupado: no se le puede dar a otro.
+     *
+     * @param momentoMillis El momento de la muestra
+     * @param foto La foto de disponibilidad
+     */
+    public void registrar(long momentoMillis, InstantaneaDisponibilidad foto) {
+        registrar(momentoMillis,
+                foto.getEspaciosAuto() - foto.getDisponiblesAuto(),
+                foto.getEspaciosMoto() - foto.getDisponiblesMoto(),
+                foto.getEspaciosAuto(), foto.getEspaciosMoto());
+    }
+
+    /**
+     * Registra una muestra de un parqueadero vacio, con los espacios de la
+     * muestra anterior (por ejemplo mientras no esta cargado en memoria)
+     *
+     * @param momentoMillis El momento de la muestra
+     */
+    public synchronized void registrarVacio(long momentoMillis) {
+        registrar(momentoMillis, 0, 0, espacios[AUTO], espacios[MOTO]);
+    }
+
+    /**
+     * Registra una muestra, actualiza el modelo y arma el nuevo pronostico
+     *
+     * @param momentoMillis El momento de la muestra
+     * @param ocupadosAuto Espacios de auto ocupados
+     * @param ocupadosMoto Espacios de moto ocupados
+     * @param espaciosAuto Espacios de auto del parqueadero
+     * @param espaciosMoto Espacios de moto del parqueadero
+     */
+    public synchronized void registrar(long momentoMillis, int ocupadosAuto, int ocupadosMoto,
+                                       int espaciosAuto, int espaciosMoto) {
+        momentos[posicion] = momentoMillis;
+        ocupacion[AUTO][posicion] = ocupadosAuto;
+        ocupacion[MOTO][posicion] = ocupadosMoto;
+        posicion = (posicion + 1) % CAPACIDAD_HISTORIA;
+        if (cantidad < CAPACIDAD_HISTORIA) {
+            cantidad++;
+        }
+
+        espacios[AUTO] = espaciosAuto;
+        espacios[MOTO] = espaciosMoto;
+
+        int franja = franjaDe(momentoMillis);
+        actualizar(AUTO, franja, ocupadosAuto);
+        actualizar(MOTO, franja, ocupadosMoto);
+        franjaVista[franja] = true;
+
+        pronostico = new Pronostico(parqueadero, momentoMillis,
+                proyectar(AUTO, franja, espaciosAuto), proyectar(MOTO, franja, espaciosMoto),
+                espaciosAuto, espaciosMoto);
+    }
+
+    /**
+     * Actualiza el promedio de la franja y la separacion de hoy con una muestra
+     *
+     * @param tipo AUTO o MOTO
+     * @param franja La franja de la muestra
+     * @param ocupados La ocupacion de la muestra
+     */
+    private void actualizar(int tipo, int franja, int ocupados) {
+        if (!franjaVista[franja]) {
+            // Primera vez en esta franja: no hay con que comparar
+            estacional[tipo][franja] = ocupados;
+        } else {
+            separacion[tipo] += ALFA_SEPARACION * (ocupados - estacional[tipo][franja] - separacion[tipo]);
+            estacional[tipo][franja] += ALFA_ESTACIONAL * (ocupados - estacional[tipo][franja]);
+        }
+        ultima[tipo] = ocupados;
+    }
+
+    /**
+     * Proyecta la ocupacion de las proximas franjas
+     *
+     * @param tipo AUTO o MOTO
+     * @param franja La franja de la ultima muestra
+     * @param espacios Espacios del tipo, tope del pronostico
+     * @return La ocupacion de cada paso
+     */
+    private int[] proyectar(int tipo, int franja, int espacios) {
+        int[] pasos = new int[PASOS_PRONOSTICO];
+        double peso = 1;
+        for (int i = 0; i < PASOS_PRONOSTICO; i++) {
+            int siguiente = (franja + i + 1) % FRANJAS_POR_DIA;
+            peso *= AMORTIGUACION;
+
+            // Una franja sin historia se supone igual a la ultima muestra
+            double valor = franjaVista[siguiente]
+                    ? estacional[tipo][siguiente] + separacion[tipo] * peso
+                    : ultima[tipo];
+            pasos[i] = (int) Math.max(0, Math.min(espacios, Math.round(valor)));
+        }
+        return pasos;
+    }
+
+    /**
+     * Obtiene la franja del dia de un momento
+     *
+     * @param momentoMillis El momento
+     * @return La franja (0 a FRANJAS_POR_DIA - 1)
+     */
+    private int franjaDe(long momentoMillis) {
+        LocalDateTime fecha = reloj.aFecha(momentoMillis);
+        return (fecha.getHour() * 60 + fecha.getMinute()) / MINUTOS_POR_MUESTRA;
+    }
+
+    /**
+     * Obtiene el ultimo pronostico; no toma candados
+     *
+     * @return El pronostico, o null si aun no hay muestras
+     */
+    public Pronostico getPronostico() {
+        return pronostico;
+    }
+
+    /**
+     * Obtiene las muestras guardadas
+     *
+     * @return El numero de muestras (hasta CAPACIDAD_HISTORIA)
+     */
+    public synchronized int contarMuestras() {
+        return cantidad;
+    }
+
+    /**
+     * Escribe las ultimas muestras, de la mas vieja a la mas nueva,
+     * una por linea: MOMENTO|OCUPADOS_AUTO|OCUPADOS_MOTO
+     *
+     * @param salida Donde se escriben las muestras
+     * @param maximo Maximo de muestras
+     * @throws IOException Si falla la escritura
+     */
+    public synchronized void escribirHistoria(Appendable salida, int maximo) throws IOException {
+        int muestras = Math.min(maximo, cantidad);
+        for (int i = muestras; i > 0; i--) {
+            int indice = (posicion - i + CAPACIDAD_HISTORIA) % CAPACIDAD_HISTORIA;
+            salida.append(reloj.aFecha(momentos[indice]).toString()).append('|')
+                    .append(String.valueOf(ocupacion[AUTO][indice])).append('|')
+                    .append(String.valueOf(ocupacion[MOTO][indice])).append('\n');
+        }
+    }
+
+    /**
+     * Escribe el modelo: una linea con los espacios, la separacion y la
+     * ultima ocupacion, ESPACIOS_AUTO|ESPACIOS_MOTO|SEPARACION_AUTO|SEPARACION_MOTO|ULTIMA_AUTO|ULTIMA_MOTO,
+     * y una por cada franja con muestras, FRANJA|PROMEDIO_AUTO|PROMEDIO_MOTO
+     *
+     * @param salida Donde se escribe el modelo
+     * @throws IOException Si falla la escritura
+     */
+    public synchronized void escribirModelo(Appendable salida) throws IOException {
+        salida.append(String.valueOf(espacios[AUTO])).append('|')
+                .append(String.valueOf(espacios[MOTO])).append('|')
+                .append(String.valueOf(separacion[AUTO])).append('|')
+                .append(String.valueOf(separacion[MOTO])).append('|')
+                .append(String.valueOf(ultima[AUTO])).append('|')
+                .append(String.valueOf(ultima[MOTO])).append('\n');
+        for (int franja = 0; franja < FRANJAS_POR_DIA; franja++) {
+            if (franjaVista[franja]) {
+                salida.append(String.valueOf(franja)).append('|')
+                        .append(String.valueOf(estacional[AUTO][franja])).append('|')
+                        .append(String.valueOf(estacional[MOTO][franja])).append('\n');
+            }
+        }
+    }
+
+    /**
+     * Lee un modelo escrito con escribirModelo() y reemplaza el actual.
+     * Si el formato no es valido el modelo actual no cambia.
+     *
+     * @param entrada De donde se lee el modelo
+     * @return true si se leyo, false si el formato no es valido
+     * @throws IOException Si falla la lectura
+     */
+    public synchronized boolean leerModelo(BufferedReader entrada) throws IOException {
+        String linea = entrada.readLine();
+        if (linea == null) {
+            return false;
+        }
+
+        try {
+            String[] partes = linea.split("\\|");
+            if (partes.length != 6) {
+                return false;
+            }
+            int[] nuevosEspacios = {Integer.parseInt(partes[0]), Integer.parseInt(partes[1])};
+            double[] nuevaSeparacion = {Double.parseDouble(partes[2]), Double.parseDouble(partes[3])};
+            int[] nuevaUltima = {Integer.parseInt(partes[4]), Integer.parseInt(partes[5])};
+
+            double[][] nuevoEstacional = new double[2][FRANJAS_POR_DIA];
+            boolean[] nuevasVistas = new boolean[FRANJAS_POR_DIA];
+            while ((linea = entrada.readLine()) != null) {
+                partes = linea.split("\\|");
+                if (partes.length != 3) {
+                    return false;
+                }
+                int franja = Integer.parseInt(partes[0]);
+                if (franja < 0 || franja >= FRANJAS_POR_DIA) {
+                    return false;
+                }
+                nuevoEstacional[AUTO][franja] = Double.parseDouble(partes[1]);
+                nuevoEstacional[MOTO][franja] = Double.parseDouble(partes[2]);
+                nuevasVistas[franja] = true;
+            }
+
+            for (int tipo = AUTO; tipo <= MOTO; tipo++) {
+                espacios[tipo] = nuevosEspacios[tipo];
+                separacion[tipo] = nuevaSeparacion[tipo];
+                ultima[tipo] = nuevaUltima[tipo];
+                System.arraycopy(nuevoEstacional[tipo], 0, estacional[tipo], 0, FRANJAS_POR_DIA);
+            }
+            System.arraycopy(nuevasVistas, 0, franjaVista, 0, FRANJAS_POR_DIA);
+            return true;
+
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Obtiene el nombre del parqueadero
+     *
+     * @return El nombre
+     */
+    public String getParqueadero() {
+        return parqueadero;
+    }
+
+    /**
+     * Pronostico de la ocupacion de un parqueadero armado con una muestra;
+     * no cambia una vez creado. Guarda el JSON ya convertido a bytes.
+     */
+    public static class Pronostico {
+
+        /**
+         * Momento de la muestra con la que se armo
+         */
+        private final long momentoMillis;
+
+        /**
+         * Ocupacion pronosticada de autos en cada paso
+         */
+        private final int[] auto;
+
+        /**
+         * Ocupacion pronosticada de motos en cada paso
+         */
+        private final int[] moto;
+
+        /**
+         * Minutos hasta que se llenen los espacios de auto (-1 si no se llenan o no hay)
+         */
+        private final int llenoAuto;
+
+        /**
+         * Minutos hasta que se llenen los espacios de moto (-1 si no se llenan o no hay)
+         */
+        private final int llenoMoto;
+
+        /**
+         * JSON del pronostico en UTF-8
+         */
+        private final byte[] json;
+
+        /**
+         * Constructor de la clase Pronostico
+         *
+         * @param parqueadero Nombre del parqueadero
+         * @param momentoMillis Momento de la muestra con la que se armo
+         * @param auto Ocupacion de autos en cada paso
+         * @param moto Ocupacion de motos en cada paso
+         * @param espaciosAuto Espacios de auto
+         * @param espaciosMoto Espacios de moto
+         */
+        Pronostico(String parqueadero, long momentoMillis, int[] auto, int[] moto,
+                   int espaciosAuto, int espaciosMoto) {
+            this.momentoMillis = momentoMillis;
+            this.auto = auto;
+            this.moto = moto;
+            this.llenoAuto = minutosHastaLleno(auto, espaciosAuto);
+            this.llenoMoto = minutosHastaLleno(moto, espaciosMoto);
+
+            StringBuilder texto = new StringBuilder("{");
+            Json.campo(texto, "parqueadero", parqueadero).append(',');
+            Json.campo(texto, "momentoMillis", momentoMillis).append(',');
+            Json.campo(texto, "minutosPorPaso", MINUTOS_POR_MUESTRA).append(',');
+            escribirTipo(texto, "AUTO", auto, espaciosAuto, llenoAuto).append(',');
+            escribirTipo(texto, "MOTO", moto, espaciosMoto, llenoMoto);
+            this.json = texto.append('}').toString().getBytes(StandardCharsets.UTF_8);
+        }
+
+        /**
+         * Escribe el pronostico de un tipo en el JSON
+         *
+         * @param texto El JSON
+         * @param tipo El nombre del tipo
+         * @param pasos La ocupacion de cada paso
+         * @param espacios Los espacios del tipo
+         * @param lleno Minutos hasta que se llenen (-1 si no se llenan)
+         * @return El mismo JSON
+         */
+        private static StringBuilder escribirTipo(StringBuilder texto, String tipo, int[] pasos,
+                                                  int espacios, int lleno) {
+            Json.texto(texto, tipo).append(":{");
+            Json.campo(texto, "espacios", espacios).append(',');
+            Json.campo(texto, "minutosHastaLleno", lleno).append(',');
+            Json.texto(texto, "ocupacion").append(":[");
+            for (int i = 0; i < pasos.length; i++) {
+                if (i > 0) {
+                    texto.append(',');
+                }
+                texto.append(pasos[i]);
+            }
+            return texto.append("]}");
+        }
+
+        /**
+         * Busca el primer paso en que se llenan los espacios
+         *
+         * @param pasos La ocupacion de cada paso
+         * @param espacios Los espacios del tipo
+         * @return Los minutos hasta llenarse, o -1 si no se llena en el horizonte o no hay espacios
+         */
+        private static int minutosHastaLleno(int[] pasos, int espacios) {
+            // Sin espacios de un tipo no hay nada que se llene
+            if (espacios == 0) {
+                return -1;
+            }
+            for (int i = 0; i < pasos.length; i++) {
+                if (pasos[i] >= espacios) {
+                    return (i + 1) * MINUTOS_POR_MUESTRA;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Obtiene el momento de la muestra con la que se armo
+         *
+         * @return El momento en milisegundos
+         */
+        public long getMomentoMillis() {
+            return momentoMillis;
+        }
+
+        /**
+         * Obtiene la ocupacion pronosticada de un tipo dentro de unos minutos
+         *
+         * @param tipoVehiculo AUTO o MOTO
+         * @param minutos Minutos desde la muestra (se redondea al paso siguiente, maximo 3 horas)
+         * @return Los espacios ocupados pronosticados
+         */
+        public int getOcupacion(String tipoVehiculo, int minutos) {
+            int paso = (minutos + MINUTOS_POR_MUESTRA - 1) / MINUTOS_POR_MUESTRA;
+            paso = Math.max(1, Math.min(PASOS_PRONOSTICO, paso));
+            return ("MOTO".equals(tipoVehiculo) ? moto : auto)[paso - 1];
+        }
+
+        /**
+         * Obtiene en cuantos minutos se pronostica que se llenen los espacios de un tipo
+         *
+         * @param tipoVehiculo AUTO o MOTO
+         * @return Los minutos, o -1 si no se llenan en las proximas 3 horas o no hay espacios de ese tipo
+         */
+        public int getMinutosHastaLleno(String tipoVehiculo) {
+            return "MOTO".equals(tipoVehiculo) ? llenoMoto : llenoAuto;
+        }
+
+        /**
+         * Obtiene el JSON del pronostico ya convertido a UTF-8.
+         * Es el mismo arreglo para todos los lectores: no se debe modificar.
+         *
+         * @return Los bytes del JSON
+         */
+        public byte[] getJson() {
+            return json;
+        }
+    }
+}
@@ -0,0 +1,1006 @@
+package servicio;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import modelo.Parqueadero;
+import modelo.Ticket;
+import utilidad.Json;
+import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.security.MessageDigest;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Servidor HTTP con una API JSON para puertas, kioscos y pantallas.
+ * Usa el servidor embebido del JDK y atiende cada peticion en su propio
+ * hilo virtual cuando la JVM los soporta (Java 21 o superior); en JVMs
+ * anteriores usa un grupo de hilos que crece segun la demanda.
+ *
+ * Rutas:
+ * POST /entradas?placa=ABC123   registra una entrada
+ * POST /salidas?placa=ABC123    registra una salida
+ * GET  /disponibilidad          espacios disponibles y ocupados por tipo
+ * GET  /vehiculos               vehiculos parqueados (se envian por partes)
+ * GET  /vehiculos?prefijo=ABC    vehiculos por inicio (o ?sufijo=) de la placa, por paginas
+ * GET  /reportes/ocupacion      reporte de ocupacion
+ * GET  /pronostico              ocupacion pronosticada por tipo en las proximas 3 horas
+ *
+ * Con un registro de parqueaderos las mismas rutas se atienden por
+ * parqueadero, bajo /parqueaderos/{nombre}/ (por ejemplo
+ * POST /parqueaderos/NORTE/entradas?placa=ABC123), y GET /parqueaderos
+ * lista los parqueaderos conocidos. GET /placas?placa=ABC123 dice en que
+ * parqueadero y espacio esta un vehiculo (solo los parqueaderos de este nodo).
+ *
+ * En modo cluster cada nodo reenvia las rutas por parqueadero al nodo
+ * dueno del parqueadero, y ademas atiende:
+ * GET    /cluster                  nodos del cluster
+ * POST   /cluster/nodos?url=URL    agrega un nodo
+ * DELETE /cluster/nodos?url=URL    quita un nodo
+ *
+ * Las rutas de administracion (/cluster y las que se envuelven con
+ * protegido()) piden la cabecera X-Token-Admin con el token configurado;
+ * sin token configurado se rechazan todas.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class ServidorApi {
+
+    /**
+     * Numero maximo de conexiones en espera de ser aceptadas
+     */
+    private static final int COLA_CONEXIONES = 4096;
+
+    /**
+     * Cabecera con el token de las rutas de administracion
+     */
+    public static final String CABECERA_TOKEN = "X-Token-Admin";
+
+    /**
+     * Vehiculos por pagina en la busqueda por placa parcial
+     */
+    private static final int LIMITE_PAGINA = 50;
+
+    /**
+     * Maximo de vehiculos por pagina que se puede pedir
+     */
+    private static final int LIMITE_PAGINA_MAXIMO = 1000;
+
+    /**
+     * Gestor que atiende las peticiones (null si se usa un registro); una replica lo cambia
+     * al volver a leer el diario, por eso se lee en cada peticion
+     */
+    private volatile GestorParqueadero gestor;
+
+    /**
+     * Registro de parqueaderos para las rutas por nombre (null si se usa un solo gestor)
+     */
+    private final RegistroParqueaderos registro;
+
+    /**
+     * Operaciones por ruta, compartidas entre el gestor unico y el registro
+     */
+    private final HashMap<String, Operacion> rutas;
+
+    /**
+     * Nodo del cluster al que pertenece el servidor (null si no hay cluster)
+     */
+    private volatile NodoCluster cluster;
+
+    /**
+     * Rutas adicionales registradas por otros servicios (replicacion, metricas...)
+     */
+    private final LinkedHashMap<String, HttpHandler> contextosAdicionales;
+
+    /**
+     * Indica si se rechazan entradas y salidas (por ejemplo en una replica sin promover)
+     */
+    private volatile boolean soloLectura;
+
+    /**
+     * Token que deben traer las rutas de administracion (null = se rechazan)
+     */
+    private volatile String tokenAdmin;
+
+    /**
+     * Puerto donde escucha el servidor (0 = cualquiera libre)
+     */
+    private final int puerto;
+
+    /**
+     * Servidor HTTP del JDK
+     */
+    private HttpServer servidor;
+
+    /**
+     * Ejecutor que atiende las peticiones
+     */
+    private ExecutorService ejecutor;
+
+    /**
+     * Constructor de la clase ServidorApi
+     *
+     * @param gestor El gestor del parqueadero
+     * @param puerto El puerto donde escuchar (0 = cualquiera libre)
+     */
+    public ServidorApi(GestorParqueadero gestor, int puerto) {
+        this(gestor, null, puerto);
+    }
+
+    /**
+     * Constructor de la clase ServidorApi para varios parqueaderos
+     *
+     * @param registro El registro de parqueaderos
+     * @param puerto El puerto donde escuchar (0 = cualquiera libre)
+     */
+    public ServidorApi(RegistroParqueaderos registro, int puerto) {
+        this(null, registro, puerto);
+    }
+
+    /**
+     * Constructor comun de la clase ServidorApi
+     *
+     * @param gestor El gestor unico o null
+     * @param registro El registro de parqueaderos o null
+     * @param puerto El puerto donde escuchar
+     */
+    private ServidorApi(GestorParqueadero gestor, RegistroParqueaderos registro, int puerto) {
+        this.gestor = gestor;
+        this.registro = registro;
+        this.puerto = puerto;
+        this.rutas = new HashMap<String, Operacion>();
+        this.contextosAdicionales = new LinkedHashMap<String, HttpHandler>();
+        rutas.put("entradas", this::manejarEntrada);
+        rutas.put("salidas", this::manejarSalida);
+        rutas.put("disponibilidad", soloGet(this::manejarDisponibilidad));
+        rutas.put("vehiculos", soloGet(this::manejarVehiculos));
+        rutas.put("reportes/ocupacion", soloGet(this::manejarReporte));
+        rutas.put("pronostico", soloGet(this::manejarPronostico));
+    }
+
+    /**
+     * Establece el nodo del cluster; debe llamarse antes de iniciar el servidor
+     *
+     * @param cluster El nodo del cluster
+     */
+    public void setCluster(NodoCluster cluster) {
+        this.cluster = cluster;
+    }
+
+    /**
+     * Agrega una ruta atendida por otro servicio; si el servidor ya esta
+     * iniciado se publica de inmediato
+     *
+     * @param ruta La ruta (ej. /replicacion)
+     * @param manejador El manejador de la ruta
+     */
+    public synchronized void agregarContexto(String ruta, HttpHandler manejador) {
+        contextosAdicionales.put(ruta, manejador);
+        if (servidor != null) {
+            servidor.createContext(ruta, manejador);
+        }
+    }
+
+    /**
+     * Cambia el gestor que atiende las peticiones de un servidor de un solo gestor
+     *
+     * @param gestor El gestor nuevo
+     */
+    public void setGestor(GestorParqueadero gestor) {
+        if (this.gestor == null || gestor == null) {
+            System.out.println("Error: El servidor atiende un registro de parqueaderos, no un solo gestor");
+            return;
+        }
+        this.gestor = gestor;
+    }
+
+    /**
+     * Establece si se rechazan las entradas y salidas
+     *
+     * @param soloLectura true para solo atender consultas
+     */
+    public void setSoloLectura(boolean soloLectura) {
+        this.soloLectura = soloLectura;
+    }
+
+    /**
+     * Establece el token de las rutas de administracion
+     *
+     * @param tokenAdmin El token, o null para rechazar todas las rutas de administracion
+     */
+    public void setTokenAdmin(String tokenAdmin) {
+        this.tokenAdmin = tokenAdmin;
+    }
+
+    /**
+     * Envuelve un manejador para que solo atienda peticiones con el token de administracion
+     *
+     * @param manejador El manejador de la ruta de administracion
+     * @return El manejador que revisa el token
+     */
+    public HttpHandler protegido(HttpHandler manejador) {
+        return intercambio -> {
+            if (!autorizado(intercambio)) {
+                responder(intercambio, 401, Json.error("Falta el token de administracion o no es valido"));
+                return;
+            }
+            manejador.handle(intercambio);
+        };
+    }
+
+    /**
+     * Verifica el token de administracion de una peticion, comparando en tiempo constante
+     *
+     * @param intercambio La peticion HTTP
+     * @return true si trae el token configurado
+     */
+    private boolean autorizado(HttpExchange intercambio) {
+        String esperado = tokenAdmin;
+        String recibido = intercambio.getRequestHeaders().getFirst(CABECERA_TOKEN);
+        if (esperado == null || recibido == null) {
+            return false;
+        }
+        return MessageDigest.isEqual(esperado.getBytes(StandardCharsets.UTF_8),
+                recibido.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Crea un manejador que responde con el JSON que arma una funcion
+     *
+     * @param metodo El metodo HTTP aceptado (GET o POST)
+     * @param respuesta La funcion que arma el JSON
+     * @return El manejador HTTP
+     */
+    public static HttpHandler manejadorJson(String metodo, Supplier<String> respuesta) {
+        return manejador((intercambio, sinGestor) -> {
+            if (!intercambio.getRequestMethod().equals(metodo)) {
+                return new Respuesta(405, Json.error("Metodo no permitido"));
+            }
+            return new Respuesta(200, respuesta.get());
+        }, null);
+    }
+
+    /**
+     * Inicia el servidor
+     *
+     * @throws IOException Si no se puede abrir el puerto
+     */
+    public synchronized void iniciar() throws IOException {
+        // Sin esto el servidor del JDK espera a juntar paquetes (Nagle) y cada respuesta tarda decenas de ms
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+
+        servidor = HttpServer.create(new InetSocketAddress(puerto), COLA_CONEXIONES);
+        ejecutor = crearEjecutor();
+        servidor.setExecutor(ejecutor);
+
+        if (gestor != null) {
+            for (Map.Entry<String, Operacion> ruta : rutas.entrySet()) {
+                Operacion operacion = ruta.getValue();
+                servidor.createContext("/" + ruta.getKey(),
+                        manejador((intercambio, sinGestor) -> operacion.atender(intercambio, gestor), null));
+            }
+        }
+        if (registro != null) {
+            servidor.createContext("/parqueaderos", manejador(this::enrutar, null));
+            servidor.createContext("/placas", manejador(this::buscarPlaca, null));
+        }
+        if (cluster != null) {
+            servidor.createContext("/cluster", protegido(manejador(this::manejarCluster, null)));
+        }
+        for (Map.Entry<String, HttpHandler> contexto : contextosAdicionales.entrySet()) {
+            servidor.createContext(contexto.getKey(), contexto.getValue());
+        }
+
+        servidor.start();
+    }
+
+    /**
+     * Detiene el servidor
+     */
+    public synchronized void detener() {
+        if (servidor != null) {
+            servidor.stop(0);
+            ejecutor.shutdownNow();
+            servidor = null;
+        }
+    }
+
+    /**
+     * Obtiene el puerto donde escucha el servidor
+     *
+     * @return El puerto real (util cuando se pidio el puerto 0)
+     */
+    public int getPuerto() {
+        return servidor != null ? servidor.getAddress().getPort() : puerto;
+    }
+
+    /**
+     * Crea el ejecutor de peticiones: un hilo virtual por peticion si la JVM
+     * lo soporta, o un grupo de hilos que crece segun la demanda si no
+     *
+     * @return El ejecutor
+     */
+    public static ExecutorService crearEjecutor() {
+        try {
+            Method metodo = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) metodo.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newCachedThreadPool(tarea -> {
+                Thread hilo = new Thread(tarea, "api-http");
+                hilo.setDaemon(true);
+                return hilo;
+            });
+        }
+    }
+
+    /**
+     * Operacion que atiende una peticion y devuelve el codigo y el cuerpo JSON
+     */
+    private interface Operacion {
+
+        /**
+         * Atiende la peticion
+         *
+         * @param intercambio La peticion HTTP
+         * @param gestor El gestor del parqueadero al que va la peticion
+         * @return La respuesta
+         * @throws IOException Si hay un error de lectura
+         */
+        Respuesta atender(HttpExchange intercambio, GestorParqueadero gestor) throws IOException;
+    }
+
+    /**
+     * Cuerpo que se escribe por partes directo al socket
+     */
+    private interface Escritura {
+
+        /**
+         * Escribe el cuerpo
+         *
+         * @param salida Donde se escribe el JSON
+         * @throws IOException Si falla la escritura
+         */
+        void escribir(Appendable salida) throws IOException;
+    }
+
+    /**
+     * Respuesta HTTP con codigo y cuerpo JSON
+     */
+    private static class Respuesta {
+
+        /**
+         * Codigo HTTP
+         */
+        private final int codigo;
+
+        /**
+         * Cuerpo JSON
+         */
+        private final String cuerpo;
+
+        /**
+         * Cuerpo JSON ya convertido a UTF-8 (null si se usa el texto)
+         */
+        private final byte[] bytes;
+
+        /**
+         * Escritura del cuerpo por partes (null si el cuerpo ya esta armado)
+         */
+        private final Escritura escritura;
+
+        /**
+         * Constructor de la respuesta
+         *
+         * @param codigo El codigo HTTP
+         * @param cuerpo El cuerpo JSON
+         */
+        Respuesta(int codigo, String cuerpo) {
+            this.codigo = codigo;
+            this.cuerpo = cuerpo;
+            this.bytes = null;
+            this.escritura = null;
+        }
+
+        /**
+         * Constructor de una respuesta con el cuerpo ya en bytes
+         *
+         * @param codigo El codigo HTTP
+         * @param bytes El cuerpo JSON en UTF-8 (no se copia)
+         */
+        Respuesta(int codigo, byte[] bytes) {
+            this.codigo = codigo;
+            this.cuerpo = null;
+            this.bytes = bytes;
+            this.escritura = null;
+        }
+
+        /**
+         * Constructor de una respuesta que se escribe por partes
+         *
+         * @param codigo El codigo HTTP
+         * @param escritura La escritura del cuerpo JSON
+         */
+        Respuesta(int codigo, Escritura escritura) {
+            this.codigo = codigo;
+            this.cuerpo = null;
+            this.bytes = null;
+            this.escritura = escritura;
+        }
+    }
+
+    /**
+     * Envuelve una operacion en un manejador que escribe la respuesta y los errores
+     *
+     * @param operacion La operacion a ejecutar
+     * @param gestor El gestor que recibe la operacion
+     * @return El manejador HTTP
+     */
+    private static HttpHandler manejador(Operacion operacion, GestorParqueadero gestor) {
+        return intercambio -> {
+            Respuesta respuesta;
+            try {
+                respuesta = operacion.atender(intercambio, gestor);
+            } catch (IllegalArgumentException e) {
+                // Por ejemplo un escape %xx mal formado en la consulta
+                respuesta = new Respuesta(400, Json.error("Peticion invalida: " + e.getMessage()));
+            } catch (RuntimeException e) {
+                respuesta = new Respuesta(500, Json.error("Error interno: " + e.getMessage()));
+            }
+            if (respuesta.escritura != null) {
+                responderPorPartes(intercambio, respuesta.codigo, respuesta.escritura);
+            } else if (respuesta.bytes != null) {
+                responder(intercambio, respuesta.codigo, respuesta.bytes);
+            } else {
+                responder(intercambio, respuesta.codigo, respuesta.cuerpo);
+            }
+        };
+    }
+
+    /**
+     * Envuelve una operacion de consulta para que rechace los metodos distintos de GET
+     *
+     * @param operacion La operacion de consulta
+     * @return La operacion que revisa el metodo
+     */
+    private static Operacion soloGet(Operacion operacion) {
+        return (intercambio, gestor) -> {
+            if (!intercambio.getRequestMethod().equals("GET")) {
+                return new Respuesta(405, Json.error("Metodo no permitido"));
+            }
+            return operacion.atender(intercambio, gestor);
+        };
+    }
+
+    /**
+     * Atiende POST /entradas
+     *
+     * @param intercambio La peticion HTTP
+     * @param gestor El gestor del parqueadero
+     * @return La respuesta
+     * @throws IOException Si hay un error de lectura
+     */
+    private Respuesta manejarEntrada(HttpExchange intercambio, GestorParqueadero gestor) throws IOException {
+        if (!intercambio.getRequestMethod().equals("POST")) {
+            return new Respuesta(405, Json.error("Metodo no permitido"));
+        }
+        if (soloLectura) {
+            return new Respuesta(503, Json.error("Servidor de solo lectura (replica sin promover)"));
+        }
+
+        String placa = leerPlaca(intercambio);
+        if (placa == null) {
+            return new Respuesta(400, Json.error("Falta la placa"));
+        }
+
+        Ticket ticket = gestor.registrarEntrada(placa);
+        if (ticket == null) {
+            return new Respuesta(409, Json.error("No se pudo registrar la entrada de " + placa));
+        }
+
+        return new Respuesta(201, escribirTicket(new StringBuilder(), ticket).toString());
+    }
+
+    /**
+     * Atiende POST /salidas
+     *
+     * @param intercambio La peticion HTTP
+     * @param gestor El gestor del parqueadero
+     * @return La respuesta
+     * @throws IOException Si hay un error de lectura
+     */
+    private Respuesta manejarSalida(HttpExchange intercambio, GestorParqueadero gestor) throws IOException {
+        if (!intercambio.getRequestMethod().equals("POST")) {
+            return new Respuesta(405, Json.error("Metodo no permitido"));
+        }
+        if (soloLectura) {
+            return new Respuesta(503, Json.error("Servidor de solo lectura (replica sin promover)"));
+        }
+
+        String placa = leerPlaca(intercambio);
+        if (placa == null) {
+            return new Respuesta(400, Json.error("Falta la placa"));
+        }
+
+        Ticket ticket = gestor.registrarSalida(placa);
+        if (ticket == null) {
+            // Si la placa se leyo mal, sugerir las parqueadas mas parecidas
+            StringBuilder json = new StringBuilder("{");
+            Json.campo(json, "error", "No se encontro el vehiculo con placa " + placa).append(',');
+            Json.texto(json, "sugerencias").append(":[");
+            ArrayList<String> sugerencias = gestor.sugerirPlacas(placa, 3);
+            for (int i = 0; i < sugerencias.size(); i++) {
+                if (i > 0) {
+                    json.append(',');
+                }
+                Json.texto(json, sugerencias.get(i));
+            }
+            return new Respuesta(404, json.append("]}").toString());
+        }
+
+        return new Respuesta(200, escribirTicket(new StringBuilder(), ticket).toString());
+    }
+
+    /**
+     * Atiende GET /disponibilidad
+     *
+     * @param intercambio La peticion HTTP
+     * @param gestor El gestor del parqueadero
+     * @return La respuesta
+     */
+    private Respuesta manejarDisponibilidad(HttpExchange intercambio, GestorParqueadero gestor) {
+        // El JSON sale de la foto en cache; solo se vuelve a armar si cambio la disponibilidad
+        return new Respuesta(200, gestor.getInstantaneaDisponibilidad().getJson());
+    }
+
+    /**
+     * Atiende GET /pronostico
+     *
+     * @param intercambio La peticion HTTP
+     * @param gestor El gestor del parqueadero
+     * @return La respuesta
+     */
+    private Respuesta manejarPronostico(HttpExchange intercambio, GestorParqueadero gestor) {
+        SeriesOcupacion series = gestor.getSeriesOcupacion();
+        SeriesOcupacion.Pronostico pronostico = series == null ? null : series.getPronostico();
+        if (pronostico == null) {
+            return new Respuesta(404, Json.error("Aun no hay muestras de ocupacion"));
+        }
+        // El JSON se armo al tomar la muestra
+        return new Respuesta(200, pronostico.getJson());
+    }
+
+    /**
+     * Atiende GET /vehiculos
+     *
+     * @param intercambio La peticion HTTP
+     * @param gestor El gestor del parqueadero
+     * @return La respuesta
+     */
+    private Respuesta manejarVehiculos(HttpExchange intercambio, GestorParqueadero gestor) {
+        String consulta = intercambio.getRequestURI().getRawQuery();
+        String prefijo = leerParametro(consulta, "prefijo");
+        String sufijo = leerParametro(consulta, "sufijo");
+        if (prefijo != null || sufijo != null) {
+            return buscarVehiculos(consulta, prefijo, sufijo, gestor);
+        }
+        if (leerParametro(consulta, "limite") != null || leerParametro(consulta, "despues") != null) {
+            return buscarVehiculos(consulta, "", null, gestor);
+        }
+
+        // La lista completa se escribe por paginas en orden de placa, sin copiar todos los tickets
+        int total = gestor.contarTicketsActivos();
+        return new Respuesta(200, salida -> {
+            StringBuilder json = new StringBuilder("{");
+            Json.campo(json, "total", total).append(',');
+            Json.texto(json, "vehiculos").append(":[");
+
+            ArrayList<Ticket> pagina = new ArrayList<Ticket>(GestorParqueadero.PAGINA_LISTADO);
+            String despuesDe = null;
+            boolean primero = true;
+            do {
+                despuesDe = gestor.buscarPorPlacaParcial("", false, despuesDe, GestorParqueadero.PAGINA_LISTADO,
+                        pagina::add);
+                for (int i = 0; i < pagina.size(); i++) {
+                    if (!primero) {
+                        json.append(',');
+                    }
+                    escribirTicket(json, pagina.get(i));
+                    primero = false;
+                }
+                salida.append(json);
+                json.setLength(0);
+                pagina.clear();
+            } while (despuesDe != null);
+
+            salida.append("]}");
+        });
+    }
+
+    /**
+     * Atiende GET /vehiculos?prefijo=ABC o ?sufijo=23 (o solo ?limite=N), por paginas
+     * (&amp;limite=N, y &amp;despues=PLACA con la placa "siguiente" de la pagina anterior)
+     *
+     * @param consulta La consulta de la peticion
+     * @param prefijo El inicio de la placa o null
+     * @param sufijo El final de la placa o null
+     * @param gestor El gestor del parqueadero
+     * @return La respuesta
+     */
+    private Respuesta buscarVehiculos(String consulta, String prefijo, String sufijo, GestorParqueadero gestor) {
+        int limite = LIMITE_PAGINA;
+        String textoLimite = leerParametro(consulta, "limite");
+        if (textoLimite != null) {
+            try {
+                limite = Math.max(1, Math.min(LIMITE_PAGINA_MAXIMO, Integer.parseInt(textoLimite)));
+            } catch (NumberFormatException e) {
+                return new Respuesta(400, Json.error("Limite invalido: " + textoLimite));
+            }
+        }
+
+        StringBuilder json = new StringBuilder("{");
+        Json.texto(json, "vehiculos").append(":[");
+        int inicio = json.length();
+        String siguiente = gestor.buscarPorPlacaParcial(prefijo != null ? prefijo : sufijo, prefijo == null,
+                leerParametro(consulta, "despues"), limite, ticket -> {
+                    if (json.length() > inicio) {
+                        json.append(',');
+                    }
+                    escribirTicket(json, ticket);
+                });
+        json.append("],");
+        Json.campo(json, "siguiente", siguiente);
+        return new Respuesta(200, json.append('}').toString());
+    }
+
+    /**
+     * Atiende GET /reportes/ocupacion
+     *
+     * @param intercambio La peticion HTTP
+     * @param gestor El gestor del parqueadero
+     * @return La respuesta
+     */
+    private Respuesta manejarReporte(HttpExchange intercambio, GestorParqueadero gestor) {
+        StringBuilder json = new StringBuilder("{");
+        Json.campo(json, "reporte", gestor.generarReporteOcupacion());
+        return new Respuesta(200, json.append('}').toString());
+    }
+
+    /**
+     * Atiende las rutas /parqueaderos y /parqueaderos/{nombre}/{operacion}
+     *
+     * @param intercambio La peticion HTTP
+     * @param sinGestor No se usa, el gestor sale del nombre en la ruta
+     * @return La respuesta
+     * @throws IOException Si hay un error de lectura
+     */
+    private Respuesta enrutar(HttpExchange intercambio, GestorParqueadero sinGestor) throws IOException {
+        String ruta = intercambio.getRequestURI().getPath().substring("/parqueaderos".length());
+        if (ruta.startsWith("/")) {
+            ruta = ruta.substring(1);
+        }
+        if (ruta.endsWith("/")) {
+            ruta = ruta.substring(0, ruta.length() - 1);
+        }
+
+        if (ruta.isEmpty()) {
+            if (!intercambio.getRequestMethod().equals("GET")) {
+                return new Respuesta(405, Json.error("Metodo no permitido"));
+            }
+            return listarParqueaderos();
+        }
+
+        int barra = ruta.indexOf('/');
+        String nombre = barra < 0 ? ruta : ruta.substring(0, barra);
+        String operacion = barra < 0 ? "disponibilidad" : ruta.substring(barra + 1);
+
+        Operacion destino = rutas.get(operacion);
+        if (destino == null) {
+            return new Respuesta(404, Json.error("Ruta desconocida: " + operacion));
+        }
+
+        GestorParqueadero destinoGestor = null;
+        NodoCluster nodo = cluster;
+        boolean reenviada = intercambio.getRequestHeaders().getFirst(NodoCluster.CABECERA_REENVIO) != null;
+        if (nodo != null && !nodo.esLocal(nombre)) {
+            // Los tickets activos solo viven en este nodo: mientras queden se atiende aqui aunque sea de otro
+            destinoGestor = registro.tomarSiOcupado(nombre);
+            if (destinoGestor == null) {
+                registro.descargar(nombre);
+                // Una peticion ya reenviada no se vuelve a reenviar, para no dar vueltas si los anillos no coinciden
+                if (reenviada) {
+                    return new Respuesta(NodoCluster.CODIGO_NO_ESTA,
+                            Json.error("El parqueadero " + nombre + " no esta en este nodo"));
+                }
+                Respuesta remota = reenviar(intercambio, nodo, nodo.duenoDe(nombre));
+                if (remota != null) {
+                    return remota;
+                }
+            }
+        } else if (nodo != null && !reenviada && !registro.estaCargado(nombre)) {
+            // Antes de cargarlo, el dueno anterior pudo quedarse con sus vehiculos
+            String anterior = nodo.duenoAnteriorDe(nombre);
+            if (anterior != null) {
+                Respuesta remota = reenviar(intercambio, nodo, anterior);
+                if (remota != null) {
+                    return remota;
+                }
+                nodo.marcarTraspasado(nombre);
+            }
+        }
+
+        // Apartado mientras se atiende, para que no se descargue en medio de una entrada
+        if (destinoGestor == null) {
+            destinoGestor = registro.tomar(nombre);
+        }
+        if (destinoGestor == null) {
+            return new Respuesta(404, Json.error("No se encontro el parqueadero " + nombre));
+        }
+
+        try {
+            return destino.atender(intercambio, destinoGestor);
+        } finally {
+            registro.soltar(nombre);
+        }
+    }
+
+    /**
+     * Reenvia una peticion de un parqueadero a otro nodo
+     *
+     * @param intercambio La peticion HTTP
+     * @param nodo El nodo de este servidor
+     * @param destino La URL del nodo al que se reenvia
+     * @return La respuesta del otro nodo, o null si contesto que no tiene el
+     *         parqueadero y hay que atenderla aqui (el cuerpo queda para leerlo de nuevo)
+     * @throws IOException Si hay un error al leer el cuerpo
+     */
+    private Respuesta reenviar(HttpExchange intercambio, NodoCluster nodo, String destino) throws IOException {
+        String rutaYConsulta = intercambio.getRequestURI().getRawPath();
+        if (intercambio.getRequestURI().getRawQuery() != null) {
+            rutaYConsulta += "?" + intercambio.getRequestURI().getRawQuery();
+        }
+
+        byte[] cuerpo = intercambio.getRequestBody().readAllBytes();
+        NodoCluster.Reenvio reenvio = nodo.reenviar(destino, intercambio.getRequestMethod(), rutaYConsulta, cuerpo);
+        if (reenvio.getCodigo() == NodoCluster.CODIGO_NO_ESTA) {
+            intercambio.setStreams(new ByteArrayInputStream(cuerpo), null);
+            return null;
+        }
+        return new Respuesta(reenvio.getCodigo(), reenvio.getCuerpo());
+    }
+
+    /**
+     * Atiende las rutas /cluster y /cluster/nodos
+     *
+     * @param intercambio La peticion HTTP
+     * @param sinGestor No se usa
+     * @return La respuesta
+     */
+    private Respuesta manejarCluster(HttpExchange intercambio, GestorParqueadero sinGestor) {
+        String ruta = intercambio.getRequestURI().getPath();
+        String metodo = intercambio.getRequestMethod();
+
+        if (ruta.equals("/cluster") || ruta.equals("/cluster/")) {
+            if (!metodo.equals("GET")) {
+                return new Respuesta(405, Json.error("Metodo no permitido"));
+            }
+            return new Respuesta(200, cluster.mostrarJson());
+        }
+
+        if (!ruta.equals("/cluster/nodos")) {
+            return new Respuesta(404, Json.error("Ruta desconocida: " + ruta));
+        }
+
+        String url = leerParametro(intercambio.getRequestURI().getRawQuery(), "url");
+        if (url == null) {
+            return new Respuesta(400, Json.error("Falta la url del nodo"));
+        }
+
+        if (metodo.equals("POST")) {
+            cluster.agregarNodo(url);
+        } else if (metodo.equals("DELETE")) {
+            cluster.quitarNodo(url);
+        } else {
+            return new Respuesta(405, Json.error("Metodo no permitido"));
+        }
+        return new Respuesta(200, cluster.mostrarJson());
+    }
+
+    /**
+     * Atiende GET /placas?placa=X: en que parqueadero, espacio y ticket esta un vehiculo
+     *
+     * @param intercambio La peticion HTTP
+     * @param sinGestor No se usa, la placa se busca en el indice global
+     * @return La respuesta
+     */
+    private Respuesta buscarPlaca(HttpExchange intercambio, GestorParqueadero sinGestor) {
+        if (!intercambio.getRequestMethod().equals("GET")) {
+            return new Respuesta(405, Json.error("Metodo no permitido"));
+        }
+
+        String placa = leerParametro(intercambio.getRequestURI().getRawQuery(), "placa");
+        if (placa == null) {
+            return new Respuesta(400, Json.error("Falta la placa"));
+        }
+
+        IndiceGlobalPlacas.Ubicacion ubicacion = registro.getIndicePlacas().buscar(placa);
+        if (ubicacion == null) {
+            return new Respuesta(404, Json.error("El vehiculo con placa " + placa + " no esta parqueado"));
+        }
+
+        StringBuilder json = new StringBuilder("{");
+        Json.campo(json, "placa", placa.trim().toUpperCase()).append(',');
+        Json.campo(json, "parqueadero", ubicacion.getParqueadero()).append(',');
+        Json.campo(json, "espacio", ubicacion.getEspacio()).append(',');
+        Json.campo(json, "ticket", ubicacion.getTicket()).append(',');
+        Json.campo(json, "entradaMillis", ubicacion.getEntradaMillis());
+        return new Respuesta(200, json.append('}').toString());
+    }
+
+    /**
+     * Lista los parqueaderos del registro indicando cuales estan cargados
+     *
+     * @return La respuesta
+     */
+    private Respuesta listarParqueaderos() {
+        ArrayList<String> nombres = registro.listarTodos();
+        StringBuilder json = new StringBuilder("{");
+        Json.campo(json, "total", nombres.size()).append(',');
+        Json.texto(json, "parqueaderos").append(":[");
+
+        for (int i = 0; i < nombres.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            json.append('{');
+            Json.campo(json, "nombre", nombres.get(i)).append(',');
+            Json.campo(json, "cargado", registro.estaCargado(nombres.get(i)));
+            json.append('}');
+        }
+
+        return new Respuesta(200, json.append("]}").toString());
+    }
+
+    /**
+     * Escribe un ticket como objeto JSON
+     *
+     * @param json Donde se escribe el ticket
+     * @param ticket El ticket
+     * @return La misma salida, para encadenar llamadas
+     */
+    public static StringBuilder escribirTicket(StringBuilder json, Ticket ticket) {
+        json.append('{');
+        Json.campo(json, "ticket", ticket.getId()).append(',');
+        Json.campo(json, "placa", ticket.getVehiculo().getPlaca()).append(',');
+        Json.campo(json, "tipo", ticket.getVehiculo().getTipo()).append(',');
+        Json.campo(json, "espacio", ticket.getEspacio().getNumero()).append(',');
+        Json.campo(json, "horaEntrada", String.valueOf(ticket.getHoraEntrada()));
+        if (ticket.getHoraSalida() != null) {
+            json.append(',');
+            Json.campo(json, "horaSalida", String.valueOf(ticket.getHoraSalida())).append(',');
+            Json.campo(json, "horas", ticket.calcularTiempo()).append(',');
+            Json.campo(json, "tarifa", ticket.getTarifa()).append(',');
+            Json.campo(json, "exento", ticket.isExento());
+        }
+        return json.append('}');
+    }
+
+    /**
+     * Lee la placa de la consulta (?placa=) o del cuerpo (placa=... o texto plano)
+     *
+     * @param intercambio La peticion HTTP
+     * @return La placa o null si no viene
+     * @throws IOException Si hay un error de lectura
+     */
+    private static String leerPlaca(HttpExchange intercambio) throws IOException {
+        String placa = leerParametro(intercambio.getRequestURI().getRawQuery(), "placa");
+        if (placa != null) {
+            return placa;
+        }
+
+        String cuerpo = leerCuerpo(intercambio).trim();
+        if (cuerpo.isEmpty()) {
+            return null;
+        }
+        placa = leerParametro(cuerpo, "placa");
+        return placa != null ? placa : cuerpo;
+    }
+
+    /**
+     * Busca un parametro en un texto con formato nombre=valor&amp;nombre=valor
+     *
+     * @param consulta El texto de la consulta
+     * @param nombre El nombre del parametro
+     * @return El valor decodificado o null si no esta
+     */
+    public static String leerParametro(String consulta, String nombre) {
+        if (consulta == null) {
+            return null;
+        }
+
+        String[] pares = consulta.split("&");
+        for (int i = 0; i < pares.length; i++) {
+            int igual = pares[i].indexOf('=');
+            if (igual > 0 && pares[i].substring(0, igual).equals(nombre)) {
+                return URLDecoder.decode(pares[i].substring(igual + 1), StandardCharsets.UTF_8);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Lee todo el cuerpo de la peticion
+     *
+     * @param intercambio La peticion HTTP
+     * @return El cuerpo como texto
+     * @throws IOException Si hay un error de lectura
+     */
+    private static String leerCuerpo(HttpExchange intercambio) throws IOException {
+        InputStream entrada = intercambio.getRequestBody();
+        byte[] bytes = entrada.readAllBytes();
+        entrada.close();
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Escribe la respuesta JSON
+     *
+     * @param intercambio La peticion HTTP
+     * @param codigo El codigo HTTP
+     * @param cuerpo El cuerpo JSON
+     * @throws IOException Si hay un error de escritura
+     */
+    private static void responder(HttpExchange intercambio, int codigo, String cuerpo) throws IOException {
+        responder(intercambio, codigo, cuerpo.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Escribe la respuesta JSON ya convertida a UTF-8
+     *
+     * @param intercambio La peticion HTTP
+     * @param codigo El codigo HTTP
+     * @param bytes El cuerpo JSON
+     * @throws IOException Si hay un error de escritura
+     */
+    private static void responder(HttpExchange intercambio, int codigo, byte[] bytes) throws IOException {
+        intercambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        intercambio.sendResponseHeaders(codigo, bytes.length);
+        OutputStream salida = intercambio.getResponseBody();
+        salida.write(bytes);
+        salida.close();
+    }
+
+    /**
+     * Escribe la respuesta JSON por partes (transferencia chunked), sin armar el cuerpo completo
+     *
+     * @param intercambio La peticion HTTP
+     * @param codigo El codigo HTTP
+     * @param escritura La escritura del cuerpo
+     * @throws IOException Si hay un error de escritura
+     */
+    private static void responderPorPartes(HttpExchange intercambio, int codigo, Escritura escritura) throws IOException {
+        intercambio.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        intercambio.sendResponseHeaders(codigo, 0);
+        try (Writer salida = new BufferedWriter(
+                new OutputStreamWriter(intercambio.getResponseBody(), StandardCharsets.UTF_8))) {
+            escritura.escribir(salida);
+        }
+    }
+}
@@ -0,0 +1,519 @@
+package servicio;
+
+import modelo.Parqueadero;
+import modelo.RelojManual;
+import modelo.Ticket;
+import utilidad.Validador;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.PriorityQueue;
+import java.util.Random;
+
+/**
+ * Simulador de eventos discretos para planear la capacidad de un parqueadero.
+ * Genera llegadas con un perfil por hora del dia y estadias aleatorias,
+ * y las aplica al gestor real con un reloj manual que salta de evento en
+ * evento, asi un mes de trafico se simula en segundos con las mismas reglas
+ * de asignacion de espacios y de tarifas que usa el parqueadero.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class Simulador {
+
+    /**
+     * Milisegundos de una hora
+     */
+    private static final long MILLIS_HORA = 60L * 60 * 1000;
+
+    /**
+     * Milisegundos de un minuto
+     */
+    private static final long MILLIS_MINUTO = 60L * 1000;
+
+    /**
+     * Perfil de llegadas de un dia laboral (peso de cada hora del dia)
+     */
+    public static final double[] PERFIL_DIA_LABORAL = {
+        0.2, 0.1, 0.1, 0.1, 0.2, 0.5, 2.0, 6.0, 9.0, 7.0, 5.0, 5.0,
+        6.0, 6.0, 5.0, 5.0, 5.0, 6.0, 7.0, 5.0, 3.0, 2.0, 1.0, 0.5
+    };
+
+    /**
+     * Evento programado de la simulacion
+     */
+    private static class Evento implements Comparable<Evento> {
+
+        /**
+         * Momento simulado del evento en milisegundos
+         */
+        private final long momentoMillis;
+
+        /**
+         * Orden de creacion, para desempatar eventos del mismo momento
+         */
+        private final long secuencia;
+
+        /**
+         * Placa del vehiculo (null si es una llegada aun sin generar)
+         */
+        private final String placa;
+
+        /**
+         * Indica si es una llegada (true) o una salida (false)
+         */
+        private final boolean llegada;
+
+        /**
+         * Constructor del evento
+         *
+         * @param momentoMillis El momento simulado
+         * @param secuencia El orden de creacion
+         * @param placa La placa del vehiculo
+         * @param llegada true si es una llegada
+         */
+        Evento(long momentoMillis, long secuencia, String placa, boolean llegada) {
+            this.momentoMillis = momentoMillis;
+            this.secuencia = secuencia;
+            this.placa = placa;
+            this.llegada = llegada;
+        }
+
+        @Override
+        public int compareTo(Evento otro) {
+            int comparacion = Long.compare(momentoMillis, otro.momentoMillis);
+            return comparacion != 0 ? comparacion : Long.compare(secuencia, otro.secuencia);
+        }
+    }
+
+    /**
+     * Parqueadero simulado
+     */
+    private final Parqueadero parqueadero;
+
+    /**
+     * Reloj simulado del gestor
+     */
+    private final RelojManual reloj;
+
+    /**
+     * Momento simulado en que empieza la simulacion (medianoche)
+     */
+    private final long inicioMillis;
+
+    /**
+     * Gestor real al que se aplican los eventos
+     */
+    private final GestorParqueadero gestor;
+
+    /**
+     * Cola de eventos ordenada por momento
+     */
+    private final PriorityQueue<Evento> eventos;
+
+    /**
+     * Generador de numeros aleatorios
+     */
+    private final Random aleatorio;
+
+    /**
+     * Vehiculos que llegan en promedio por dia
+     */
+    private double llegadasPorDia;
+
+    /**
+     * Peso de cada hora del dia en las llegadas
+     */
+    private double[] perfilHorario;
+
+    /**
+     * Fraccion de llegadas que son autos (el resto son motos)
+     */
+    private double fraccionAutos;
+
+    /**
+     * Estadia promedio en minutos
+     */
+    private double estadiaMediaMinutos;
+
+    /**
+     * Contador de eventos creados
+     */
+    private long secuencia;
+
+    /**
+     * Contador para generar placas unicas
+     */
+    private long contadorPlacas;
+
+    /**
+     * Vehiculos que llegaron
+     */
+    private long llegadas;
+
+    /**
+     * Vehiculos que entraron
+     */
+    private long entradas;
+
+    /**
+     * Vehiculos que se fueron porque no habia espacio
+     */
+    private long rechazosSinEspacio;
+
+    /**
+     * Autos que se fueron porque no habia espacio
+     */
+    private long rechazosAuto;
+
+    /**
+     * Vehiculos que salieron
+     */
+    private long salidas;
+
+    /**
+     * Vehiculos parqueados en este momento de la simulacion
+     */
+    private int ocupacionActual;
+
+    /**
+     * Ocupacion maxima alcanzada
+     */
+    private int ocupacionPico;
+
+    /**
+     * Momento simulado de la ocupacion maxima
+     */
+    private long momentoPico;
+
+    /**
+     * Suma de ocupacion por milisegundo, para el promedio ponderado en el tiempo
+     */
+    private double ocupacionAcumulada;
+
+    /**
+     * Total recaudado
+     */
+    private double ingresos;
+
+    /**
+     * Milisegundos simulados
+     */
+    private long duracionSimuladaMillis;
+
+    /**
+     * Tiempo real que tomo la simulacion en nanosegundos
+     */
+    private long duracionRealNanos;
+
+    /**
+     * Constructor de la clase Simulador
+     *
+     * @param parqueadero El parqueadero a simular (con sus espacios y estrategia de asignacion)
+     * @param calculadorTarifa Las tarifas a cobrar
+     * @param semilla La semilla aleatoria, para repetir la misma simulacion
+     */
+    public Simulador(Parqueadero parqueadero, CalculadorTarifa calculadorTarifa, long semilla) {
+        this.parqueadero = parqueadero;
+        this.inicioMillis = LocalDate.now().atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        this.reloj = new RelojManual(inicioMillis);
+        this.gestor = new GestorParqueadero(parqueadero, reloj);
+        this.gestor.setMostrarMensajes(false);
+        this.gestor.setGuardarHistorico(false);
+        this.gestor.setCalculadorTarifa(calculadorTarifa);
+        this.eventos = new PriorityQueue<Evento>();
+        this.aleatorio = new Random(semilla);
+        this.llegadasPorDia = parqueadero.getCapacidadTotal() * 3.0;
+        this.perfilHorario = PERFIL_DIA_LABORAL;
+        this.fraccionAutos = 0.6;
+        this.estadiaMediaMinutos = 120;
+    }
+
+    /**
+     * Establece cuantos vehiculos llegan en promedio por dia
+     *
+     * @param llegadasPorDia Las llegadas por dia
+     */
+    public void setLlegadasPorDia(double llegadasPorDia) {
+        this.llegadasPorDia = llegadasPorDia;
+    }
+
+    /**
+     * Establece el perfil de llegadas por hora del dia
+     *
+     * @param perfilHorario 24 pesos, uno por hora (no necesitan sumar 1)
+     */
+    public void setPerfilHorario(double[] perfilHorario) {
+        if (perfilHorario.length != 24) {
+            System.out.println("Error: El perfil horario debe tener 24 valores");
+            return;
+        }
+        this.perfilHorario = perfilHorario.clone();
+    }
+
+    /**
+     * Establece la fraccion de llegadas que son autos
+     *
+     * @param fraccionAutos Valor entre 0 y 1
+     */
+    public void setFraccionAutos(double fraccionAutos) {
+        this.fraccionAutos = fraccionAutos;
+    }
+
+    /**
+     * Establece la estadia promedio
+     *
+     * @param estadiaMediaMinutos La estadia promedio en minutos
+     */
+    public void setEstadiaMediaMinutos(double estadiaMediaMinutos) {
+        this.estadiaMediaMinutos = estadiaMediaMinutos;
+    }
+
+    /**
+     * Obtiene el gestor usado en la simulacion
+     *
+     * @return El gestor
+     */
+    public GestorParqueadero getGestor() {
+        return gestor;
+    }
+
+    /**
+     * Simula el trafico de varios dias.
+     * Al final se sacan los vehiculos que quedaron adentro para cobrarlos.
+     *
+     * @param dias El numero de dias a simular
+     */
+    public void simular(int dias) {
+        long inicioReal = System.nanoTime();
+        long inicio = inicioMillis;
+        long fin = inicio + dias * 24 * MILLIS_HORA;
+
+        programarLlegada(inicio, fin);
+
+        long ultimoMomento = inicio;
+        Evento evento;
+        while ((evento = eventos.poll()) != null) {
+            ocupacionAcumulada += (double) ocupacionActual * (evento.momentoMillis - ultimoMomento);
+            ultimoMomento = evento.momentoMillis;
+            reloj.establecer(evento.momentoMillis);
+
+            if (evento.llegada) {
+                atenderLlegada(evento.momentoMillis, fin);
+            } else {
+                atenderSalida(evento.placa);
+            }
+        }
+
+        duracionSimuladaMillis = ultimoMomento - inicio;
+        duracionRealNanos = System.nanoTime() - inicioReal;
+    }
+
+    /**
+     * Atiende la llegada de un vehiculo y programa la siguiente llegada
+     *
+     * @param momento El momento de la llegada
+     * @param fin El fin de la simulacion
+     */
+    private void atenderLlegada(long momento, long fin) {
+        programarLlegada(momento, fin);
+
+        llegadas++;
+        String placa = nuevaPlaca();
+
+        // La estadia se sortea aunque el vehiculo sea rechazado, asi dos configuraciones
+        // con la misma semilla reciben exactamente el mismo trafico
+        long estadia = Math.max(MILLIS_MINUTO,
+                (long) (-Math.log(1.0 - aleatorio.nextDouble()) * estadiaMediaMinutos * MILLIS_MINUTO));
+
+        Ticket ticket = gestor.registrarEntrada(placa);
+        if (ticket == null) {
+            // Las placas son unicas y validas, asi que solo se rechaza por falta de espacio
+            rechazosSinEspacio++;
+            if (Validador.identificarTipoVehiculo(placa).equals("AUTO")) {
+                rechazosAuto++;
+            }
+            return;
+        }
+
+        entradas++;
+        ocupacionActual++;
+        if (ocupacionActual > ocupacionPico) {
+            ocupacionPico = ocupacionActual;
+            momentoPico = momento;
+        }
+
+        eventos.offer(new Evento(momento + estadia, secuencia++, placa, false));
+    }
+
+    /**
+     * Atiende la salida de un vehiculo
+     *
+     * @param placa La placa del vehiculo
+     */
+    private void atenderSalida(String placa) {
+        Ticket ticket = gestor.registrarSalida(placa);
+        if (ticket != null) {
+            salidas++;
+            ocupacionActual--;
+            ingresos += ticket.getTarifa();
+        }
+    }
+
+    /**
+     * Programa la siguiente llegada despues de un momento.
+     * Las llegadas son de Poisson con una tasa distinta en cada hora del dia;
+     * si el intervalo cruza el cambio de hora se vuelve a sortear desde ahi,
+     * lo cual es exacto porque la exponencial no tiene memoria.
+     *
+     * @param desde El momento desde el que se sortea
+     * @param fin El fin de la simulacion (no se programan llegadas despues)
+     */
+    private void programarLlegada(long desde, long fin) {
+        double sumaPesos = 0;
+        for (int i = 0; i < perfilHorario.length; i++) {
+            sumaPesos += perfilHorario[i];
+        }
+        if (sumaPesos <= 0 || llegadasPorDia <= 0) {
+            return;
+        }
+
+        long momento = desde;
+        while (momento < fin) {
+            long desdeMedianoche = Math.floorMod(momento - inicioMillis, 24 * MILLIS_HORA);
+            int hora = (int) (desdeMedianoche / MILLIS_HORA);
+            long finHora = momento - desdeMedianoche % MILLIS_HORA + MILLIS_HORA;
+            double tasaPorMilli = llegadasPorDia * perfilHorario[hora] / sumaPesos / MILLIS_HORA;
+
+            if (tasaPorMilli > 0) {
+                double intervalo = -Math.log(1.0 - aleatorio.nextDouble()) / tasaPorMilli;
+                if (momento + intervalo < finHora) {
+                    long llegada = momento + (long) intervalo;
+                    if (llegada < fin) {
+                        eventos.offer(new Evento(llegada, secuencia++, null, true));
+                    }
+                    return;
+                }
+            }
+            momento = finHora;
+        }
+    }
+
+    /**
+     * Genera una placa unica: los autos terminan en numero y las motos en letra
+     *
+     * @return La placa generada
+     */
+    private String nuevaPlaca() {
+        // Se arma a mano porque String.format es lo mas costoso de cada llegada
+        String numero = Long.toString(contadorPlacas++);
+        StringBuilder placa = new StringBuilder(10).append('S');
+        for (int i = numero.length(); i < 7; i++) {
+            placa.append('0');
+        }
+        placa.append(numero);
+        if (aleatorio.nextDouble() >= fraccionAutos) {
+            placa.append('M');
+        }
+        return placa.toString();
+    }
+
+    /**
+     * Obtiene el numero de vehiculos que llegaron
+     *
+     * @return Las llegadas
+     */
+    public long getLlegadas() {
+        return llegadas;
+    }
+
+    /**
+     * Obtiene el numero de vehiculos que entraron
+     *
+     * @return Las entradas
+     */
+    public long getEntradas() {
+        return entradas;
+    }
+
+    /**
+     * Obtiene el numero de vehiculos rechazados por falta de espacio
+     *
+     * @return Los rechazos
+     */
+    public long getRechazosSinEspacio() {
+        return rechazosSinEspacio;
+    }
+
+    /**
+     * Obtiene el porcentaje de llegadas rechazadas
+     *
+     * @return El porcentaje de rechazo
+     */
+    public double getPorcentajeRechazo() {
+        return llegadas == 0 ? 0.0 : rechazosSinEspacio * 100.0 / llegadas;
+    }
+
+    /**
+     * Obtiene la ocupacion maxima alcanzada
+     *
+     * @return El numero maximo de vehiculos parqueados a la vez
+     */
+    public int getOcupacionPico() {
+        return ocupacionPico;
+    }
+
+    /**
+     * Obtiene la ocupacion promedio ponderada en el tiempo
+     *
+     * @return El numero promedio de vehiculos parqueados
+     */
+    public double getOcupacionPromedio() {
+        return duracionSimuladaMillis == 0 ? 0.0 : ocupacionAcumulada / duracionSimuladaMillis;
+    }
+
+    /**
+     * Obtiene el total recaudado
+     *
+     * @return Los ingresos
+     */
+    public double getIngresos() {
+        return ingresos;
+    }
+
+    /**
+     * Muestra el resumen de la simulacion
+     *
+     * @return String con el resumen
+     */
+    public String mostrarResumen() {
+        double segundos = duracionRealNanos / 1e9;
+        double eventosPorSegundo = segundos > 0 ? (llegadas + salidas) / segundos : 0.0;
+        int capacidad = parqueadero.getCapacidadTotal();
+
+        StringBuilder resumen = new StringBuilder();
+        resumen.append("\n========== RESUMEN DE SIMULACION ==========\n");
+        resumen.append("Parqueadero: ").append(parqueadero.getNombre()).append("\n");
+        resumen.append("Capacidad: ").append(capacidad);
+        resumen.append(" (AUTO: ").append(parqueadero.contarEspacios("AUTO"));
+        resumen.append(", MOTO: ").append(parqueadero.contarEspacios("MOTO")).append(")\n");
+        resumen.append("Asignacion: ").append(parqueadero.getEstrategiaAsignacion()).append("\n");
+        resumen.append("Dias Simulados: ").append(String.format("%.1f", duracionSimuladaMillis / (24.0 * MILLIS_HORA))).append("\n");
+        resumen.append("Llegadas: ").append(llegadas).append("\n");
+        resumen.append("Entradas: ").append(entradas).append("\n");
+        resumen.append("Rechazos Sin Espacio: ").append(rechazosSinEspacio);
+        resumen.append(" (").append(String.format("%.2f", getPorcentajeRechazo())).append("%)");
+        resumen.append(" - AUTO: ").append(rechazosAuto);
+        resumen.append(", MOTO: ").append(rechazosSinEspacio - rechazosAuto).append("\n");
+        resumen.append("Ocupacion Pico: ").append(ocupacionPico);
+        resumen.append(" (").append(String.format("%.1f", capacidad > 0 ? ocupacionPico * 100.0 / capacidad : 0.0)).append("%)");
+        resumen.append(" el ").append(reloj.aFecha(momentoPico)).append("\n");
+        resumen.append("Ocupacion Promedio: ").append(String.format("%.1f", getOcupacionPromedio())).append("\n");
+        resumen.append("Ingresos: $").append(String.format("%.2f", ingresos)).append("\n");
+        resumen.append("Tiempo Real: ").append(String.format("%.3f", segundos)).append(" s");
+        resumen.append(" (").append(String.format("%.0f", eventosPorSegundo)).append(" eventos/s)\n");
+        resumen.append("===========================================\n");
+
+        return resumen.toString();
+    }
+}
@@ -0,0 +1,197 @@
+package utilidad;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Anillo de hash consistente para repartir claves (nombres de parqueadero)
+ * entre varios nodos. Cada nodo se pone en el anillo muchas veces (nodos
+ * virtuales) para que el reparto sea parejo, y cada clave pertenece al
+ * primer nodo que aparece despues de su hash. Cuando entra o sale un nodo
+ * solo cambian de dueno las claves del tramo que ese nodo gana o pierde,
+ * mas o menos 1/N del total.
+ * Las consultas no bloquean: cada cambio arma un anillo nuevo y lo
+ * publica de una vez.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class AnilloConsistente {
+
+    /**
+     * Numero de nodos virtuales por nodo por defecto
+     */
+    public static final int NODOS_VIRTUALES = 160;
+
+    /**
+     * Nodos virtuales por nodo
+     */
+    private final int nodosVirtuales;
+
+    /**
+     * Anillo actual: hash del nodo virtual a nombre del nodo
+     */
+    private volatile TreeMap<Long, String> anillo;
+
+    /**
+     * Nodos del anillo
+     */
+    private volatile ArrayList<String> nodos;
+
+    /**
+     * Constructor de la clase AnilloConsistente
+     */
+    public AnilloConsistente() {
+        this(NODOS_VIRTUALES);
+    }
+
+    /**
+     * Constructor de la clase AnilloConsistente
+     *
+     * @param nodosVirtuales Cuantas veces se pone cada nodo en el anillo
+     */
+    public AnilloConsistente(int nodosVirtuales) {
+        this.nodosVirtuales = nodosVirtuales;
+        this.anillo = new TreeMap<Long, String>();
+        this.nodos = new ArrayList<String>();
+    }
+
+    /**
+     * Agrega un nodo al anillo
+     *
+     * @param nodo El nombre del nodo (por ejemplo su URL)
+     * @return true si se agrego, false si ya estaba
+     */
+    public synchronized boolean agregarNodo(String nodo) {
+        if (nodos.contains(nodo)) {
+            return false;
+        }
+
+        ArrayList<String> nuevosNodos = new ArrayList<String>(nodos);
+        nuevosNodos.add(nodo);
+        Collections.sort(nuevosNodos);
+
+        TreeMap<Long, String> nuevoAnillo = new TreeMap<Long, String>(anillo);
+        for (int i = 0; i < nodosVirtuales; i++) {
+            nuevoAnillo.put(hash(nodo + "#" + i), nodo);
+        }
+
+        anillo = nuevoAnillo;
+        nodos = nuevosNodos;
+        return true;
+    }
+
+    /**
+     * Quita un nodo del anillo
+     *
+     * @param nodo El nombre del nodo
+     * @return true si se quito, false si no estaba
+     */
+    public synchronized boolean quitarNodo(String nodo) {
+        if (!nodos.contains(nodo)) {
+            return false;
+        }
+
+        ArrayList<String> nuevosNodos = new ArrayList<String>(nodos);
+        nuevosNodos.remove(nodo);
+
+        TreeMap<Long, String> nuevoAnillo = new TreeMap<Long, String>(anillo);
+        for (int i = 0; i < nodosVirtuales; i++) {
+            nuevoAnillo.remove(hash(nodo + "#" + i), nodo);
+        }
+
+        anillo = nuevoAnillo;
+        nodos = nuevosNodos;
+        return true;
+    }
+
+    /**
+     * Busca el nodo dueno de una clave
+     *
+     * @param clave La clave (nombre del parqueadero)
+     * @return El nodo dueno o null si el anillo esta vacio
+     */
+    public String nodoPara(String clave) {
+        TreeMap<Long, String> actual = anillo;
+        if (actual.isEmpty()) {
+            return null;
+        }
+
+        Map.Entry<Long, String> entrada = actual.ceilingEntry(hash(clave));
+        if (entrada == null) {
+            // Se dio la vuelta al anillo
+            entrada = actual.firstEntry();
+        }
+        return entrada.getValue();
+    }
+
+    /**
+     * Busca el nodo que seria dueno de una clave si no estuviera un nodo dado,
+     * es decir el siguiente nodo distinto en el anillo
+     *
+     * @param clave La clave (nombre del parqueadero)
+     * @param excluido El nodo que no se cuenta
+     * @return El nodo o null si no hay otro nodo
+     */
+    public String nodoParaSin(String clave, String excluido) {
+        TreeMap<Long, String> actual = anillo;
+        long posicion = hash(clave);
+
+        for (String nodo : actual.tailMap(posicion, true).values()) {
+            if (!nodo.equals(excluido)) {
+                return nodo;
+            }
+        }
+        // Se dio la vuelta al anillo
+        for (String nodo : actual.headMap(posicion, false).values()) {
+            if (!nodo.equals(excluido)) {
+                return nodo;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Obtiene los nodos del anillo, ordenados
+     *
+     * @return Una copia de la lista de nodos
+     */
+    public ArrayList<String> getNodos() {
+        return new ArrayList<String>(nodos);
+    }
+
+    /**
+     * Obtiene el numero de nodos del anillo
+     *
+     * @return El numero de nodos
+     */
+    public int contarNodos() {
+        return nodos.size();
+    }
+
+    /**
+     * Calcula el hash de 64 bits de un texto (FNV-1a con una mezcla final
+     * para repartir bien claves parecidas como NORTE1, NORTE2...)
+     *
+     * @param texto El texto
+     * @return El hash
+     */
+    public static long hash(String texto) {
+        byte[] bytes = texto.getBytes(StandardCharsets.UTF_8);
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < bytes.length; i++) {
+            h ^= bytes[i] & 0xff;
+            h *= 0x100000001b3L;
+        }
+
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
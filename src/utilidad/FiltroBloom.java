@@ -0,0 +1,130 @@
+package utilidad;
+
+/**
+ * Filtro de Bloom para placas de vehiculos.
+ * Permite saber rapidamente si una placa NO esta en un conjunto,
+ * usando pocas pruebas de bits. Puede dar falsos positivos pero nunca
+ * falsos negativos, por eso se usa delante de un conjunto exacto.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class FiltroBloom {
+
+    /**
+     * Arreglo de bits del filtro
+     */
+    private final long[] bits;
+
+    /**
+     * Numero total de bits del filtro
+     */
+    private final int numeroBits;
+
+    /**
+     * Numero de funciones hash que se aplican por placa
+     */
+    private final int numeroHashes;
+
+    /**
+     * Constructor de la clase FiltroBloom
+     *
+     * @param elementosEsperados Numero de placas que se espera guardar
+     * @param probabilidadFalsoPositivo Probabilidad aceptada de falso positivo (ej. 0.01)
+     */
+    public FiltroBloom(int elementosEsperados, double probabilidadFalsoPositivo) {
+        int n = Math.max(1, elementosEsperados);
+        double p = Math.min(Math.max(probabilidadFalsoPositivo, 1e-9), 0.5);
+
+        // Formulas estandar: m = -n ln(p) / (ln 2)^2, k = m/n ln 2
+        long m = (long) Math.ceil(-n * Math.log(p) / (Math.log(2) * Math.log(2)));
+        m = Math.max(64, Math.min(m, Integer.MAX_VALUE - 63));
+
+        this.numeroBits = (int) m;
+        this.numeroHashes = Math.max(1, (int) Math.round((double) m / n * Math.log(2)));
+        this.bits = new long[(numeroBits + 63) / 64];
+    }
+
+    /**
+     * Agrega una placa al filtro
+     *
+     * @param placa La placa a agregar
+     */
+    public void agregar(String placa) {
+        long hash = hashPlaca(placa);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+
+        for (int i = 0; i < numeroHashes; i++) {
+            int posicion = indice(h1 + i * h2);
+            bits[posicion >>> 6] |= 1L << posicion;
+        }
+    }
+
+    /**
+     * Verifica si una placa podria estar en el filtro
+     *
+     * @param placa La placa a verificar
+     * @return false si la placa seguro no esta, true si podria estar
+     */
+    public boolean podriaContener(String placa) {
+        long hash = hashPlaca(placa);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+
+        for (int i = 0; i < numeroHashes; i++) {
+            int posicion = indice(h1 + i * h2);
+            if ((bits[posicion >>> 6] & (1L << posicion)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Obtiene el numero de funciones hash usadas
+     *
+     * @return El numero de funciones hash
+     */
+    public int getNumeroHashes() {
+        return numeroHashes;
+    }
+
+    /**
+     * Obtiene el tamano del filtro en bits
+     *
+     * @return El numero de bits
+     */
+    public int getNumeroBits() {
+        return numeroBits;
+    }
+
+    /**
+     * Convierte un hash combinado en una posicion valida del arreglo de bits
+     *
+     * @param hash El hash combinado
+     * @return La posicion del bit
+     */
+    private int indice(int hash) {
+        return (hash & Integer.MAX_VALUE) % numeroBits;
+    }
+
+    /**
+     * Calcula un hash de 64 bits de la placa sin crear objetos intermedios
+     *
+     * @param placa La placa
+     * @return El hash de 64 bits
+     */
+    private static long hashPlaca(String placa) {
+        // FNV-1a de 64 bits seguido de una mezcla final para repartir los bits altos
+        long hash = 0xcbf29ce484222325L;
+        for (int i = 0; i < placa.length(); i++) {
+            hash ^= placa.charAt(i);
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
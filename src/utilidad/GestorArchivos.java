@@ -2,11 +2,20 @@ package utilidad;
 
 import modelo.*;
 import servicio.GestorParqueadero;
+import servicio.Metricas;
+import servicio.SeriesOcupacion;
 import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.YearMonth;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.Scanner;
+import java.util.TreeMap;
 
 /**
  * Clase encargada de manejar la lectura y escritura de archivos.
@@ -27,6 +36,21 @@ public class GestorArchivos {
      */
     private static final String CARPETA_REPORTES = "reportes";
 
+    /**
+     * Nombre del archivo donde se guardan los abonos
+     */
+    public static final String ARCHIVO_ABONOS = "abonos.txt";
+
+    /**
+     * Nombre del archivo donde se guardan los resumenes de los dias cerrados
+     */
+    private static final String ARCHIVO_RESUMENES = "resumenes_diarios.txt";
+
+    /**
+     * Nombre de la carpeta donde se guarda el modelo de ocupacion de cada parqueadero
+     */
+    private static final String CARPETA_SERIES = "series_ocupacion";
+
     /**
      * Constructor privado para evitar instanciacion.
      * Esta clase solo contiene metodos estaticos.
@@ -42,6 +66,7 @@ public class GestorArchivos {
      * @return true si se guardo correctamente, false si hubo error
      */
     public static boolean guardarParqueadero(Parqueadero parqueadero) {
+        long inicio = System.nanoTime();
         try {
             PrintWriter escritor = new PrintWriter(new FileWriter(ARCHIVO_PARQUEADEROS, true));
 
@@ -70,6 +95,8 @@ public class GestorArchivos {
         } catch (IOException e) {
             System.out.println("Error al guardar el parqueadero: " + e.getMessage());
             return false;
+        } finally {
+            medir("guardar_parqueadero", inicio);
         }
     }
 
@@ -79,6 +106,7 @@ public class GestorArchivos {
      * @return Lista de nombres de parqueaderos disponibles
      */
     public static ArrayList<String> cargarNombresParqueaderos() {
+        long inicio = System.nanoTime();
         ArrayList<String> nombres = new ArrayList<String>();
 
         try {
@@ -106,6 +134,8 @@ public class GestorArchivos {
 
         } catch (FileNotFoundException e) {
             System.out.println("Error: No se encontro el archivo de parqueaderos.");
+        } finally {
+            medir("cargar_nombres", inicio);
         }
 
         return nombres;
@@ -118,6 +148,7 @@ public class GestorArchivos {
      * @return El parqueadero cargado o null si no se encuentra
      */
     public static Parqueadero cargarParqueadero(String nombre) {
+        long inicio = System.nanoTime();
         try {
             File archivo = new File(ARCHIVO_PARQUEADEROS);
 
@@ -154,18 +185,8 @@ public class GestorArchivos {
                     int espaciosAuto = Integer.parseInt(autoStr);
                     int espaciosMoto = Integer.parseInt(motoStr);
 
-                    // Crear el parqueadero
-                    Parqueadero parqueadero = new Parqueadero(nombreParq, capacidad);
-
-                    // Agregar espacios para autos
-                    for (int i = 1; i <= espaciosAuto; i++) {
-                        parqueadero.agregarEspacio(new Espacio(i, "AUTO"));
-                    }
-
-                    // Agregar espacios para motos
-                    for (int i = espaciosAuto + 1; i <= capacidad; i++) {
-                        parqueadero.agregarEspacio(new Espacio(i, "MOTO"));
-                    }
+                    // Crear el parqueadero con sus espacios
+                    Parqueadero parqueadero = Parqueadero.crear(nombreParq, capacidad, espaciosAuto);
 
                     lector.close();
                     return parqueadero;
@@ -178,6 +199,8 @@ public class GestorArchivos {
             System.out.println("Error: No se encontro el archivo.");
         } catch (NumberFormatException e) {
             System.out.println("Error en el formato del archivo.");
+        } finally {
+            medir("cargar_parqueadero", inicio);
         }
 
         return null;
@@ -190,6 +213,7 @@ public class GestorArchivos {
      * @return true si se genero correctamente, false si hubo error
      */
     public static boolean generarReporteVehiculos(GestorParqueadero gestor) {
+        long inicio = System.nanoTime();
         try {
             // Crear carpeta de reportes si no existe
             File carpeta = new File(CARPETA_REPORTES);
@@ -219,26 +243,30 @@ public class GestorArchivos {
             escritor.println("Espacios Disponibles: " + gestor.getParqueadero().contarEspaciosDisponibles());
             escritor.println();
 
-            // Escribir lista de vehiculos
-            ArrayList<Ticket> ticketsActivos = gestor.getTicketsActivos();
+            // Escribir lista de vehiculos por paginas, sin copiar todos los tickets
+            int vehiculos = gestor.contarTicketsActivos();
 
-            if (ticketsActivos.isEmpty()) {
+            if (vehiculos == 0) {
                 escritor.println("No hay vehiculos parqueados actualmente.");
             } else {
-                escritor.println("VEHICULOS PARQUEADOS (" + ticketsActivos.size() + "):");
+                escritor.println("VEHICULOS PARQUEADOS (" + vehiculos + "):");
                 escritor.println("----------------------------------------");
 
-                for (int i = 0; i < ticketsActivos.size(); i++) {
-                    Ticket ticket = ticketsActivos.get(i);
-                    Vehiculo vehiculo = ticket.getVehiculo();
-
-                    escritor.println("Ticket #" + ticket.getId());
-                    escritor.println("  Placa: " + vehiculo.getPlaca());
-                    escritor.println("  Tipo: " + vehiculo.getTipo());
-                    escritor.println("  Espacio: " + ticket.getEspacio().getNumero());
-                    escritor.println("  Hora Entrada: " + vehiculo.getHoraEntrada().format(DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss")));
-                    escritor.println("----------------------------------------");
-                }
+                DateTimeFormatter formatoEntrada = DateTimeFormatter.ofPattern("dd/MM/yyyy HH:mm:ss");
+                String despuesDe = null;
+                do {
+                    despuesDe = gestor.buscarPorPlacaParcial("", false, despuesDe, GestorParqueadero.PAGINA_LISTADO,
+                            ticket -> {
+                                Vehiculo vehiculo = ticket.getVehiculo();
+
+                                escritor.println("Ticket #" + ticket.getId());
+                                escritor.println("  Placa: " + vehiculo.getPlaca());
+                                escritor.println("  Tipo: " + vehiculo.getTipo());
+                                escritor.println("  Espacio: " + ticket.getEspacio().getNumero());
+                                escritor.println("  Hora Entrada: " + vehiculo.getHoraEntrada().format(formatoEntrada));
+                                escritor.println("----------------------------------------");
+                            });
+                } while (despuesDe != null);
             }
 
             escritor.println();
@@ -253,7 +281,327 @@ public class GestorArchivos {
         } catch (FileNotFoundException e) {
             System.out.println("Error al generar el reporte: " + e.getMessage());
             return false;
+        } finally {
+            medir("reporte_vehiculos", inicio);
+        }
+    }
+
+    /**
+     * Carga una lista de placas desde un archivo de texto.
+     * Cada linea contiene una placa; las lineas vacias y las que empiezan
+     * por # se ignoran.
+     *
+     * @param nombreArchivo El nombre del archivo a leer
+     * @return Lista de placas en mayusculas (vacia si el archivo no existe,
+     *         null si no se pudo leer completo)
+     */
+    public static ArrayList<String> cargarListaPlacas(String nombreArchivo) {
+        long inicio = System.nanoTime();
+        ArrayList<String> placas = new ArrayList<String>();
+
+        File archivo = new File(nombreArchivo);
+        if (!archivo.exists()) {
+            return placas;
         }
+
+        try {
+            BufferedReader lector = new BufferedReader(new FileReader(archivo));
+            String linea;
+
+            while ((linea = lector.readLine()) != null) {
+                linea = linea.trim();
+                if (linea.isEmpty() || linea.startsWith("#")) {
+                    continue;
+                }
+                placas.add(linea.toUpperCase());
+            }
+
+            lector.close();
+
+        } catch (IOException e) {
+            System.out.println("Error al leer la lista de placas " + nombreArchivo + ": " + e.getMessage());
+            placas = null;
+        } finally {
+            medir("cargar_lista_placas", inicio);
+        }
+
+        return placas;
+    }
+
+    /**
+     * Guarda un abono en el archivo de abonos.
+     * Las renovaciones se agregan al final; al buscar gana la ultima linea.
+     *
+     * @param abono El abono a guardar
+     * @return true si se guardo correctamente, false si hubo error
+     */
+    public static boolean guardarAbono(Abono abono) {
+        long inicio = System.nanoTime();
+        try {
+            PrintWriter escritor = new PrintWriter(new FileWriter(ARCHIVO_ABONOS, true));
+
+            // Formato: PLACA|TIPO|FECHA_VENCIMIENTO
+            escritor.println(abono.getPlaca() + "|" +
+                    abono.getTipo() + "|" +
+                    abono.getFechaVencimiento());
+
+            escritor.close();
+            return true;
+
+        } catch (IOException e) {
+            System.out.println("Error al guardar el abono: " + e.getMessage());
+            return false;
+        } finally {
+            medir("guardar_abono", inicio);
+        }
+    }
+
+    /**
+     * Carga todos los abonos del archivo, el mas reciente de cada placa.
+     * Las lineas mal formadas se saltan y se avisa cuantas fueron.
+     *
+     * @return Los abonos por placa (vacio si el archivo no existe), o null si no se pudo leer
+     */
+    public static HashMap<String, Abono> cargarAbonos() {
+        long inicio = System.nanoTime();
+        HashMap<String, Abono> abonos = new HashMap<String, Abono>();
+
+        File archivo = new File(ARCHIVO_ABONOS);
+        if (!archivo.exists()) {
+            return abonos;
+        }
+
+        int malas = 0;
+        try {
+            BufferedReader lector = new BufferedReader(new FileReader(archivo));
+            String linea;
+
+            while ((linea = lector.readLine()) != null) {
+                int pos1 = linea.indexOf('|');
+                int pos2 = pos1 == -1 ? -1 : linea.indexOf('|', pos1 + 1);
+                if (pos2 == -1) {
+                    malas++;
+                    continue;
+                }
+
+                try {
+                    String placa = linea.substring(0, pos1);
+                    LocalDateTime vencimiento = LocalDateTime.parse(linea.substring(pos2 + 1));
+                    // Las renovaciones van al final: gana la ultima linea de cada placa
+                    abonos.put(placa, new Abono(placa, linea.substring(pos1 + 1, pos2), vencimiento));
+                } catch (DateTimeParseException e) {
+                    malas++;
+                }
+            }
+
+            lector.close();
+
+        } catch (IOException e) {
+            System.out.println("Error al leer el archivo de abonos: " + e.getMessage());
+            return null;
+        } finally {
+            medir("cargar_abonos", inicio);
+        }
+
+        if (malas > 0) {
+            System.out.println("Aviso: " + malas + " lineas con formato invalido en el archivo de abonos.");
+        }
+        return abonos;
+    }
+
+    /**
+     * Guarda el resumen de un dia cerrado al final del archivo de resumenes
+     *
+     * @param resumen El resumen a guardar
+     * @return true si se guardo correctamente, false si hubo error
+     */
+    public static boolean guardarResumenDiario(ResumenDiario resumen) {
+        long inicio = System.nanoTime();
+        try {
+            PrintWriter escritor = new PrintWriter(new FileWriter(ARCHIVO_RESUMENES, true));
+
+            // Formato: PARQUEADERO|FECHA|VEHICULOS|AUTOS|MOTOS|EXENTOS|INGRESOS_AUTO|INGRESOS_MOTO|
+            //          P50|P90|P99|MAXIMA|SALIDAS_HORA_0,...,SALIDAS_HORA_23
+            StringBuilder linea = new StringBuilder();
+            linea.append(resumen.getParqueadero()).append('|')
+                    .append(resumen.getFecha()).append('|')
+                    .append(resumen.getVehiculos()).append('|')
+                    .append(resumen.getAutos()).append('|')
+                    .append(resumen.getMotos()).append('|')
+                    .append(resumen.getExentos()).append('|')
+                    .append(resumen.getIngresosAuto()).append('|')
+                    .append(resumen.getIngresosMoto()).append('|')
+                    .append(resumen.getEstadiaP50()).append('|')
+                    .append(resumen.getEstadiaP90()).append('|')
+                    .append(resumen.getEstadiaP99()).append('|')
+                    .append(resumen.getEstadiaMaxima()).append('|');
+            for (int hora = 0; hora < 24; hora++) {
+                if (hora > 0) {
+                    linea.append(',');
+                }
+                linea.append(resumen.getSalidasHora(hora));
+            }
+            escritor.println(linea);
+
+            escritor.close();
+            return true;
+
+        } catch (IOException e) {
+            System.out.println("Error al guardar el resumen diario: " + e.getMessage());
+            return false;
+        } finally {
+            medir("guardar_resumen_diario", inicio);
+        }
+    }
+
+    /**
+     * Carga los resumenes de un parqueadero en un mes, ordenados por fecha.
+     * Si un dia se guardo varias veces (un cierre manual y luego el de
+     * medianoche) queda el de mas vehiculos, que incluye las salidas de los
+     * otros aunque un resumen parcial se haya escrito despues; en un empate
+     * queda el ultimo. Las lineas mal formadas se saltan y se avisa cuantas fueron.
+     *
+     * @param parqueadero El nombre del parqueadero
+     * @param mes El mes
+     * @return Los resumenes (vacio si no hay o el archivo no existe)
+     */
+    public static ArrayList<ResumenDiario> cargarResumenesDiarios(String parqueadero, YearMonth mes) {
+        long inicio = System.nanoTime();
+        TreeMap<LocalDate, ResumenDiario> porFecha = new TreeMap<LocalDate, ResumenDiario>();
+
+        File archivo = new File(ARCHIVO_RESUMENES);
+        if (!archivo.exists()) {
+            return new ArrayList<ResumenDiario>();
+        }
+
+        int malas = 0;
+        try {
+            BufferedReader lector = new BufferedReader(new FileReader(archivo));
+            String linea;
+
+            while ((linea = lector.readLine()) != null) {
+                String[] partes = linea.split("\\|");
+                if (partes.length != 13) {
+                    malas++;
+                    continue;
+                }
+                if (!partes[0].equals(parqueadero)) continue;
+
+                try {
+                    LocalDate fecha = LocalDate.parse(partes[1]);
+                    if (!YearMonth.from(fecha).equals(mes)) continue;
+
+                    String[] horas = partes[12].split(",");
+                    long[] salidasPorHora = new long[24];
+                    for (int hora = 0; hora < 24 && hora < horas.length; hora++) {
+                        salidasPorHora[hora] = Long.parseLong(horas[hora]);
+                    }
+
+                    ResumenDiario resumen = new ResumenDiario(parqueadero, fecha,
+                            Long.parseLong(partes[2]), Long.parseLong(partes[3]), Long.parseLong(partes[4]),
+                            Long.parseLong(partes[5]), Double.parseDouble(partes[6]), Double.parseDouble(partes[7]),
+                            salidasPorHora, Long.parseLong(partes[8]), Long.parseLong(partes[9]),
+                            Long.parseLong(partes[10]), Long.parseLong(partes[11]));
+                    ResumenDiario anterior = porFecha.get(fecha);
+                    if (anterior == null || resumen.getVehiculos() >= anterior.getVehiculos()) {
+                        porFecha.put(fecha, resumen);
+                    }
+                } catch (DateTimeParseException | NumberFormatException e) {
+                    malas++;
+                }
+            }
+
+            lector.close();
+
+        } catch (IOException e) {
+            System.out.println("Error al leer el archivo de resumenes: " + e.getMessage());
+        } finally {
+            medir("cargar_resumenes_diarios", inicio);
+        }
+
+        if (malas > 0) {
+            System.out.println("Aviso: " + malas + " lineas con formato invalido en el archivo de resumenes.");
+        }
+        return new ArrayList<ResumenDiario>(porFecha.values());
+    }
+
+    /**
+     * Guarda el modelo de ocupacion de un parqueadero, reemplazando el
+     * anterior. Se escribe en un archivo temporal que luego se renombra,
+     * asi una caida a mitad de camino no deja el modelo cortado.
+     *
+     * @param series Las series del parqueadero
+     * @return true si se guardo correctamente, false si hubo error
+     */
+    public static boolean guardarSeriesOcupacion(SeriesOcupacion series) {
+        long inicio = System.nanoTime();
+        try {
+            File carpeta = new File(CARPETA_SERIES);
+            if (!carpeta.exists()) {
+                carpeta.mkdir();
+            }
+
+            File archivo = new File(carpeta, series.getParqueadero() + ".txt");
+            File temporal = new File(carpeta, series.getParqueadero() + ".tmp");
+            PrintWriter escritor = new PrintWriter(new FileWriter(temporal));
+            series.escribirModelo(escritor);
+            escritor.close();
+            if (escritor.checkError()) {
+                System.out.println("Error al guardar el modelo de ocupacion de " + series.getParqueadero());
+                return false;
+            }
+
+            Files.move(temporal.toPath(), archivo.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+
+        } catch (IOException e) {
+            System.out.println("Error al guardar el modelo de ocupacion: " + e.getMessage());
+            return false;
+        } finally {
+            medir("guardar_series_ocupacion", inicio);
+        }
+    }
+
+    /**
+     * Carga en unas series el modelo de ocupacion guardado de su parqueadero
+     *
+     * @param series Las series del parqueadero
+     * @return true si se cargo, false si no hay modelo guardado o hubo error
+     */
+    public static boolean cargarSeriesOcupacion(SeriesOcupacion series) {
+        long inicio = System.nanoTime();
+        File archivo = new File(CARPETA_SERIES, series.getParqueadero() + ".txt");
+        if (!archivo.exists()) {
+            return false;
+        }
+
+        try {
+            BufferedReader lector = new BufferedReader(new FileReader(archivo));
+            boolean leido = series.leerModelo(lector);
+            lector.close();
+            if (!leido) {
+                System.out.println("Error en el formato del modelo de ocupacion de " + series.getParqueadero());
+            }
+            return leido;
+
+        } catch (IOException e) {
+            System.out.println("Error al leer el modelo de ocupacion: " + e.getMessage());
+            return false;
+        } finally {
+            medir("cargar_series_ocupacion", inicio);
+        }
+    }
+
+    /**
+     * Registra la duracion de una operacion de archivos en las metricas
+     *
+     * @param operacion El nombre de la operacion
+     * @param inicio El System.nanoTime() del inicio
+     */
+    private static void medir(String operacion, long inicio) {
+        Metricas.GENERAL.latencia("parqueadero_archivos_segundos", "Duracion de las operaciones de archivos",
+                "operacion", operacion).registrar(System.nanoTime() - inicio);
     }
 
     /**
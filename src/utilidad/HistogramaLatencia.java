@@ -0,0 +1,233 @@
+package utilidad;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histograma de latencias al estilo HDR.
+ * Los valores se agrupan en cubetas logaritmicas divididas en 64 partes
+ * iguales, asi el error relativo es menor al 2% en todo el rango y el
+ * tamano es fijo. Registrar un valor no crea objetos y se puede hacer
+ * desde varios hilos a la vez; el conteo y la suma van en contadores
+ * repartidos (LongAdder) para que los hilos no compitan por una sola celda.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class HistogramaLatencia {
+
+    /**
+     * Bits de precision dentro de cada potencia de 2
+     */
+    private static final int BITS_SUBCUBETA = 6;
+
+    /**
+     * Numero de subcubetas por potencia de 2
+     */
+    private static final int SUBCUBETAS = 1 << BITS_SUBCUBETA;
+
+    /**
+     * Numero total de cubetas (cubre todo el rango de long positivo)
+     */
+    private static final int NUMERO_CUBETAS = (64 - BITS_SUBCUBETA) * SUBCUBETAS;
+
+    /**
+     * Conteo de valores en cada cubeta
+     */
+    private final AtomicLongArray cubetas;
+
+    /**
+     * Numero de valores registrados
+     */
+    private final LongAdder conteo;
+
+    /**
+     * Suma de los valores registrados
+     */
+    private final LongAdder suma;
+
+    /**
+     * Valor maximo registrado
+     */
+    private final AtomicLong maximo;
+
+    /**
+     * Constructor de la clase HistogramaLatencia
+     */
+    public HistogramaLatencia() {
+        this.cubetas = new AtomicLongArray(NUMERO_CUBETAS);
+        this.conteo = new LongAdder();
+        this.suma = new LongAdder();
+        this.maximo = new AtomicLong();
+    }
+
+    /**
+     * Registra un valor (por ejemplo una latencia en nanosegundos)
+     *
+     * @param valor El valor a registrar (los negativos se toman como 0)
+     */
+    public void registrar(long valor) {
+        if (valor < 0) {
+            valor = 0;
+        }
+
+        cubetas.incrementAndGet(indiceCubeta(valor));
+        conteo.increment();
+        suma.add(valor);
+
+        long actual = maximo.get();
+        while (valor > actual && !maximo.compareAndSet(actual, valor)) {
+            actual = maximo.get();
+        }
+    }
+
+    /**
+     * Calcula el valor de un percentil
+     *
+     * @param percentil El percentil entre 0 y 100 (ej. 99.9)
+     * @return El valor aproximado del percentil o 0 si no hay datos
+     */
+    public long percentil(double percentil) {
+        long total = conteo.sum();
+        if (total == 0) {
+            return 0;
+        }
+
+        long objetivo = (long) Math.ceil(total * Math.min(100.0, Math.max(0.0, percentil)) / 100.0);
+        if (objetivo < 1) {
+            objetivo = 1;
+        }
+
+        long acumulado = 0;
+        for (int i = 0; i < NUMERO_CUBETAS; i++) {
+            acumulado += cubetas.get(i);
+            if (acumulado >= objetivo) {
+                return Math.min(valorSuperior(i), maximo.get());
+            }
+        }
+        return maximo.get();
+    }
+
+    /**
+     * Cuenta los valores hasta cada limite, en una sola pasada por las cubetas.
+     * Un valor cuenta en el limite si su cubeta empieza en o antes del limite,
+     * asi que el conteo puede incluir valores hasta un 2% mayores.
+     *
+     * @param limites Los limites en orden creciente
+     * @return Los conteos acumulados de cada limite, y al final el total de valores
+     */
+    public long[] contarHasta(long[] limites) {
+        long[] conteos = new long[limites.length + 1];
+        long acumulado = 0;
+        int limite = 0;
+        for (int i = 0; i < NUMERO_CUBETAS; i++) {
+            while (limite < limites.length && i > indiceCubeta(Math.max(0, limites[limite]))) {
+                conteos[limite++] = acumulado;
+            }
+            acumulado += cubetas.get(i);
+        }
+        while (limite < limites.length) {
+            conteos[limite++] = acumulado;
+        }
+        conteos[limites.length] = acumulado;
+        return conteos;
+    }
+
+    /**
+     * Obtiene el numero de valores registrados
+     *
+     * @return El numero de valores
+     */
+    public long getConteo() {
+        return conteo.sum();
+    }
+
+    /**
+     * Obtiene la suma de los valores registrados
+     *
+     * @return La suma
+     */
+    public long getSuma() {
+        return suma.sum();
+    }
+
+    /**
+     * Obtiene el valor promedio registrado
+     *
+     * @return El promedio o 0 si no hay datos
+     */
+    public double getPromedio() {
+        long total = conteo.sum();
+        return total == 0 ? 0.0 : (double) suma.sum() / total;
+    }
+
+    /**
+     * Obtiene el valor maximo registrado
+     *
+     * @return El valor maximo
+     */
+    public long getMaximo() {
+        return maximo.get();
+    }
+
+    /**
+     * Borra todos los valores registrados
+     */
+    public void reiniciar() {
+        for (int i = 0; i < NUMERO_CUBETAS; i++) {
+            cubetas.set(i, 0);
+        }
+        conteo.reset();
+        suma.reset();
+        maximo.set(0);
+    }
+
+    /**
+     * Muestra un resumen de las latencias en microsegundos,
+     * suponiendo que los valores se registraron en nanosegundos
+     *
+     * @return String con el resumen
+     */
+    public String mostrarResumen() {
+        return String.format("n=%d prom=%.1fus p50=%.1fus p90=%.1fus p99=%.1fus p99.9=%.1fus max=%.1fus",
+                getConteo(),
+                getPromedio() / 1000.0,
+                percentil(50) / 1000.0,
+                percentil(90) / 1000.0,
+                percentil(99) / 1000.0,
+                percentil(99.9) / 1000.0,
+                getMaximo() / 1000.0);
+    }
+
+    /**
+     * Calcula la cubeta de un valor
+     *
+     * @param valor El valor no negativo
+     * @return El indice de la cubeta
+     */
+    private static int indiceCubeta(long valor) {
+        if (valor < SUBCUBETAS) {
+            return (int) valor;
+        }
+        int exponente = 63 - Long.numberOfLeadingZeros(valor);
+        int desplazamiento = exponente - BITS_SUBCUBETA;
+        int sub = (int) (valor >>> desplazamiento) - SUBCUBETAS;
+        return (desplazamiento + 1) * SUBCUBETAS + sub;
+    }
+
+    /**
+     * Calcula el mayor valor que cae en una cubeta
+     *
+     * @param indice El indice de la cubeta
+     * @return El limite superior de la cubeta
+     */
+    private static long valorSuperior(int indice) {
+        if (indice < SUBCUBETAS) {
+            return indice;
+        }
+        int desplazamiento = indice / SUBCUBETAS - 1;
+        long sub = indice % SUBCUBETAS + SUBCUBETAS;
+        return ((sub + 1) << desplazamiento) - 1;
+    }
+}
@@ -0,0 +1,325 @@
+package utilidad;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * Indice invertido de bigramas para buscar textos cortos a poca distancia
+ * de edicion (Levenshtein) sin compararlos con todos.
+ * Cada clave se rodea de marcas de borde ("#ABC123#") y se parte en pares
+ * de caracteres; cada par guarda la lista de claves que lo contienen. Un
+ * error de edicion destruye a lo mas 2 pares, asi que dos claves a k
+ * errores comparten al menos (pares distintos de cualquiera de las dos) - 2k
+ * pares: solo las claves que llegan a ese conteo se comparan con la
+ * distancia completa.
+ * Las claves deben tener al menos 2k+1 bigramas distintos (las placas de
+ * 6 caracteres tienen 7) para que el filtro no pierda ninguna.
+ * Cada clave guarda un valor (ej. la placa original). No es seguro para
+ * varios hilos.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class IndiceBigramas {
+
+    /**
+     * Marca de borde al inicio y al final de cada clave
+     */
+    private static final char BORDE = '#';
+
+    /**
+     * Lista de identificadores de las claves que contienen un bigrama
+     */
+    private static class Lista {
+
+        /**
+         * Identificadores (solo los primeros tamano son validos)
+         */
+        private int[] ids = new int[4];
+
+        /**
+         * Numero de identificadores
+         */
+        private int tamano;
+
+        /**
+         * Agrega un identificador
+         *
+         * @param id El identificador
+         */
+        void agregar(int id) {
+            if (tamano == ids.length) {
+                int[] mayor = new int[ids.length * 2];
+                System.arraycopy(ids, 0, mayor, 0, tamano);
+                ids = mayor;
+            }
+            ids[tamano++] = id;
+        }
+
+        /**
+         * Quita un identificador cambiandolo por el ultimo
+         *
+         * @param id El identificador
+         */
+        void quitar(int id) {
+            for (int i = 0; i < tamano; i++) {
+                if (ids[i] == id) {
+                    ids[i] = ids[--tamano];
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Listas por bigrama (los dos caracteres en un int)
+     */
+    private final HashMap<Integer, Lista> listas;
+
+    /**
+     * Identificador de cada valor
+     */
+    private final HashMap<String, Integer> idPorValor;
+
+    /**
+     * Clave de cada identificador (null si esta libre)
+     */
+    private String[] claves;
+
+    /**
+     * Valor de cada identificador
+     */
+    private String[] valores;
+
+    /**
+     * Numero de bigramas distintos de cada clave
+     */
+    private int[] distintos;
+
+    /**
+     * Bigramas compartidos con la consulta, por identificador (se limpia en cada busqueda)
+     */
+    private int[] conteos;
+
+    /**
+     * Identificadores con conteo distinto de cero en la busqueda actual
+     */
+    private int[] tocados;
+
+    /**
+     * Identificadores libres para reusar
+     */
+    private int[] libres;
+
+    /**
+     * Numero de identificadores libres
+     */
+    private int numeroLibres;
+
+    /**
+     * Siguiente identificador nunca usado
+     */
+    private int siguienteId;
+
+    /**
+     * Constructor de la clase IndiceBigramas
+     */
+    public IndiceBigramas() {
+        this.listas = new HashMap<Integer, Lista>();
+        this.idPorValor = new HashMap<String, Integer>();
+        this.claves = new String[64];
+        this.valores = new String[64];
+        this.conteos = new int[64];
+        this.distintos = new int[64];
+        this.libres = new int[16];
+        this.tocados = new int[64];
+    }
+
+    /**
+     * Agrega un valor bajo una clave
+     *
+     * @param clave La clave por la que se busca
+     * @param valor El valor (unico en el indice)
+     * @return true si se agrego, false si el valor ya estaba
+     */
+    public boolean agregar(String clave, String valor) {
+        if (idPorValor.containsKey(valor)) {
+            return false;
+        }
+
+        int id = numeroLibres > 0 ? libres[--numeroLibres] : siguienteId++;
+        if (id == claves.length) {
+            int tamano = claves.length * 2;
+            claves = Arrays.copyOf(claves, tamano);
+            valores = Arrays.copyOf(valores, tamano);
+            conteos = Arrays.copyOf(conteos, tamano);
+            distintos = Arrays.copyOf(distintos, tamano);
+            tocados = Arrays.copyOf(tocados, tamano);
+        }
+        claves[id] = clave;
+        valores[id] = valor;
+        idPorValor.put(valor, id);
+
+        String conBordes = BORDE + clave + BORDE;
+        distintos[id] = 0;
+        for (int i = 0; i + 1 < conBordes.length(); i++) {
+            // Un bigrama repetido en la clave se anota una sola vez
+            if (!esPrimero(conBordes, i)) {
+                continue;
+            }
+            int bigrama = bigrama(conBordes, i);
+            Lista lista = listas.get(bigrama);
+            if (lista == null) {
+                lista = new Lista();
+                listas.put(bigrama, lista);
+            }
+            lista.agregar(id);
+            distintos[id]++;
+        }
+        return true;
+    }
+
+    /**
+     * Quita un valor del indice
+     *
+     * @param valor El valor
+     * @return true si estaba
+     */
+    public boolean quitar(String valor) {
+        Integer id = idPorValor.remove(valor);
+        if (id == null) {
+            return false;
+        }
+
+        String conBordes = BORDE + claves[id] + BORDE;
+        for (int i = 0; i + 1 < conBordes.length(); i++) {
+            Lista lista = listas.get(bigrama(conBordes, i));
+            if (lista != null && esPrimero(conBordes, i)) {
+                lista.quitar(id);
+                if (lista.tamano == 0) {
+                    listas.remove(bigrama(conBordes, i));
+                }
+            }
+        }
+
+        claves[id] = null;
+        valores[id] = null;
+        if (numeroLibres == libres.length) {
+            libres = Arrays.copyOf(libres, libres.length * 2);
+        }
+        libres[numeroLibres++] = id;
+        return true;
+    }
+
+    /**
+     * Busca los valores cuyas claves estan a distancia de edicion menor o igual a errores
+     *
+     * @param consulta La clave buscada
+     * @param errores La distancia maxima
+     * @return Los valores encontrados (sin orden)
+     */
+    public ArrayList<String> buscar(String consulta, int errores) {
+        ArrayList<String> encontrados = new ArrayList<String>();
+        int numeroTocados = 0;
+
+        // Contar cuantos bigramas distintos de la consulta tiene cada clave
+        String conBordes = BORDE + consulta + BORDE;
+        int distintosConsulta = 0;
+        for (int i = 0; i + 1 < conBordes.length(); i++) {
+            if (!esPrimero(conBordes, i)) {
+                continue;
+            }
+            distintosConsulta++;
+            Lista lista = listas.get(bigrama(conBordes, i));
+            if (lista == null) {
+                continue;
+            }
+            for (int j = 0; j < lista.tamano; j++) {
+                int id = lista.ids[j];
+                if (conteos[id]++ == 0) {
+                    tocados[numeroTocados++] = id;
+                }
+            }
+        }
+
+        // Comparar solo las que comparten suficientes bigramas
+        for (int i = 0; i < numeroTocados; i++) {
+            int id = tocados[i];
+            int minimo = Math.max(distintosConsulta, distintos[id]) - 2 * errores;
+            if (conteos[id] >= minimo && distancia(consulta, claves[id]) <= errores) {
+                encontrados.add(valores[id]);
+            }
+            conteos[id] = 0;
+        }
+        return encontrados;
+    }
+
+    /**
+     * Obtiene el numero de valores del indice
+     *
+     * @return Los valores
+     */
+    public int contarValores() {
+        return idPorValor.size();
+    }
+
+    /**
+     * Verifica si el bigrama de una posicion aparece ahi por primera vez en el texto
+     *
+     * @param texto El texto
+     * @param posicion La posicion
+     * @return true si no aparece antes
+     */
+    private static boolean esPrimero(String texto, int posicion) {
+        char a = texto.charAt(posicion);
+        char b = texto.charAt(posicion + 1);
+        for (int i = 0; i < posicion; i++) {
+            if (texto.charAt(i) == a && texto.charAt(i + 1) == b) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Calcula el bigrama que empieza en una posicion
+     *
+     * @param texto El texto
+     * @param posicion La posicion
+     * @return Los dos caracteres en un int
+     */
+    private static int bigrama(String texto, int posicion) {
+        return (texto.charAt(posicion) << 16) | texto.charAt(posicion + 1);
+    }
+
+    /**
+     * Calcula la distancia de Levenshtein entre dos textos
+     *
+     * @param a El primer texto
+     * @param b El segundo texto
+     * @return El numero minimo de inserciones, borrados y cambios
+     */
+    public static int distancia(String a, String b) {
+        int n = a.length();
+        int m = b.length();
+        int[] anterior = new int[m + 1];
+        int[] actual = new int[m + 1];
+        for (int j = 0; j <= m; j++) {
+            anterior[j] = j;
+        }
+
+        for (int i = 1; i <= n; i++) {
+            actual[0] = i;
+            char c = a.charAt(i - 1);
+            for (int j = 1; j <= m; j++) {
+                int cambio = anterior[j - 1] + (c == b.charAt(j - 1) ? 0 : 1);
+                actual[j] = Math.min(cambio, Math.min(anterior[j], actual[j - 1]) + 1);
+            }
+            int[] temporal = anterior;
+            anterior = actual;
+            actual = temporal;
+        }
+        return anterior[m];
+    }
+}
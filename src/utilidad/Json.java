@@ -0,0 +1,126 @@
+package utilidad;
+
+/**
+ * Clase utilitaria para escribir respuestas en formato JSON.
+ * Solo contiene lo necesario para armar objetos simples a mano,
+ * sin depender de librerias externas.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class Json {
+
+    /**
+     * Constructor privado para evitar instanciacion.
+     * Esta clase solo contiene metodos estaticos.
+     */
+    private Json() {
+        // Constructor privado
+    }
+
+    /**
+     * Escribe un texto como cadena JSON (entre comillas y escapado)
+     *
+     * @param salida Donde se escribe el texto
+     * @param texto El texto a escribir (null se escribe como null)
+     * @return La misma salida, para encadenar llamadas
+     */
+    public static StringBuilder texto(StringBuilder salida, String texto) {
+        if (texto == null) {
+            return salida.append("null");
+        }
+
+        salida.append('"');
+        for (int i = 0; i < texto.length(); i++) {
+            char c = texto.charAt(i);
+            switch (c) {
+                case '"':
+                    salida.append("\\\"");
+                    break;
+                case '\\':
+                    salida.append("\\\\");
+                    break;
+                case '\n':
+                    salida.append("\\n");
+                    break;
+                case '\r':
+                    salida.append("\\r");
+                    break;
+                case '\t':
+                    salida.append("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        salida.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        salida.append(c);
+                    }
+            }
+        }
+        return salida.append('"');
+    }
+
+    /**
+     * Escribe un campo de texto "nombre":"valor"
+     *
+     * @param salida Donde se escribe el campo
+     * @param nombre El nombre del campo
+     * @param valor El valor del campo
+     * @return La misma salida, para encadenar llamadas
+     */
+    public static StringBuilder campo(StringBuilder salida, String nombre, String valor) {
+        texto(salida, nombre).append(':');
+        return texto(salida, valor);
+    }
+
+    /**
+     * Escribe un campo numerico "nombre":valor
+     *
+     * @param salida Donde se escribe el campo
+     * @param nombre El nombre del campo
+     * @param valor El valor del campo
+     * @return La misma salida, para encadenar llamadas
+     */
+    public static StringBuilder campo(StringBuilder salida, String nombre, long valor) {
+        texto(salida, nombre).append(':');
+        return salida.append(valor);
+    }
+
+    /**
+     * Escribe un campo decimal "nombre":valor
+     *
+     * @param salida Donde se escribe el campo
+     * @param nombre El nombre del campo
+     * @param valor El valor del campo
+     * @return La misma salida, para encadenar llamadas
+     */
+    public static StringBuilder campo(StringBuilder salida, String nombre, double valor) {
+        texto(salida, nombre).append(':');
+        return salida.append(valor);
+    }
+
+    /**
+     * Escribe un campo booleano "nombre":valor
+     *
+     * @param salida Donde se escribe el campo
+     * @param nombre El nombre del campo
+     * @param valor El valor del campo
+     * @return La misma salida, para encadenar llamadas
+     */
+    public static StringBuilder campo(StringBuilder salida, String nombre, boolean valor) {
+        texto(salida, nombre).append(':');
+        return salida.append(valor);
+    }
+
+    /**
+     * Crea un objeto JSON de error
+     *
+     * @param mensaje El mensaje de error
+     * @return El objeto JSON como texto
+     */
+    public static String error(String mensaje) {
+        StringBuilder salida = new StringBuilder("{");
+        campo(salida, "error", mensaje);
+        return salida.append('}').toString();
+    }
+}
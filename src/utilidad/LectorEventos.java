@@ -0,0 +1,331 @@
+package utilidad;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+/**
+ * Lector de archivos de eventos de entrada y salida.
+ * Mapea el archivo a memoria por ventanas, asi se pueden leer archivos
+ * de varios GB sin cargarlos completos ni copiar cada linea.
+ * Cada linea tiene el formato MOMENTO|TIPO|PLACA, donde MOMENTO son
+ * milisegundos desde la epoca o una fecha ISO (2025-10-01T08:30:00)
+ * y TIPO es E (entrada), S (salida), R (reserva), C (cancelacion de
+ * una reserva) o V (vencimiento de una reserva). Las reservas llevan
+ * un cuarto campo con los minutos: MOMENTO|R|PLACA|MINUTOS.
+ * Las lineas vacias y las que empiezan por # se ignoran.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class LectorEventos implements AutoCloseable {
+
+    /**
+     * Tamano de cada ventana mapeada a memoria (64 MB)
+     */
+    private static final long TAMANO_VENTANA = 64L * 1024 * 1024;
+
+    /**
+     * Longitud maxima de una linea
+     */
+    private static final int LONGITUD_MAXIMA_LINEA = 4096;
+
+    /**
+     * Canal del archivo
+     */
+    private final FileChannel canal;
+
+    /**
+     * Tamano del archivo en bytes
+     */
+    private final long tamanoArchivo;
+
+    /**
+     * Zona usada para interpretar fechas ISO
+     */
+    private final ZoneId zona;
+
+    /**
+     * Ventana actual mapeada a memoria
+     */
+    private MappedByteBuffer ventana;
+
+    /**
+     * Posicion del archivo donde empieza la ventana actual
+     */
+    private long inicioVentana;
+
+    /**
+     * Buffer reutilizable para la linea actual
+     */
+    private final byte[] linea;
+
+    /**
+     * Momento del evento actual en milisegundos
+     */
+    private long momentoMillis;
+
+    /**
+     * Tipo del evento actual ('E', 'S', 'R', 'C' o 'V')
+     */
+    private char tipo;
+
+    /**
+     * Placa del evento actual
+     */
+    private String placa;
+
+    /**
+     * Minutos de la reserva del evento actual (0 si no es una reserva)
+     */
+    private int minutos;
+
+    /**
+     * Numero de lineas con formato invalido que se saltaron
+     */
+    private long lineasInvalidas;
+
+    /**
+     * Constructor de la clase LectorEventos
+     *
+     * @param nombreArchivo El archivo de eventos
+     * @param zona La zona para interpretar fechas ISO
+     * @throws IOException Si no se puede abrir el archivo
+     */
+    public LectorEventos(String nombreArchivo, ZoneId zona) throws IOException {
+        Path ruta = Paths.get(nombreArchivo);
+        this.canal = FileChannel.open(ruta, StandardOpenOption.READ);
+        this.tamanoArchivo = canal.size();
+        this.zona = zona;
+        this.linea = new byte[LONGITUD_MAXIMA_LINEA];
+        this.inicioVentana = 0;
+        mapearVentana(0);
+    }
+
+    /**
+     * Avanza al siguiente evento valido del archivo
+     *
+     * @return true si hay un evento, false si se llego al final
+     * @throws IOException Si hay un error de lectura
+     */
+    public boolean siguiente() throws IOException {
+        while (true) {
+            int longitud = leerLinea();
+            if (longitud < 0) {
+                return false;
+            }
+            if (longitud == 0 || linea[0] == '#') {
+                continue;
+            }
+            if (interpretar(longitud)) {
+                return true;
+            }
+            lineasInvalidas++;
+        }
+    }
+
+    /**
+     * Obtiene el momento del evento actual
+     *
+     * @return Los milisegundos desde la epoca
+     */
+    public long getMomentoMillis() {
+        return momentoMillis;
+    }
+
+    /**
+     * Obtiene el tipo del evento actual
+     *
+     * @return 'E' entrada, 'S' salida, 'R' reserva, 'C' cancelacion o 'V' vencimiento
+     */
+    public char getTipo() {
+        return tipo;
+    }
+
+    /**
+     * Obtiene la placa del evento actual
+     *
+     * @return La placa
+     */
+    public String getPlaca() {
+        return placa;
+    }
+
+    /**
+     * Obtiene los minutos de la reserva del evento actual
+     *
+     * @return Los minutos, o 0 si el evento no es una reserva
+     */
+    public int getMinutos() {
+        return minutos;
+    }
+
+    /**
+     * Obtiene el numero de lineas invalidas que se saltaron
+     *
+     * @return El numero de lineas invalidas
+     */
+    public long getLineasInvalidas() {
+        return lineasInvalidas;
+    }
+
+    /**
+     * Cierra el archivo
+     *
+     * @throws IOException Si hay un error al cerrar
+     */
+    @Override
+    public void close() throws IOException {
+        canal.close();
+    }
+
+    /**
+     * Mapea una ventana del archivo que empieza en la posicion indicada
+     *
+     * @param posicion La posicion del archivo
+     * @throws IOException Si no se puede mapear
+     */
+    private void mapearVentana(long posicion) throws IOException {
+        long tamano = Math.min(TAMANO_VENTANA, tamanoArchivo - posicion);
+        inicioVentana = posicion;
+        ventana = canal.map(FileChannel.MapMode.READ_ONLY, posicion, Math.max(0, tamano));
+    }
+
+    /**
+     * Copia la siguiente linea al buffer, cambiando de ventana si hace falta
+     *
+     * @return La longitud de la linea o -1 al final del archivo
+     * @throws IOException Si hay un error de lectura
+     */
+    private int leerLinea() throws IOException {
+        if (inicioVentana + ventana.position() >= tamanoArchivo) {
+            return -1;
+        }
+
+        int longitud = 0;
+        while (true) {
+            if (!ventana.hasRemaining()) {
+                long posicion = inicioVentana + ventana.position();
+                if (posicion >= tamanoArchivo) {
+                    break;
+                }
+                mapearVentana(posicion);
+            }
+
+            byte b = ventana.get();
+            if (b == '\n') {
+                break;
+            }
+            if (b != '\r' && longitud < LONGITUD_MAXIMA_LINEA) {
+                linea[longitud++] = b;
+            }
+        }
+
+        // Quitar espacios al inicio y al final
+        while (longitud > 0 && linea[longitud - 1] == ' ') {
+            longitud--;
+        }
+        int inicio = 0;
+        while (inicio < longitud && linea[inicio] == ' ') {
+            inicio++;
+        }
+        if (inicio > 0) {
+            System.arraycopy(linea, inicio, linea, 0, longitud - inicio);
+            longitud -= inicio;
+        }
+        return longitud;
+    }
+
+    /**
+     * Interpreta la linea actual como un evento
+     *
+     * @param longitud La longitud de la linea
+     * @return true si la linea es valida, false si no
+     */
+    private boolean interpretar(int longitud) {
+        int pos1 = buscar('|', 0, longitud);
+        if (pos1 <= 0) return false;
+
+        int pos2 = buscar('|', pos1 + 1, longitud);
+        if (pos2 == -1 || pos2 == pos1 + 1 || pos2 + 1 >= longitud) return false;
+
+        // Tipo de evento: se toma la primera letra (E/ENTRADA, S/SALIDA, R/RESERVA,
+        // C/CANCELACION, V/VENCIMIENTO)
+        char letra = (char) Character.toUpperCase(linea[pos1 + 1]);
+        if (letra != 'E' && letra != 'S' && letra != 'R' && letra != 'C' && letra != 'V') return false;
+
+        try {
+            momentoMillis = interpretarMomento(pos1);
+        } catch (RuntimeException e) {
+            return false;
+        }
+
+        int finPlaca = longitud;
+        minutos = 0;
+        if (letra == 'R') {
+            // La reserva trae los minutos despues de la placa
+            finPlaca = buscar('|', pos2 + 1, longitud);
+            if (finPlaca == -1) return false;
+            try {
+                minutos = Integer.parseInt(new String(linea, finPlaca + 1, longitud - finPlaca - 1,
+                        StandardCharsets.US_ASCII).trim());
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            if (minutos <= 0) return false;
+        }
+
+        tipo = letra;
+        placa = new String(linea, pos2 + 1, finPlaca - pos2 - 1, StandardCharsets.US_ASCII).trim();
+        return !placa.isEmpty();
+    }
+
+    /**
+     * Interpreta el momento de la linea (milisegundos o fecha ISO)
+     *
+     * @param fin La posicion donde termina el campo
+     * @return Los milisegundos desde la epoca
+     */
+    private long interpretarMomento(int fin) {
+        long valor = 0;
+        boolean soloDigitos = true;
+        for (int i = 0; i < fin; i++) {
+            byte b = linea[i];
+            if (b < '0' || b > '9') {
+                soloDigitos = false;
+                break;
+            }
+            valor = valor * 10 + (b - '0');
+        }
+
+        if (soloDigitos) {
+            return valor;
+        }
+
+        String texto = new String(linea, 0, fin, StandardCharsets.US_ASCII).trim();
+        return LocalDateTime.parse(texto).atZone(zona).toInstant().toEpochMilli();
+    }
+
+    /**
+     * Busca un caracter en la linea actual
+     *
+     * @param caracter El caracter a buscar
+     * @param desde La posicion inicial
+     * @param hasta La posicion final (exclusiva)
+     * @return La posicion encontrada o -1
+     */
+    private int buscar(char caracter, int desde, int hasta) {
+        for (int i = desde; i < hasta; i++) {
+            if (linea[i] == caracter) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
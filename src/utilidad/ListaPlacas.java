@@ -0,0 +1,78 @@
+package utilidad;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+
+/**
+ * Lista inmutable de placas (por ejemplo bloqueadas o permitidas).
+ * Pone un filtro de Bloom delante de un conjunto exacto, de modo que
+ * el caso comun "la placa no esta en la lista" solo cuesta unas pocas
+ * pruebas de bits y no toca el conjunto.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class ListaPlacas {
+
+    /**
+     * Probabilidad de falso positivo del filtro de Bloom
+     */
+    private static final double PROBABILIDAD_FALSO_POSITIVO = 0.01;
+
+    /**
+     * Filtro de Bloom que descarta rapidamente las placas que no estan
+     */
+    private final FiltroBloom filtro;
+
+    /**
+     * Conjunto exacto de placas, consultado solo si el filtro da positivo
+     */
+    private final HashSet<String> placas;
+
+    /**
+     * Constructor de la clase ListaPlacas
+     *
+     * @param placas Las placas de la lista (ya normalizadas en mayusculas)
+     */
+    public ListaPlacas(ArrayList<String> placas) {
+        this.filtro = new FiltroBloom(placas.size(), PROBABILIDAD_FALSO_POSITIVO);
+        this.placas = new HashSet<String>(Math.max(16, placas.size() * 4 / 3 + 1));
+
+        for (int i = 0; i < placas.size(); i++) {
+            String placa = placas.get(i);
+            filtro.agregar(placa);
+            this.placas.add(placa);
+        }
+    }
+
+    /**
+     * Crea una lista vacia
+     *
+     * @return Una lista sin placas
+     */
+    public static ListaPlacas vacia() {
+        return new ListaPlacas(new ArrayList<String>());
+    }
+
+    /**
+     * Verifica si una placa esta en la lista
+     *
+     * @param placa La placa normalizada en mayusculas
+     * @return true si la placa esta en la lista, false si no
+     */
+    public boolean contiene(String placa) {
+        if (!filtro.podriaContener(placa)) {
+            return false;
+        }
+        return placas.contains(placa);
+    }
+
+    /**
+     * Obtiene el numero de placas de la lista
+     *
+     * @return El numero de placas
+     */
+    public int tamano() {
+        return placas.size();
+    }
+}
@@ -0,0 +1,260 @@
+package utilidad;
+
+import java.util.function.Consumer;
+
+/**
+ * Rueda de tiempo (hashed timing wheel) para programar vencimientos.
+ * El tiempo se divide en ticks y cada tick cae en una ranura de la rueda.
+ * Programar y cancelar un temporizador cuesta O(1) sin importar cuantos
+ * haya pendientes, y avanzar la rueda solo visita las ranuras de los ticks
+ * transcurridos. Los temporizadores que vencen dentro de varias vueltas
+ * esperan en su ranura hasta que llegue su tick.
+ * Esta clase no es segura para hilos; quien la usa debe sincronizar.
+ *
+ * @author Velez
+ * @version 1.0
+ * @param <T> Tipo del valor asociado a cada temporizador
+ */
+public class RuedaTemporal<T> {
+
+    /**
+     * Temporizador programado en la rueda.
+     * Es un nodo de lista doblemente enlazada para poder cancelarlo en O(1).
+     *
+     * @param <T> Tipo del valor asociado
+     */
+    public static class Temporizador<T> {
+
+        /**
+         * Valor asociado al temporizador
+         */
+        private final T valor;
+
+        /**
+         * Tick absoluto en el que vence el temporizador
+         */
+        private final long tickVencimiento;
+
+        /**
+         * Ranura de la rueda donde esta guardado
+         */
+        private final int ranura;
+
+        /**
+         * Nodo anterior en la ranura
+         */
+        private Temporizador<T> anterior;
+
+        /**
+         * Nodo siguiente en la ranura
+         */
+        private Temporizador<T> siguiente;
+
+        /**
+         * Indica si el temporizador sigue pendiente
+         */
+        private boolean pendiente;
+
+        /**
+         * Constructor del temporizador
+         *
+         * @param valor El valor asociado
+         * @param tickVencimiento El tick de vencimiento
+         * @param ranura La ranura de la rueda
+         */
+        private Temporizador(T valor, long tickVencimiento, int ranura) {
+            this.valor = valor;
+            this.tickVencimiento = tickVencimiento;
+            this.ranura = ranura;
+            this.pendiente = true;
+        }
+
+        /**
+         * Obtiene el valor asociado al temporizador
+         *
+         * @return El valor
+         */
+        public T getValor() {
+            return valor;
+        }
+
+        /**
+         * Verifica si el temporizador sigue pendiente
+         *
+         * @return true si no ha vencido ni ha sido cancelado
+         */
+        public boolean isPendiente() {
+            return pendiente;
+        }
+    }
+
+    /**
+     * Cabeza de la lista de temporizadores de cada ranura
+     */
+    private final Temporizador<T>[] ranuras;
+
+    /**
+     * Mascara para calcular la ranura (el numero de ranuras es potencia de 2)
+     */
+    private final int mascara;
+
+    /**
+     * Duracion de cada tick en milisegundos
+     */
+    private final long duracionTickMillis;
+
+    /**
+     * Ultimo tick procesado
+     */
+    private long tickActual;
+
+    /**
+     * Numero de temporizadores pendientes
+     */
+    private int pendientes;
+
+    /**
+     * Constructor de la clase RuedaTemporal
+     *
+     * @param numeroRanuras Numero de ranuras (se redondea a potencia de 2)
+     * @param duracionTickMillis Duracion de cada tick en milisegundos
+     * @param inicioMillis Momento inicial de la rueda en milisegundos
+     */
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    public RuedaTemporal(int numeroRanuras, long duracionTickMillis, long inicioMillis) {
+        int tamano = Integer.highestOneBit(Math.max(2, numeroRanuras - 1)) << 1;
+        this.ranuras = (Temporizador<T>[]) new Temporizador[tamano];
+        this.mascara = tamano - 1;
+        this.duracionTickMillis = duracionTickMillis;
+        this.tickActual = inicioMillis / duracionTickMillis;
+        this.pendientes = 0;
+    }
+
+    /**
+     * Programa un temporizador
+     *
+     * @param valor El valor asociado
+     * @param venceMillis El momento de vencimiento en milisegundos
+     * @return El temporizador, que sirve para cancelarlo
+     */
+    public Temporizador<T> programar(T valor, long venceMillis) {
+        // Redondear hacia arriba para no vencer antes de tiempo
+        long tick = (venceMillis + duracionTickMillis - 1) / duracionTickMillis;
+        if (tick <= tickActual) {
+            tick = tickActual + 1;
+        }
+
+        int ranura = (int) (tick & mascara);
+        Temporizador<T> temporizador = new Temporizador<T>(valor, tick, ranura);
+
+        Temporizador<T> cabeza = ranuras[ranura];
+        temporizador.siguiente = cabeza;
+        if (cabeza != null) {
+            cabeza.anterior = temporizador;
+        }
+        ranuras[ranura] = temporizador;
+        pendientes++;
+
+        return temporizador;
+    }
+
+    /**
+     * Cancela un temporizador pendiente
+     *
+     * @param temporizador El temporizador a cancelar
+     * @return true si se cancelo, false si ya no estaba pendiente
+     */
+    public boolean cancelar(Temporizador<T> temporizador) {
+        if (temporizador == null || !temporizador.pendiente) {
+            return false;
+        }
+        quitar(temporizador);
+        return true;
+    }
+
+    /**
+     * Avanza la rueda hasta un momento dado y entrega los temporizadores vencidos
+     *
+     * @param ahoraMillis El momento actual en milisegundos
+     * @param alVencer Accion que se ejecuta con el valor de cada temporizador vencido
+     * @return El numero de temporizadores vencidos
+     */
+    public int avanzar(long ahoraMillis, Consumer<T> alVencer) {
+        long tickDestino = ahoraMillis / duracionTickMillis;
+        if (tickDestino <= tickActual) {
+            return 0;
+        }
+
+        int vencidos = 0;
+
+        if (tickDestino - tickActual > ranuras.length) {
+            // Salto mayor que una vuelta: basta con recorrer cada ranura una vez
+            for (int ranura = 0; ranura < ranuras.length; ranura++) {
+                vencidos += vencerRanura(ranura, tickDestino, alVencer);
+            }
+        } else {
+            while (tickActual < tickDestino) {
+                long tick = tickActual + 1;
+                vencidos += vencerRanura((int) (tick & mascara), tick, alVencer);
+                tickActual = tick;
+            }
+        }
+
+        tickActual = tickDestino;
+        return vencidos;
+    }
+
+    /**
+     * Obtiene el numero de temporizadores pendientes
+     *
+     * @return El numero de temporizadores pendientes
+     */
+    public int contarPendientes() {
+        return pendientes;
+    }
+
+    /**
+     * Vence los temporizadores de una ranura cuyo tick ya llego
+     *
+     * @param ranura La ranura a revisar
+     * @param tickLimite El tick hasta el que se vence
+     * @param alVencer Accion para cada temporizador vencido
+     * @return El numero de temporizadores vencidos
+     */
+    private int vencerRanura(int ranura, long tickLimite, Consumer<T> alVencer) {
+        int vencidos = 0;
+        Temporizador<T> actual = ranuras[ranura];
+
+        while (actual != null) {
+            Temporizador<T> siguiente = actual.siguiente;
+            if (actual.tickVencimiento <= tickLimite) {
+                quitar(actual);
+                alVencer.accept(actual.valor);
+                vencidos++;
+            }
+            actual = siguiente;
+        }
+
+        return vencidos;
+    }
+
+    /**
+     * Quita un temporizador de su ranura
+     *
+     * @param temporizador El temporizador a quitar
+     */
+    private void quitar(Temporizador<T> temporizador) {
+        if (temporizador.anterior != null) {
+            temporizador.anterior.siguiente = temporizador.siguiente;
+        } else {
+            ranuras[temporizador.ranura] = temporizador.siguiente;
+        }
+        if (temporizador.siguiente != null) {
+            temporizador.siguiente.anterior = temporizador.anterior;
+        }
+        temporizador.anterior = null;
+        temporizador.siguiente = null;
+        temporizador.pendiente = false;
+        pendientes--;
+    }
+}
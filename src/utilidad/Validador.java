@@ -61,6 +61,93 @@ public class Validador {
         return null;
     }
 
+    /**
+     * Pliega los caracteres que el OCR suele confundir segun su posicion en
+     * la placa colombiana (tres letras, dos numeros y un numero o una letra):
+     * en las tres primeras un numero parecido pasa a su letra (0 a O, 1 a I,
+     * 2 a Z, 5 a S, 6 a G, 8 a B) y en la cuarta y quinta una letra parecida
+     * pasa a su numero (O/Q/D a 0, I/L a 1, Z a 2, S a 5, G a 6, B a 8).
+     * La ultima se deja como se leyo porque define si es auto o moto, y una
+     * placa de otro largo solo se pasa a mayusculas. Asi dos lecturas del
+     * mismo vehiculo dan la misma clave, pero ABD123 y ABO123 siguen distintas.
+     *
+     * @param placa La placa leida
+     * @return La placa plegada en mayusculas, sin espacios ni guiones
+     */
+    public static String plegarOcr(String placa) {
+        StringBuilder plegada = new StringBuilder(placa.length());
+        for (int i = 0; i < placa.length(); i++) {
+            char c = Character.toUpperCase(placa.charAt(i));
+            if (c != ' ' && c != '-') {
+                plegada.append(c);
+            }
+        }
+        if (plegada.length() != 6) {
+            return plegada.toString();
+        }
+
+        for (int i = 0; i < 3; i++) {
+            plegada.setCharAt(i, comoLetra(plegada.charAt(i)));
+        }
+        for (int i = 3; i < 5; i++) {
+            plegada.setCharAt(i, comoNumero(plegada.charAt(i)));
+        }
+        return plegada.toString();
+    }
+
+    /**
+     * Pasa un numero que el OCR confunde con una letra a esa letra
+     *
+     * @param c El caracter en mayuscula
+     * @return La letra, o el mismo caracter si no se confunde
+     */
+    private static char comoLetra(char c) {
+        switch (c) {
+            case '0':
+                return 'O';
+            case '1':
+                return 'I';
+            case '2':
+                return 'Z';
+            case '5':
+                return 'S';
+            case '6':
+                return 'G';
+            case '8':
+                return 'B';
+            default:
+                return c;
+        }
+    }
+
+    /**
+     * Pasa una letra que el OCR confunde con un numero a ese numero
+     *
+     * @param c El caracter en mayuscula
+     * @return El numero, o el mismo caracter si no se confunde
+     */
+    private static char comoNumero(char c) {
+        switch (c) {
+            case 'O':
+            case 'Q':
+            case 'D':
+                return '0';
+            case 'I':
+            case 'L':
+                return '1';
+            case 'Z':
+                return '2';
+            case 'S':
+                return '5';
+            case 'G':
+                return '6';
+            case 'B':
+                return '8';
+            default:
+                return c;
+        }
+    }
+
     /**
      * Valida que un numero sea positivo
      *
@@ -0,0 +1,205 @@
+package utilidad;
+
+import java.util.Arrays;
+
+/**
+ * Conjunto de claves vistas en una ventana de tiempo, para descartar
+ * lecturas repetidas. El tiempo se divide en cubetas; cada cubeta es una
+ * tabla hash abierta de long (sin objetos por clave) y al avanzar el
+ * tiempo la cubeta mas vieja se vacia de una vez, sin recorrer claves.
+ * Una clave se considera repetida si aparece en cualquiera de las cubetas
+ * vivas, asi que la ventana real queda entre ventanaMillis y
+ * ventanaMillis mas el ancho de una cubeta.
+ * No es seguro para varios hilos: lo usa un solo hilo de ingesta.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class VentanaDuplicados {
+
+    /**
+     * Capacidad inicial de la tabla de cada cubeta (potencia de 2)
+     */
+    private static final int CAPACIDAD_INICIAL = 256;
+
+    /**
+     * Ancho de cada cubeta en milisegundos
+     */
+    private final long anchoCubetaMillis;
+
+    /**
+     * Tablas de claves de cada cubeta (0 es casilla vacia)
+     */
+    private final long[][] cubetas;
+
+    /**
+     * Numero de claves en cada cubeta
+     */
+    private final int[] ocupadas;
+
+    /**
+     * Numero absoluto de la cubeta actual (momento / ancho), -1 al inicio
+     */
+    private long cubetaActual;
+
+    /**
+     * Constructor de la clase VentanaDuplicados
+     *
+     * @param ventanaMillis Tiempo durante el que una clave se considera repetida
+     * @param numeroCubetas Numero de cubetas (al menos 2; mas cubetas dan una ventana mas exacta)
+     */
+    public VentanaDuplicados(long ventanaMillis, int numeroCubetas) {
+        int numero = Math.max(2, numeroCubetas);
+        this.anchoCubetaMillis = Math.max(1, ventanaMillis / (numero - 1));
+        this.cubetas = new long[numero][CAPACIDAD_INICIAL];
+        this.ocupadas = new int[numero];
+        this.cubetaActual = -1;
+    }
+
+    /**
+     * Registra una clave en un momento y dice si ya se habia visto en la ventana.
+     * Una clave repetida tambien se registra, asi un vehiculo que sigue frente
+     * a la camara mantiene abierta su ventana.
+     *
+     * @param clave La clave (por ejemplo el hash de carril y placa)
+     * @param momentoMillis El momento de la lectura
+     * @return true si la clave ya estaba en la ventana
+     */
+    public boolean registrar(long clave, long momentoMillis) {
+        if (clave == 0) {
+            clave = 1;
+        }
+        avanzar(momentoMillis / anchoCubetaMillis);
+
+        boolean vista = false;
+        for (int i = 0; i < cubetas.length && !vista; i++) {
+            vista = contiene(i, clave);
+        }
+
+        int actual = (int) (cubetaActual % cubetas.length);
+        if (!contiene(actual, clave)) {
+            insertar(actual, clave);
+        }
+        return vista;
+    }
+
+    /**
+     * Dice si una clave ya se vio en la ventana, sin registrarla
+     *
+     * @param clave La clave (por ejemplo el hash de carril y placa)
+     * @param momentoMillis El momento de la lectura
+     * @return true si la clave esta en la ventana
+     */
+    public boolean estaVista(long clave, long momentoMillis) {
+        if (clave == 0) {
+            clave = 1;
+        }
+        avanzar(momentoMillis / anchoCubetaMillis);
+
+        for (int i = 0; i < cubetas.length; i++) {
+            if (contiene(i, clave)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Cuenta las claves en la ventana (una clave refrescada puede contarse dos veces)
+     *
+     * @return El numero de claves guardadas
+     */
+    public int contarClaves() {
+        int total = 0;
+        for (int i = 0; i < ocupadas.length; i++) {
+            total += ocupadas[i];
+        }
+        return total;
+    }
+
+    /**
+     * Avanza hasta una cubeta vaciando las que quedan fuera de la ventana.
+     * Un momento anterior a la cubeta actual se cuenta en la actual.
+     *
+     * @param cubeta El numero absoluto de la cubeta
+     */
+    private void avanzar(long cubeta) {
+        if (cubeta <= cubetaActual) {
+            return;
+        }
+        long desde = Math.max(cubetaActual + 1, cubeta - cubetas.length + 1);
+        for (long c = desde; c <= cubeta; c++) {
+            vaciar((int) (c % cubetas.length));
+        }
+        cubetaActual = cubeta;
+    }
+
+    /**
+     * Vacia una cubeta, devolviendola a su tamano inicial si crecio mucho
+     *
+     * @param i La posicion de la cubeta
+     */
+    private void vaciar(int i) {
+        if (cubetas[i].length > CAPACIDAD_INICIAL * 4) {
+            cubetas[i] = new long[CAPACIDAD_INICIAL];
+        } else {
+            Arrays.fill(cubetas[i], 0L);
+        }
+        ocupadas[i] = 0;
+    }
+
+    /**
+     * Verifica si una cubeta contiene una clave
+     *
+     * @param i La posicion de la cubeta
+     * @param clave La clave (distinta de 0)
+     * @return true si la contiene
+     */
+    private boolean contiene(int i, long clave) {
+        long[] tabla = cubetas[i];
+        int mascara = tabla.length - 1;
+        int posicion = (int) clave & mascara;
+        while (tabla[posicion] != 0) {
+            if (tabla[posicion] == clave) {
+                return true;
+            }
+            posicion = (posicion + 1) & mascara;
+        }
+        return false;
+    }
+
+    /**
+     * Inserta una clave en una cubeta, duplicando la tabla si pasa de la mitad
+     *
+     * @param i La posicion de la cubeta
+     * @param clave La clave (distinta de 0)
+     */
+    private void insertar(int i, long clave) {
+        if ((ocupadas[i] + 1) * 2 > cubetas[i].length) {
+            long[] anterior = cubetas[i];
+            cubetas[i] = new long[anterior.length * 2];
+            for (int j = 0; j < anterior.length; j++) {
+                if (anterior[j] != 0) {
+                    colocar(cubetas[i], anterior[j]);
+                }
+            }
+        }
+        colocar(cubetas[i], clave);
+        ocupadas[i]++;
+    }
+
+    /**
+     * Coloca una clave en la primera casilla libre de una tabla
+     *
+     * @param tabla La tabla
+     * @param clave La clave
+     */
+    private static void colocar(long[] tabla, long clave) {
+        int mascara = tabla.length - 1;
+        int posicion = (int) clave & mascara;
+        while (tabla[posicion] != 0) {
+            posicion = (posicion + 1) & mascara;
+        }
+        tabla[posicion] = clave;
+    }
+}
@@ -0,0 +1,41 @@
+import servicio.PruebaBuscadorPlacas;
+import servicio.PruebaBusquedaParcial;
+import servicio.PruebaCierreDia;
+import servicio.PruebaIngestaCamaras;
+import servicio.PruebaNodoCluster;
+import servicio.PruebaReplica;
+import servicio.PruebaSeriesOcupacion;
+import utilidad.PruebaIndiceBigramas;
+import utilidad.Pruebas;
+
+/**
+ * Ejecuta todas las pruebas y termina con codigo 1 si alguna fallo.
+ * GestorArchivos escribe en la carpeta actual, asi que se ejecutan desde
+ * una carpeta de trabajo vacia:
+ *
+ * javac -d out $(find src test -name '*.java')
+ * mkdir -p /tmp/pruebas &amp;&amp; cd /tmp/pruebas &amp;&amp; java -cp RUTA/out EjecutarPruebas
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class EjecutarPruebas {
+
+    /**
+     * Metodo principal
+     *
+     * @param args No se usan
+     * @throws Exception Si una prueba no se pudo ejecutar
+     */
+    public static void main(String[] args) throws Exception {
+        PruebaNodoCluster.ejecutar();
+        PruebaReplica.ejecutar();
+        PruebaIngestaCamaras.ejecutar();
+        PruebaIndiceBigramas.ejecutar();
+        PruebaBuscadorPlacas.ejecutar();
+        PruebaBusquedaParcial.ejecutar();
+        PruebaCierreDia.ejecutar();
+        PruebaSeriesOcupacion.ejecutar();
+        Pruebas.salir();
+    }
+}
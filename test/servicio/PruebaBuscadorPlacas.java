@@ -0,0 +1,89 @@
+package servicio;
+
+import modelo.Parqueadero;
+import utilidad.Pruebas;
+import java.util.List;
+
+/**
+ * Pruebas de las sugerencias de placas parecidas: las confusiones del OCR
+ * pesan menos que un error real, no se sugiere nada a mas de
+ * ERRORES_MAXIMOS errores y nunca mas sugerencias que las pedidas.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class PruebaBuscadorPlacas {
+
+    /**
+     * Ejecuta la prueba sola
+     *
+     * @param args No se usan
+     */
+    public static void main(String[] args) {
+        ejecutar();
+        Pruebas.salir();
+    }
+
+    /**
+     * Ejecuta todas las comprobaciones
+     */
+    public static void ejecutar() {
+        probarDistanciaOcr();
+        probarParecidas();
+        probarSugerenciasDelGestor();
+    }
+
+    /**
+     * Cambiar un caracter que el OCR confunde cuesta medio error
+     */
+    private static void probarDistanciaOcr() {
+        Pruebas.igual(0, BuscadorPlacas.distanciaOcr("ABC123", "ABC123"), "placas iguales");
+        Pruebas.igual(1, BuscadorPlacas.distanciaOcr("A8C123", "ABC123"), "8 por B es medio error");
+        Pruebas.igual(1, BuscadorPlacas.distanciaOcr("ABC1O3", "ABC103"), "O por 0 es medio error");
+        Pruebas.igual(2, BuscadorPlacas.distanciaOcr("ABC124", "ABC123"), "un cambio real es un error");
+        Pruebas.igual(2, BuscadorPlacas.distanciaOcr("ABC1234", "ABC123"), "una insercion es un error");
+    }
+
+    /**
+     * Las sugerencias van de la mas parecida a la menos y respetan los limites
+     */
+    private static void probarParecidas() {
+        BuscadorPlacas buscador = new BuscadorPlacas();
+        buscador.agregar("ABC123");
+        buscador.agregar("ABC128");
+        buscador.agregar("ABD123");
+        buscador.agregar("AXY183");
+        buscador.agregar("XYZ999");
+
+        Pruebas.igual(List.of("ABC123", "ABC128", "ABD123"), buscador.buscarParecidas("a8c123", 5),
+                "la confusion del OCR va primero y los empates en orden alfabetico");
+        Pruebas.igual(List.of("ABC123"), buscador.buscarParecidas("A8C123", 1), "no mas sugerencias que las pedidas");
+        Pruebas.verificar(!buscador.buscarParecidas("ABC123", 5).contains("AXY183"),
+                "no se sugiere una placa a mas de " + BuscadorPlacas.ERRORES_MAXIMOS + " errores");
+        Pruebas.igual(List.of(), buscador.buscarParecidas("QQQ777", 5), "sin parecidas la lista queda vacia");
+
+        buscador.quitar("ABC123");
+        Pruebas.igual(4, buscador.contarPlacas(), "la placa que sale deja el indice");
+        Pruebas.verificar(!buscador.buscarParecidas("A8C123", 5).contains("ABC123"),
+                "una placa que salio no se sugiere");
+    }
+
+    /**
+     * El gestor sugiere las placas parqueadas cuando una salida no encuentra la placa
+     */
+    private static void probarSugerenciasDelGestor() {
+        GestorParqueadero gestor = new GestorParqueadero(Parqueadero.crear("SUGERENCIAS", 20, 15));
+        gestor.setMostrarMensajes(false);
+        Pruebas.igual(List.of(), gestor.sugerirPlacas("ABC123", 3), "sin buscador no hay sugerencias");
+
+        gestor.registrarEntrada("BOB808");
+        gestor.setBuscadorPlacas(new BuscadorPlacas());
+        gestor.registrarEntrada("SUG100");
+
+        Pruebas.igual(List.of("BOB808"), gestor.sugerirPlacas("B0B8O8", 3),
+                "se sugieren las placas que ya estaban al configurar el buscador");
+        Pruebas.igual(List.of("SUG100"), gestor.sugerirPlacas("5UG1OO", 3), "se sugieren las placas que entran");
+        gestor.registrarSalida("SUG100");
+        Pruebas.igual(List.of(), gestor.sugerirPlacas("5UG1OO", 3), "no se sugieren las placas que salieron");
+    }
+}
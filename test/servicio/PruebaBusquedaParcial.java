@@ -0,0 +1,150 @@
+package servicio;
+
+import modelo.Parqueadero;
+import modelo.Ticket;
+import utilidad.Pruebas;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+
+/**
+ * Pruebas de la busqueda por el inicio o el final de la placa: las paginas
+ * no pasan del limite, recorren todas las placas una sola vez y en orden, y
+ * dan lo mismo con el buscador de placas que recorriendo los tickets.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class PruebaBusquedaParcial {
+
+    /**
+     * Ejecuta la prueba sola
+     *
+     * @param args No se usan
+     */
+    public static void main(String[] args) {
+        ejecutar();
+        Pruebas.salir();
+    }
+
+    /**
+     * Ejecuta todas las comprobaciones
+     */
+    public static void ejecutar() {
+        GestorParqueadero conBuscador = crearGestor(true);
+        GestorParqueadero sinBuscador = crearGestor(false);
+
+        for (GestorParqueadero gestor : new GestorParqueadero[] {conBuscador, sinBuscador}) {
+            String caso = gestor == conBuscador ? " con buscador" : " sin buscador";
+            probarPaginas(gestor, "PAG1", false, 10, caso);
+            probarPaginas(gestor, "23", true, 7, caso);
+            probarPaginas(gestor, "", false, 64, caso);
+            probarPaginas(gestor, "QQQ", false, 10, caso);
+            probarSalidaEntrePaginas(gestor, caso);
+        }
+    }
+
+    /**
+     * Recorre todas las paginas de una busqueda y las compara con filtrar los tickets activos
+     *
+     * @param gestor El gestor
+     * @param texto El inicio o el final de la placa
+     * @param porFinal true para buscar por el final
+     * @param limite Vehiculos por pagina
+     * @param caso Con o sin buscador, para la descripcion
+     */
+    private static void probarPaginas(GestorParqueadero gestor, String texto, boolean porFinal, int limite,
+                                      String caso) {
+        ArrayList<String> esperadas = new ArrayList<String>();
+        for (Ticket ticket : gestor.getTicketsActivos()) {
+            String placa = ticket.getVehiculo().getPlaca();
+            if (porFinal ? placa.endsWith(texto) : placa.startsWith(texto)) {
+                esperadas.add(placa);
+            }
+        }
+        esperadas.sort(porFinal ? Comparator.comparing(PruebaBusquedaParcial::invertir) : Comparator.naturalOrder());
+
+        ArrayList<String> obtenidas = new ArrayList<String>();
+        int paginas = 0;
+        int paginaMayor = 0;
+        String despuesDe = null;
+        do {
+            ArrayList<String> pagina = new ArrayList<String>();
+            despuesDe = gestor.buscarPorPlacaParcial(texto, porFinal, despuesDe, limite,
+                    ticket -> pagina.add(ticket.getVehiculo().getPlaca()));
+            obtenidas.addAll(pagina);
+            paginaMayor = Math.max(paginaMayor, pagina.size());
+            paginas++;
+        } while (despuesDe != null && paginas <= esperadas.size() + 1);
+
+        String busqueda = (porFinal ? "final " : "inicio ") + "'" + texto + "'" + caso;
+        Pruebas.igual(esperadas, obtenidas, "todas las placas en orden, una vez, por " + busqueda);
+        Pruebas.verificar(paginaMayor <= limite, "ninguna pagina pasa del limite por " + busqueda);
+        Pruebas.igual(Math.max(1, (esperadas.size() + limite - 1) / limite), paginas,
+                "sin paginas vacias al final por " + busqueda);
+    }
+
+    /**
+     * Un vehiculo que sale entre dos paginas no aparece ni hace repetir placas
+     *
+     * @param gestor El gestor
+     * @param caso Con o sin buscador, para la descripcion
+     */
+    private static void probarSalidaEntrePaginas(GestorParqueadero gestor, String caso) {
+        ArrayList<String> primera = new ArrayList<String>();
+        String despuesDe = gestor.buscarPorPlacaParcial("PAG2", false, null, 5,
+                ticket -> primera.add(ticket.getVehiculo().getPlaca()));
+        // Sale uno de la pagina siguiente y el de la placa que sirve de cursor
+        gestor.registrarSalida("PAG205");
+        gestor.registrarSalida(despuesDe);
+
+        ArrayList<String> resto = new ArrayList<String>();
+        while (despuesDe != null) {
+            despuesDe = gestor.buscarPorPlacaParcial("PAG2", false, despuesDe, 5,
+                    ticket -> resto.add(ticket.getVehiculo().getPlaca()));
+        }
+        HashSet<String> vistas = new HashSet<String>(primera);
+        int repetidas = 0;
+        for (String placa : resto) {
+            if (!vistas.add(placa)) {
+                repetidas++;
+            }
+        }
+        Pruebas.igual(0, repetidas, "no se repiten placas al salir un vehiculo entre paginas" + caso);
+        Pruebas.verificar(!resto.contains("PAG205"), "el vehiculo que salio no aparece" + caso);
+        Pruebas.igual(99, primera.size() + resto.size(),
+                "se recorren las demas placas aunque salga el cursor" + caso);
+    }
+
+    /**
+     * Crea un gestor con placas PAG100 a PAG399 y algunas otras
+     *
+     * @param conBuscador true para configurar el buscador de placas
+     * @return El gestor
+     */
+    private static GestorParqueadero crearGestor(boolean conBuscador) {
+        GestorParqueadero gestor = new GestorParqueadero(Parqueadero.crear("PARCIAL", 500, 450));
+        gestor.setMostrarMensajes(false);
+        if (conBuscador) {
+            gestor.setBuscadorPlacas(new BuscadorPlacas());
+        }
+        for (int i = 100; i < 400; i++) {
+            gestor.registrarEntrada("PAG" + i);
+        }
+        for (int i = 120; i < 130; i++) {
+            gestor.registrarEntrada("XYZ" + i);
+        }
+        gestor.registrarEntrada("MOT12D");
+        return gestor;
+    }
+
+    /**
+     * Escribe una placa al reves
+     *
+     * @param placa La placa
+     * @return La placa invertida
+     */
+    private static String invertir(String placa) {
+        return new StringBuilder(placa).reverse().toString();
+    }
+}
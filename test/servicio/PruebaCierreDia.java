@@ -0,0 +1,108 @@
+package servicio;
+
+import modelo.Parqueadero;
+import modelo.RelojManual;
+import modelo.ResumenDiario;
+import modelo.Ticket;
+import utilidad.GestorArchivos;
+import utilidad.Pruebas;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+
+/**
+ * Pruebas del cierre del dia: el cierre manual deja el dia abierto, al
+ * pasar la medianoche se guarda el resumen completo y se empieza el dia
+ * siguiente, y al cargar los resumenes gana el completo aunque un parcial
+ * quede despues en el archivo y aunque haya lineas mal formadas.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class PruebaCierreDia {
+
+    /**
+     * Nombre del parqueadero de la prueba
+     */
+    private static final String PARQUEADERO = "CIERRE";
+
+    /**
+     * Archivo donde GestorArchivos guarda los resumenes
+     */
+    private static final String ARCHIVO_RESUMENES = "resumenes_diarios.txt";
+
+    /**
+     * Ejecuta la prueba sola
+     *
+     * @param args No se usan
+     * @throws IOException Si no se puede escribir el archivo de resumenes
+     */
+    public static void main(String[] args) throws IOException {
+        ejecutar();
+        Pruebas.salir();
+    }
+
+    /**
+     * Ejecuta todas las comprobaciones
+     *
+     * @throws IOException Si no se puede escribir el archivo de resumenes
+     */
+    public static void ejecutar() throws IOException {
+        LocalDate dia = LocalDate.of(2026, 3, 10);
+        RelojManual reloj = new RelojManual(0);
+        reloj.establecer(reloj.aMillis(dia.atTime(20, 0)));
+        GestorParqueadero gestor = new GestorParqueadero(Parqueadero.crear(PARQUEADERO, 20, 15), reloj);
+        gestor.setMostrarMensajes(false);
+
+        for (int i = 0; i < 3; i++) {
+            gestor.registrarEntrada("CIE10" + i);
+        }
+        reloj.establecer(reloj.aMillis(dia.atTime(23, 0)));
+        gestor.registrarSalida("CIE100");
+        gestor.registrarSalida("CIE101");
+
+        ResumenDiario parcial = gestor.cerrarDia();
+        Pruebas.igual(dia, parcial.getFecha(), "el cierre manual resume el dia en curso");
+        Pruebas.igual(2L, parcial.getVehiculos(), "el resumen parcial cuenta las salidas hasta ahora");
+        Pruebas.igual(dia, gestor.getDiaActual(), "el cierre manual deja el dia abierto");
+        Pruebas.verificar(gestor.cerrarDiaSiTermino() == null, "antes de medianoche el dia no termina");
+
+        ArrayList<Ticket> finalizados = gestor.getTicketsFinalizados();
+        finalizados.clear();
+        Pruebas.igual(2, gestor.getTicketsFinalizados().size(), "los tickets finalizados se entregan en una copia");
+
+        // Una linea danada en medio del archivo no debe hacer perder las siguientes
+        try (PrintWriter escritor = new PrintWriter(new FileWriter(ARCHIVO_RESUMENES, true))) {
+            escritor.println(PARQUEADERO + "|" + dia + "|dos|2|0|0|0|0|0|0|0|0|0");
+            escritor.println("linea cortada");
+        }
+
+        reloj.establecer(reloj.aMillis(dia.atTime(23, 30)));
+        gestor.registrarSalida("CIE102");
+        reloj.establecer(reloj.aMillis(dia.plusDays(1).atTime(0, 30)));
+        ResumenDiario completo = gestor.cerrarDiaSiTermino();
+        Pruebas.verificar(completo != null, "pasada la medianoche se cierra el dia");
+        if (completo != null) {
+            Pruebas.igual(dia, completo.getFecha(), "el resumen completo es del dia que termino");
+            Pruebas.igual(3L, completo.getVehiculos(), "el resumen completo cuenta todas las salidas del dia");
+        }
+        Pruebas.igual(dia.plusDays(1), gestor.getDiaActual(), "se empieza el dia siguiente");
+        Pruebas.igual(0, gestor.getTicketsFinalizados().size(), "el dia siguiente empieza sin tickets finalizados");
+        Pruebas.verificar(gestor.cerrarDiaSiTermino() == null, "el dia no se cierra dos veces");
+
+        // Un cierre manual que se tomo antes de medianoche y se escribio despues del automatico
+        GestorArchivos.guardarResumenDiario(parcial);
+
+        ArrayList<ResumenDiario> resumenes = GestorArchivos.cargarResumenesDiarios(PARQUEADERO, YearMonth.from(dia));
+        Pruebas.igual(1, resumenes.size(), "un solo resumen por dia");
+        if (!resumenes.isEmpty()) {
+            Pruebas.igual(3L, resumenes.get(0).getVehiculos(), "gana el resumen completo aunque el parcial quede despues");
+        }
+        Pruebas.igual(0, GestorArchivos.cargarResumenesDiarios(PARQUEADERO, YearMonth.of(2026, 4)).size(),
+                "otro mes no tiene resumenes");
+    }
+}
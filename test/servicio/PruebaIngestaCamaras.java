@@ -0,0 +1,123 @@
+package servicio;
+
+import modelo.Parqueadero;
+import utilidad.Pruebas;
+
+/**
+ * Pruebas de la ingesta de camaras: los cuadros repetidos de un vehiculo
+ * llegan una sola vez al gestor, tambien cuando el gestor los rechaza, y
+ * una lectura rechazada se vuelve a intentar al pasar la ventana corta.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class PruebaIngestaCamaras {
+
+    /**
+     * Cuadros que manda la camara por cada vehiculo
+     */
+    private static final int CUADROS = 10;
+
+    /**
+     * Ejecuta la prueba sola
+     *
+     * @param args No se usan
+     * @throws InterruptedException Si se interrumpe la espera
+     */
+    public static void main(String[] args) throws InterruptedException {
+        ejecutar();
+        Pruebas.salir();
+    }
+
+    /**
+     * Ejecuta todas las comprobaciones
+     *
+     * @throws InterruptedException Si se interrumpe la espera
+     */
+    public static void ejecutar() throws InterruptedException {
+        probarDuplicados();
+        probarReintentoRechazadas();
+        probarLoteGrande();
+    }
+
+    /**
+     * Los cuadros de un vehiculo, aceptado o rechazado, pasan una sola vez al gestor
+     *
+     * @throws InterruptedException Si se interrumpe la espera
+     */
+    private static void probarDuplicados() throws InterruptedException {
+        GestorParqueadero gestor = crearGestor();
+        IngestaCamaras ingesta = new IngestaCamaras(gestor, 1000, IngestaCamaras.VENTANA_POR_DEFECTO_MILLIS);
+        ingesta.iniciar();
+        for (int i = 0; i < CUADROS; i++) {
+            // El OCR a veces lee una O en lugar de un 0
+            ingesta.recibirEsperando("E1", true, i % 2 == 0 ? "CAM100" : "CAM1O0");
+        }
+        for (int i = 0; i < CUADROS; i++) {
+            // Salida de un vehiculo que nunca entro: el gestor la rechaza
+            ingesta.recibirEsperando("S1", false, "CAM200");
+        }
+        ingesta.recibirEsperando("E1", true, "X1");
+        ingesta.detener();
+
+        Pruebas.igual(1L, ingesta.getAplicadas(), "una sola entrada por vehiculo");
+        Pruebas.igual(1L, ingesta.getNoAceptadas(), "la salida rechazada llega una vez al gestor");
+        Pruebas.igual(2L * (CUADROS - 1), ingesta.getDuplicadas(), "los demas cuadros se descartan");
+        Pruebas.igual(1L, ingesta.getInvalidas(), "la placa invalida no llega al gestor");
+        Pruebas.verificar(gestor.buscarTicketPorPlaca("CAM100") != null, "el vehiculo queda adentro");
+        Pruebas.igual(1, gestor.contarTicketsActivos(), "no entra la lectura confundida como otro vehiculo");
+    }
+
+    /**
+     * Pasada la ventana corta una lectura rechazada se vuelve a intentar,
+     * por ejemplo cuando la entrada del vehiculo llego despues
+     *
+     * @throws InterruptedException Si se interrumpe la espera
+     */
+    private static void probarReintentoRechazadas() throws InterruptedException {
+        GestorParqueadero gestor = crearGestor();
+        // Ventana de 500 ms: las rechazadas se descartan por 50 ms
+        IngestaCamaras ingesta = new IngestaCamaras(gestor, 1000, 500);
+        ingesta.iniciar();
+        ingesta.recibirEsperando("S1", false, "CAM300");
+        ingesta.recibirEsperando("S1", false, "CAM300");
+        Thread.sleep(150);
+        gestor.registrarEntrada("CAM300");
+        ingesta.recibirEsperando("S1", false, "CAM300");
+        ingesta.detener();
+
+        Pruebas.igual(1L, ingesta.getNoAceptadas(), "el cuadro seguido de la salida rechazada se descarta");
+        Pruebas.igual(1L, ingesta.getAplicadas(), "pasada la ventana corta la salida se aplica");
+        Pruebas.igual(0, gestor.contarTicketsActivos(), "el vehiculo salio");
+    }
+
+    /**
+     * Un lote con mas lecturas que las que se aplican por candado se aplica completo
+     *
+     * @throws InterruptedException Si se interrumpe la espera
+     */
+    private static void probarLoteGrande() throws InterruptedException {
+        GestorParqueadero gestor = crearGestor();
+        IngestaCamaras ingesta = new IngestaCamaras(gestor, 1000, IngestaCamaras.VENTANA_POR_DEFECTO_MILLIS);
+        int vehiculos = IngestaCamaras.LECTURAS_POR_CANDADO * 3 + 1;
+        for (int i = 0; i < vehiculos; i++) {
+            ingesta.recibirEsperando("E1", true, "LOT" + (100 + i));
+        }
+        ingesta.iniciar();
+        ingesta.detener();
+
+        Pruebas.igual((long) vehiculos, ingesta.getAplicadas(), "se aplican todas las lecturas del lote");
+        Pruebas.igual(vehiculos, gestor.contarTicketsActivos(), "entran todos los vehiculos del lote");
+    }
+
+    /**
+     * Crea el gestor de un parqueadero de prueba
+     *
+     * @return El gestor
+     */
+    private static GestorParqueadero crearGestor() {
+        GestorParqueadero gestor = new GestorParqueadero(Parqueadero.crear("CAMARAS", 60, 50));
+        gestor.setMostrarMensajes(false);
+        return gestor;
+    }
+}
@@ -0,0 +1,203 @@
+package servicio;
+
+import modelo.Parqueadero;
+import utilidad.AnilloConsistente;
+import utilidad.GestorArchivos;
+import utilidad.Pruebas;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Pruebas del reparto de parqueaderos entre nodos: el anillo, el traspaso
+ * cuando entra un nodo (el dueno anterior sigue atendiendo los parqueaderos
+ * con vehiculos hasta que se vacian) y el token de las rutas /cluster.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class PruebaNodoCluster {
+
+    /**
+     * Parqueaderos que se reparten en la prueba
+     */
+    private static final int PARQUEADEROS = 20;
+
+    /**
+     * Token de administracion de la prueba
+     */
+    private static final String TOKEN = "token-de-prueba";
+
+    /**
+     * Servidores iniciados, para detenerlos al final
+     */
+    private static final ArrayList<ServidorApi> servidores = new ArrayList<ServidorApi>();
+
+    /**
+     * Ejecuta la prueba sola
+     *
+     * @param args No se usan
+     * @throws IOException Si no se pueden abrir los puertos
+     */
+    public static void main(String[] args) throws IOException {
+        ejecutar();
+        Pruebas.salir();
+    }
+
+    /**
+     * Ejecuta todas las comprobaciones
+     *
+     * @throws IOException Si no se pueden abrir los puertos
+     */
+    public static void ejecutar() throws IOException {
+        probarAnillo();
+        try {
+            probarTraspaso();
+        } finally {
+            for (ServidorApi servidor : servidores) {
+                servidor.detener();
+            }
+            servidores.clear();
+        }
+    }
+
+    /**
+     * El nodo sin uno dado es el siguiente distinto en el anillo
+     */
+    private static void probarAnillo() {
+        AnilloConsistente anillo = new AnilloConsistente();
+        anillo.agregarNodo("http://a");
+        anillo.agregarNodo("http://b");
+        anillo.agregarNodo("http://c");
+
+        int movidas = 0;
+        for (int i = 0; i < 1000; i++) {
+            String clave = "PARQ" + i;
+            String dueno = anillo.nodoPara(clave);
+            String otro = anillo.nodoParaSin(clave, dueno);
+            Pruebas.verificar(otro != null && !otro.equals(dueno), "nodoParaSin no devuelve el excluido: " + clave);
+
+            AnilloConsistente sinDueno = new AnilloConsistente();
+            for (String nodo : anillo.getNodos()) {
+                if (!nodo.equals(dueno)) {
+                    sinDueno.agregarNodo(nodo);
+                }
+            }
+            Pruebas.igual(sinDueno.nodoPara(clave), otro, "nodoParaSin es el dueno si el nodo no estuviera");
+            if (!dueno.equals(anillo.nodoPara(clave))) {
+                movidas++;
+            }
+        }
+        Pruebas.igual(0, movidas, "el dueno de una clave no cambia entre consultas");
+
+        AnilloConsistente solo = new AnilloConsistente();
+        solo.agregarNodo("http://a");
+        Pruebas.igual(null, solo.nodoParaSin("PARQ1", "http://a"), "sin otro nodo no hay dueno alterno");
+    }
+
+    /**
+     * Un nodo nuevo toma parte de los parqueaderos; los que tenian vehiculos
+     * se siguen atendiendo en el nodo anterior hasta vaciarse
+     *
+     * @throws IOException Si no se pueden abrir los puertos
+     */
+    private static void probarTraspaso() throws IOException {
+        for (int i = 0; i < PARQUEADEROS; i++) {
+            GestorArchivos.guardarParqueadero(Parqueadero.crear(nombre(i), 10, 5));
+        }
+
+        String urlA = "http://localhost:" + Pruebas.puertoLibre();
+        NodoCluster nodoA = iniciarNodo(urlA);
+        for (int i = 0; i < PARQUEADEROS; i++) {
+            Pruebas.igual(201, Pruebas.llamar(urlA + "/parqueaderos/" + nombre(i) + "/entradas?placa=" + placa(i),
+                    "POST"), "entrada en el unico nodo " + nombre(i));
+        }
+
+        String urlB = "http://localhost:" + Pruebas.puertoLibre();
+        NodoCluster nodoB = iniciarNodo(urlB);
+        Pruebas.igual(1, nodoB.unirse(List.of(urlA)), "el nodo nuevo se anuncia al existente");
+
+        int movidos = 0;
+        for (int i = 0; i < PARQUEADEROS; i++) {
+            if (!nodoA.esLocal(nombre(i))) {
+                movidos++;
+                Pruebas.verificar(nodoA.getRegistro().estaCargado(nombre(i)),
+                        "el dueno anterior conserva " + nombre(i) + " mientras tenga vehiculos");
+            }
+        }
+        Pruebas.verificar(movidos > 0 && movidos < PARQUEADEROS, "solo cambia de dueno una parte: " + movidos);
+
+        // La misma placa sigue adentro en el nodo anterior, aunque la entrada llegue al nuevo dueno
+        for (int i = 0; i < PARQUEADEROS; i++) {
+            Pruebas.igual(409, Pruebas.llamar(urlB + "/parqueaderos/" + nombre(i) + "/entradas?placa=" + placa(i),
+                    "POST"), "entrada repetida rechazada en " + nombre(i));
+        }
+        for (int i = 0; i < PARQUEADEROS; i++) {
+            String url = i % 2 == 0 ? urlA : urlB;
+            Pruebas.igual(200, Pruebas.llamar(url + "/parqueaderos/" + nombre(i) + "/salidas?placa=" + placa(i),
+                    "POST"), "salida por cualquier nodo de " + nombre(i));
+        }
+
+        // Ya vacios, la siguiente peticion los suelta en el anterior y los carga el nuevo dueno
+        for (int i = 0; i < PARQUEADEROS; i++) {
+            Pruebas.igual(200, Pruebas.llamar(urlA + "/parqueaderos/" + nombre(i), "GET"),
+                    "consulta de " + nombre(i));
+            boolean enA = nodoA.getRegistro().estaCargado(nombre(i));
+            boolean enB = nodoB.getRegistro().estaCargado(nombre(i));
+            Pruebas.verificar(!(enA && enB), nombre(i) + " queda cargado en un solo nodo");
+            Pruebas.igual(nodoA.esLocal(nombre(i)), enA, nombre(i) + " queda en su dueno");
+        }
+
+        Pruebas.igual(401, Pruebas.llamar(urlA + "/cluster", "GET"), "/cluster sin token");
+        Pruebas.igual(401, Pruebas.llamar(urlA + "/cluster/nodos?url=http://intruso:1", "POST"),
+                "/cluster/nodos sin token");
+        Pruebas.igual(2, nodoA.getAnillo().contarNodos(), "un nodo sin token no entra al anillo");
+        Pruebas.igual(401, Pruebas.llamar(urlA + "/cluster", "GET", Map.of(ServidorApi.CABECERA_TOKEN, "otro")),
+                "/cluster con token equivocado");
+        Pruebas.igual(200, Pruebas.llamar(urlA + "/cluster", "GET", Map.of(ServidorApi.CABECERA_TOKEN, TOKEN)),
+                "/cluster con token");
+        Pruebas.igual(405, Pruebas.llamar(urlA + "/cluster", "POST", Map.of(ServidorApi.CABECERA_TOKEN, TOKEN)),
+                "/cluster solo atiende GET");
+    }
+
+    /**
+     * Inicia un nodo con su registro y su servidor
+     *
+     * @param url La URL del nodo
+     * @return El nodo
+     * @throws IOException Si no se puede abrir el puerto
+     */
+    private static NodoCluster iniciarNodo(String url) throws IOException {
+        RegistroParqueaderos registro = new RegistroParqueaderos(30);
+        NodoCluster nodo = new NodoCluster(url, registro);
+        nodo.setTokenAdmin(TOKEN);
+
+        ServidorApi servidor = new ServidorApi(registro, Integer.parseInt(url.substring(url.lastIndexOf(':') + 1)));
+        servidor.setCluster(nodo);
+        servidor.setTokenAdmin(TOKEN);
+        servidor.iniciar();
+        servidores.add(servidor);
+        return nodo;
+    }
+
+    /**
+     * Obtiene el nombre de un parqueadero de la prueba
+     *
+     * @param i El numero del parqueadero
+     * @return El nombre
+     */
+    private static String nombre(int i) {
+        return "ANILLO" + i;
+    }
+
+    /**
+     * Obtiene la placa del vehiculo que entra a un parqueadero de la prueba
+     *
+     * @param i El numero del parqueadero
+     * @return La placa
+     */
+    private static String placa(int i) {
+        return "ANI" + (100 + i);
+    }
+}
@@ -0,0 +1,291 @@
+package servicio;
+
+import modelo.Parqueadero;
+import modelo.RelojManual;
+import modelo.Reserva;
+import modelo.Ticket;
+import utilidad.Pruebas;
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Pruebas de la replicacion: el diario deja en memoria solo los ultimos
+ * eventos y lee los viejos del archivo, la replica aplica entradas, salidas
+ * y reservas, se rehace desde cero cuando el primario vuelve con un diario
+ * mas corto y al promoverse conserva las reservas.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class PruebaReplica {
+
+    /**
+     * Archivo del diario de la prueba
+     */
+    private static final String ARCHIVO = "diario_prueba_replica.txt";
+
+    /**
+     * Eventos que el diario de la prueba deja en memoria
+     */
+    private static final int EN_MEMORIA = 40;
+
+    /**
+     * Momento en que empiezan los relojes de la prueba
+     */
+    private static final long INICIO = LocalDateTime.of(2026, 3, 2, 8, 0)
+            .atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+
+    /**
+     * Cuanto se espera a que la replica se ponga al dia
+     */
+    private static final long ESPERA_MAXIMA_MILLIS = 15000;
+
+    /**
+     * Ejecuta la prueba sola
+     *
+     * @param args No se usan
+     * @throws Exception Si no se pueden abrir los puertos o el archivo
+     */
+    public static void main(String[] args) throws Exception {
+        ejecutar();
+        Pruebas.salir();
+    }
+
+    /**
+     * Ejecuta todas las comprobaciones
+     *
+     * @throws Exception Si no se pueden abrir los puertos o el archivo
+     */
+    public static void ejecutar() throws Exception {
+        probarDiarioAcotado();
+        probarReplica();
+    }
+
+    /**
+     * El diario deja en memoria solo la cola y sirve los eventos viejos desde el archivo
+     *
+     * @throws Exception Si no se puede usar el archivo
+     */
+    private static void probarDiarioAcotado() throws Exception {
+        new File(ARCHIVO).delete();
+        DiarioEventos diario = new DiarioEventos(ARCHIVO, EN_MEMORIA);
+        for (int i = 0; i < 500; i++) {
+            diario.agregar(INICIO + i, i % 2 == 0 ? 'E' : 'S', "ABC" + (100 + i / 2));
+        }
+        diario.vaciar();
+
+        Pruebas.igual(500L, diario.contarRegistros(), "se cuentan todos los eventos");
+        Pruebas.verificar(diario.contarEnMemoria() <= EN_MEMORIA + EN_MEMORIA / 4,
+                "en memoria solo queda la cola: " + diario.contarEnMemoria());
+
+        long desde = 0;
+        boolean enOrden = true;
+        while (desde < 500) {
+            List<DiarioEventos.Registro> lote = diario.obtenerDesde(desde, 64, 0);
+            if (lote.isEmpty()) {
+                break;
+            }
+            for (DiarioEventos.Registro registro : lote) {
+                enOrden &= registro.getSecuencia() == desde && registro.getMomentoMillis() == INICIO + desde;
+                desde++;
+            }
+        }
+        Pruebas.igual(500L, desde, "se leen todos los eventos, del archivo y de la memoria");
+        Pruebas.verificar(enOrden, "los eventos llegan en orden y sin huecos");
+
+        diario.agregar(INICIO + 500, 'R', "RES100", 30);
+        diario.cerrar();
+
+        DiarioEventos reabierto = new DiarioEventos(ARCHIVO, EN_MEMORIA);
+        Pruebas.igual(501L, reabierto.contarRegistros(), "al reabrir la numeracion sigue donde iba");
+        Pruebas.verificar(reabierto.contarEnMemoria() <= EN_MEMORIA + EN_MEMORIA / 4,
+                "al reabrir no se carga todo el archivo en memoria");
+        DiarioEventos.Registro reserva = reabierto.obtenerDesde(500, 1, 0).get(0);
+        Pruebas.igual('R', reserva.getTipo(), "la reserva se guarda en el archivo");
+        Pruebas.igual(30, reserva.getMinutos(), "la reserva conserva sus minutos");
+        Pruebas.igual("RES100", reserva.getPlaca(), "la placa de la reserva no incluye los minutos");
+        reabierto.cerrar();
+        new File(ARCHIVO).delete();
+    }
+
+    /**
+     * La replica sigue al primario, se rehace si el primario vuelve con menos
+     * eventos y al promoverse atiende las reservas que traia
+     *
+     * @throws Exception Si no se pueden abrir los puertos o el archivo
+     */
+    private static void probarReplica() throws Exception {
+        new File(ARCHIVO).delete();
+        RelojManual reloj = new RelojManual(INICIO);
+        GestorParqueadero primario = new GestorParqueadero(Parqueadero.crear("REPLICADO", 300, 250), reloj);
+        primario.setMostrarMensajes(false);
+        DiarioEventos diario = new DiarioEventos(ARCHIVO, EN_MEMORIA);
+        primario.agregarEscucha(diario);
+
+        for (int i = 0; i < 150; i++) {
+            reloj.avanzar(1000);
+            primario.registrarEntrada(placa(i));
+        }
+        for (int i = 0; i < 150; i += 3) {
+            reloj.avanzar(1000);
+            primario.registrarSalida(placa(i));
+        }
+        primario.reservarEspacio("RES100", 30);
+        primario.reservarEspacio("RES101", 30);
+        primario.reservarEspacio("RES102", 5);
+        reloj.avanzar(1000);
+        primario.cancelarReserva("RES101");
+        reloj.avanzar(6 * 60000L);
+        Pruebas.igual(1, primario.procesarVencimientos(), "vence la reserva corta en el primario");
+        diario.vaciar();
+        Pruebas.verificar(diario.contarEnMemoria() < diario.contarRegistros(),
+                "los eventos viejos del primario solo quedan en el archivo");
+
+        int puerto = Pruebas.puertoLibre();
+        ReplicadorPrimario replicador = new ReplicadorPrimario(diario, puerto);
+        ReplicadorPrimario reiniciado = null;
+        ReplicaParqueadero replica = new ReplicaParqueadero(Parqueadero.crear("REPLICADO", 300, 250),
+                "localhost", puerto);
+        AtomicReference<GestorParqueadero> avisado = new AtomicReference<GestorParqueadero>();
+        replica.setAlCambiarGestor(avisado::set);
+        try {
+            replicador.iniciar();
+            replica.iniciar();
+
+            esperar(replica, diario.contarRegistros(), 0);
+            Pruebas.igual(diario.contarRegistros(), replica.getAplicados(), "la replica aplica todo el diario");
+            comparar(primario, replica.getGestor(), "antes de reiniciar el primario");
+            Pruebas.verificar(avisado.get() == replica.getGestor(), "se avisa el gestor nuevo de la replica");
+            Pruebas.verificar(replica.getGestor().getGestorReservas().buscarReserva("RES100") != null,
+                    "la reserva llega a la replica");
+            Pruebas.verificar(replica.getGestor().getGestorReservas().buscarReserva("RES101") == null,
+                    "la cancelacion llega a la replica");
+            Pruebas.verificar(replica.getGestor().getGestorReservas().buscarReserva("RES102") == null,
+                    "el vencimiento llega a la replica");
+
+            // El primario vuelve sin su archivo: su diario es mas corto que lo aplicado
+            replicador.detener();
+            RelojManual reloj2 = new RelojManual(INICIO + 5 * 3600000L);
+            GestorParqueadero primario2 = new GestorParqueadero(Parqueadero.crear("REPLICADO", 300, 250), reloj2);
+            primario2.setMostrarMensajes(false);
+            DiarioEventos diario2 = new DiarioEventos();
+            primario2.agregarEscucha(diario2);
+            for (int i = 0; i < 5; i++) {
+                reloj2.avanzar(1000);
+                primario2.registrarEntrada("NUE" + (100 + i));
+            }
+            primario2.reservarEspacio("RES200", 60);
+
+            reiniciado = iniciarEnPuerto(diario2, puerto);
+            esperar(replica, diario2.contarRegistros(), 1);
+            Pruebas.igual(1L, replica.getDesincronizaciones(), "se detecta el diario mas corto una vez");
+            Pruebas.igual(diario2.contarRegistros(), replica.getAplicados(), "se aplica el diario nuevo");
+            comparar(primario2, replica.getGestor(), "despues de reiniciar el primario");
+            Pruebas.verificar(replica.getGestor().buscarTicketPorPlaca(placa(1)) == null,
+                    "lo aplicado del primario anterior se descarta");
+            Pruebas.verificar(replica.getGestor().getGestorReservas().buscarReserva("RES100") == null,
+                    "las reservas del primario anterior se descartan");
+            Pruebas.verificar(avisado.get() == replica.getGestor(), "se avisa el gestor rehecho");
+
+            // Al promoverse atiende la reserva que venia del primario
+            GestorParqueadero promovido = replica.promover();
+            Pruebas.verificar(replica.isPromovida(), "la replica queda promovida");
+            Reserva reserva = promovido.getGestorReservas().buscarReserva("RES200");
+            Pruebas.verificar(reserva != null, "la reserva sobrevive a la promocion");
+            if (reserva != null) {
+                int espacio = reserva.getEspacio().getNumero();
+                Ticket ticket = promovido.registrarEntrada("RES200");
+                Pruebas.verificar(ticket != null && ticket.getEspacio().getNumero() == espacio,
+                        "el vehiculo reservado entra al espacio apartado");
+            }
+        } finally {
+            replica.detener();
+            replicador.detener();
+            if (reiniciado != null) {
+                reiniciado.detener();
+            }
+            diario.cerrar();
+            new File(ARCHIVO).delete();
+        }
+    }
+
+    /**
+     * Inicia un replicador en un puerto que acaba de soltar otro; el sistema
+     * puede tardar un momento en liberarlo mientras se cierran las conexiones
+     *
+     * @param diario El diario que se replica
+     * @param puerto El puerto
+     * @return El replicador iniciado
+     * @throws Exception Si el puerto no se libera a tiempo
+     */
+    private static ReplicadorPrimario iniciarEnPuerto(DiarioEventos diario, int puerto) throws Exception {
+        long limite = System.currentTimeMillis() + ESPERA_MAXIMA_MILLIS;
+        while (true) {
+            ReplicadorPrimario replicador = new ReplicadorPrimario(diario, puerto);
+            try {
+                replicador.iniciar();
+                return replicador;
+            } catch (IOException e) {
+                replicador.detener();
+                if (System.currentTimeMillis() > limite) {
+                    throw e;
+                }
+                Thread.sleep(50);
+            }
+        }
+    }
+
+    /**
+     * Espera a que la replica aplique un numero de eventos
+     *
+     * @param replica La replica
+     * @param eventos Los eventos que debe tener aplicados
+     * @param desincronizaciones Las desincronizaciones que debe haber detectado
+     * @throws InterruptedException Si se interrumpe la espera
+     */
+    private static void esperar(ReplicaParqueadero replica, long eventos, long desincronizaciones)
+            throws InterruptedException {
+        long limite = System.currentTimeMillis() + ESPERA_MAXIMA_MILLIS;
+        while (System.currentTimeMillis() < limite
+                && (replica.getAplicados() < eventos || replica.getDesincronizaciones() < desincronizaciones)) {
+            Thread.sleep(20);
+        }
+    }
+
+    /**
+     * Compara los vehiculos y reservas de la replica con los del primario
+     *
+     * @param primario El gestor del primario
+     * @param replica El gestor de la replica
+     * @param momento Cuando se compara, para la descripcion
+     */
+    private static void comparar(GestorParqueadero primario, GestorParqueadero replica, String momento) {
+        Pruebas.igual(primario.contarTicketsActivos(), replica.contarTicketsActivos(), "vehiculos " + momento);
+        Pruebas.igual(primario.getGestorReservas().contarPendientes(), replica.getGestorReservas().contarPendientes(),
+                "reservas " + momento);
+
+        int distintos = 0;
+        for (Ticket ticket : primario.getTicketsActivos()) {
+            Ticket copia = replica.buscarTicketPorPlaca(ticket.getVehiculo().getPlaca());
+            if (copia == null || copia.getEntradaMillis() != ticket.getEntradaMillis()
+                    || copia.getEspacio().getNumero() != ticket.getEspacio().getNumero()) {
+                distintos++;
+            }
+        }
+        Pruebas.igual(0, distintos, "misma hora y espacio de cada vehiculo " + momento);
+    }
+
+    /**
+     * Obtiene la placa de un vehiculo de la prueba
+     *
+     * @param i El numero del vehiculo
+     * @return La placa
+     */
+    private static String placa(int i) {
+        return "RPL" + (100 + i);
+    }
+}
@@ -0,0 +1,174 @@
+package servicio;
+
+import modelo.RelojManual;
+import utilidad.GestorArchivos;
+import utilidad.Pruebas;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.StringReader;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Pruebas del modelo de ocupacion: guardado y cargado da el mismo modelo
+ * y el mismo pronostico, un modelo danado no reemplaza al actual y un
+ * tipo sin espacios nunca tiene tiempo hasta lleno.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class PruebaSeriesOcupacion {
+
+    /**
+     * Nombre del parqueadero de la prueba
+     */
+    private static final String PARQUEADERO = "SERIES";
+
+    /**
+     * Carpeta donde GestorArchivos guarda los modelos
+     */
+    private static final String CARPETA_SERIES = "series_ocupacion";
+
+    /**
+     * Espacios de auto del parqueadero de la prueba
+     */
+    private static final int ESPACIOS_AUTO = 40;
+
+    /**
+     * Ejecuta la prueba sola
+     *
+     * @param args No se usan
+     * @throws IOException Si falla la lectura o escritura de un modelo
+     */
+    public static void main(String[] args) throws IOException {
+        ejecutar();
+        Pruebas.salir();
+    }
+
+    /**
+     * Ejecuta todas las comprobaciones
+     *
+     * @throws IOException Si falla la lectura o escritura de un modelo
+     */
+    public static void ejecutar() throws IOException {
+        probarGuardarYCargar();
+        probarModeloDanado();
+        probarSinEspacios();
+    }
+
+    /**
+     * Un modelo guardado y cargado en otras series da el mismo modelo y el
+     * mismo pronostico con la siguiente muestra
+     */
+    private static void probarGuardarYCargar() {
+        RelojManual reloj = crearReloj();
+        SeriesOcupacion original = new SeriesOcupacion(PARQUEADERO, reloj);
+        long momento = registrarDias(original, reloj, 2);
+
+        Pruebas.verificar(GestorArchivos.guardarSeriesOcupacion(original), "el modelo se guarda");
+        Pruebas.verificar(!new File(CARPETA_SERIES, PARQUEADERO + ".tmp").exists(),
+                "no queda el archivo temporal");
+
+        SeriesOcupacion cargada = new SeriesOcupacion(PARQUEADERO, reloj);
+        Pruebas.verificar(GestorArchivos.cargarSeriesOcupacion(cargada), "el modelo se carga");
+        Pruebas.igual(modelo(original), modelo(cargada), "el modelo cargado es igual al guardado");
+
+        original.registrar(momento, 12, 3, ESPACIOS_AUTO, 10);
+        cargada.registrar(momento, 12, 3, ESPACIOS_AUTO, 10);
+        Pruebas.verificar(Arrays.equals(original.getPronostico().getJson(), cargada.getPronostico().getJson()),
+                "el modelo cargado da el mismo pronostico");
+
+        Pruebas.verificar(!GestorArchivos.cargarSeriesOcupacion(new SeriesOcupacion("SIN_MODELO", reloj)),
+                "sin modelo guardado no se carga nada");
+    }
+
+    /**
+     * Un modelo con formato invalido no cambia el modelo actual
+     *
+     * @throws IOException Si falla la lectura del modelo en memoria
+     */
+    private static void probarModeloDanado() throws IOException {
+        RelojManual reloj = crearReloj();
+        SeriesOcupacion series = new SeriesOcupacion(PARQUEADERO, reloj);
+        registrarDias(series, reloj, 1);
+        String antes = modelo(series);
+
+        String[] danados = {
+            "",
+            "40|10|0.0|0.0|5",
+            "40|10|0.0|0.0|5|1\n12|3.5",
+            "40|10|0.0|0.0|5|1\n999|3.5|1.0",
+            "40|10|x|0.0|5|1\n12|3.5|1.0",
+        };
+        for (String danado : danados) {
+            Pruebas.verificar(!series.leerModelo(new BufferedReader(new StringReader(danado))),
+                    "se rechaza el modelo danado '" + danado.replace('\n', '/') + "'");
+        }
+        Pruebas.igual(antes, modelo(series), "un modelo danado no cambia el actual");
+    }
+
+    /**
+     * Sin espacios de un tipo no se pronostica cuando se llena, aunque el
+     * otro tipo si se llene
+     */
+    private static void probarSinEspacios() {
+        RelojManual reloj = crearReloj();
+        SeriesOcupacion series = new SeriesOcupacion(PARQUEADERO, reloj);
+        for (int i = 0; i < 3; i++) {
+            series.registrar(reloj.ahoraMillis(), ESPACIOS_AUTO, 0, ESPACIOS_AUTO, 0);
+            reloj.avanzar(SeriesOcupacion.INTERVALO_MUESTRA_MILLIS);
+        }
+        SeriesOcupacion.Pronostico pronostico = series.getPronostico();
+        Pruebas.igual(-1, pronostico.getMinutosHastaLleno("MOTO"), "sin espacios de moto no hay tiempo hasta lleno");
+        Pruebas.igual(SeriesOcupacion.MINUTOS_POR_MUESTRA, pronostico.getMinutosHastaLleno("AUTO"),
+                "los autos llenos se pronostican llenos en el siguiente paso");
+    }
+
+    /**
+     * Registra muestras cada MINUTOS_POR_MUESTRA durante unos dias, con
+     * mas autos a mediodia que de noche
+     *
+     * @param series Las series
+     * @param reloj El reloj, que avanza con cada muestra
+     * @param dias Dias de muestras
+     * @return El momento de la siguiente muestra
+     */
+    private static long registrarDias(SeriesOcupacion series, RelojManual reloj, int dias) {
+        int muestras = dias * 24 * 60 / SeriesOcupacion.MINUTOS_POR_MUESTRA;
+        for (int i = 0; i < muestras; i++) {
+            int hora = reloj.ahora().getHour();
+            int autos = Math.max(0, ESPACIOS_AUTO - 3 * Math.abs(12 - hora) + i % 3);
+            series.registrar(reloj.ahoraMillis(), Math.min(ESPACIOS_AUTO, autos), hora % 4, ESPACIOS_AUTO, 10);
+            reloj.avanzar(SeriesOcupacion.INTERVALO_MUESTRA_MILLIS);
+        }
+        return reloj.ahoraMillis();
+    }
+
+    /**
+     * Crea un reloj al inicio de un dia
+     *
+     * @return El reloj
+     */
+    private static RelojManual crearReloj() {
+        RelojManual reloj = new RelojManual(0);
+        reloj.establecer(reloj.aMillis(LocalDate.of(2026, 3, 2).atStartOfDay()));
+        return reloj;
+    }
+
+    /**
+     * Escribe el modelo de unas series en un texto
+     *
+     * @param series Las series
+     * @return El modelo escrito
+     */
+    private static String modelo(SeriesOcupacion series) {
+        StringBuilder texto = new StringBuilder();
+        try {
+            series.escribirModelo(texto);
+        } catch (IOException e) {
+            // Un StringBuilder no falla al escribir
+        }
+        return texto.toString();
+    }
+}
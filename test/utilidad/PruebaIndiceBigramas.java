@@ -0,0 +1,171 @@
+package utilidad;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Random;
+
+/**
+ * Pruebas del indice de bigramas: el filtro por bigramas compartidos no
+ * pierde ninguna clave a la distancia pedida (se compara con recorrer
+ * todas), tampoco despues de quitar y volver a agregar claves.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public class PruebaIndiceBigramas {
+
+    /**
+     * Placas en el indice
+     */
+    private static final int PLACAS = 2000;
+
+    /**
+     * Consultas por cada distancia
+     */
+    private static final int CONSULTAS = 300;
+
+    /**
+     * Ejecuta la prueba sola
+     *
+     * @param args No se usan
+     */
+    public static void main(String[] args) {
+        ejecutar();
+        Pruebas.salir();
+    }
+
+    /**
+     * Ejecuta todas las comprobaciones
+     */
+    public static void ejecutar() {
+        probarDistancia();
+        probarContraFuerzaBruta();
+    }
+
+    /**
+     * La distancia de Levenshtein cuenta cambios, inserciones y borrados
+     */
+    private static void probarDistancia() {
+        Pruebas.igual(0, IndiceBigramas.distancia("ABC123", "ABC123"), "distancia de iguales");
+        Pruebas.igual(1, IndiceBigramas.distancia("ABC123", "ABC124"), "un cambio");
+        Pruebas.igual(1, IndiceBigramas.distancia("ABC123", "ABC1234"), "una insercion");
+        Pruebas.igual(1, IndiceBigramas.distancia("ABC123", "AC123"), "un borrado");
+        Pruebas.igual(6, IndiceBigramas.distancia("ABC123", ""), "contra vacio");
+    }
+
+    /**
+     * Las busquedas a 0, 1 y 2 errores dan lo mismo que comparar con todas las placas
+     */
+    private static void probarContraFuerzaBruta() {
+        // Alfabeto pequeno para que haya muchas placas vecinas y bigramas repetidos
+        Random azar = new Random(42);
+        ArrayList<String> placas = new ArrayList<String>();
+        HashSet<String> unicas = new HashSet<String>();
+        while (placas.size() < PLACAS) {
+            String placa = placaAlAzar(azar);
+            if (unicas.add(placa)) {
+                placas.add(placa);
+            }
+        }
+
+        IndiceBigramas indice = new IndiceBigramas();
+        for (String placa : placas) {
+            indice.agregar(placa, placa);
+        }
+        Pruebas.verificar(!indice.agregar(placas.get(0), placas.get(0)), "un valor repetido no se agrega");
+        Pruebas.igual(PLACAS, indice.contarValores(), "se cuentan las placas agregadas");
+        comparar(indice, placas, azar, "con todas las placas");
+
+        // Quitar la mitad y volver a agregar algunas reutiliza identificadores
+        ArrayList<String> quedan = new ArrayList<String>();
+        for (int i = 0; i < placas.size(); i++) {
+            if (i % 2 == 0) {
+                indice.quitar(placas.get(i));
+            } else {
+                quedan.add(placas.get(i));
+            }
+        }
+        Pruebas.verificar(!indice.quitar(placas.get(0)), "quitar dos veces no hace nada");
+        comparar(indice, quedan, azar, "despues de quitar la mitad");
+
+        for (int i = 0; i < placas.size(); i += 4) {
+            indice.agregar(placas.get(i), placas.get(i));
+            quedan.add(placas.get(i));
+        }
+        Pruebas.igual(quedan.size(), indice.contarValores(), "se cuentan las placas despues de reagregar");
+        comparar(indice, quedan, azar, "despues de reagregar");
+    }
+
+    /**
+     * Compara las busquedas del indice con recorrer todas las placas
+     *
+     * @param indice El indice
+     * @param placas Las placas que deberian estar en el indice
+     * @param azar El generador de consultas
+     * @param momento Cuando se compara, para la descripcion
+     */
+    private static void comparar(IndiceBigramas indice, ArrayList<String> placas, Random azar, String momento) {
+        for (int errores = 0; errores <= 2; errores++) {
+            int distintas = 0;
+            for (int i = 0; i < CONSULTAS; i++) {
+                String consulta = alterar(placas.get(azar.nextInt(placas.size())), azar);
+
+                HashSet<String> esperadas = new HashSet<String>();
+                for (String placa : placas) {
+                    if (IndiceBigramas.distancia(consulta, placa) <= errores) {
+                        esperadas.add(placa);
+                    }
+                }
+                ArrayList<String> encontradas = indice.buscar(consulta, errores);
+                if (encontradas.size() != esperadas.size() || !esperadas.containsAll(encontradas)) {
+                    distintas++;
+                }
+            }
+            Pruebas.igual(0, distintas, "busquedas a " + errores + " errores iguales a la fuerza bruta " + momento);
+        }
+    }
+
+    /**
+     * Crea una placa de tres letras y tres numeros con pocos caracteres posibles
+     *
+     * @param azar El generador
+     * @return La placa
+     */
+    private static String placaAlAzar(Random azar) {
+        StringBuilder placa = new StringBuilder(6);
+        for (int i = 0; i < 3; i++) {
+            placa.append((char) ('A' + azar.nextInt(4)));
+        }
+        for (int i = 0; i < 3; i++) {
+            placa.append((char) ('0' + azar.nextInt(4)));
+        }
+        return placa.toString();
+    }
+
+    /**
+     * Aplica a una placa entre 0 y 3 cambios, inserciones o borrados al azar
+     *
+     * @param placa La placa
+     * @param azar El generador
+     * @return La placa alterada
+     */
+    private static String alterar(String placa, Random azar) {
+        StringBuilder alterada = new StringBuilder(placa);
+        int cambios = azar.nextInt(4);
+        for (int i = 0; i < cambios && alterada.length() > 1; i++) {
+            int posicion = azar.nextInt(alterada.length());
+            char caracter = azar.nextBoolean() ? (char) ('A' + azar.nextInt(4)) : (char) ('0' + azar.nextInt(4));
+            switch (azar.nextInt(3)) {
+                case 0:
+                    alterada.setCharAt(posicion, caracter);
+                    break;
+                case 1:
+                    alterada.insert(posicion, caracter);
+                    break;
+                default:
+                    alterada.deleteCharAt(posicion);
+            }
+        }
+        return alterada.toString();
+    }
+}
@@ -0,0 +1,132 @@
+package utilidad;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.ServerSocket;
+import java.net.URL;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Comprobaciones minimas para las pruebas, sin bibliotecas externas.
+ * Cada comprobacion fallida se muestra y se cuenta; al final terminar()
+ * muestra el resumen y dice cuantas fallaron.
+ *
+ * @author Velez
+ * @version 1.0
+ */
+public final class Pruebas {
+
+    /**
+     * Comprobaciones que pasaron
+     */
+    private static int exitos;
+
+    /**
+     * Comprobaciones que fallaron
+     */
+    private static int fallos;
+
+    /**
+     * Constructor privado para evitar instanciacion.
+     * Esta clase solo contiene metodos estaticos.
+     */
+    private Pruebas() {
+        // Constructor privado
+    }
+
+    /**
+     * Comprueba que una condicion se cumpla
+     *
+     * @param condicion La condicion
+     * @param descripcion Que se esta comprobando
+     */
+    public static void verificar(boolean condicion, String descripcion) {
+        if (condicion) {
+            exitos++;
+        } else {
+            fallos++;
+            System.out.println("FALLO: " + descripcion);
+        }
+    }
+
+    /**
+     * Comprueba que un valor sea el esperado
+     *
+     * @param esperado El valor esperado
+     * @param obtenido El valor obtenido
+     * @param descripcion Que se esta comprobando
+     */
+    public static void igual(Object esperado, Object obtenido, String descripcion) {
+        verificar(Objects.equals(esperado, obtenido),
+                descripcion + " (esperado " + esperado + ", obtenido " + obtenido + ")");
+    }
+
+    /**
+     * Muestra el resumen de las comprobaciones
+     *
+     * @return El numero de comprobaciones que fallaron
+     */
+    public static int terminar() {
+        System.out.println(exitos + " comprobaciones correctas, " + fallos + " fallidas");
+        return fallos;
+    }
+
+    /**
+     * Muestra el resumen y termina el proceso con codigo 1 si alguna comprobacion fallo
+     */
+    public static void salir() {
+        System.exit(terminar() == 0 ? 0 : 1);
+    }
+
+    /**
+     * Busca un puerto libre en la maquina
+     *
+     * @return El puerto
+     * @throws IOException Si no se pudo abrir un socket
+     */
+    public static int puertoLibre() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0)) {
+            return socket.getLocalPort();
+        }
+    }
+
+    /**
+     * Hace una peticion HTTP y devuelve el codigo de la respuesta
+     *
+     * @param url La URL
+     * @param metodo El metodo HTTP
+     * @param cabeceras Cabeceras adicionales
+     * @return El codigo HTTP
+     * @throws IOException Si no se pudo contactar al servidor
+     */
+    public static int llamar(String url, String metodo, Map<String, String> cabeceras) throws IOException {
+        HttpURLConnection conexion = (HttpURLConnection) new URL(url).openConnection();
+        conexion.setRequestMethod(metodo);
+        for (Map.Entry<String, String> cabecera : cabeceras.entrySet()) {
+            conexion.setRequestProperty(cabecera.getKey(), cabecera.getValue());
+        }
+
+        int codigo = conexion.getResponseCode();
+        InputStream entrada = codigo < 400 ? conexion.getInputStream() : conexion.getErrorStream();
+        if (entrada != null) {
+            // Se lee el cuerpo completo para que la conexion se pueda reutilizar
+            entrada.readAllBytes();
+            entrada.close();
+        }
+        return codigo;
+    }
+
+    /**
+     * Hace una peticion HTTP sin cabeceras adicionales
+     *
+     * @param url La URL
+     * @param metodo El metodo HTTP
+     * @return El codigo HTTP
+     * @throws IOException Si no se pudo contactar al servidor
+     */
+    public static int llamar(String url, String metodo) throws IOException {
+        return llamar(url, metodo, Map.of());
+    }
+}